@@ -0,0 +1,114 @@
+package com.silcos.board;
+
+/**
+ * Reference game for the harness: Breakthrough on an 8x8
+ * {@link FlatBoard}. Each player starts with 16 pawns on their two home
+ * rows; player 0 at the top, moving down, and player 1 at the bottom,
+ * moving up. A pawn steps one row forward, straight or diagonally, and
+ * captures by moving diagonally onto an opponent's pawn. The first player
+ * to reach the far row wins, as does the player whose opponent is left
+ * with no move.
+ *
+ * Every move takes one piece from a source to a destination, capturing
+ * whatever is there, which is the model {@link Move}, {@link MoveLog} and
+ * {@link BoardMonoStateCache} are built on; so the whole engine, undo &
+ * state caches included, is exercised without game-specific overrides.
+ */
+class BreakthroughGame extends BoardGame {
+
+    public static final int SIZE = 8;
+    public static final int PIECES_PER_PLAYER = 2 * SIZE;
+
+    class BreakthroughBoard extends FlatBoard {
+
+        BreakthroughBoard() {
+            super(SIZE, SIZE);
+        }
+
+        @Override
+        public boolean handle(Move directMove) {
+            final Piece moved = pieceAt(directMove.getSrcRow(), directMove.getSrcCol());
+
+            if (moved == null || moved.playerId() != mController.playerRotator.getCurrentId())
+                return false;
+
+            final Piece target = pieceAt(directMove.getDstRow(), directMove.getDstCol());
+            final int colStep = directMove.getDstCol() - directMove.getSrcCol();
+
+            if (directMove.getDstRow() - directMove.getSrcRow() != forward(moved.playerId())
+                    || colStep < -1 || colStep > 1)
+                return false;
+            if (target != null && (colStep == 0 || target.playerId() == moved.playerId()))
+                return false;
+
+            movePiece(offsetOf(directMove.getSrcRow(), directMove.getSrcCol()),
+                    offsetOf(directMove.getDstRow(), directMove.getDstCol()));
+            return true;
+        }
+    }
+
+    static class BreakthroughPlayer extends Player {
+
+        BreakthroughPlayer(BoardGame work, int id) {
+            super(work, work.mController);
+            allocatePieces(PIECES_PER_PLAYER, id);
+        }
+
+        @Override
+        public void initAfterGame() {
+        }
+    }
+
+    BreakthroughGame() {
+        super(new CircularPlayerRotator.Factory(), 2);
+        mBoard = new BreakthroughBoard();
+
+        for (int id = 0; id < 2; id++) {
+            setPlayer(new BreakthroughPlayer(this, id), id);
+        }
+
+        renewInputController();
+
+        final FlatBoard board = (FlatBoard) mBoard;
+
+        for (int i = 0; i < PIECES_PER_PLAYER; i++) {
+            board.setPieceAt(mPlayers[0].myPieces[i], i / SIZE, i % SIZE);
+            board.setPieceAt(mPlayers[1].myPieces[i], SIZE - 1 - i / SIZE, i % SIZE);
+        }
+
+        setMoveGenerator(BreakthroughMoveGenerator.ON_BOARD);
+        setCountsCaptures(true);
+
+        // Reaching the far row ends the game
+        addBoardEventListener(PIECE_MOVE_EVENT, new BoardEventListener() {
+            @Override
+            public void handleEvent(Event e) {
+                final MoveEvent move = (MoveEvent) e;
+                final int playerId = ((Piece) move.targetHolder).playerId();
+
+                if (move.destRow == goalRow(playerId)) {
+                    mController.acceptResignation(playerId);
+                }
+            }
+        });
+    }
+
+    GameInputController controller() {
+        return mController;
+    }
+
+    /**
+     * Returns the no. of rows the player's pawns advance by per move.
+     */
+    static int forward(int playerId) {
+        return (playerId == 0) ? 1 : -1;
+    }
+
+    /**
+     * Returns the row the player must reach to win.
+     */
+    static int goalRow(int playerId) {
+        return (playerId == 0) ? SIZE - 1 : 0;
+    }
+
+}
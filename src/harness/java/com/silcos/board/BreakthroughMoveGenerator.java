@@ -0,0 +1,83 @@
+package com.silcos.board;
+
+/**
+ * Generates Breakthrough moves (see {@link BreakthroughGame}), either on
+ * the live board or on a {@link BoardMonoStateCache}; both share the
+ * same rules and differ only in how cells are read.
+ *
+ * No moves are generated once either player has reached their goal row,
+ * so a won position is a leaf of the move tree.
+ *
+ * @param <S> type of position moves are generated for
+ */
+abstract class BreakthroughMoveGenerator<S> implements MoveGenerator<S> {
+
+    /**
+     * Max. no. of moves in any position: three per pawn.
+     */
+    public static final int MAX_MOVES = 3 * BreakthroughGame.PIECES_PER_PLAYER;
+
+    public static final BreakthroughMoveGenerator<Board> ON_BOARD =
+            new BreakthroughMoveGenerator<Board>() {
+                @Override
+                protected Piece pieceAt(Board position, int row, int col) {
+                    return position.pieceAt(row, col);
+                }
+            };
+
+    public static final BreakthroughMoveGenerator<BoardMonoStateCache> ON_STATE =
+            new BreakthroughMoveGenerator<BoardMonoStateCache>() {
+                @Override
+                protected Piece pieceAt(BoardMonoStateCache position, int row, int col) {
+                    return position.pieceAt(row, col);
+                }
+            };
+
+    protected abstract Piece pieceAt(S position, int row, int col);
+
+    @Override
+    public int generateMoves(S position, int playerId, long[] moves, int offset) {
+        final int size = BreakthroughGame.SIZE;
+
+        for (int c = 0; c < size; c++) {
+            final Piece top = pieceAt(position, 0, c);
+            final Piece bottom = pieceAt(position, size - 1, c);
+
+            if ((top != null && top.playerId() == 1) || (bottom != null && bottom.playerId() == 0))
+                return 0;
+        }
+
+        final int forward = BreakthroughGame.forward(playerId);
+        int count = offset;
+
+        for (int r = 0; r < size; r++) {
+            final int dstRow = r + forward;
+
+            if (dstRow < 0 || dstRow >= size)
+                continue;
+
+            for (int c = 0; c < size; c++) {
+                final Piece pawn = pieceAt(position, r, c);
+
+                if (pawn == null || pawn.playerId() != playerId)
+                    continue;
+
+                for (int dc = -1; dc <= 1; dc++) {
+                    final int dstCol = c + dc;
+
+                    if (dstCol < 0 || dstCol >= size)
+                        continue;
+
+                    final Piece target = pieceAt(position, dstRow, dstCol);
+
+                    if (target == null || (dc != 0 && target.playerId() != playerId)) {
+                        moves[count++] = PackedMove.encode(r, c, dstRow, dstCol);
+                    }
+                }
+            }
+        }
+
+        return count - offset;
+    }
+
+}
@@ -0,0 +1,107 @@
+package com.silcos.board;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+/**
+ * Headless end-to-end harness: runs perft counts and random self-play of
+ * {@link BreakthroughGame} on all cores, with no UI and no platform other
+ * than a {@link HeadlessPlatformProvider}, and prints throughput,
+ * allocation and {@code placeMove} latency.
+ *
+ * <pre>
+ *     gradle harness -Pharness.args="perft 5"
+ *     gradle harness -Pharness.args="selfplay 100000 8"
+ * </pre>
+ *
+ * The optional last argument is the no. of threads; it defaults to the
+ * no. of processors. Self-play first plays a tenth of the games, untimed,
+ * to warm up the JIT.
+ */
+public final class Harness {
+
+    public static void main(String[] args) throws InterruptedException {
+        final String mode = (args.length > 0) ? args[0] : "selfplay";
+        final int threads = (args.length > 2) ? Integer.parseInt(args[2])
+                : Runtime.getRuntime().availableProcessors();
+        final HeadlessPlatformProvider provider = new HeadlessPlatformProvider(threads);
+
+        BoardGame.setDefaultProvider(provider);
+
+        try {
+            if (mode.equals("perft")) {
+                runPerft((args.length > 1) ? Integer.parseInt(args[1]) : 5, provider);
+            } else if (mode.equals("selfplay")) {
+                runSelfPlay((args.length > 1) ? Integer.parseInt(args[1]) : 10000, provider);
+            } else {
+                System.err.println("Usage: Harness perft [depth] [threads]"
+                        + " | selfplay [games] [threads]");
+                System.exit(2);
+            }
+        } finally {
+            provider.shutdown();
+        }
+    }
+
+    private static void runPerft(int depth, HeadlessPlatformProvider provider)
+            throws InterruptedException {
+        for (int d = 1; d <= depth; d++) {
+            final long start = System.nanoTime();
+            final long leaves = Perft.countParallel(new BreakthroughGame(), d, provider);
+            final long elapsedNanos = System.nanoTime() - start;
+
+            System.out.println(String.format("perft(%d) = %d in %.1f ms, %.0f nodes/s",
+                    d, leaves, elapsedNanos / 1e6, leaves / (elapsedNanos / 1e9)));
+        }
+    }
+
+    private static void runSelfPlay(int games, HeadlessPlatformProvider provider)
+            throws InterruptedException {
+        SelfPlay.run(Math.max(1, games / 10), 0, provider);
+
+        final SelfPlay.Result result = SelfPlay.run(games, 1, provider);
+        final double seconds = result.elapsedNanos / 1e9;
+        final LatencyHistogram.Snapshot latency = result.placeMoveLatency;
+
+        System.out.println(String.format("%d games, %d moves on %d threads in %.2f s",
+                result.games, result.moves, provider.getThreads(), seconds));
+        System.out.println(String.format("  %.0f games/s, %.0f moves/s",
+                result.games / seconds, result.moves / seconds));
+
+        if (result.allocatedBytes >= 0) {
+            System.out.println(String.format("  %.1f MB/s allocated, %d bytes/move",
+                    result.allocatedBytes / seconds / (1 << 20),
+                    result.allocatedBytes / Math.max(result.moves, 1)));
+        } else {
+            System.out.println("  allocation rate not available on this JVM");
+        }
+
+        System.out.println(String.format("  placeMove p50 %d ns, p99 %d ns, max %d ns",
+                latency.getValueAtPercentile(50), latency.getValueAtPercentile(99),
+                latency.getMaxNanos()));
+    }
+
+    /**
+     * Returns the no. of bytes allocated by the current thread so far, or
+     * -1 if the JVM doesn't count them.
+     */
+    static long allocatedBytes() {
+        final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            final com.sun.management.ThreadMXBean counting =
+                    (com.sun.management.ThreadMXBean) threads;
+
+            if (counting.isThreadAllocatedMemorySupported()
+                    && counting.isThreadAllocatedMemoryEnabled()) {
+                return counting.getThreadAllocatedBytes(Thread.currentThread().getId());
+            }
+        }
+
+        return -1;
+    }
+
+    private Harness() {
+    }
+
+}
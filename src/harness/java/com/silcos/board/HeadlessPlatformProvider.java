@@ -0,0 +1,68 @@
+package com.silcos.board;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Stand-in platform for the harness: compute tasks run on a fixed pool of
+ * daemon threads, one per worker, and game events run on the thread that
+ * raised them, as there is no UI thread to hand them to. Delayed tasks
+ * wait on a single daemon timer thread; once due, event tasks run on that
+ * thread, one at a time, and compute tasks are handed to the pool.
+ */
+class HeadlessPlatformProvider extends InstrumentedPlatformProvider {
+
+    private final ExecutorService computePool;
+    private final ScheduledThreadPoolExecutor timer;
+    private final int threads;
+
+    HeadlessPlatformProvider(int threads) {
+        super(4096, RejectionPolicy.CALLER_RUNS);
+        this.threads = threads;
+        this.computePool = Executors.newFixedThreadPool(threads,
+                new JdkPlatformProvider.DaemonThreadFactory("Harness"));
+        this.timer = new ScheduledThreadPoolExecutor(1,
+                new JdkPlatformProvider.DaemonThreadFactory("HarnessTimer"));
+        this.timer.setRemoveOnCancelPolicy(true);
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    @Override
+    protected void execute(boolean eventTask, Runnable task) {
+        if (eventTask) {
+            task.run();
+        } else {
+            computePool.execute(task);
+        }
+    }
+
+    @Override
+    protected void schedule(int ms, boolean eventTask, final Runnable task) {
+        if (eventTask) {
+            timer.schedule(task, ms, TimeUnit.MILLISECONDS);
+        } else {
+            timer.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    computePool.execute(task);
+                }
+            }, ms, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Stops accepting tasks; delayed tasks whose delay hasn't passed are
+     * dropped.
+     */
+    public void shutdown() {
+        timer.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+        timer.shutdown();
+        computePool.shutdown();
+    }
+
+}
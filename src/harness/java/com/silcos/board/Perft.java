@@ -0,0 +1,121 @@
+package com.silcos.board;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts the leaves of the Breakthrough move tree to a fixed depth, by
+ * making & unmaking moves on a {@link BoardMonoStateCache}. Perft counts
+ * check move generation and the state caches against known values, and
+ * measure how fast positions can be walked.
+ */
+final class Perft {
+
+    /**
+     * Returns the no. of move sequences of the given length from the
+     * state, with the player given to move first. Buffers are allocated
+     * once per call, so walking the tree allocates nothing.
+     *
+     * @param state position to count from; it is restored before returning
+     * @param playerId player to move
+     * @param depth no. of moves in each sequence
+     * @return no. of leaves
+     */
+    static long count(BoardMonoStateCache state, int playerId, int depth) {
+        return count(state, playerId, depth,
+                new long[Math.max(depth, 1)][BreakthroughMoveGenerator.MAX_MOVES]);
+    }
+
+    /**
+     * Counts like {@code count}, with the root moves split between the
+     * compute threads of the provider; each thread walks its own copy of
+     * the state.
+     *
+     * @param game game whose current position is the root
+     * @param depth no. of moves in each sequence
+     * @param provider platform to run the workers on
+     * @return no. of leaves
+     * @throws InterruptedException if interrupted while waiting for the workers
+     */
+    static long countParallel(BreakthroughGame game, final int depth,
+                              HeadlessPlatformProvider provider) throws InterruptedException {
+        final BoardMonoStateCache root = BoardMonoStateCache.buildCache(game);
+        final int playerId = game.controller().playerRotator.getCurrentId();
+
+        if (depth < 2)
+            return count(root, playerId, depth);
+
+        final long rootMoves[] = new long[BreakthroughMoveGenerator.MAX_MOVES];
+        final int rootMoveCount = BreakthroughMoveGenerator.ON_STATE.generateMoves(root,
+                playerId, rootMoves, 0);
+
+        final int workers = Math.min(provider.getThreads(), rootMoveCount);
+        final AtomicInteger nextMove = new AtomicInteger();
+        final AtomicLong leaves = new AtomicLong();
+        final CountDownLatch done = new CountDownLatch(workers);
+        final Throwable failure[] = new Throwable[1];
+
+        for (int w = 0; w < workers; w++) {
+            provider.runComputeIntensiveTask(BoardPlatformProvider.COMPUTER_TASK, new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        final BoardMonoStateCache state = root.copyState();
+                        final long buffers[][] = new long[depth][BreakthroughMoveGenerator.MAX_MOVES];
+                        int index;
+
+                        while ((index = nextMove.getAndIncrement()) < rootMoveCount) {
+                            state.makeMove(rootMoves[index]);
+                            leaves.addAndGet(count(state, 1 - playerId, depth - 1, buffers));
+                            state.unmakeMove();
+                        }
+                    } catch (Throwable t) {
+                        synchronized (failure) {
+                            failure[0] = t;
+                        }
+                    } finally {
+                        done.countDown();
+                    }
+                }
+            });
+        }
+
+        done.await();
+
+        synchronized (failure) {
+            if (failure[0] != null) {
+                throw new IllegalStateException("Perft worker failed.", failure[0]);
+            }
+        }
+
+        return leaves.get();
+    }
+
+    private static long count(BoardMonoStateCache state, int playerId, int depth,
+                              long[][] buffers) {
+        if (depth == 0)
+            return 1;
+
+        final long moves[] = buffers[depth - 1];
+        final int moveCount = BreakthroughMoveGenerator.ON_STATE.generateMoves(state,
+                playerId, moves, 0);
+
+        if (depth == 1)
+            return moveCount;
+
+        long leaves = 0;
+
+        for (int i = 0; i < moveCount; i++) {
+            state.makeMove(moves[i]);
+            leaves += count(state, 1 - playerId, depth - 1, buffers);
+            state.unmakeMove();
+        }
+
+        return leaves;
+    }
+
+    private Perft() {
+    }
+
+}
@@ -0,0 +1,146 @@
+package com.silcos.board;
+
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.silcos.board.BoardGame.GameInputController;
+
+/**
+ * Plays Breakthrough games between random players, through the same
+ * {@code placeMove} path as a real game, on all compute threads of a
+ * provider at once.
+ */
+final class SelfPlay {
+
+    static final class Result {
+
+        public final int games;
+        public final long moves;
+        public final long elapsedNanos;
+
+        /**
+         * Bytes allocated by the workers, or -1 if the JVM can't tell.
+         */
+        public final long allocatedBytes;
+
+        /**
+         * Time taken by each {@code placeMove}, events included.
+         */
+        public final LatencyHistogram.Snapshot placeMoveLatency;
+
+        Result(int games, long moves, long elapsedNanos, long allocatedBytes,
+               LatencyHistogram.Snapshot placeMoveLatency) {
+            this.games = games;
+            this.moves = moves;
+            this.elapsedNanos = elapsedNanos;
+            this.allocatedBytes = allocatedBytes;
+            this.placeMoveLatency = placeMoveLatency;
+        }
+    }
+
+    /**
+     * Plays the games, and waits for all of them to finish.
+     *
+     * @param games no. of games to play
+     * @param seed seed of the random players; worker n uses seed + n
+     * @param provider platform to run the workers on
+     * @return counts & timings of the run
+     * @throws InterruptedException if interrupted while waiting for the workers
+     */
+    static Result run(final int games, final long seed, HeadlessPlatformProvider provider)
+            throws InterruptedException {
+        final int workers = Math.max(1, Math.min(provider.getThreads(), games));
+        final AtomicInteger nextGame = new AtomicInteger();
+        final AtomicLong moves = new AtomicLong();
+        final AtomicLong allocatedBytes = new AtomicLong();
+        final LatencyHistogram latency = new LatencyHistogram();
+        final CountDownLatch done = new CountDownLatch(workers);
+        final Throwable failure[] = new Throwable[1];
+        final long start = System.nanoTime();
+
+        for (int w = 0; w < workers; w++) {
+            final long workerSeed = seed + w;
+
+            provider.runComputeIntensiveTask(BoardPlatformProvider.COMPUTER_TASK, new Runnable() {
+                @Override
+                public void run() {
+                    final long allocatedAtStart = Harness.allocatedBytes();
+                    final Random random = new Random(workerSeed);
+                    final long buffer[] = new long[BreakthroughMoveGenerator.MAX_MOVES];
+                    long moveCount = 0;
+
+                    try {
+                        while (nextGame.getAndIncrement() < games) {
+                            moveCount += play(new BreakthroughGame(), random, buffer, latency);
+                        }
+                    } catch (Throwable t) {
+                        synchronized (failure) {
+                            failure[0] = t;
+                        }
+                    } finally {
+                        moves.addAndGet(moveCount);
+
+                        if (allocatedAtStart >= 0) {
+                            allocatedBytes.addAndGet(Harness.allocatedBytes() - allocatedAtStart);
+                        } else {
+                            allocatedBytes.set(Long.MIN_VALUE);
+                        }
+
+                        done.countDown();
+                    }
+                }
+            });
+        }
+
+        done.await();
+
+        final long elapsedNanos = System.nanoTime() - start;
+
+        synchronized (failure) {
+            if (failure[0] != null) {
+                throw new IllegalStateException("Self-play worker failed.", failure[0]);
+            }
+        }
+
+        return new Result(games, moves.get(), elapsedNanos,
+                Math.max(allocatedBytes.get(), -1), latency.snapshot());
+    }
+
+    /**
+     * Plays one game to the end, and returns its no. of moves.
+     */
+    private static int play(BreakthroughGame game, Random random, long[] buffer,
+                            LatencyHistogram latency) {
+        final GameInputController controller = game.controller();
+        int moveCount = 0;
+
+        while (!game.isDead()) {
+            final int playerId = controller.playerRotator.getCurrentId();
+            final int count = game.generateMoves(playerId, buffer, 0);
+
+            if (count == 0) {
+                controller.acceptResignation(1 - playerId);
+                break;
+            }
+
+            final long move = buffer[random.nextInt(count)];
+            final long start = System.nanoTime();
+
+            if (!controller.placeMove(move)) {
+                throw new IllegalStateException("Generated move " + Long.toHexString(move)
+                        + " was rejected.");
+            }
+
+            latency.record(System.nanoTime() - start);
+            ++moveCount;
+        }
+
+        return moveCount;
+    }
+
+    private SelfPlay() {
+    }
+
+}
@@ -0,0 +1,109 @@
+package com.silcos.board;
+
+/**
+ * Reference game for the benchmarks. Its board is a plain {@link Board}
+ * made of {@link Cell} objects, so the benchmarks measure the library's
+ * generic paths rather than {@link FlatBoard}'s. Each player owns a row
+ * of pieces: players 0 & 1 at the top & bottom edges, players 2 & 3 on
+ * the rows inside those. The middle row is kept empty, and any piece
+ * may move to any cell not holding a piece of its own player.
+ */
+class BenchGame extends BoardGame {
+
+    static class ReferenceCell implements Cell {
+
+        private Piece holder;
+
+        @Override
+        public Piece getHolder() {
+            return holder;
+        }
+
+        @Override
+        public void setHolder(Piece o) {
+            holder = o;
+        }
+    }
+
+    static class ReferenceBoard extends Board {
+
+        ReferenceBoard(int size) {
+            super(size, size);
+            allocateCellData();
+
+            for (int r = 0; r < size; r++) {
+                for (int c = 0; c < size; c++) {
+                    cellData[r][c] = new ReferenceCell();
+                }
+            }
+        }
+
+        @Override
+        public boolean handle(Move directMove) {
+            final Cell src = getCell(directMove.getSrcRow(), directMove.getSrcCol());
+            final Cell dst = getCell(directMove.getDstRow(), directMove.getDstCol());
+            final Piece moved = src.getHolder();
+            final Piece target = dst.getHolder();
+
+            if (moved == null || (target != null && target.playerId() == moved.playerId()))
+                return false;
+
+            src.setHolder(null);
+            dst.setHolder(moved);
+            return true;
+        }
+    }
+
+    static class BenchPlayer extends Player {
+
+        BenchPlayer(BoardGame work, int id, int pieceCount) {
+            super(work, work.mController);
+            allocatePieces(pieceCount, id);
+        }
+
+        @Override
+        public void initAfterGame() {
+        }
+    }
+
+    final int size;
+
+    /**
+     * @param size no. of rows & columns, at least 5
+     * @param playerCount no. of players, from 2 to 4
+     */
+    BenchGame(int size, int playerCount) {
+        super(new CircularPlayerRotator.Factory(), playerCount);
+        this.size = size;
+        mBoard = new ReferenceBoard(size);
+
+        for (int id = 0; id < playerCount; id++) {
+            setPlayer(new BenchPlayer(this, id, size), id);
+        }
+
+        renewInputController();
+
+        for (int id = 0; id < playerCount; id++) {
+            for (int c = 0; c < size; c++) {
+                mBoard.getCell(homeRow(id), c).setHolder(mPlayers[id].myPieces[c]);
+            }
+        }
+    }
+
+    /**
+     * Returns the row the player's pieces start on.
+     */
+    int homeRow(int playerId) {
+        final int depth = playerId / 2;
+        return (playerId % 2 == 0) ? depth : size - 1 - depth;
+    }
+
+    int middleRow() {
+        return size / 2;
+    }
+
+    GameInputController controller() {
+        return mController;
+    }
+
+}
@@ -0,0 +1,79 @@
+package com.silcos.board;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures a scan of every cell on the board through
+ * {@code Board.getCell}, addressed by offset and by row & column, and
+ * the same scan of a {@link FlatBoard} for comparison.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CellAccessBenchmark {
+
+    @Param({"8", "19"})
+    public int size;
+
+    private Board board;
+    private FlatBoard flatBoard;
+
+    @Setup
+    public void setUp() {
+        board = new BenchGame(size, 2).board();
+        flatBoard = new FlatBoard(size, size) {
+            @Override
+            public boolean handle(Move directMove) {
+                return false;
+            }
+        };
+
+        for (int c = 0; c < size; c++) {
+            flatBoard.setPieceAt(board.pieceAt(0, c), 0, c);
+        }
+    }
+
+    @Benchmark
+    public void getCellByOffset(Blackhole bh) {
+        final int cellCount = size * size;
+
+        for (int offset = 0; offset < cellCount; offset++) {
+            bh.consume(board.getCell(offset).getHolder());
+        }
+    }
+
+    @Benchmark
+    public void getCellByRowColumn(Blackhole bh) {
+        for (int r = 0; r < size; r++) {
+            for (int c = 0; c < size; c++) {
+                bh.consume(board.getCell(r, c).getHolder());
+            }
+        }
+    }
+
+    @Benchmark
+    public void flatPieceAtByOffset(Blackhole bh) {
+        final int cellCount = size * size;
+
+        for (int offset = 0; offset < cellCount; offset++) {
+            bh.consume(flatBoard.pieceAt(offset));
+        }
+    }
+
+}
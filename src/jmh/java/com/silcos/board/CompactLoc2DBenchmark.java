@@ -0,0 +1,59 @@
+package com.silcos.board;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link CompactLoc2D} encoding & decoding over every cell of a
+ * board, statically and through objects.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CompactLoc2DBenchmark {
+
+    @Param({"8", "19"})
+    public int size;
+
+    @Benchmark
+    public long encodeDecode() {
+        long sum = 0;
+
+        for (int r = 0; r < size; r++) {
+            for (int c = 0; c < size; c++) {
+                final long encoded = CompactLoc2D.encode(r, c);
+                sum += CompactLoc2D.decodeRow(encoded) + CompactLoc2D.decodeColumn(encoded);
+            }
+        }
+
+        return sum;
+    }
+
+    @Benchmark
+    public long encodeDecodeObjects() {
+        long sum = 0;
+
+        for (int r = 0; r < size; r++) {
+            for (int c = 0; c < size; c++) {
+                final Loc2D loc = new CompactLoc2D(r, c);
+                sum += loc.row() + loc.column();
+            }
+        }
+
+        return sum;
+    }
+
+}
@@ -0,0 +1,62 @@
+package com.silcos.board;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@code BoardGame.dispatchEvent} for an event with listeners
+ * on its type, and for one with none.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DispatchBenchmark {
+
+    @Param({"1", "8", "64"})
+    public int listeners;
+
+    @Param({"2", "4"})
+    public int players;
+
+    private BenchGame game;
+    private Event moveEvent;
+    private Event unheardEvent;
+
+    @Setup
+    public void setUp() {
+        game = new BenchGame(8, players);
+
+        for (int i = 0; i < listeners; i++) {
+            game.addBoardEventListener(BoardGame.PIECE_MOVE_EVENT,
+                    new PlaceMoveBenchmark.CountingListener());
+        }
+
+        moveEvent = new MoveEvent(game, 0, 0, 4, 0, null, null);
+        unheardEvent = new TimerTickEvent(0, 0, 10, game);
+    }
+
+    @Benchmark
+    public void dispatch() {
+        game.dispatchEvent(moveEvent);
+    }
+
+    @Benchmark
+    public void dispatchUnheard() {
+        game.dispatchEvent(unheardEvent);
+    }
+
+}
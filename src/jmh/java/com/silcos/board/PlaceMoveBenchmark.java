@@ -0,0 +1,71 @@
+package com.silcos.board;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@code GameInputController.placeMove} with listeners on the
+ * move event. Each operation places a move and takes it back with
+ * {@code undoMove}, so the game (and its move log) doesn't grow over the
+ * run.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PlaceMoveBenchmark {
+
+    @Param({"8", "19"})
+    public int size;
+
+    @Param({"2", "4"})
+    public int players;
+
+    @Param({"0", "1", "8"})
+    public int listeners;
+
+    private BenchGame game;
+    private Move move;
+
+    static final class CountingListener implements BoardEventListener {
+
+        int count;
+
+        @Override
+        public void handleEvent(Event e) {
+            ++count;
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        game = new BenchGame(size, players);
+
+        for (int i = 0; i < listeners; i++) {
+            game.addBoardEventListener(BoardGame.PIECE_MOVE_EVENT, new CountingListener());
+        }
+
+        final int col = size / 2;
+        move = new Move(true, game.homeRow(0), col, game.middleRow(), col);
+    }
+
+    @Benchmark
+    public boolean placeAndUndo() {
+        game.controller().placeMove(move);
+        return game.controller().undoMove();
+    }
+
+}
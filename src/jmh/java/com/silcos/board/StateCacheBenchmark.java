@@ -0,0 +1,69 @@
+package com.silcos.board;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures building, copying and stepping {@link BoardMonoStateCache}s,
+ * the allocating ({@code doMove}) and in-place ({@code makeMove} &
+ * {@code unmakeMove}) ways.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StateCacheBenchmark {
+
+    @Param({"8", "19"})
+    public int size;
+
+    @Param({"2", "4"})
+    public int players;
+
+    private BenchGame game;
+    private BoardMonoStateCache state;
+    private Move move;
+
+    @Setup
+    public void setUp() {
+        game = new BenchGame(size, players);
+        state = BoardMonoStateCache.buildCache(game);
+        move = new Move(true, game.homeRow(0), 0, game.middleRow(), 0);
+    }
+
+    @Benchmark
+    public BoardMonoStateCache buildCache() {
+        return BoardMonoStateCache.buildCache(game);
+    }
+
+    @Benchmark
+    public BoardMonoStateCache copyCache() {
+        return BoardMonoStateCache.copyCache(state, size, size);
+    }
+
+    @Benchmark
+    public BoardMonoStateCache doMove() {
+        return state.doMove(move, size, size);
+    }
+
+    @Benchmark
+    public BoardMonoStateCache makeAndUnmakeMove() {
+        state.makeMove(move);
+        state.unmakeMove();
+        return state;
+    }
+
+}
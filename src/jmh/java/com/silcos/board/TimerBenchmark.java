@@ -0,0 +1,81 @@
+package com.silcos.board;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures one {@link Timer} tick: counting down, sending the
+ * {@link TimerTickEvent} to the game's listeners, and scheduling the
+ * next tick. The provider drops scheduled tasks, so only the timer's
+ * own work is measured.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TimerBenchmark {
+
+    @Param({"2", "4"})
+    public int players;
+
+    @Param({"0", "1", "8"})
+    public int listeners;
+
+    private Timer timer;
+    private Timer wheelTimer;
+
+    static final class DiscardingProvider extends BoardPlatformProvider {
+
+        @Override
+        public void runComputeIntensiveTask(String taskName, Runnable taskExec) {
+        }
+
+        @Override
+        public void runComputeIntensiveTaskAfter(int ms, String taskName, Runnable taskExec) {
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        final BenchGame game = new BenchGame(8, players);
+        game.setPlatformProvider(new DiscardingProvider());
+
+        for (int i = 0; i < listeners; i++) {
+            game.addBoardEventListener(BoardGame.TIMER_TICK_EVENT,
+                    new PlaceMoveBenchmark.CountingListener());
+        }
+
+        timer = new Timer(players, 1000, game).resetAll(Integer.MAX_VALUE);
+        timer.start(0);
+
+        wheelTimer = new Timer(players, 1000, game, new TimerWheel(1, 512))
+                .resetAll(Integer.MAX_VALUE);
+        wheelTimer.start(0);
+    }
+
+    @Benchmark
+    public int tick() {
+        timer.dispatchTick(timer.dispatchId);
+        return timer.getPlayerTime(0);
+    }
+
+    @Benchmark
+    public int tickOnWheel() {
+        wheelTimer.dispatchTick(wheelTimer.dispatchId);
+        return wheelTimer.getPlayerTime(0);
+    }
+
+}
@@ -2,6 +2,7 @@ package com.silcos.board;
 
 import static com.silcos.board.BoardGame.ELIMINATION_EVENT;
 import static com.silcos.board.BoardGame.GAME_FINISH_EVENT;
+import static com.silcos.board.BoardGame.MOVE_UNDO_EVENT;
 import static com.silcos.board.BoardGame.PIECE_MOVE_EVENT;
 import static com.silcos.board.BoardGame.PLAYER_WIRE_EVENT;
 import static com.silcos.board.BoardGame.TIMER_TICK_EVENT;
@@ -57,6 +58,13 @@ public class AbstractBoardEventAdapter implements BoardEventListener, BoardEvent
      */
     public void onElimination(Event e) {}
 
+    /**
+     * Handles the events for moves that were taken back.
+     *
+     * @param e - MOVE_UNDO_EVENT event object
+     */
+    public void onUndo(Event e) {}
+
     /**
      * Handles all other events that have not been specified in this
      * class. This is particularly useful if your application defines
@@ -84,6 +92,9 @@ public class AbstractBoardEventAdapter implements BoardEventListener, BoardEvent
             case ELIMINATION_EVENT:
                 onElimination(e);
                 break;
+            case MOVE_UNDO_EVENT:
+                onUndo(e);
+                break;
             default:
                 onOther(e);
                 break;
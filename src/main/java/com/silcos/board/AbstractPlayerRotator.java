@@ -34,4 +34,17 @@ public abstract class AbstractPlayerRotator implements PlayerRotator {
     public final int getCurrentId() {
         return mCurrentId;
     }
+
+    /**
+     * Makes the given player current again, e.g. when a move is taken
+     * back. Rotators that keep more state than the current index should
+     * override this.
+     *
+     * @param playerId id of the player to return to
+     * @return the player
+     */
+    public Player rewindTo(int playerId) {
+        mCurrentId = playerId;
+        return mPlayers[playerId];
+    }
 }
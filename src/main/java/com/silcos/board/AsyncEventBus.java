@@ -0,0 +1,370 @@
+package com.silcos.board;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import static com.silcos.board.BoardPlatformProvider.COMPUTER_TASK;
+
+/**
+ * {@code AsyncEventBus} delivers board events to its subscribers on the
+ * platform's compute threads, instead of on the thread that dispatched
+ * them. It is itself a {@link BoardEventListener}; add it to a game and
+ * subscribe the slow listeners (UI, network spectators) to the bus:
+ *
+ * <pre>
+ *     AsyncEventBus bus = new AsyncEventBus(game.getPlatformProvider(), 1024);
+ *     game.addBoardEventListener(bus);
+ *     bus.subscribe(spectatorListener);
+ * </pre>
+ *
+ * Dispatching an event only stores it in a preallocated ring buffer and
+ * wakes up the subscribers' consumers, so the cost of {@code placeMove}
+ * or a timer tick doesn't depend on how slow the subscribers are. Each
+ * subscriber has its own consumer, run as a COMPUTER_TASK, which
+ * delivers all events that piled up since its last run as one batch (see
+ * {@link BoardEventBatchListener}). Consumers stay off the event lane, so
+ * a slow subscriber holds up neither timer ticks nor the game's own
+ * events; one subscriber's batches still never overlap. Within a batch, a
+ * {@link TimerTickEvent} is dropped if a later tick for the same player
+ * follows it.
+ *
+ * The producer never waits for consumers. A subscriber that falls behind
+ * by more than the ring's capacity skips the events that were overwritten;
+ * these are counted by {@code getDroppedEvents}.
+ */
+public class AsyncEventBus implements BoardEventListener {
+
+    private final BoardPlatformProvider provider;
+
+    private final AtomicReferenceArray<Event> slots;
+
+    /**
+     * Sequence no. of the event held in each slot; a consumer can read a
+     * slot once it holds the sequence it is waiting for. While a producer
+     * stores the event of sequence s, the slot holds {@code -s - 2}, so a
+     * consumer that is being lapped never takes the new event for the old.
+     */
+    private final AtomicLongArray published;
+
+    private final int mask;
+    private final int maxBatch;
+
+    /**
+     * Last sequence no. claimed by a producer.
+     */
+    private final AtomicLong cursor = new AtomicLong(-1);
+
+    private volatile Consumer[] consumers = new Consumer[0];
+
+    /**
+     * Creates a bus whose consumers deliver at most 64 events per batch.
+     *
+     * @param provider platform to run consumers on
+     * @param capacity size of the ring; rounded up to a power of 2
+     */
+    public AsyncEventBus(BoardPlatformProvider provider, int capacity) {
+        this(provider, capacity, 64);
+    }
+
+    public AsyncEventBus(BoardPlatformProvider provider, int capacity, int maxBatch) {
+        if (capacity < 2 || maxBatch < 1) {
+            throw new IllegalArgumentException("Ring must hold at least 2 events, and " +
+                    "batches at least 1.");
+        }
+
+        final int size = Integer.highestOneBit(capacity - 1) << 1;
+
+        this.provider = provider;
+        this.slots = new AtomicReferenceArray<>(size);
+        this.published = new AtomicLongArray(size);
+        this.mask = size - 1;
+        this.maxBatch = Math.min(maxBatch, size);
+
+        for (int i = 0; i < size; i++) {
+            published.set(i, -1);
+        }
+    }
+
+    public int getCapacity() {
+        return slots.length();
+    }
+
+    /**
+     * Subscribes the listener to all events dispatched to the bus from
+     * now on.
+     *
+     * @param listener listener to deliver events to
+     */
+    public void subscribe(BoardEventListener listener) {
+        synchronized (this) {
+            final Consumer[] current = consumers;
+            final Consumer[] updated = Arrays.copyOf(current, current.length + 1);
+            updated[current.length] = new Consumer(listener, cursor.get() + 1);
+            consumers = updated;
+        }
+    }
+
+    /**
+     * Stops delivering events to the listener. A batch that is being
+     * delivered is completed.
+     *
+     * @param listener listener to remove
+     */
+    public void unsubscribe(BoardEventListener listener) {
+        synchronized (this) {
+            final Consumer[] current = consumers;
+            final Consumer[] updated = new Consumer[current.length];
+            int count = 0;
+
+            for (Consumer consumer : current) {
+                if (consumer.listener == listener) {
+                    consumer.closed = true;
+                } else {
+                    updated[count++] = consumer;
+                }
+            }
+
+            consumers = Arrays.copyOf(updated, count);
+        }
+    }
+
+    /**
+     * Publishes the event to all subscribers. This can be called from
+     * several threads at once.
+     *
+     * @param e event to publish
+     */
+    @Override
+    public void handleEvent(Event e) {
+        final long sequence = cursor.incrementAndGet();
+        final int slot = (int) sequence & mask;
+
+        // Both stores are volatile, so a consumer that reads the new event
+        // also sees the slot marked as being written
+        published.set(slot, -sequence - 2);
+        slots.set(slot, e);
+        published.lazySet(slot, sequence);
+
+        for (Consumer consumer : consumers) {
+            consumer.wake();
+        }
+    }
+
+    /**
+     * Returns the no. of events the listener has not received yet.
+     *
+     * @param listener subscribed listener
+     * @return no. of pending events, or 0 if not subscribed
+     */
+    public long getBacklog(BoardEventListener listener) {
+        final Consumer consumer = find(listener);
+        return (consumer != null) ? Math.max(0, cursor.get() + 1 - consumer.nextSequence) : 0;
+    }
+
+    /**
+     * Returns the no. of events the listener missed because it fell
+     * behind by more than the ring's capacity.
+     *
+     * @param listener subscribed listener
+     * @return no. of events dropped
+     */
+    public long getDroppedEvents(BoardEventListener listener) {
+        final Consumer consumer = find(listener);
+        return (consumer != null) ? consumer.dropped : 0;
+    }
+
+    /**
+     * Returns the no. of timer ticks not delivered to the listener because
+     * a later tick for the same player superseded them.
+     *
+     * @param listener subscribed listener
+     * @return no. of ticks coalesced
+     */
+    public long getCoalescedTicks(BoardEventListener listener) {
+        final Consumer consumer = find(listener);
+        return (consumer != null) ? consumer.coalesced : 0;
+    }
+
+    /**
+     * Returns the sequence no. a {@code published} value is for, whether
+     * its event is stored yet or still being written.
+     */
+    private static long sequenceOf(long published) {
+        return (published <= -2) ? -published - 2 : published;
+    }
+
+    private Consumer find(BoardEventListener listener) {
+        for (Consumer consumer : consumers) {
+            if (consumer.listener == listener)
+                return consumer;
+        }
+
+        return null;
+    }
+
+    /**
+     * Delivers events to one listener. At most one run of a consumer is
+     * scheduled at any time, so its listener is never called concurrently.
+     */
+    private final class Consumer implements Runnable {
+
+        final BoardEventListener listener;
+        final AtomicBoolean scheduled = new AtomicBoolean();
+
+        final Event[] batch = new Event[maxBatch];
+        final int[] tickPlayers = new int[maxBatch];
+
+        /**
+         * Sequence no. of the next event to deliver; only changed by the
+         * consumer's own run.
+         */
+        volatile long nextSequence;
+
+        volatile long dropped;
+        volatile long coalesced;
+        volatile boolean closed;
+
+        Consumer(BoardEventListener listener, long nextSequence) {
+            this.listener = listener;
+            this.nextSequence = nextSequence;
+        }
+
+        void wake() {
+            if (!scheduled.get() && scheduled.compareAndSet(false, true)) {
+                provider.runComputeIntensiveTask(COMPUTER_TASK, this);
+            }
+        }
+
+        @Override
+        public void run() {
+            while (true) {
+                int count;
+
+                while (!closed && (count = fill()) > 0) {
+                    deliver(count);
+                }
+
+                scheduled.set(false);
+
+                // An event published after the last fill() may have seen
+                // this consumer as still scheduled; check again.
+                if (closed || !hasNext() || !scheduled.compareAndSet(false, true))
+                    return;
+            }
+        }
+
+        boolean hasNext() {
+            final long sequence = nextSequence;
+            final long available = published.get((int) sequence & mask);
+
+            // Published, or overwritten by a later sequence
+            return available == sequence || sequenceOf(available) > sequence;
+        }
+
+        /**
+         * Copies the events available to this consumer into the batch.
+         */
+        int fill() {
+            long sequence = nextSequence;
+            int count = 0;
+
+            while (count < maxBatch) {
+                final int slot = (int) sequence & mask;
+                final long available = published.get(slot);
+                final long written = sequenceOf(available);
+
+                if (written < sequence || (written == sequence && available != sequence))
+                    break;
+
+                final Event e = (written == sequence) ? slots.get(slot) : null;
+
+                if (written > sequence || published.get(slot) != sequence) {
+                    // Overwritten; skip to the oldest event still in the ring
+                    final long oldest = Math.max(sequence + 1, cursor.get() - mask);
+                    dropped += oldest - sequence;
+                    sequence = oldest;
+                    continue;
+                }
+
+                batch[count++] = e;
+                ++sequence;
+            }
+
+            nextSequence = sequence;
+            return count;
+        }
+
+        void deliver(int count) {
+            final Event[] batch = this.batch;
+
+            if (count > 1) {
+                count = coalesceTicks(count);
+            }
+
+            try {
+                if (listener instanceof BoardEventBatchListener) {
+                    ((BoardEventBatchListener) listener).handleEvents(batch, count);
+                } else {
+                    for (int i = 0; i < count; i++) {
+                        listener.handleEvent(batch[i]);
+                    }
+                }
+            } finally {
+                Arrays.fill(batch, 0, count, null);
+            }
+        }
+
+        /**
+         * Removes ticks followed by a later tick for the same player from
+         * the batch, keeping the order of the remaining events.
+         */
+        int coalesceTicks(int count) {
+            final Event[] batch = this.batch;
+            final int[] seenPlayers = this.tickPlayers;
+            int seenCount = 0;
+            int kept = count;
+
+            // Walk backwards, so the last tick for each player is seen first
+            for (int i = count - 1; i >= 0; i--) {
+                if (!(batch[i] instanceof TimerTickEvent))
+                    continue;
+
+                final int playerId = ((TimerTickEvent) batch[i]).forPlayerId;
+                boolean superseded = false;
+
+                for (int j = 0; j < seenCount; j++) {
+                    if (seenPlayers[j] == playerId) {
+                        superseded = true;
+                        break;
+                    }
+                }
+
+                if (superseded) {
+                    batch[i] = null;
+                    --kept;
+                } else {
+                    seenPlayers[seenCount++] = playerId;
+                }
+            }
+
+            if (kept == count)
+                return count;
+
+            int index = 0;
+
+            for (int i = 0; i < count; i++) {
+                if (batch[i] != null) {
+                    batch[index++] = batch[i];
+                }
+            }
+
+            Arrays.fill(batch, index, count, null);
+            coalesced += count - kept;
+            return kept;
+        }
+    }
+
+}
@@ -0,0 +1,359 @@
+package com.silcos.board;
+
+import java.util.Arrays;
+
+/**
+ * {@code BitBoardState} keeps a position as bitboards: one occupancy mask
+ * per player and one per piece kind, with a bit for each cell at its
+ * row-major offset. Asking whether a cell is taken, or by whom, is a
+ * shift and a mask, and questions about many cells at once (e.g. which
+ * of a player's pieces can capture) become a few set-wise operations.
+ *
+ * The kind of a piece is its {@code Piece.getStatus()} when the state is
+ * built, e.g. men & kings in checkers; kinds range from 0 to
+ * {@code kindCount - 1}. Each cell also keeps the player, kind and id of
+ * its piece, so a state converts back to a {@link BoardMonoStateCache}
+ * losslessly, and hashes to the same zobrist key.
+ *
+ * Boards of up to 64 cells use {@link SmallBitBoardState}, with a single
+ * {@code long} per mask; larger boards, like 19x19, use
+ * {@link WideBitBoardState}, with a {@code long[]} per mask. {@code of}
+ * picks one. Both are {@link GameState}s, so they can be searched like
+ * any other state.
+ */
+public abstract class BitBoardState implements GameState {
+
+    /**
+     * Max. no. of piece kinds.
+     */
+    public static final int MAX_KINDS = 0xFF;
+
+    protected static final int EMPTY = -1;
+
+    protected final BoardGame mGame;
+    protected final int mRows;
+    protected final int mColumns;
+    protected final int mPlayerCount;
+    protected final int mKindCount;
+
+    /**
+     * Piece in each cell: playerId in bits 24-31, kind in bits 16-23 and
+     * piece id in bits 0-15; or {@code EMPTY}.
+     */
+    private final int mCells[];
+
+    /**
+     * Three ints per move made: source & destination offsets, and the old
+     * codes of both cells.
+     */
+    private int mUndoStack[];
+    private int mUndoTop;
+
+    private ZobristTable mZobrist;
+    private long mZobristKey;
+
+    protected BitBoardState(BoardGame game, int rows, int cols, int playerCount, int kindCount) {
+        if (playerCount < 1 || playerCount > 0x7F || kindCount < 1 || kindCount > MAX_KINDS) {
+            throw new IllegalArgumentException("Bitboards support up to 127 players and "
+                    + MAX_KINDS + " kinds.");
+        }
+
+        mGame = game;
+        mRows = rows;
+        mColumns = cols;
+        mPlayerCount = playerCount;
+        mKindCount = kindCount;
+        mCells = new int[rows * cols];
+        Arrays.fill(mCells, EMPTY);
+    }
+
+    protected BitBoardState(BitBoardState source) {
+        mGame = source.mGame;
+        mRows = source.mRows;
+        mColumns = source.mColumns;
+        mPlayerCount = source.mPlayerCount;
+        mKindCount = source.mKindCount;
+        mCells = source.mCells.clone();
+        mZobrist = source.mZobrist;
+        mZobristKey = source.mZobristKey;
+    }
+
+    /**
+     * Builds a bitboard state of the position, using the small variant if
+     * the board has up to 64 cells.
+     *
+     * @param cache position to convert
+     * @param kindCount no. of piece kinds; piece statuses must be below it
+     * @return bitboard state of the position
+     */
+    public static BitBoardState of(BoardMonoStateCache cache, int kindCount) {
+        final BoardGame game = cache.mGame;
+        final int rows = cache.getRows();
+        final int cols = cache.getColumns();
+        final int playerCount = game.mPlayers.length;
+        final BitBoardState state = (rows * cols <= 64)
+                ? new SmallBitBoardState(game, rows, cols, playerCount, kindCount)
+                : new WideBitBoardState(game, rows, cols, playerCount, kindCount);
+
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < cols; c++) {
+                final Piece piece = cache.pieceAt(r, c);
+
+                if (piece == null)
+                    continue;
+
+                if (piece.getStatus() < 0 || piece.getStatus() >= kindCount) {
+                    throw new IllegalArgumentException("Piece kind " + piece.getStatus()
+                            + " is out of range.");
+                }
+
+                state.place(r * cols + c, piece.playerId(), piece.getStatus(), piece.id());
+            }
+        }
+
+        return state;
+    }
+
+    /**
+     * Builds a bitboard state of the position on the game's board.
+     *
+     * @param game game whose position is converted
+     * @param kindCount no. of piece kinds
+     * @return bitboard state of the position
+     */
+    public static BitBoardState of(BoardGame game, int kindCount) {
+        return of(BoardMonoStateCache.buildCache(game), kindCount);
+    }
+
+    /**
+     * Converts this state back into a {@link BoardMonoStateCache}.
+     *
+     * @return state cache of the same position
+     */
+    public BoardMonoStateCache toStateCache() {
+        final long cellStates[] = new long[mCells.length];
+
+        for (int offset = 0; offset < cellStates.length; offset++) {
+            cellStates[offset] = cacheValue(mCells[offset]);
+        }
+
+        return new BoardMonoStateCache(mGame, mRows, mColumns, cellStates);
+    }
+
+    public int getRows() {
+        return mRows;
+    }
+
+    public int getColumns() {
+        return mColumns;
+    }
+
+    public int getPlayerCount() {
+        return mPlayerCount;
+    }
+
+    public int getKindCount() {
+        return mKindCount;
+    }
+
+    public final int offsetOf(int row, int col) {
+        return row * mColumns + col;
+    }
+
+    /**
+     * Returns the player whose piece is in the cell, or -1.
+     */
+    public final int ownerAt(int offset) {
+        final int code = mCells[offset];
+        return (code == EMPTY) ? -1 : code >>> 24;
+    }
+
+    /**
+     * Returns the kind of the piece in the cell, or -1.
+     */
+    public final int kindAt(int offset) {
+        final int code = mCells[offset];
+        return (code == EMPTY) ? -1 : (code >>> 16) & 0xFF;
+    }
+
+    /**
+     * Returns the id of the piece in the cell, or -1.
+     */
+    public final int pieceIdAt(int offset) {
+        final int code = mCells[offset];
+        return (code == EMPTY) ? -1 : code & 0xFFFF;
+    }
+
+    /**
+     * Tells whether the move would capture a piece of another player, as
+     * a source & destination move does when it lands on one.
+     *
+     * @param packedMove move encoded by {@link PackedMove}
+     * @return whether the destination holds an opponent's piece
+     */
+    public final boolean isCapture(long packedMove) {
+        final int src = offsetOf(PackedMove.decodeSrcRow(packedMove),
+                PackedMove.decodeSrcCol(packedMove));
+        final int dst = offsetOf(PackedMove.decodeDstRow(packedMove),
+                PackedMove.decodeDstCol(packedMove));
+        final int owner = ownerAt(src);
+
+        return isOccupied(dst) && !isOccupiedBy(owner, dst);
+    }
+
+    public abstract boolean isOccupied(int offset);
+
+    public abstract boolean isOccupiedBy(int playerId, int offset);
+
+    public abstract int countPieces(int playerId);
+
+    public abstract int countPieces(int playerId, int kind);
+
+    /**
+     * Sets the cell's bit in the player's and the kind's masks.
+     */
+    protected abstract void setBit(int playerId, int kind, int offset);
+
+    /**
+     * Clears the cell's bit in the player's and the kind's masks.
+     */
+    protected abstract void clearBit(int playerId, int kind, int offset);
+
+    /**
+     * Puts a piece in an empty cell, e.g. while setting up a position.
+     *
+     * @param offset offset of the cell
+     * @param playerId owner of the piece
+     * @param kind kind of the piece
+     * @param pieceId id of the piece
+     */
+    public void place(int offset, int playerId, int kind, int pieceId) {
+        if (mCells[offset] != EMPTY) {
+            throw new IllegalStateException("Cell " + offset + " is not empty.");
+        }
+
+        setCell(offset, (playerId << 24) | (kind << 16) | (pieceId & 0xFFFF));
+    }
+
+    @Override
+    public void makeMove(long packedMove) {
+        makeMove(offsetOf(PackedMove.decodeSrcRow(packedMove),
+                PackedMove.decodeSrcCol(packedMove)),
+                offsetOf(PackedMove.decodeDstRow(packedMove),
+                        PackedMove.decodeDstCol(packedMove)));
+    }
+
+    /**
+     * Moves the piece in the source cell to the destination cell,
+     * capturing whatever is there. The change can be reverted with
+     * {@code unmakeMove}.
+     *
+     * @param srcOffset offset of the source cell
+     * @param dstOffset offset of the destination cell
+     */
+    public void makeMove(int srcOffset, int dstOffset) {
+        if (mUndoStack == null) {
+            mUndoStack = new int[48];
+        } else if (mUndoTop + 3 > mUndoStack.length) {
+            mUndoStack = Arrays.copyOf(mUndoStack, mUndoStack.length * 2);
+        }
+
+        final int srcCode = mCells[srcOffset];
+        final int[] undoStack = mUndoStack;
+
+        undoStack[mUndoTop] = srcOffset;
+        undoStack[mUndoTop + 1] = dstOffset;
+        undoStack[mUndoTop + 2] = mCells[dstOffset];
+        mUndoTop += 3;
+
+        setCell(dstOffset, srcCode);
+        setCell(srcOffset, EMPTY);
+    }
+
+    /**
+     * Reverts the last move made with {@code makeMove}.
+     *
+     * @throws IllegalStateException if there is no move to unmake
+     */
+    @Override
+    public void unmakeMove() {
+        if (mUndoTop == 0) {
+            throw new IllegalStateException("No move has been made on this state.");
+        }
+
+        mUndoTop -= 3;
+
+        final int[] undoStack = mUndoStack;
+        final int srcOffset = undoStack[mUndoTop];
+        final int dstOffset = undoStack[mUndoTop + 1];
+
+        setCell(srcOffset, mCells[dstOffset]);
+        setCell(dstOffset, undoStack[mUndoTop + 2]);
+    }
+
+    public int madeMoveCount() {
+        return mUndoTop / 3;
+    }
+
+    /**
+     * Returns the zobrist hash of this state; equal to that of the
+     * {@link BoardMonoStateCache} of the same position.
+     *
+     * @return 64-bit hash of the state
+     */
+    @Override
+    public long zobristKey() {
+        if (mZobrist == null) {
+            final ZobristTable zobrist = ZobristTable.forGame(mGame);
+            long key = 0;
+
+            for (int offset = 0; offset < mCells.length; offset++) {
+                key ^= zobrist.key(offset, cacheValue(mCells[offset]));
+            }
+
+            mZobristKey = key;
+            mZobrist = zobrist;
+        }
+
+        return mZobristKey;
+    }
+
+    @Override
+    public abstract BitBoardState copyState();
+
+    /**
+     * Sets the cell's code, and updates the masks & hash. All changes to
+     * the position go through here.
+     */
+    private void setCell(int offset, int code) {
+        final int oldCode = mCells[offset];
+
+        if (oldCode == code)
+            return;
+
+        if (oldCode != EMPTY) {
+            clearBit(oldCode >>> 24, (oldCode >>> 16) & 0xFF, offset);
+        }
+
+        if (code != EMPTY) {
+            setBit(code >>> 24, (code >>> 16) & 0xFF, offset);
+        }
+
+        mCells[offset] = code;
+
+        final ZobristTable zobrist = mZobrist;
+
+        if (zobrist != null) {
+            mZobristKey ^= zobrist.key(offset, cacheValue(oldCode))
+                    ^ zobrist.key(offset, cacheValue(code));
+        }
+    }
+
+    /**
+     * Returns the {@link BoardMonoStateCache} value for the cell code.
+     */
+    private static long cacheValue(int code) {
+        return (code == EMPTY) ? -1 : ((long) (code >>> 24) << 32) | (code & 0xFFFF);
+    }
+
+}
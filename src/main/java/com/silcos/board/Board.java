@@ -6,7 +6,8 @@ package com.silcos.board;
  * {@link BoardGame} is built around only one {@code Board} object.
  *
  * Note that {@code Board} is a 2-D rectangular object that stores
- * each piece in its own {@link Cell} container.
+ * each piece in its own {@link Cell} container. {@link FlatBoard} can
+ * be used instead when the per-cell objects aren't needed.
  *
  * Static utilities are also given for getting results related to
  * spatial functions on pieces.
@@ -57,6 +58,28 @@ public abstract class Board {
      */
     protected Cell cellData[][];
 
+    /**
+     * Keys used to hash the position on this board; null until hashing
+     * is enabled with {@code attachZobristTable}.
+     */
+    private ZobristTable zobristTable;
+
+    /**
+     * Zobrist hash of the current position.
+     */
+    private long zobristKey;
+
+    /**
+     * Copy of the cells for readers on other threads, or null; see
+     * {@code attachStateMirror}.
+     */
+    private CellStateMirror stateMirror;
+
+    /**
+     * Shared tables of this board's size; built on first use.
+     */
+    private BoardGeometry geometry;
+
     /**
      * Override this and call in constructor
      */
@@ -120,6 +143,162 @@ public abstract class Board {
         setCell(cell, rowOffset, columnOffset);
     }
 
+    /**
+     * Returns the in-memory offset of the cell at (row, col) when the
+     * board is laid out row-major, as used by {@code getCell(int)}.
+     *
+     * @param rowOffset row of the cell
+     * @param columnOffset column of the cell
+     * @return row-major offset of the cell
+     */
+    public final int offsetOf(int rowOffset, int columnOffset) {
+        return rowOffset * width + columnOffset;
+    }
+
+    /**
+     * Returns the neighbor, ray and edge tables for boards of this size,
+     * indexed by cell offset. Prefer these to the static utilities below
+     * in loops over many cells.
+     *
+     * @return geometry of the board
+     */
+    public BoardGeometry getGeometry() {
+        BoardGeometry g = geometry;
+
+        if (g == null) {
+            // Geometries are immutable and shared, so racing here is harmless
+            g = BoardGeometry.of(height, width);
+            geometry = g;
+        }
+
+        return g;
+    }
+
+    /**
+     * Returns the piece held at (row, col), or null if the cell is
+     * empty. Boards that don't store {@link Cell} objects (see
+     * {@link FlatBoard}) override this to skip the cell indirection.
+     *
+     * @param rowOffset row of the cell
+     * @param columnOffset column of the cell
+     * @return piece at the cell, or null
+     */
+    public Piece pieceAt(int rowOffset, int columnOffset) {
+        return getCell(rowOffset, columnOffset).getHolder();
+    }
+
+    /**
+     * Returns the piece held at the given row-major offset, or null
+     * if the cell is empty.
+     *
+     * @param inMemoryOffset row-major offset of the cell
+     * @return piece at the cell, or null
+     */
+    public Piece pieceAt(int inMemoryOffset) {
+        return getCell(inMemoryOffset).getHolder();
+    }
+
+    /**
+     * Enables hashing of the position on this board, and calculates the
+     * hash of the current position.
+     *
+     * @param table keys for this board's dimensions
+     */
+    public void attachZobristTable(ZobristTable table) {
+        if (table.getRows() != height || table.getColumns() != width) {
+            throw new IllegalArgumentException("Zobrist table is for a board of " +
+                    "different dimensions.");
+        }
+
+        zobristTable = table;
+        zobristKey = table.hash(this);
+    }
+
+    public ZobristTable getZobristTable() {
+        return zobristTable;
+    }
+
+    /**
+     * Returns the zobrist hash of the current position. This is only kept
+     * up-to-date after a table has been attached.
+     *
+     * @return hash of the position
+     */
+    public long zobristKey() {
+        return zobristKey;
+    }
+
+    /**
+     * Starts mirroring the cells of this board into a {@link CellStateMirror},
+     * which other threads can read consistently while the board changes.
+     * This must be called on the thread that changes the board.
+     *
+     * @return mirror of the board
+     */
+    public CellStateMirror attachStateMirror() {
+        if (stateMirror == null) {
+            stateMirror = CellStateMirror.of(this);
+        }
+
+        return stateMirror;
+    }
+
+    public CellStateMirror getStateMirror() {
+        return stateMirror;
+    }
+
+    /**
+     * Called whenever the piece held in a cell changes, so that the
+     * position's hash and the state mirror can be updated incrementally. Boards that don't
+     * report their own changes (see {@code reportsCellChanges}) are
+     * updated by {@link BoardGame} for each move placed instead.
+     *
+     * @param inMemoryOffset offset of the cell that changed
+     * @param previous piece held before, or null
+     * @param current piece held now, or null
+     */
+    protected void cellChanged(int inMemoryOffset, Piece previous, Piece current) {
+        final ZobristTable table = zobristTable;
+
+        if (table != null) {
+            zobristKey ^= table.key(inMemoryOffset, previous)
+                    ^ table.key(inMemoryOffset, current);
+        }
+
+        final CellStateMirror mirror = stateMirror;
+
+        if (mirror != null) {
+            mirror.set(inMemoryOffset, CellStateMirror.stateOf(current));
+        }
+    }
+
+    /**
+     * Takes back a move placed by {@code handle}: the moved piece goes back
+     * to the source, and the captured piece to the destination. Boards
+     * whose moves change other cells (promotions, captures elsewhere)
+     * must override this to undo those too.
+     *
+     * @param move move to take back
+     * @param moved piece that was moved
+     * @param captured piece that was captured at the destination, or null
+     */
+    protected void undo(Move move, Piece moved, Piece captured) {
+        getCell(move.getSrcRow(), move.getSrcCol()).setHolder(moved);
+        getCell(move.getDstRow(), move.getDstCol()).setHolder(captured);
+    }
+
+    /**
+     * Returns whether this board calls {@code cellChanged} itself for
+     * every change made to it. Boards made of {@link Cell} objects can't
+     * see changes made through {@code Cell.setHolder}, so this is false
+     * by default.
+     *
+     * @return whether cell changes are reported
+     */
+    protected boolean reportsCellChanges() {
+        return false;
+    }
+
     /**
      * Handles the input given to the game by a player on its turn, and
      * relects it spatially, if it conforms to the rules applied on the
@@ -0,0 +1,19 @@
+package com.silcos.board;
+
+/**
+ * {@code BoardEventBatchListener} can be implemented by listeners that
+ * receive events through an {@link AsyncEventBus}, to handle all events
+ * that have piled up since their last delivery in one call.
+ */
+public interface BoardEventBatchListener extends BoardEventListener {
+
+    /**
+     * Handles a batch of events, in the order they were dispatched. The
+     * array is reused for the next batch, so it must not be kept.
+     *
+     * @param events array holding the events
+     * @param count no. of events, from index 0
+     */
+    public void handleEvents(Event[] events, int count);
+
+}
@@ -8,25 +8,86 @@ public class BoardGame {
 
         public PlayerRotator playerRotator;
 
-        protected ArrayList<Move> history = new ArrayList<>();
+        protected MoveLog history = new MoveLog();
+
+        /**
+         * Moves taken back with {@code undoMove}, most recent last; cleared
+         * when a new move is placed.
+         */
+        protected MoveLog undone = new MoveLog(8);
+
+        private boolean redoing;
 
         protected void onPlayerLostAllPieces(int loserId) {
 
         }
 
+        /**
+         * Plays the move for the player whose turn it is, if the board
+         * accepts it.
+         *
+         * @param yourMove move to place
+         * @return whether the move was placed
+         * @throws IllegalArgumentException if the move doesn't fit in the
+         *                                  {@link MoveLog}; the board is
+         *                                  left untouched
+         */
         public boolean placeMove(Move yourMove) {
             if (isDead())
                 return false;
 
-            final Object srcHolder = mBoard.getCell(yourMove.getSrcRow(),
-                    yourMove.getSrcCol()).getHolder();
-            final Object dstHolder = mBoard.getCell(yourMove.getDstRow(),
-                    yourMove.getDstCol()).getHolder();
+            final Piece srcHolder = mBoard.pieceAt(yourMove.getSrcRow(),
+                    yourMove.getSrcCol());
+            final Piece dstHolder = mBoard.pieceAt(yourMove.getDstRow(),
+                    yourMove.getDstCol());
+
+            final int moverId = playerRotator.getCurrentId();
+
+            // Encoded up front, so a move the log can't hold is rejected
+            // before the board is touched
+            final long entry = MoveLog.encode(yourMove, moverId, dstHolder);
+            final CellStateMirror mirror = mBoard.getStateMirror();
+
+            // Readers of the mirror see the whole move, or none of it
+            if (mirror != null)
+                mirror.beginWrite();
+
+            try {
+                final BoardMetrics metrics = mMetrics;
+                final boolean accepted;
+
+                if (metrics == null) {
+                    accepted = mBoard.handle(yourMove);
+                } else {
+                    final long start = System.nanoTime();
+                    accepted = mBoard.handle(yourMove);
+                    metrics.recordMove(System.nanoTime() - start, accepted);
+                }
+
+                if (!accepted)
+                    return false;
+
+                if (!mBoard.reportsCellChanges()) {
+                    mBoard.cellChanged(mBoard.offsetOf(yourMove.getSrcRow(),
+                            yourMove.getSrcCol()), srcHolder, null);
+                    mBoard.cellChanged(mBoard.offsetOf(yourMove.getDstRow(),
+                            yourMove.getDstCol()), dstHolder, srcHolder);
+                }
+            } finally {
+                if (mirror != null)
+                    mirror.endWrite();
+            }
 
-            if(!mBoard.handle(yourMove))
-                return false;
+            history.append(entry);
+
+            if (!redoing) {
+                undone.clear();
+            }
 
-            history.add(yourMove);
+            if (mCountsCaptures && dstHolder != null
+                    && mPlayerStats[dstHolder.playerId()] != null) {
+                mPlayerStats[dstHolder.playerId()].onKilled(dstHolder);
+            }
 
             dispatchEvent(new MoveEvent(BoardGame.this, yourMove.getSrcRow(),
                     yourMove.getSrcCol(),
@@ -43,12 +104,149 @@ public class BoardGame {
             return true;
         }
 
+        /**
+         * Plays a move generated by the game's {@link MoveGenerator}; the
+         * {@link Move} object is only created here. The packed move's
+         * payload isn't passed on to the board.
+         *
+         * @param packedMove move encoded by {@link PackedMove}
+         * @return whether the move was placed
+         */
+        public boolean placeMove(long packedMove) {
+            return placeMove(MoveFactory.newMove(mBoard, packedMove));
+        }
+
+        /**
+         * Takes back the last move placed: the moved piece goes back to its
+         * source, the piece it captured is revived, and the turn returns to
+         * the player who made the move. This takes the same time however
+         * long the game is.
+         *
+         * The rotator must extend {@link AbstractPlayerRotator}, and boards
+         * whose moves change more than the source & destination must
+         * override {@code Board.undo}.
+         *
+         * @return whether a move was taken back
+         * @throws IllegalStateException if the game's rotator can't be
+         *                               rewound
+         */
+        public boolean undoMove() {
+            if (!(playerRotator instanceof AbstractPlayerRotator)) {
+                throw new IllegalStateException("Moves can't be taken back: the player " +
+                        "rotator doesn't extend AbstractPlayerRotator.");
+            }
+
+            final int index = history.size() - 1;
+
+            if (isDead() || index < 0)
+                return false;
+
+            final long entry = history.get(index);
+            final Move move = history.toMove(index);
+            final Piece moved = mBoard.pieceAt(move.getDstRow(), move.getDstCol());
+            final int capturedPlayerId = MoveLog.capturedPlayerId(entry);
+            final Piece captured = (capturedPlayerId >= 0)
+                    ? findPiece(capturedPlayerId, MoveLog.killedPieceId(entry)) : null;
+            final CellStateMirror mirror = mBoard.getStateMirror();
+
+            if (mirror != null)
+                mirror.beginWrite();
+
+            try {
+                mBoard.undo(move, moved, captured);
+
+                if (!mBoard.reportsCellChanges()) {
+                    mBoard.cellChanged(mBoard.offsetOf(move.getDstRow(), move.getDstCol()),
+                            moved, captured);
+                    mBoard.cellChanged(mBoard.offsetOf(move.getSrcRow(), move.getSrcCol()),
+                            null, moved);
+                }
+            } finally {
+                if (mirror != null)
+                    mirror.endWrite();
+            }
+
+            history.truncate(index);
+            undone.append(entry);
+
+            if (captured != null && mPlayerStats[capturedPlayerId] != null) {
+                mPlayerStats[capturedPlayerId].onRevived(captured);
+            }
+
+            final int moverId = MoveLog.moverId(entry);
+
+            mPlayers[playerRotator.getCurrentId()].revokeTurn();
+            ((AbstractPlayerRotator) playerRotator).rewindTo(moverId).onTurn();
+
+            dispatchEvent(new MoveUndoEvent(BoardGame.this, move.getSrcRow(),
+                    move.getSrcCol(),
+                    move.getDstRow(),
+                    move.getDstCol(),
+                    moved,
+                    captured));
+
+            if (timer != null)
+                timer.switchTo(moverId);
+
+            return true;
+        }
+
+        /**
+         * Places the last move taken back with {@code undoMove} again.
+         *
+         * @return whether a move was placed
+         */
+        public boolean redoMove() {
+            final int index = undone.size() - 1;
+
+            if (index < 0)
+                return false;
+
+            final Move move = undone.toMove(index);
+
+            redoing = true;
+
+            try {
+                if (!placeMove(move))
+                    return false;
+            } finally {
+                redoing = false;
+            }
+
+            undone.truncate(index);
+            return true;
+        }
+
+        public boolean canUndo() {
+            return history.size() > 0;
+        }
+
+        public boolean canRedo() {
+            return undone.size() > 0;
+        }
+
+        /**
+         * Returns the piece of the player with the given id.
+         */
+        protected Piece findPiece(int playerId, int pieceId) {
+            final Piece[] pieces = mPlayers[playerId].myPieces;
+
+            if (pieceId >= 0 && pieceId < pieces.length && pieces[pieceId].id() == pieceId)
+                return pieces[pieceId];
+
+            for (Piece piece : pieces) {
+                if (piece.id() == pieceId)
+                    return piece;
+            }
+
+            return null;
+        }
+
         public void acceptResignation(int winnerId) {
             dispatchEvent(new FinishEvent(BoardGame.this, winnerId));
         }
     }
 
-    private static int eventCount = 0;
     protected boolean isDead = false;
 
     public static final int PIECE_MOVE_EVENT = 35332;
@@ -56,17 +254,37 @@ public class BoardGame {
     public static final int PLAYER_WIRE_EVENT = 24242;
     public static final int TIMER_TICK_EVENT = 242111;
     public static final int ELIMINATION_EVENT = 13553;
+    public static final int MOVE_UNDO_EVENT = 53323;
+
+    /**
+     * Type to subscribe listeners to, so that they receive events of
+     * all types. No event has this typeId.
+     */
+    public static final int ANY_EVENT = 0;
 
     protected Player[] mPlayers;
     protected PlayerStats[] mPlayerStats;
 
     protected Board mBoard;
-    private ArrayList<BoardEventListener> mBoardEventListeners;
+
+    /**
+     * Listeners, indexed by the event type they subscribed to. The table
+     * is replaced, never modified, on each subscription change.
+     */
+    private volatile EventDispatchTable mDispatchTable = EventDispatchTable.EMPTY;
+    private final Object mListenerLock = new Object();
 
     protected GameInputController mController;
 
+    protected MoveGenerator<? super Board> mMoveGenerator;
+
     private final PlayerRotatorFactory mRotatorFactory;
-    protected final BoardPlatformProvider platformProvider;
+
+    private boolean mCountsCaptures;
+
+    private volatile CellStateMirror mStateMirror;
+    private volatile BoardMetrics mMetrics;
+    protected volatile BoardPlatformProvider platformProvider;
 
     protected void renewInputController() {
        mController.playerRotator = mRotatorFactory.newRotator(mPlayers);
@@ -95,8 +313,19 @@ public class BoardGame {
         return mController.history.size();
     }
 
+    /**
+     * Returns the move placed at the given index in the game. A new
+     * {@link Move} object is created on each call; see {@link MoveLog}.
+     *
+     * @param index index of the move, from 0
+     * @return move placed
+     */
     public Move getMove(int index) {
-        return mController.history.get(index);
+        return mController.history.toMove(index);
+    }
+
+    public MoveLog getMoveLog() {
+        return mController.history;
     }
 
     PlayerRotatorFactory getRotatorFactory() {
@@ -116,24 +345,215 @@ public class BoardGame {
         return mPlayerStats[playerId];
     }
 
+    /**
+     * Sets whether {@code placeMove} reports the piece on the destination
+     * of each move to {@code PlayerStats.onKilled}. This is off by default,
+     * for games whose boards already do so in {@code handle()}; turning
+     * it on there would count each capture twice. Either way,
+     * {@code undoMove} revives the captured piece found in the move log.
+     *
+     * @param countsCaptures whether captures are counted on placement
+     */
+    protected void setCountsCaptures(boolean countsCaptures) {
+        mCountsCaptures = countsCaptures;
+    }
+
     public Piece pieceAt(int row, int col) {
-        return (Piece) mBoard.getCell(row, col).getHolder();
+        return mBoard.pieceAt(row, col);
+    }
+
+    /**
+     * Returns the zobrist hash of the position on the board. The first
+     * call enables hashing on the board, so all players must have been
+     * set by then.
+     *
+     * For boards that don't report their own changes, the hash is only
+     * updated for the source & destination cells of each move placed.
+     *
+     * @return hash of the current position
+     */
+    public long zobristKey() {
+        if (mBoard.getZobristTable() == null) {
+            mBoard.attachZobristTable(ZobristTable.forGame(this));
+        }
+
+        return mBoard.zobristKey();
+    }
+
+    /**
+     * Starts keeping a {@link CellStateMirror} of the board, so that
+     * {@code snapshot} can be called from any thread. This must be called
+     * on the game's thread, e.g. while setting up the game.
+     *
+     * Boards that don't report their own cell changes (see
+     * {@code Board.reportsCellChanges}) only have the source & destination
+     * of each move mirrored; if their {@code handle} or {@code undo}
+     * change other cells, like a capture en passant, the mirror falls
+     * behind the board.
+     *
+     * @return mirror of the board
+     */
+    public CellStateMirror enableSnapshots() {
+        CellStateMirror mirror = mStateMirror;
+
+        if (mirror == null) {
+            mirror = mBoard.attachStateMirror();
+            mStateMirror = mirror;
+        }
+
+        return mirror;
+    }
+
+    /**
+     * Returns a copy of the position in the board's mirror, taken without
+     * locking: it never shows a move half-placed, and never delays the
+     * game's thread. Safe to call from any thread once
+     * {@code enableSnapshots} has been called. The copy matches the board
+     * as long as the mirror can follow its moves; see
+     * {@code enableSnapshots}.
+     *
+     * @return state of the board
+     * @throws IllegalStateException if snapshots aren't enabled
+     */
+    public BoardMonoStateCache snapshot() {
+        final CellStateMirror mirror = mStateMirror;
+
+        if (mirror == null) {
+            throw new IllegalStateException("Snapshots are not enabled for this game.");
+        }
+
+        final long[] cells = new long[mirror.getRows() * mirror.getColumns()];
+        mirror.read(cells);
+
+        return new BoardMonoStateCache(this, mirror.getRows(), mirror.getColumns(), cells);
+    }
+
+    public BoardMetrics getMetrics() {
+        return mMetrics;
+    }
+
+    /**
+     * Starts recording move validation, listener dispatch and timer
+     * lateness into the metrics; null stops recording.
+     *
+     * @param metrics metrics to record into, or null
+     */
+    public void setMetrics(BoardMetrics metrics) {
+        mMetrics = metrics;
+    }
+
+    public MoveGenerator<? super Board> getMoveGenerator() {
+        return mMoveGenerator;
+    }
+
+    /**
+     * Sets the generator used to enumerate legal moves on the live board,
+     * e.g. for hints or computer players.
+     *
+     * {@code BoardGame} isn't generic in its board type, so the generator
+     * is handed {@code mBoard} as a plain {@link Board}; generators for a
+     * board subclass take a {@code Board} and cast it (or read it through
+     * {@code pieceAt}), as they would in {@code handle()}.
+     *
+     * @param generator move generator for this game's board
+     */
+    public void setMoveGenerator(MoveGenerator<? super Board> generator) {
+        mMoveGenerator = generator;
+    }
+
+    /**
+     * Writes the legal moves of the player on the live board into the
+     * buffer, as {@link PackedMove} values.
+     *
+     * @param playerId player whose moves are wanted
+     * @param moves buffer owned by the caller
+     * @param offset index at which the first move is written
+     * @return no. of moves written
+     * @throws IllegalStateException if no move generator has been set
+     */
+    public int generateMoves(int playerId, long[] moves, int offset) {
+        if (mMoveGenerator == null) {
+            throw new IllegalStateException("No move generator has been set for this game.");
+        }
+
+        return mMoveGenerator.generateMoves(mBoard, playerId, moves, offset);
     }
 
     public BoardPlatformProvider getPlatformProvider() {
         return platformProvider;
     }
 
-    public void addBoardEventListener(BoardEventListener listener) {
-        if(mBoardEventListeners == null) {
-            mBoardEventListeners = new ArrayList<>(2);
+    /**
+     * Replaces the provider this game, and its attached timer, run their
+     * tasks on; e.g. {@link GameHost} installs one that runs the game's
+     * events in its mailbox.
+     *
+     * @param provider new platform provider
+     */
+    public void setPlatformProvider(BoardPlatformProvider provider) {
+        platformProvider = provider;
+
+        final Timer t = timer;
+
+        if (t != null) {
+            t.platformProvider = provider;
         }
+    }
+
+    /**
+     * Subscribes the listener to events of all types.
+     *
+     * @param listener listener to add
+     */
+    public void addBoardEventListener(BoardEventListener listener) {
+        addBoardEventListener(ANY_EVENT, listener);
+    }
 
-        mBoardEventListeners.add(listener);
+    /**
+     * Subscribes the listener to events of the given type only, so that
+     * it isn't called for other (possibly frequent) events, like timer
+     * ticks. Listeners can be added at any time, even during a dispatch;
+     * they receive events dispatched after this returns. A listener
+     * subscribed more than once, e.g. to a type and to {@code ANY_EVENT},
+     * still receives each event once.
+     *
+     * @param typeId type of events to receive, or {@code ANY_EVENT}
+     * @param listener listener to add
+     */
+    public void addBoardEventListener(int typeId, BoardEventListener listener) {
+        synchronized (mListenerLock) {
+            mDispatchTable = mDispatchTable.with(typeId, listener);
+        }
     }
 
+    /**
+     * Removes all subscriptions of the listener, and its dispatch times
+     * from the game's metrics.
+     *
+     * @param listener listener to remove
+     */
     public void removeBoardEventListener(BoardEventListener listener) {
-        mBoardEventListeners.remove(listener);
+        synchronized (mListenerLock) {
+            mDispatchTable = mDispatchTable.without(null, listener);
+        }
+
+        final BoardMetrics metrics = mMetrics;
+
+        if (metrics != null) {
+            metrics.forgetListener(listener);
+        }
+    }
+
+    /**
+     * Removes the listener's subscription to the given type.
+     *
+     * @param typeId type the listener subscribed to, or {@code ANY_EVENT}
+     * @param listener listener to remove
+     */
+    public void removeBoardEventListener(int typeId, BoardEventListener listener) {
+        synchronized (mListenerLock) {
+            mDispatchTable = mDispatchTable.without(typeId, listener);
+        }
     }
 
     public boolean isDead() {
@@ -143,8 +563,24 @@ public class BoardGame {
     public void dispatchEvent(Event e) {
         if (e.typeId() == GAME_FINISH_EVENT)
             isDead = true;
-        for(BoardEventListener listener : mBoardEventListeners) {
-            listener.handleEvent(e);
+        final BoardEventListener[] listeners = mDispatchTable.listenersFor(e.typeId());
+        final BoardMetrics metrics = mMetrics;
+
+        if (metrics == null) {
+            for (int i = 0; i < listeners.length; i++) {
+                listeners[i].handleEvent(e);
+            }
+        } else {
+            for (int i = 0; i < listeners.length; i++) {
+                final long start = System.nanoTime();
+                listeners[i].handleEvent(e);
+                metrics.recordDispatch(listeners[i], System.nanoTime() - start);
+            }
+
+            // Finished games often keep their listeners; free their slots
+            if (e.typeId() == GAME_FINISH_EVENT) {
+                metrics.forgetListeners(mDispatchTable.subscribers());
+            }
         }
     }
 
@@ -158,17 +594,31 @@ public class BoardGame {
     }
     private static BoardPlatformProvider defaultProvider;
 
-    public static BoardPlatformProvider getDefaultProvider() {
+    /**
+     * Returns the provider new games use. If the application hasn't set
+     * one, a {@link JdkPlatformProvider} is created on first use.
+     *
+     * @return default platform provider
+     */
+    public static synchronized BoardPlatformProvider getDefaultProvider() {
+        if (defaultProvider == null) {
+            defaultProvider = new JdkPlatformProvider();
+        }
+
         return defaultProvider;
     }
 
-    public static void setDefaultProvider(BoardPlatformProvider newDefaultProvider) {
+    public static synchronized void setDefaultProvider(BoardPlatformProvider newDefaultProvider) {
         defaultProvider = newDefaultProvider;
     }
 
     protected  Timer timer;
 
     public Timer attachTimer(Timer t) {
+        if (t != null) {
+            t.platformProvider = platformProvider;
+        }
+
         timer = t;
         return timer;
     }
@@ -200,6 +650,21 @@ public class BoardGame {
             mKilledPieces.add(killedPiece);
         }
 
+        /**
+         * Called when the capture of the piece is taken back.
+         *
+         * @param revivedPiece piece back on the board
+         */
+        public void onRevived(Piece revivedPiece) {
+            // Captures are taken back in reverse order, so search from the end
+            final int index = mKilledPieces.lastIndexOf(revivedPiece);
+
+            if (index >= 0) {
+                mKilledPieces.remove(index);
+                ++mLivePieces;
+            }
+        }
+
         public int livePieces() {
             return mLivePieces;
         }
@@ -0,0 +1,302 @@
+package com.silcos.board;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * {@code BoardGeometry} holds the spatial facts of a board of one size,
+ * worked out once and shared by all boards of that size. Everything is
+ * indexed by the row-major offset of a cell (see {@code Board.offsetOf}),
+ * so move generators can scan neighbors and rays with loops over
+ * primitive arrays, without rebuilding coordinates.
+ *
+ * Neighbors are stored one cell after another in a flat array, with a
+ * start index per cell:
+ *
+ * <pre>
+ *     final int[] neighbors = geometry.neighbors8();
+ *
+ *     for (int i = geometry.neighbors8Start(cell),
+ *             end = geometry.neighbors8Start(cell + 1); i &lt; end; i++) {
+ *         final int neighbor = neighbors[i];
+ *     }
+ * </pre>
+ *
+ * Rays are stored as their length in each direction, up to the board's
+ * edge; cells along a ray are {@code step(direction)} apart:
+ *
+ * <pre>
+ *     final int step = geometry.step(direction);
+ *
+ *     for (int n = geometry.rayLength(cell, direction), at = cell + step;
+ *             n &gt; 0; n--, at += step) {
+ *         ...
+ *     }
+ * </pre>
+ *
+ * This takes memory in proportion to the no. of cells, even for the
+ * largest boards. Arrays returned must not be changed.
+ */
+public final class BoardGeometry {
+
+    public static final int NORTH = 0;
+    public static final int NORTH_EAST = 1;
+    public static final int EAST = 2;
+    public static final int SOUTH_EAST = 3;
+    public static final int SOUTH = 4;
+    public static final int SOUTH_WEST = 5;
+    public static final int WEST = 6;
+    public static final int NORTH_WEST = 7;
+
+    public static final int DIRECTION_COUNT = 8;
+
+    private static final int ROW_STEP[] = {-1, -1, 0, 1, 1, 1, 0, -1};
+    private static final int COLUMN_STEP[] = {0, 1, 1, 1, 0, -1, -1, -1};
+
+    private static final ConcurrentHashMap<Long, BoardGeometry> sGeometries =
+            new ConcurrentHashMap<>();
+
+    private final int height;
+    private final int width;
+
+    private final int rowOf[];
+    private final int columnOf[];
+
+    private final int neighbors4[];
+    private final int neighbors4Start[];
+    private final int neighbors8[];
+    private final int neighbors8Start[];
+
+    /**
+     * {@code rayLengths[cell * DIRECTION_COUNT + direction]}
+     */
+    private final int rayLengths[];
+    private final int steps[];
+
+    private final long edgeBits[];
+    private final long cornerBits[];
+
+    private BoardGeometry(int height, int width) {
+        final int cellCount = height * width;
+
+        this.height = height;
+        this.width = width;
+        this.rowOf = new int[cellCount];
+        this.columnOf = new int[cellCount];
+        this.neighbors4Start = new int[cellCount + 1];
+        this.neighbors8Start = new int[cellCount + 1];
+        this.rayLengths = new int[cellCount * DIRECTION_COUNT];
+        this.steps = new int[DIRECTION_COUNT];
+        this.edgeBits = new long[(cellCount + 63) >>> 6];
+        this.cornerBits = new long[(cellCount + 63) >>> 6];
+
+        for (int d = 0; d < DIRECTION_COUNT; d++) {
+            steps[d] = ROW_STEP[d] * width + COLUMN_STEP[d];
+        }
+
+        int count4 = 0;
+        int count8 = 0;
+
+        for (int cell = 0; cell < cellCount; cell++) {
+            final int row = cell / width;
+            final int col = cell % width;
+
+            rowOf[cell] = row;
+            columnOf[cell] = col;
+
+            for (int d = 0; d < DIRECTION_COUNT; d++) {
+                final int length = Math.min(reach(row, ROW_STEP[d], height),
+                        reach(col, COLUMN_STEP[d], width));
+
+                rayLengths[cell * DIRECTION_COUNT + d] = length;
+
+                if (length > 0) {
+                    ++count8;
+                    count4 += (d % 2 == 0) ? 1 : 0;
+                }
+            }
+
+            if (Board.isEdgeCell(row, col, width, height)) {
+                edgeBits[cell >>> 6] |= 1L << cell;
+            }
+
+            if (Board.isCornerCell(row, col, width, height)) {
+                cornerBits[cell >>> 6] |= 1L << cell;
+            }
+        }
+
+        this.neighbors4 = new int[count4];
+        this.neighbors8 = new int[count8];
+        count4 = 0;
+        count8 = 0;
+
+        for (int cell = 0; cell < cellCount; cell++) {
+            neighbors4Start[cell] = count4;
+            neighbors8Start[cell] = count8;
+
+            for (int d = 0; d < DIRECTION_COUNT; d++) {
+                if (rayLengths[cell * DIRECTION_COUNT + d] == 0)
+                    continue;
+
+                neighbors8[count8++] = cell + steps[d];
+
+                if (d % 2 == 0) {
+                    neighbors4[count4++] = cell + steps[d];
+                }
+            }
+        }
+
+        neighbors4Start[cellCount] = count4;
+        neighbors8Start[cellCount] = count8;
+    }
+
+    /**
+     * Returns the geometry of boards of the given size, building it on
+     * first use.
+     *
+     * @param height no. of rows
+     * @param width no. of columns
+     * @return shared geometry
+     */
+    public static BoardGeometry of(int height, int width) {
+        if (height < 1 || width < 1) {
+            throw new IllegalArgumentException("Board must have at least one cell.");
+        }
+
+        final Long key = ((long) height << 32) | width;
+        BoardGeometry geometry = sGeometries.get(key);
+
+        if (geometry == null) {
+            final BoardGeometry built = new BoardGeometry(height, width);
+            geometry = sGeometries.putIfAbsent(key, built);
+
+            if (geometry == null) {
+                geometry = built;
+            }
+        }
+
+        return geometry;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int cellCount() {
+        return rowOf.length;
+    }
+
+    public int rowOf(int offset) {
+        return rowOf[offset];
+    }
+
+    public int columnOf(int offset) {
+        return columnOf[offset];
+    }
+
+    /**
+     * Returns the offsets of all cells' side-sharing neighbors, in the
+     * order north, east, south, west; see {@code neighbors4Start}.
+     *
+     * @return shared array of neighbors
+     */
+    public int[] neighbors4() {
+        return neighbors4;
+    }
+
+    /**
+     * Returns where the cell's neighbors start in {@code neighbors4()};
+     * they end where the next cell's start.
+     *
+     * @param offset offset of the cell, up to {@code cellCount()}
+     * @return index into {@code neighbors4()}
+     */
+    public int neighbors4Start(int offset) {
+        return neighbors4Start[offset];
+    }
+
+    /**
+     * Returns the offsets of all cells' side- and corner-sharing
+     * neighbors, clockwise from north; see {@code neighbors8Start}.
+     *
+     * @return shared array of neighbors
+     */
+    public int[] neighbors8() {
+        return neighbors8;
+    }
+
+    public int neighbors8Start(int offset) {
+        return neighbors8Start[offset];
+    }
+
+    /**
+     * Returns the no. of cells from the cell to the edge of the board in
+     * the direction, not counting the cell itself.
+     *
+     * @param offset offset of the cell
+     * @param direction one of {@code NORTH} to {@code NORTH_WEST}
+     * @return length of the ray
+     */
+    public int rayLength(int offset, int direction) {
+        return rayLengths[offset * DIRECTION_COUNT + direction];
+    }
+
+    /**
+     * Returns the difference in offset between a cell and the next one in
+     * the direction.
+     *
+     * @param direction one of {@code NORTH} to {@code NORTH_WEST}
+     * @return offset step
+     */
+    public int step(int direction) {
+        return steps[direction];
+    }
+
+    public boolean isEdge(int offset) {
+        return (edgeBits[offset >>> 6] & (1L << offset)) != 0;
+    }
+
+    public boolean isCorner(int offset) {
+        return (cornerBits[offset >>> 6] & (1L << offset)) != 0;
+    }
+
+    public boolean isEdgeButNotCorner(int offset) {
+        return ((edgeBits[offset >>> 6] & ~cornerBits[offset >>> 6]) & (1L << offset)) != 0;
+    }
+
+    /**
+     * Returns the distance between the two cells, going only along rows
+     * and columns; see {@code Board.netDistance}.
+     */
+    public int netDistance(int offset1, int offset2) {
+        return Math.abs(rowOf[offset1] - rowOf[offset2])
+                + Math.abs(columnOf[offset1] - columnOf[offset2]);
+    }
+
+    /**
+     * Tells whether the two cells share a side or corner; see
+     * {@code Board.areAdjacent}.
+     */
+    public boolean areAdjacent(int offset1, int offset2) {
+        final int rows = Math.abs(rowOf[offset1] - rowOf[offset2]);
+        final int cols = Math.abs(columnOf[offset1] - columnOf[offset2]);
+        return Math.max(rows, cols) == 1;
+    }
+
+    /**
+     * Returns how many steps can be taken from the index before leaving
+     * the range [0, size).
+     */
+    private static int reach(int index, int step, int size) {
+        if (step < 0)
+            return index;
+        if (step > 0)
+            return size - 1 - index;
+
+        return Integer.MAX_VALUE;
+    }
+
+}
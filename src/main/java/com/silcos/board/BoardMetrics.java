@@ -0,0 +1,239 @@
+package com.silcos.board;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@code BoardMetrics} shows where time goes inside the library. Set it
+ * on games with {@code BoardGame.setMetrics}; it then records:
+ *
+ * <ul>
+ *     <li>how long {@code Board.handle} takes to validate & apply each
+ *     move, and how many moves it accepts and rejects</li>
+ *     <li>how long each {@link BoardEventListener} spends in
+ *     {@code handleEvent}</li>
+ *     <li>how late timer ticks run compared to when they were scheduled,
+ *     for timers of those games</li>
+ * </ul>
+ *
+ * Durations go into {@link LatencyHistogram}s, so recording doesn't
+ * allocate (except once for each new listener). One instance can be
+ * shared by any no. of games. Games without metrics only pay for a null
+ * check.
+ *
+ * Listeners are tracked until they are removed from their game with
+ * {@code BoardGame.removeBoardEventListener}, or their game dispatches
+ * its {@code GAME_FINISH_EVENT}. At most
+ * {@code MAX_TRACKED_LISTENERS} are tracked one by one; the dispatch
+ * times of any others are added up in one shared histogram until
+ * tracked ones are forgotten.
+ *
+ * Monitoring can poll {@code snapshot} from any thread.
+ */
+public class BoardMetrics {
+
+    /**
+     * Max. no. of listeners whose dispatch times are kept apart.
+     */
+    public static final int MAX_TRACKED_LISTENERS = 64;
+
+    private final LatencyHistogram moveValidation = new LatencyHistogram();
+    private final LatencyHistogram timerLateness = new LatencyHistogram();
+    private final LatencyHistogram otherListenerDispatch = new LatencyHistogram();
+
+    private final AtomicLong acceptedMoves = new AtomicLong();
+    private final AtomicLong rejectedMoves = new AtomicLong();
+
+    /**
+     * Dispatch times by listener; copied on write, so lookups neither lock
+     * nor allocate.
+     */
+    private volatile IdentityHashMap<BoardEventListener, LatencyHistogram> listenerDispatch =
+            new IdentityHashMap<>();
+
+    /**
+     * Metrics at one point in time.
+     */
+    public static final class Snapshot {
+
+        public final long acceptedMoves;
+        public final long rejectedMoves;
+        public final LatencyHistogram.Snapshot moveValidation;
+        public final LatencyHistogram.Snapshot timerLateness;
+
+        /**
+         * Dispatch time of each listener that received an event.
+         */
+        public final Map<BoardEventListener, LatencyHistogram.Snapshot> listenerDispatch;
+
+        /**
+         * Dispatch time of the listeners past the tracked ones, together.
+         */
+        public final LatencyHistogram.Snapshot otherListenerDispatch;
+
+        Snapshot(long acceptedMoves, long rejectedMoves,
+                 LatencyHistogram.Snapshot moveValidation,
+                 LatencyHistogram.Snapshot timerLateness,
+                 Map<BoardEventListener, LatencyHistogram.Snapshot> listenerDispatch,
+                 LatencyHistogram.Snapshot otherListenerDispatch) {
+            this.acceptedMoves = acceptedMoves;
+            this.rejectedMoves = rejectedMoves;
+            this.moveValidation = moveValidation;
+            this.timerLateness = timerLateness;
+            this.listenerDispatch = listenerDispatch;
+            this.otherListenerDispatch = otherListenerDispatch;
+        }
+    }
+
+    public LatencyHistogram getMoveValidation() {
+        return moveValidation;
+    }
+
+    public LatencyHistogram getTimerLateness() {
+        return timerLateness;
+    }
+
+    /**
+     * Returns the dispatch times of the listener. Once
+     * {@code MAX_TRACKED_LISTENERS} are tracked, new listeners share
+     * {@code getOtherListenerDispatch()}.
+     *
+     * @param listener listener
+     * @return histogram of the time spent in {@code handleEvent}
+     */
+    public LatencyHistogram getListenerDispatch(BoardEventListener listener) {
+        final IdentityHashMap<BoardEventListener, LatencyHistogram> tracked = listenerDispatch;
+        final LatencyHistogram histogram = tracked.get(listener);
+
+        if (histogram != null)
+            return histogram;
+        if (tracked.size() >= MAX_TRACKED_LISTENERS)
+            return otherListenerDispatch;
+
+        return addListener(listener);
+    }
+
+    public LatencyHistogram getOtherListenerDispatch() {
+        return otherListenerDispatch;
+    }
+
+    public long getAcceptedMoves() {
+        return acceptedMoves.get();
+    }
+
+    public long getRejectedMoves() {
+        return rejectedMoves.get();
+    }
+
+    /**
+     * Records a call to {@code Board.handle}.
+     *
+     * @param nanos time taken
+     * @param accepted whether the move was accepted
+     */
+    public void recordMove(long nanos, boolean accepted) {
+        moveValidation.record(nanos);
+        (accepted ? acceptedMoves : rejectedMoves).incrementAndGet();
+    }
+
+    public void recordDispatch(BoardEventListener listener, long nanos) {
+        getListenerDispatch(listener).record(nanos);
+    }
+
+    public void recordTimerLateness(long nanos) {
+        timerLateness.record(nanos);
+    }
+
+    /**
+     * Copies the current metrics.
+     *
+     * @return snapshot of the metrics
+     */
+    public Snapshot snapshot() {
+        final Map<BoardEventListener, LatencyHistogram.Snapshot> listeners =
+                new IdentityHashMap<>();
+
+        for (Map.Entry<BoardEventListener, LatencyHistogram> entry
+                : listenerDispatch.entrySet()) {
+            listeners.put(entry.getKey(), entry.getValue().snapshot());
+        }
+
+        return new Snapshot(acceptedMoves.get(), rejectedMoves.get(),
+                moveValidation.snapshot(), timerLateness.snapshot(), listeners,
+                otherListenerDispatch.snapshot());
+    }
+
+    /**
+     * Stops tracking the listener, dropping its dispatch times. Games call
+     * this when the listener is removed; if it is still subscribed to
+     * another game, it is tracked anew from its next event.
+     *
+     * @param listener listener to forget
+     */
+    public synchronized void forgetListener(BoardEventListener listener) {
+        if (!listenerDispatch.containsKey(listener))
+            return;
+
+        final IdentityHashMap<BoardEventListener, LatencyHistogram> copy =
+                new IdentityHashMap<>(listenerDispatch);
+
+        copy.remove(listener);
+        listenerDispatch = copy;
+    }
+
+    /**
+     * Stops tracking the listeners, e.g. those of a finished game.
+     *
+     * @param listeners listeners to forget; may hold duplicates
+     */
+    public synchronized void forgetListeners(BoardEventListener[] listeners) {
+        IdentityHashMap<BoardEventListener, LatencyHistogram> copy = null;
+
+        for (BoardEventListener listener : listeners) {
+            if (!listenerDispatch.containsKey(listener))
+                continue;
+
+            if (copy == null) {
+                copy = new IdentityHashMap<>(listenerDispatch);
+            }
+
+            copy.remove(listener);
+        }
+
+        if (copy != null) {
+            listenerDispatch = copy;
+        }
+    }
+
+    /**
+     * Clears all metrics, and forgets listeners seen so far.
+     */
+    public synchronized void reset() {
+        moveValidation.reset();
+        timerLateness.reset();
+        otherListenerDispatch.reset();
+        acceptedMoves.set(0);
+        rejectedMoves.set(0);
+        listenerDispatch = new IdentityHashMap<>();
+    }
+
+    private synchronized LatencyHistogram addListener(BoardEventListener listener) {
+        LatencyHistogram histogram = listenerDispatch.get(listener);
+
+        if (histogram == null) {
+            if (listenerDispatch.size() >= MAX_TRACKED_LISTENERS)
+                return otherListenerDispatch;
+
+            final IdentityHashMap<BoardEventListener, LatencyHistogram> copy =
+                    new IdentityHashMap<>(listenerDispatch);
+
+            histogram = new LatencyHistogram();
+            copy.put(listener, histogram);
+            listenerDispatch = copy;
+        }
+
+        return histogram;
+    }
+
+}
@@ -1,16 +1,27 @@
 package com.silcos.board;
 
+import java.util.Arrays;
+
 /**
  * BoardMonoStateCache holds a state of the board (past or present) in
  * a compact form, allowing retrieval at a later point. It can be used
  * whenever the board has mono-cells (which hold only one piece at a
- * time, unlike Ludo).
+ * time, unlike Ludo); boards with {@link StackedCell}s use
+ * {@link BoardMultiStateCache} instead.
  *
  * State of the board is stored by caching the playerId & id of each
  * piece on the board. Each board cell must store only one piece at a
  * time; hence, the name mono-state cache.
+ *
+ * Each state also keeps a zobrist hash (see {@link ZobristTable}), on
+ * which {@code equals} and {@code hashCode} are built.
+ *
+ * {@code doMove} returns a new state, leaving this one untouched. For
+ * searches that walk many positions, {@code makeMove} & {@code unmakeMove}
+ * change this state in place instead, and record what they overwrote on
+ * a primitive undo stack; no objects are allocated per move.
  */
-public class BoardMonoStateCache {
+public class BoardMonoStateCache implements GameState {
 
     /**
      * Game for which this state existed.
@@ -19,9 +30,37 @@ public class BoardMonoStateCache {
 
     /**
      * Cell states are encoded in 64-bit integers. Upper 32-bits store
-     * the playerId and lower 32-bits store the piece id.
+     * the playerId and lower 32-bits store the piece id. Cells are laid
+     * out row-major.
+     */
+    private final long mCellStateCaches[];
+
+    private final int mRows;
+    private final int mColumns;
+
+    /**
+     * Records for each move made with {@code makeMove}, three longs
+     * each: the source & destination offsets (upper & lower 32-bits),
+     * the source cell's old state and the destination cell's old state.
      */
-    private final long mCellStateCaches[][];
+    private long mUndoStack[];
+
+    /**
+     * No. of longs used in {@code mUndoStack}.
+     */
+    private int mUndoTop;
+
+    /**
+     * Keys used to hash this state; null until {@code zobristKey} is
+     * first called.
+     */
+    private ZobristTable mZobrist;
+
+    /**
+     * Zobrist hash of this state, kept up-to-date on every change once
+     * {@code mZobrist} is set.
+     */
+    private long mZobristKey;
 
     /**
      * Returns the playerId for the cell state value given.
@@ -63,7 +102,7 @@ public class BoardMonoStateCache {
      * @return stored state of the cell
      */
     protected long getCellStateCache(int row, int col) {
-        return mCellStateCaches[row][col];
+        return mCellStateCaches[row * mColumns + col];
     }
 
     /**
@@ -76,7 +115,25 @@ public class BoardMonoStateCache {
      * @param col column of the cell
      */
     protected void setCellStateCache(long newState, int row, int col) {
-        mCellStateCaches[row][col] = newState;
+        setCellStateCache(newState, row * mColumns + col);
+    }
+
+    /**
+     * Sets the state of the cell at the given row-major offset. All
+     * changes to this state go through here.
+     *
+     * @param newState state value to set
+     * @param offset row-major offset of the cell
+     */
+    private void setCellStateCache(long newState, int offset) {
+        final long oldState = mCellStateCaches[offset];
+        mCellStateCaches[offset] = newState;
+
+        final ZobristTable zobrist = mZobrist;
+
+        if (zobrist != null && oldState != newState) {
+            mZobristKey ^= zobrist.key(offset, oldState) ^ zobrist.key(offset, newState);
+        }
     }
 
     /**
@@ -93,18 +150,106 @@ public class BoardMonoStateCache {
 
     protected BoardMonoStateCache(BoardGame game, int rows, int cols) {
         mGame = game;
-        mCellStateCaches = new long[rows][cols];
+        mRows = rows;
+        mColumns = cols;
+        mCellStateCaches = new long[rows * cols];
     }
 
+    /**
+     * Creates a state holding the given cell states, which are used as
+     * they are, without copying.
+     *
+     * @param game game the state is for
+     * @param rows no. of rows
+     * @param cols no. of columns
+     * @param cellStates row-major cell states, e.g. read from a
+     *                   {@link CellStateMirror}
+     */
+    protected BoardMonoStateCache(BoardGame game, int rows, int cols, long[] cellStates) {
+        if (cellStates.length != rows * cols) {
+            throw new IllegalArgumentException("Expected " + rows * cols + " cell states.");
+        }
+
+        mGame = game;
+        mRows = rows;
+        mColumns = cols;
+        mCellStateCaches = cellStates;
+    }
+
+    /**
+     * Copies the source state, cropped or padded to the new size; cells
+     * added by padding are empty.
+     */
     protected BoardMonoStateCache(BoardMonoStateCache sourceCache, int newRows, int newCols) {
-        mGame = sourceCache.mGame;
-        mCellStateCaches = new long[newRows][newCols];
+        this(sourceCache.mGame, newRows, newCols);
+
+        final int rows = Math.min(newRows, sourceCache.mRows);
+        final int cols = Math.min(newCols, sourceCache.mColumns);
+
+        if (newCols == sourceCache.mColumns) {
+            System.arraycopy(sourceCache.mCellStateCaches, 0,
+                    mCellStateCaches, 0, rows * newCols);
+        } else {
+            for (int r = 0; r < rows; r++) {
+                System.arraycopy(sourceCache.mCellStateCaches, r * sourceCache.mColumns,
+                        mCellStateCaches, r * newCols, cols);
+            }
+        }
 
-        for (int r = 0; r < newRows; r++) {
-            for (int c = 0; c < newCols; c++) {
-                mCellStateCaches[r][c] = sourceCache.mCellStateCaches[r][c];
+        if (rows * cols < mCellStateCaches.length) {
+            for (int r = 0; r < newRows; r++) {
+                Arrays.fill(mCellStateCaches, r * newCols + ((r < rows) ? cols : 0),
+                        (r + 1) * newCols, -1);
             }
         }
+
+        final ZobristTable zobrist = sourceCache.mZobrist;
+
+        if (zobrist != null && zobrist.getRows() == newRows
+                && zobrist.getColumns() == newCols) {
+            mZobrist = zobrist;
+            mZobristKey = sourceCache.mZobristKey;
+        }
+    }
+
+    public int getRows() {
+        return mRows;
+    }
+
+    public int getColumns() {
+        return mColumns;
+    }
+
+    /**
+     * Returns the zobrist hash of this state. Equal states always have
+     * equal hashes, so this can be used as a key for caching positions.
+     *
+     * The first call builds the hash from scratch, after which it is
+     * updated incrementally whenever a cell changes.
+     *
+     * @return 64-bit hash of the state
+     */
+    @Override
+    public long zobristKey() {
+        if (mZobrist == null) {
+            final ZobristTable zobrist = ZobristTable.forGame(mGame);
+
+            if (zobrist.getRows() != mRows || zobrist.getColumns() != mColumns) {
+                throw new IllegalStateException("Cannot hash a state cache whose " +
+                        "dimensions differ from the game's board.");
+            }
+
+            long key = 0;
+
+            for (int offset = 0; offset < mCellStateCaches.length; offset++) {
+                key ^= zobrist.key(offset, mCellStateCaches[offset]);
+            }
+
+            mZobristKey = key;
+            mZobrist = zobrist;
+        }
+
+        return mZobristKey;
     }
 
     /**
@@ -135,6 +280,79 @@ public class BoardMonoStateCache {
         return copy;
     }
 
+    /**
+     * Moves the piece at (srcRow, srcCol) to (dstRow, dstCol) in this
+     * state, capturing whatever was held at the destination. The change
+     * can be reverted with {@code unmakeMove}.
+     *
+     * @param srcRow row of the source cell
+     * @param srcCol column of the source cell
+     * @param dstRow row of the destination cell
+     * @param dstCol column of the destination cell
+     */
+    public void makeMove(int srcRow, int srcCol, int dstRow, int dstCol) {
+        final int srcOffset = srcRow * mColumns + srcCol;
+        final int dstOffset = dstRow * mColumns + dstCol;
+        final long srcState = mCellStateCaches[srcOffset];
+        final long dstState = mCellStateCaches[dstOffset];
+
+        if (mUndoStack == null) {
+            mUndoStack = new long[48];
+        } else if (mUndoTop + 3 > mUndoStack.length) {
+            mUndoStack = Arrays.copyOf(mUndoStack, mUndoStack.length * 2);
+        }
+
+        final long[] undoStack = mUndoStack;
+        undoStack[mUndoTop] = ((long) srcOffset << 32) | (long) dstOffset;
+        undoStack[mUndoTop + 1] = srcState;
+        undoStack[mUndoTop + 2] = dstState;
+        mUndoTop += 3;
+
+        setCellStateCache(-1, srcOffset);
+        setCellStateCache(srcState, dstOffset);
+    }
+
+    public void makeMove(Move move) {
+        makeMove(move.getSrcRow(), move.getSrcCol(), move.getDstRow(), move.getDstCol());
+    }
+
+    @Override
+    public void makeMove(long packedMove) {
+        makeMove(PackedMove.decodeSrcRow(packedMove), PackedMove.decodeSrcCol(packedMove),
+                PackedMove.decodeDstRow(packedMove), PackedMove.decodeDstCol(packedMove));
+    }
+
+    /**
+     * Reverts the last move made with {@code makeMove}, restoring the
+     * moved piece and any piece it captured.
+     *
+     * @throws IllegalStateException if there is no move to unmake
+     */
+    @Override
+    public void unmakeMove() {
+        if (mUndoTop == 0) {
+            throw new IllegalStateException("No move has been made on this state.");
+        }
+
+        mUndoTop -= 3;
+
+        final long[] undoStack = mUndoStack;
+        final long offsets = undoStack[mUndoTop];
+
+        setCellStateCache(undoStack[mUndoTop + 2], (int) offsets);
+        setCellStateCache(undoStack[mUndoTop + 1], (int) (offsets >> 32));
+    }
+
+    /**
+     * Returns the no. of moves made with {@code makeMove} that have not
+     * been unmade yet.
+     *
+     * @return no. of moves that can be unmade
+     */
+    public int madeMoveCount() {
+        return mUndoTop / 3;
+    }
+
     /**
      * Builds the state-cache for the board in game.
      *
@@ -148,9 +366,11 @@ public class BoardMonoStateCache {
         final BoardMonoStateCache stateCache =
                 new BoardMonoStateCache(game, rowCount, colCount);
 
+        int offset = 0;
+
         for (int rowIdx = 0; rowIdx < rowCount; rowIdx++) {
-            for (int colIdx = 0; colIdx < colCount; colIdx++) {
-                final Piece piece = game.pieceAt(rowIdx, colIdx);
+            for (int colIdx = 0; colIdx < colCount; colIdx++, offset++) {
+                final Piece piece = stateCtl.pieceAt(offset);
 
                 if (piece != null) {
                     stateCache.setCellStateCache(piece.playerId(),
@@ -164,6 +384,55 @@ public class BoardMonoStateCache {
         return stateCache;
     }
 
+    @Override
+    public boolean equals(Object o) {
+        if (this == o)
+            return true;
+        if (!(o instanceof BoardMonoStateCache))
+            return false;
+
+        final BoardMonoStateCache other = (BoardMonoStateCache) o;
+
+        if (mGame != other.mGame || mRows != other.mRows || mColumns != other.mColumns)
+            return false;
+        if (fitsBoard() && zobristKey() != other.zobristKey())
+            return false;
+
+        // Equal hashes almost always mean equal states; compare the cells
+        // to rule out a collision.
+        return Arrays.equals(mCellStateCaches, other.mCellStateCaches);
+    }
+
+    /**
+     * States cropped or padded by {@code copyCache} can't be hashed with
+     * the game's {@link ZobristTable}; they hash their cells instead.
+     */
+    @Override
+    public int hashCode() {
+        if (!fitsBoard())
+            return Arrays.hashCode(mCellStateCaches);
+
+        final long key = zobristKey();
+        return (int) (key ^ (key >>> 32));
+    }
+
+    /**
+     * Tells whether this state has the dimensions of the game's board, so
+     * that {@code zobristKey} can be used.
+     */
+    private boolean fitsBoard() {
+        if (mZobrist != null)
+            return true;
+
+        final Board board = mGame.board();
+        return board.getHeight() == mRows && board.getWidth() == mColumns;
+    }
+
+    @Override
+    public BoardMonoStateCache copyState() {
+        return copyCache(this, mRows, mColumns);
+    }
+
     public static BoardMonoStateCache copyCache(BoardMonoStateCache stateCache,
                                                 int newRow, int newCol) {
         return new BoardMonoStateCache(stateCache, newRow, newCol);
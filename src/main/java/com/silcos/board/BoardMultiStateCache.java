@@ -0,0 +1,582 @@
+package com.silcos.board;
+
+import java.util.Arrays;
+
+/**
+ * BoardMultiStateCache holds a state of the board in a compact form,
+ * like {@link BoardMonoStateCache}, but for boards whose cells can hold
+ * stacks of pieces (see {@link StackedCell}), as in Ludo.
+ *
+ * Pieces are stored as the same playerId & id values as the mono-state
+ * cache, in one pool of longs shared by all cells. Each cell's stack is
+ * a run of the pool, described by one long in an index: the run's start
+ * (upper 32-bits), its capacity (bits 16-31) and the no. of pieces in it
+ * (lower 16-bits). Copying a state is thus two array copies, whatever
+ * the no. of pieces.
+ *
+ * When a stack outgrows its run, it is moved to the end of the pool with
+ * twice the room; the pool is compacted once more than half of it is
+ * left behind by such moves.
+ *
+ * A move takes the top {@code count} pieces of one cell and puts them,
+ * in the same order, on top of another; nothing is captured. Games that
+ * send pieces back home, like Ludo, do so with {@code pushPiece} and
+ * {@code popPiece}.
+ *
+ * For cells holding a single piece, the zobrist keys are those of the
+ * mono-state cache; keys of pieces higher up a stack are rotated by
+ * their height, so that the order of a stack is part of the hash.
+ */
+public class BoardMultiStateCache implements GameState {
+
+    /**
+     * Max. no. of pieces a cell can hold.
+     */
+    public static final int MAX_HEIGHT = 0xFFFF;
+
+    /**
+     * Max. no. of cells on the board, so that offsets fit the undo stack.
+     */
+    private static final int MAX_CELLS = 1 << 24;
+
+    /**
+     * Game for which this state existed.
+     */
+    protected final BoardGame mGame;
+
+    private final int mRows;
+    private final int mColumns;
+
+    /**
+     * Run of each cell in {@code mPool}, row-major; see the class docs.
+     */
+    private final long mIndex[];
+
+    /**
+     * Pieces of all stacks, bottom first.
+     */
+    private long mPool[];
+
+    /**
+     * No. of longs of {@code mPool} handed out to runs so far.
+     */
+    private int mPoolTop;
+
+    /**
+     * Total capacity of the runs still in use; the rest of the pool up
+     * to {@code mPoolTop} is garbage.
+     */
+    private int mPoolUsed;
+
+    /**
+     * One long for each move made with {@code makeMove}: the source
+     * offset in bits 40-63, the destination offset in bits 16-39 and the
+     * no. of pieces moved in bits 0-15.
+     */
+    private long mUndoStack[];
+    private int mUndoTop;
+
+    private ZobristTable mZobrist;
+    private long mZobristKey;
+
+    protected BoardMultiStateCache(BoardGame game, int rows, int cols) {
+        if ((long) rows * cols > MAX_CELLS) {
+            throw new IllegalArgumentException("Board has more than " + MAX_CELLS + " cells.");
+        }
+
+        mGame = game;
+        mRows = rows;
+        mColumns = cols;
+        mIndex = new long[rows * cols];
+        mPool = new long[Math.max(rows * cols, 16)];
+    }
+
+    protected BoardMultiStateCache(BoardMultiStateCache sourceCache) {
+        mGame = sourceCache.mGame;
+        mRows = sourceCache.mRows;
+        mColumns = sourceCache.mColumns;
+        mIndex = sourceCache.mIndex.clone();
+        mPool = new long[sourceCache.mPool.length];
+        mPoolTop = sourceCache.mPoolTop;
+        mPoolUsed = sourceCache.mPoolUsed;
+        mZobrist = sourceCache.mZobrist;
+        mZobristKey = sourceCache.mZobristKey;
+
+        System.arraycopy(sourceCache.mPool, 0, mPool, 0, mPoolTop);
+    }
+
+    public int getRows() {
+        return mRows;
+    }
+
+    public int getColumns() {
+        return mColumns;
+    }
+
+    /**
+     * Returns the no. of pieces in the cell at (row, col).
+     *
+     * @param row row of the cell
+     * @param col column of the cell
+     * @return height of the cell's stack
+     */
+    public int heightAt(int row, int col) {
+        return height(mIndex[row * mColumns + col]);
+    }
+
+    /**
+     * Returns the piece on top of the cell at (row, col) for this state of
+     * the board, or null if the cell is empty.
+     *
+     * @param row row of the cell
+     * @param col column of the cell
+     * @return top piece, or null
+     */
+    public Piece pieceAt(int row, int col) {
+        final int height = heightAt(row, col);
+        return (height != 0) ? pieceAt(row, col, height - 1) : null;
+    }
+
+    /**
+     * Returns the piece at the given height of the cell at (row, col).
+     *
+     * @param row row of the cell
+     * @param col column of the cell
+     * @param index height of the piece; 0 is the bottom
+     * @return piece at that height
+     */
+    public Piece pieceAt(int row, int col, int index) {
+        final int offset = row * mColumns + col;
+        final long run = mIndex[offset];
+
+        if (index < 0 || index >= height(run)) {
+            throw new IndexOutOfBoundsException("No piece at height " + index + " of ("
+                    + row + ", " + col + ").");
+        }
+
+        final long value = mPool[start(run) + index];
+
+        return mGame.getPlayer((int) (value >> 32)).myPieces[(int) value];
+    }
+
+    /**
+     * Puts the piece on top of the cell at (row, col), e.g. while setting
+     * up a position or sending a captured piece home. This isn't undone
+     * by {@code unmakeMove}.
+     *
+     * @param piece piece to add
+     * @param row row of the cell
+     * @param col column of the cell
+     */
+    public void pushPiece(Piece piece, int row, int col) {
+        push(row * mColumns + col, ((long) piece.playerId() << 32) | (long) piece.id());
+    }
+
+    /**
+     * Removes the piece on top of the cell at (row, col). This isn't undone
+     * by {@code unmakeMove}.
+     *
+     * @param row row of the cell
+     * @param col column of the cell
+     * @return piece removed, or null if the cell was empty
+     */
+    public Piece popPiece(int row, int col) {
+        final Piece top = pieceAt(row, col);
+
+        if (top != null) {
+            pop(row * mColumns + col);
+        }
+
+        return top;
+    }
+
+    /**
+     * Returns a new state with the top piece at the move's source put on
+     * top of its destination, if there is one, leaving this one untouched.
+     *
+     * @param move move to make
+     * @param newCacheRows no. of rows of the new state
+     * @param newCacheCols no. of columns of the new state
+     * @return state after the move
+     */
+    public BoardMultiStateCache doMove(Move move, int newCacheRows, int newCacheCols) {
+        final BoardMultiStateCache copy = copyCache(this, newCacheRows, newCacheCols);
+        final int srcOffset = move.getSrcRow() * newCacheCols + move.getSrcCol();
+
+        if (height(copy.mIndex[srcOffset]) != 0) {
+            copy.transfer(srcOffset, move.getDstRow() * newCacheCols + move.getDstCol(), 1);
+        }
+
+        return copy;
+    }
+
+    /**
+     * Moves the top {@code count} pieces at (srcRow, srcCol) onto the top
+     * of (dstRow, dstCol), keeping their order. The change can be reverted
+     * with {@code unmakeMove}.
+     *
+     * @param srcRow row of the source cell
+     * @param srcCol column of the source cell
+     * @param dstRow row of the destination cell
+     * @param dstCol column of the destination cell
+     * @param count no. of pieces to move
+     * @throws IllegalArgumentException if the source holds fewer pieces
+     */
+    public void makeMove(int srcRow, int srcCol, int dstRow, int dstCol, int count) {
+        final int srcOffset = srcRow * mColumns + srcCol;
+        final int dstOffset = dstRow * mColumns + dstCol;
+
+        if (count < 1 || count > height(mIndex[srcOffset])) {
+            throw new IllegalArgumentException("Cannot move " + count + " pieces from ("
+                    + srcRow + ", " + srcCol + ").");
+        }
+
+        if (mUndoStack == null) {
+            mUndoStack = new long[16];
+        } else if (mUndoTop == mUndoStack.length) {
+            mUndoStack = Arrays.copyOf(mUndoStack, mUndoStack.length * 2);
+        }
+
+        mUndoStack[mUndoTop++] = ((long) srcOffset << 40) | ((long) dstOffset << 16) | count;
+        transfer(srcOffset, dstOffset, count);
+    }
+
+    public void makeMove(Move move) {
+        makeMove(move.getSrcRow(), move.getSrcCol(), move.getDstRow(), move.getDstCol(), 1);
+    }
+
+    /**
+     * Makes the packed move; its payload, if not zero, is the no. of
+     * pieces moved.
+     *
+     * @param packedMove move encoded by {@link PackedMove}
+     */
+    @Override
+    public void makeMove(long packedMove) {
+        final int count = PackedMove.decodePayload(packedMove);
+
+        makeMove(PackedMove.decodeSrcRow(packedMove), PackedMove.decodeSrcCol(packedMove),
+                PackedMove.decodeDstRow(packedMove), PackedMove.decodeDstCol(packedMove),
+                (count != 0) ? count : 1);
+    }
+
+    /**
+     * Reverts the last move made with {@code makeMove}, putting the pieces
+     * moved back on top of their source.
+     *
+     * @throws IllegalStateException if there is no move to unmake
+     */
+    @Override
+    public void unmakeMove() {
+        if (mUndoTop == 0) {
+            throw new IllegalStateException("No move has been made on this state.");
+        }
+
+        final long entry = mUndoStack[--mUndoTop];
+
+        transfer((int) (entry >>> 16) & (MAX_CELLS - 1), (int) (entry >>> 40),
+                (int) entry & MAX_HEIGHT);
+    }
+
+    /**
+     * Returns the no. of moves made with {@code makeMove} that have not
+     * been unmade yet.
+     *
+     * @return no. of moves that can be unmade
+     */
+    public int madeMoveCount() {
+        return mUndoTop;
+    }
+
+    /**
+     * Returns the zobrist hash of this state, built on the first call and
+     * updated incrementally after that.
+     *
+     * @return 64-bit hash of the state
+     */
+    @Override
+    public long zobristKey() {
+        if (mZobrist == null) {
+            final ZobristTable zobrist = ZobristTable.forGame(mGame);
+
+            if (zobrist.getRows() != mRows || zobrist.getColumns() != mColumns) {
+                throw new IllegalStateException("Cannot hash a state cache whose " +
+                        "dimensions differ from the game's board.");
+            }
+
+            long key = 0;
+
+            for (int offset = 0; offset < mIndex.length; offset++) {
+                final long run = mIndex[offset];
+                final int start = start(run);
+
+                for (int h = 0, height = height(run); h < height; h++) {
+                    key ^= key(zobrist, offset, h, mPool[start + h]);
+                }
+            }
+
+            mZobristKey = key;
+            mZobrist = zobrist;
+        }
+
+        return mZobristKey;
+    }
+
+    /**
+     * Builds the state-cache for the board in game. Cells that are
+     * {@link StackedCell}s have their whole stack cached; other cells
+     * their holder.
+     *
+     * @param game
+     * @return state-cache built for game
+     */
+    public static BoardMultiStateCache buildCache(BoardGame game) {
+        final Board stateCtl = game.board();
+        final int rowCount = stateCtl.getHeight();
+        final int colCount = stateCtl.getWidth();
+        final BoardMultiStateCache stateCache =
+                new BoardMultiStateCache(game, rowCount, colCount);
+
+        for (int offset = 0; offset < rowCount * colCount; offset++) {
+            final Cell cell = stateCtl.getCell(offset);
+
+            if (cell instanceof StackedCell) {
+                final StackedCell stack = (StackedCell) cell;
+
+                for (int h = 0, height = stack.getHolderCount(); h < height; h++) {
+                    final Piece piece = stack.getHolder(h);
+                    stateCache.push(offset, ((long) piece.playerId() << 32) | (long) piece.id());
+                }
+            } else {
+                final Piece piece = stateCtl.pieceAt(offset);
+
+                if (piece != null) {
+                    stateCache.push(offset, ((long) piece.playerId() << 32) | (long) piece.id());
+                }
+            }
+        }
+
+        return stateCache;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o)
+            return true;
+        if (!(o instanceof BoardMultiStateCache))
+            return false;
+
+        final BoardMultiStateCache other = (BoardMultiStateCache) o;
+
+        if (mGame != other.mGame || mColumns != other.mColumns || mRows != other.mRows)
+            return false;
+        if (fitsBoard() && zobristKey() != other.zobristKey())
+            return false;
+
+        // Runs differ between equal states, so compare stack by stack
+        for (int offset = 0; offset < mIndex.length; offset++) {
+            final long run = mIndex[offset];
+            final long otherRun = other.mIndex[offset];
+            final int height = height(run);
+
+            if (height != height(otherRun))
+                return false;
+
+            for (int h = 0, start = start(run), otherStart = start(otherRun); h < height; h++) {
+                if (mPool[start + h] != other.mPool[otherStart + h])
+                    return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * States cropped or padded by {@code copyCache} can't be hashed with
+     * the game's {@link ZobristTable}; they hash their stacks instead.
+     */
+    @Override
+    public int hashCode() {
+        if (!fitsBoard()) {
+            int hash = 1;
+
+            for (int offset = 0; offset < mIndex.length; offset++) {
+                final long run = mIndex[offset];
+                hash = 31 * hash + height(run);
+
+                for (int h = 0, start = start(run); h < height(run); h++) {
+                    final long value = mPool[start + h];
+                    hash = 31 * hash + (int) (value ^ (value >>> 32));
+                }
+            }
+
+            return hash;
+        }
+
+        final long key = zobristKey();
+        return (int) (key ^ (key >>> 32));
+    }
+
+    /**
+     * Tells whether this state has the dimensions of the game's board, so
+     * that {@code zobristKey} can be used.
+     */
+    private boolean fitsBoard() {
+        if (mZobrist != null)
+            return true;
+
+        final Board board = mGame.board();
+        return board.getHeight() == mRows && board.getWidth() == mColumns;
+    }
+
+    @Override
+    public BoardMultiStateCache copyState() {
+        return new BoardMultiStateCache(this);
+    }
+
+    /**
+     * Copies the state cache, cropping or padding it to the new size.
+     *
+     * @param stateCache state to copy
+     * @param newRow no. of rows of the copy
+     * @param newCol no. of columns of the copy
+     * @return copy of the state
+     */
+    public static BoardMultiStateCache copyCache(BoardMultiStateCache stateCache,
+                                                 int newRow, int newCol) {
+        if (newRow == stateCache.mRows && newCol == stateCache.mColumns) {
+            return new BoardMultiStateCache(stateCache);
+        }
+
+        final BoardMultiStateCache copy =
+                new BoardMultiStateCache(stateCache.mGame, newRow, newCol);
+
+        for (int r = 0; r < Math.min(newRow, stateCache.mRows); r++) {
+            for (int c = 0; c < Math.min(newCol, stateCache.mColumns); c++) {
+                final long run = stateCache.mIndex[r * stateCache.mColumns + c];
+
+                for (int h = 0, start = start(run); h < height(run); h++) {
+                    copy.push(r * newCol + c, stateCache.mPool[start + h]);
+                }
+            }
+        }
+
+        return copy;
+    }
+
+    /**
+     * Moves the top {@code count} pieces of one cell onto another, keeping
+     * their order.
+     */
+    private void transfer(int srcOffset, int dstOffset, int count) {
+        final int srcHeight = height(mIndex[srcOffset]);
+
+        // Pushes may move the source's run, so its start is looked up each time
+        for (int h = srcHeight - count; h < srcHeight; h++) {
+            push(dstOffset, mPool[start(mIndex[srcOffset]) + h]);
+        }
+
+        for (int i = 0; i < count; i++) {
+            pop(srcOffset);
+        }
+    }
+
+    private void push(int offset, long value) {
+        final int height = height(mIndex[offset]);
+
+        if (height == MAX_HEIGHT) {
+            throw new IllegalStateException("Cell " + offset + " is full.");
+        }
+
+        if (height == capacity(mIndex[offset])) {
+            grow(offset);
+        }
+
+        final long run = mIndex[offset];
+        mPool[start(run) + height] = value;
+        mIndex[offset] = run + 1;
+
+        final ZobristTable zobrist = mZobrist;
+
+        if (zobrist != null) {
+            mZobristKey ^= key(zobrist, offset, height, value);
+        }
+    }
+
+    private void pop(int offset) {
+        final long run = mIndex[offset];
+        final int height = height(run) - 1;
+
+        mIndex[offset] = run - 1;
+
+        final ZobristTable zobrist = mZobrist;
+
+        if (zobrist != null) {
+            mZobristKey ^= key(zobrist, offset, height, mPool[start(run) + height]);
+        }
+    }
+
+    /**
+     * Moves the cell's stack to a run at the end of the pool with twice
+     * its capacity, compacting or enlarging the pool first if needed.
+     */
+    private void grow(int offset) {
+        final int oldCapacity = capacity(mIndex[offset]);
+        final int newCapacity = Math.min(Math.max(2, oldCapacity * 2), MAX_HEIGHT);
+
+        if (mPoolTop + newCapacity > mPool.length) {
+            if (mPoolTop - mPoolUsed > mPool.length / 2) {
+                compact();
+            }
+
+            if (mPoolTop + newCapacity > mPool.length) {
+                mPool = Arrays.copyOf(mPool, Math.max(mPool.length * 2, mPoolTop + newCapacity));
+            }
+        }
+
+        final long run = mIndex[offset];
+        final int height = height(run);
+
+        System.arraycopy(mPool, start(run), mPool, mPoolTop, height);
+        mIndex[offset] = ((long) mPoolTop << 32) | ((long) newCapacity << 16) | height;
+        mPoolTop += newCapacity;
+        mPoolUsed += newCapacity - oldCapacity;
+    }
+
+    /**
+     * Packs the runs of all cells to the front of the pool.
+     */
+    private void compact() {
+        final long pool[] = new long[mPool.length];
+        int top = 0;
+
+        for (int offset = 0; offset < mIndex.length; offset++) {
+            final long run = mIndex[offset];
+            final int capacity = capacity(run);
+
+            System.arraycopy(mPool, start(run), pool, top, height(run));
+            mIndex[offset] = ((long) top << 32) | (run & 0xFFFFFFFFL);
+            top += capacity;
+        }
+
+        mPool = pool;
+        mPoolTop = top;
+    }
+
+    private static long key(ZobristTable zobrist, int offset, int height, long value) {
+        return Long.rotateLeft(zobrist.key(offset, value), height);
+    }
+
+    private static int start(long run) {
+        return (int) (run >>> 32);
+    }
+
+    private static int capacity(long run) {
+        return (int) (run >>> 16) & 0xFFFF;
+    }
+
+    private static int height(long run) {
+        return (int) run & 0xFFFF;
+    }
+
+}
@@ -4,7 +4,8 @@ package com.silcos.board;
  * A cell is the spatial unit of the {@link Board}. Each cell can hold
  * pieces at any moment in time.
  *
- * NOTE: Currently Cell only supports one holder.
+ * A plain cell holds one piece at a time; cells that hold stacks of
+ * pieces implement {@link StackedCell}.
  */
 public interface Cell {
 
@@ -0,0 +1,182 @@
+package com.silcos.board;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * {@code CellStateMirror} keeps a copy of a board's cells that other
+ * threads can read while the game thread changes the board. It is a
+ * seqlock: the game thread makes the sequence no. odd while it changes
+ * cells and even again when it is done, and a reader copies the cells and
+ * retries if the sequence changed meanwhile. Readers never block the game
+ * thread, and the game thread never waits for readers.
+ *
+ * Cells are stored the way {@link BoardMonoStateCache} stores them: the
+ * playerId in the upper 32 bits, the piece id in the lower 32 bits, or
+ * -1 for an empty cell.
+ *
+ * Only one thread (the game's) may write to a mirror.
+ */
+public final class CellStateMirror {
+
+    private static final int SPINS_BEFORE_YIELD = 64;
+
+    private final int rows;
+    private final int columns;
+
+    private final AtomicLongArray cells;
+
+    /**
+     * Odd while a write is in progress; increases by 2 per write that
+     * sets cells.
+     */
+    private final AtomicLong sequence = new AtomicLong();
+
+    /**
+     * Nesting depth of {@code beginWrite} calls; only used by the writer.
+     */
+    private int writeDepth;
+
+    /**
+     * Whether a cell was set since the outermost {@code beginWrite}; only
+     * used by the writer.
+     */
+    private boolean cellsSet;
+
+    public CellStateMirror(int rows, int columns) {
+        this.rows = rows;
+        this.columns = columns;
+        this.cells = new AtomicLongArray(rows * columns);
+
+        for (int i = 0; i < rows * columns; i++) {
+            cells.set(i, -1);
+        }
+    }
+
+    /**
+     * Creates a mirror holding the board's current cells.
+     *
+     * @param board board to mirror
+     * @return mirror of the board
+     */
+    public static CellStateMirror of(Board board) {
+        final CellStateMirror mirror = new CellStateMirror(board.getHeight(), board.getWidth());
+
+        for (int offset = 0; offset < mirror.cells.length(); offset++) {
+            mirror.cells.set(offset, stateOf(board.pieceAt(offset)));
+        }
+
+        return mirror;
+    }
+
+    /**
+     * Returns the cell state the piece is stored as.
+     *
+     * @param piece piece, or null
+     * @return cell state
+     */
+    public static long stateOf(Piece piece) {
+        return (piece != null) ? ((long) piece.playerId() << 32) | (long) piece.id() : -1;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getColumns() {
+        return columns;
+    }
+
+    /**
+     * Starts a write; readers retry until the matching {@code endWrite}.
+     * Writes can be nested, e.g. a move made of several cell changes.
+     * A write that sets no cells, like a move the board rejected, leaves
+     * the version as it was.
+     */
+    public void beginWrite() {
+        if (writeDepth++ == 0) {
+            cellsSet = false;
+            sequence.incrementAndGet();
+        }
+    }
+
+    public void endWrite() {
+        if (writeDepth == 0) {
+            throw new IllegalStateException("endWrite without beginWrite.");
+        }
+
+        if (--writeDepth == 0) {
+            // Readers that copied the cells around an empty write still
+            // saw a consistent state, so the sequence can be rolled back
+            if (cellsSet) {
+                sequence.incrementAndGet();
+            } else {
+                sequence.decrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Sets a cell; outside of {@code beginWrite}/{@code endWrite}, the
+     * change is published on its own.
+     *
+     * @param offset row-major offset of the cell
+     * @param state new cell state
+     */
+    public void set(int offset, long state) {
+        beginWrite();
+        cells.set(offset, state);
+        cellsSet = true;
+        endWrite();
+    }
+
+    /**
+     * Returns the no. of writes completed so far. Two reads returning the
+     * same version saw the same cells.
+     *
+     * @return version of the cells
+     */
+    public long version() {
+        return sequence.get() >>> 1;
+    }
+
+    /**
+     * Copies a consistent state of the cells into the array, retrying
+     * while the game thread is writing.
+     *
+     * @param dst array of at least {@code rows * columns} longs
+     * @return version of the copied cells
+     */
+    public long read(long[] dst) {
+        final int length = cells.length();
+        int attempts = 0;
+
+        while (true) {
+            final long before = sequence.get();
+
+            if ((before & 1) == 0) {
+                for (int i = 0; i < length; i++) {
+                    dst[i] = cells.get(i);
+                }
+
+                if (sequence.get() == before)
+                    return before >>> 1;
+            }
+
+            if (++attempts % SPINS_BEFORE_YIELD == 0) {
+                Thread.yield();
+            }
+        }
+    }
+
+    /**
+     * Returns a consistent state of one cell.
+     *
+     * @param offset row-major offset of the cell
+     * @return cell state
+     */
+    public long get(int offset) {
+        return cells.get(offset);
+    }
+
+}
@@ -0,0 +1,208 @@
+package com.silcos.board;
+
+import java.util.Arrays;
+
+/**
+ * {@code EventDispatchTable} is an immutable snapshot of the listeners
+ * subscribed to a {@link BoardGame}, with the listeners for each event
+ * type precomputed into their own array. Dispatching an event is a hash
+ * lookup on its typeId followed by a loop over one array.
+ *
+ * Tables are never changed; subscribing or unsubscribing builds a new
+ * table, which the game then publishes (copy-on-write). So listeners can
+ * be added or removed while an event is being dispatched, even from
+ * another thread; the dispatch in progress just keeps using the old table.
+ */
+final class EventDispatchTable {
+
+    static final EventDispatchTable EMPTY = new EventDispatchTable(new int[0],
+            new BoardEventListener[0]);
+
+    private static final BoardEventListener[] NO_LISTENERS = new BoardEventListener[0];
+
+    /**
+     * Subscriptions in the order they were made; {@code subscribedTypes[i]}
+     * is the type {@code subscribers[i]} listens to, or
+     * {@code BoardGame.ANY_EVENT}.
+     */
+    private final int[] subscribedTypes;
+    private final BoardEventListener[] subscribers;
+
+    /**
+     * Open-addressed table from typeId to the listeners for that type.
+     * Types without a specific subscriber use {@code anyTypeListeners}.
+     */
+    private final int[] typeKeys;
+    private final BoardEventListener[][] typeListeners;
+    private final int typeMask;
+
+    private final BoardEventListener[] anyTypeListeners;
+
+    private EventDispatchTable(int[] subscribedTypes, BoardEventListener[] subscribers) {
+        this.subscribedTypes = subscribedTypes;
+        this.subscribers = subscribers;
+
+        int distinctTypes = 0;
+        int anyTypeCount = 0;
+
+        for (int i = 0; i < subscribedTypes.length; i++) {
+            if (subscribedTypes[i] == BoardGame.ANY_EVENT) {
+                ++anyTypeCount;
+            } else if (indexOf(subscribedTypes, subscribedTypes[i]) == i) {
+                ++distinctTypes;
+            }
+        }
+
+        anyTypeListeners = (anyTypeCount == 0) ? NO_LISTENERS
+                : listenersFor(BoardGame.ANY_EVENT, anyTypeCount);
+
+        int capacity = 2;
+
+        while (capacity < distinctTypes * 2) {
+            capacity <<= 1;
+        }
+
+        typeKeys = new int[capacity];
+        typeListeners = new BoardEventListener[capacity][];
+        typeMask = capacity - 1;
+
+        for (int i = 0; i < subscribedTypes.length; i++) {
+            final int typeId = subscribedTypes[i];
+
+            if (typeId == BoardGame.ANY_EVENT || indexOf(subscribedTypes, typeId) != i)
+                continue;
+
+            int count = 0;
+
+            for (int type : subscribedTypes) {
+                if (type == typeId || type == BoardGame.ANY_EVENT) {
+                    ++count;
+                }
+            }
+
+            int slot = hash(typeId) & typeMask;
+
+            while (typeListeners[slot] != null) {
+                slot = (slot + 1) & typeMask;
+            }
+
+            typeKeys[slot] = typeId;
+            typeListeners[slot] = listenersFor(typeId, count);
+        }
+    }
+
+    /**
+     * Returns the listeners an event of the given type is dispatched to,
+     * in the order they subscribed. The array must not be modified.
+     *
+     * @param typeId type of the event
+     * @return listeners for the event
+     */
+    BoardEventListener[] listenersFor(int typeId) {
+        int slot = hash(typeId) & typeMask;
+        BoardEventListener[] listeners;
+
+        while ((listeners = typeListeners[slot]) != null) {
+            if (typeKeys[slot] == typeId)
+                return listeners;
+
+            slot = (slot + 1) & typeMask;
+        }
+
+        return anyTypeListeners;
+    }
+
+    /**
+     * Returns the subscribed listeners, once per subscription. The array
+     * must not be modified.
+     *
+     * @return all subscribers
+     */
+    BoardEventListener[] subscribers() {
+        return subscribers;
+    }
+
+    /**
+     * Returns a table with the listener also subscribed to the type.
+     */
+    EventDispatchTable with(int typeId, BoardEventListener listener) {
+        final int length = subscribers.length;
+        final int[] types = Arrays.copyOf(subscribedTypes, length + 1);
+        final BoardEventListener[] listeners = Arrays.copyOf(subscribers, length + 1);
+
+        types[length] = typeId;
+        listeners[length] = listener;
+
+        return new EventDispatchTable(types, listeners);
+    }
+
+    /**
+     * Returns a table without the listener's subscriptions to the type,
+     * or to any type if {@code typeId} is null.
+     */
+    EventDispatchTable without(Integer typeId, BoardEventListener listener) {
+        final int[] types = new int[subscribers.length];
+        final BoardEventListener[] listeners = new BoardEventListener[subscribers.length];
+        int count = 0;
+
+        for (int i = 0; i < subscribers.length; i++) {
+            if (subscribers[i] == listener
+                    && (typeId == null || typeId == subscribedTypes[i]))
+                continue;
+
+            types[count] = subscribedTypes[i];
+            listeners[count] = subscribers[i];
+            ++count;
+        }
+
+        if (count == subscribers.length)
+            return this;
+
+        return new EventDispatchTable(Arrays.copyOf(types, count),
+                Arrays.copyOf(listeners, count));
+    }
+
+    /**
+     * Returns the subscribers for the type, plus those for any type, in
+     * subscription order. Listeners subscribed more than once are kept at
+     * their first subscription only, so each event reaches them once.
+     */
+    private BoardEventListener[] listenersFor(int typeId, int count) {
+        final BoardEventListener[] listeners = new BoardEventListener[count];
+        int index = 0;
+
+        for (int i = 0; i < subscribers.length; i++) {
+            if ((subscribedTypes[i] == typeId || subscribedTypes[i] == BoardGame.ANY_EVENT)
+                    && !contains(listeners, index, subscribers[i])) {
+                listeners[index++] = subscribers[i];
+            }
+        }
+
+        return (index == count) ? listeners : Arrays.copyOf(listeners, index);
+    }
+
+    private static boolean contains(BoardEventListener[] listeners, int length,
+                                    BoardEventListener listener) {
+        for (int i = 0; i < length; i++) {
+            if (listeners[i] == listener)
+                return true;
+        }
+
+        return false;
+    }
+
+    private static int indexOf(int[] array, int value) {
+        for (int i = 0; i < array.length; i++) {
+            if (array[i] == value)
+                return i;
+        }
+
+        return -1;
+    }
+
+    private static int hash(int typeId) {
+        final int h = typeId * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+}
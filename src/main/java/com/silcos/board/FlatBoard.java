@@ -0,0 +1,180 @@
+package com.silcos.board;
+
+/**
+ * {@code FlatBoard} is a {@link Board} that stores its pieces in one
+ * row-major {@code Piece[]} instead of a {@code Cell[][]}. Reading a
+ * cell is a single array load at {@code row * width + col}, with no
+ * {@link Cell} object or interface call in between.
+ *
+ * Existing boards can switch to it by extending {@code FlatBoard}
+ * instead of {@code Board}; {@code handle} code that goes through
+ * {@code getCell(..).getHolder()} and {@code setHolder()} keeps working
+ * through light-weight cell views, which are only allocated the first
+ * time the {@link Cell} API is used. Hot paths should prefer
+ * {@code pieceAt} and {@code setPieceAt}.
+ *
+ * Since all changes go through {@code setPieceAt}, a {@code FlatBoard}
+ * keeps its zobrist hash exact even when {@code handle} moves more than
+ * the source and destination pieces.
+ *
+ * {@code allocateCellData} is called by the constructor, so subclasses
+ * don't have to call it themselves.
+ */
+public abstract class FlatBoard extends Board {
+
+    /**
+     * Pieces held by each cell, in row-major order; null for an empty
+     * cell.
+     */
+    protected Piece pieces[];
+
+    /**
+     * No. of columns, cached so that offsets don't need a call to
+     * {@code getWidth()}.
+     */
+    private int stride;
+
+    /**
+     * {@link Cell} views onto {@code pieces}, built lazily for code
+     * that still uses the cell-based API.
+     */
+    private Cell cellViews[];
+
+    public FlatBoard(int cellBasedHeight, int cellBasedWidth) {
+        super(cellBasedHeight, cellBasedWidth);
+        allocateCellData();
+    }
+
+    @Override
+    protected void allocateCellData() {
+        stride = getWidth();
+        pieces = new Piece[getHeight() * stride];
+        cellViews = null;
+    }
+
+    /**
+     * Returns the no. of cells on this board.
+     *
+     * @return height * width
+     */
+    public final int cellCount() {
+        return pieces.length;
+    }
+
+    @Override
+    public final Piece pieceAt(int rowOffset, int columnOffset) {
+        return pieces[rowOffset * stride + columnOffset];
+    }
+
+    @Override
+    public final Piece pieceAt(int inMemoryOffset) {
+        return pieces[inMemoryOffset];
+    }
+
+    /**
+     * Places the piece in the cell at the given offset, replacing any
+     * piece held there. All changes to the board go through here.
+     *
+     * @param piece piece to place, or null to empty the cell
+     * @param inMemoryOffset row-major offset of the cell
+     */
+    public void setPieceAt(Piece piece, int inMemoryOffset) {
+        final Piece previous = pieces[inMemoryOffset];
+        pieces[inMemoryOffset] = piece;
+
+        if (previous != piece) {
+            cellChanged(inMemoryOffset, previous, piece);
+        }
+    }
+
+    @Override
+    protected final boolean reportsCellChanges() {
+        return true;
+    }
+
+    public final void setPieceAt(Piece piece, int rowOffset, int columnOffset) {
+        setPieceAt(piece, rowOffset * stride + columnOffset);
+    }
+
+    /**
+     * Moves the piece at the source offset to the destination offset,
+     * leaving the source empty.
+     *
+     * @param srcOffset offset of the source cell
+     * @param dstOffset offset of the destination cell
+     * @return piece that was held at the destination, or null
+     */
+    public final Piece movePiece(int srcOffset, int dstOffset) {
+        final Piece moved = pieces[srcOffset];
+        final Piece replaced = pieces[dstOffset];
+
+        setPieceAt(null, srcOffset);
+        setPieceAt(moved, dstOffset);
+
+        return replaced;
+    }
+
+    @Override
+    protected void undo(Move move, Piece moved, Piece captured) {
+        setPieceAt(moved, move.getSrcRow(), move.getSrcCol());
+        setPieceAt(captured, move.getDstRow(), move.getDstCol());
+    }
+
+    @Override
+    public Cell getCell(int rowOffset, int columnOffset) {
+        return getCell(rowOffset * stride + columnOffset);
+    }
+
+    @Override
+    public Cell getCell(int inMemoryOffset) {
+        if (cellViews == null) {
+            final Cell[] views = new Cell[pieces.length];
+
+            for (int i = 0; i < views.length; i++) {
+                views[i] = new CellView(i);
+            }
+
+            cellViews = views;
+        }
+
+        return cellViews[inMemoryOffset];
+    }
+
+    /**
+     * Copies the holder of the given cell into this board; the cell
+     * object itself is not retained.
+     */
+    @Override
+    public void setCell(Cell cell, int rowOffset, int columnOffset) {
+        setCell(cell, rowOffset * stride + columnOffset);
+    }
+
+    /**
+     * Copies the holder of the given cell into this board; the cell
+     * object itself is not retained.
+     */
+    @Override
+    public void setCell(Cell cell, int inMemoryOffset) {
+        setPieceAt((cell != null) ? cell.getHolder() : null, inMemoryOffset);
+    }
+
+    private final class CellView implements Cell {
+
+        private final int offset;
+
+        CellView(int offset) {
+            this.offset = offset;
+        }
+
+        @Override
+        public Piece getHolder() {
+            return pieces[offset];
+        }
+
+        @Override
+        public void setHolder(Piece o) {
+            setPieceAt(o, offset);
+        }
+    }
+
+}
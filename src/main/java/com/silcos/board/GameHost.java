@@ -0,0 +1,245 @@
+package com.silcos.board;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * {@code GameHost} runs many {@link BoardGame}s on a fixed set of worker
+ * threads. Each hosted game gets a mailbox: moves, timer ticks and
+ * event dispatches for the game are posted to it and run one at a time,
+ * in order, so a game's state is only ever changed by one thread at a
+ * time and needs no locks. Mailboxes of different games run in parallel
+ * on the workers.
+ *
+ * <pre>
+ *     GameHost host = new GameHost(Runtime.getRuntime().availableProcessors());
+ *     host.host(game);
+ *     host.placeMove(game, move);  // from any thread
+ * </pre>
+ *
+ * Hosting a game replaces its platform provider (and its timer's) with
+ * one that posts {@code GAME_EVENT_TASK}s to the mailbox. Compute tasks,
+ * like searches by computer players, still run on a separate provider;
+ * their results should be posted back with {@code execute}.
+ */
+public class GameHost {
+
+    /**
+     * Max. no. of tasks a mailbox runs before giving its worker to other
+     * games.
+     */
+    private static final int MAILBOX_BATCH = 64;
+
+    private final ExecutorService workers;
+    private final ScheduledThreadPoolExecutor scheduler;
+    private final BoardPlatformProvider computeProvider;
+
+    private final ConcurrentHashMap<BoardGame, Mailbox> mailboxes =
+            new ConcurrentHashMap<>();
+
+    /**
+     * Creates a host whose compute tasks run on the default provider.
+     *
+     * @param workerThreads no. of threads that run the games' mailboxes
+     */
+    public GameHost(int workerThreads) {
+        this(workerThreads, BoardGame.getDefaultProvider());
+    }
+
+    /**
+     * @param workerThreads no. of threads that run the games' mailboxes
+     * @param computeProvider provider for the games' compute tasks
+     */
+    public GameHost(int workerThreads, BoardPlatformProvider computeProvider) {
+        if (workerThreads < 1) {
+            throw new IllegalArgumentException("A host needs at least one worker.");
+        }
+
+        this.workers = Executors.newFixedThreadPool(workerThreads,
+                new JdkPlatformProvider.DaemonThreadFactory("GameHost"));
+        this.scheduler = new ScheduledThreadPoolExecutor(1,
+                new JdkPlatformProvider.DaemonThreadFactory("GameHostScheduler"));
+        this.scheduler.setRemoveOnCancelPolicy(true);
+        this.computeProvider = computeProvider;
+    }
+
+    /**
+     * Starts running the game's events in its own mailbox. Hosting a game
+     * twice has no effect.
+     *
+     * @param game game to host
+     */
+    public void host(BoardGame game) {
+        final Mailbox mailbox = new Mailbox(game.getPlatformProvider());
+
+        if (mailboxes.putIfAbsent(game, mailbox) == null) {
+            game.setPlatformProvider(mailbox);
+        }
+    }
+
+    /**
+     * Stops hosting the game, and gives it back the provider it had.
+     * Tasks already posted to its mailbox still run.
+     *
+     * @param game hosted game
+     */
+    public void unhost(BoardGame game) {
+        final Mailbox mailbox = mailboxes.remove(game);
+
+        if (mailbox != null && game.getPlatformProvider() == mailbox) {
+            game.setPlatformProvider(mailbox.previousProvider);
+        }
+    }
+
+    public boolean isHosting(BoardGame game) {
+        return mailboxes.containsKey(game);
+    }
+
+    public int getGameCount() {
+        return mailboxes.size();
+    }
+
+    /**
+     * Runs the task in the game's mailbox, after the tasks already posted
+     * to it.
+     *
+     * @param game hosted game
+     * @param task task to run
+     * @throws IllegalStateException if the game isn't hosted
+     */
+    public void execute(BoardGame game, Runnable task) {
+        final Mailbox mailbox = mailboxes.get(game);
+
+        if (mailbox == null) {
+            throw new IllegalStateException("Game is not hosted by this host.");
+        }
+
+        mailbox.post(task);
+    }
+
+    /**
+     * Places the move in the game's mailbox.
+     *
+     * @param game hosted game
+     * @param move move to place
+     */
+    public void placeMove(final BoardGame game, final Move move) {
+        execute(game, new Runnable() {
+            @Override
+            public void run() {
+                game.mController.placeMove(move);
+            }
+        });
+    }
+
+    /**
+     * Returns the no. of tasks waiting in the game's mailbox.
+     *
+     * @param game hosted game
+     * @return mailbox size, or 0 if the game isn't hosted
+     */
+    public int getBacklog(BoardGame game) {
+        final Mailbox mailbox = mailboxes.get(game);
+        return (mailbox != null) ? mailbox.tasks.size() : 0;
+    }
+
+    /**
+     * Stops the workers; delayed tasks whose delay hasn't passed are
+     * dropped.
+     */
+    public void shutdown() {
+        scheduler.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+        scheduler.shutdown();
+        workers.shutdown();
+    }
+
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        final long deadline = System.nanoTime() + unit.toNanos(timeout);
+
+        return scheduler.awaitTermination(timeout, unit)
+                && workers.awaitTermination(deadline - System.nanoTime(),
+                        TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * A game's queue of tasks, and the provider the game uses while
+     * hosted. At most one run of a mailbox is submitted to the workers at
+     * any time.
+     */
+    private final class Mailbox extends BoardPlatformProvider implements Runnable {
+
+        final BoardPlatformProvider previousProvider;
+        final ConcurrentLinkedQueue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+        final AtomicBoolean scheduled = new AtomicBoolean();
+
+        Mailbox(BoardPlatformProvider previousProvider) {
+            this.previousProvider = previousProvider;
+        }
+
+        void post(Runnable task) {
+            tasks.offer(task);
+
+            if (!scheduled.get() && scheduled.compareAndSet(false, true)) {
+                workers.execute(this);
+            }
+        }
+
+        @Override
+        public void run() {
+            Runnable task;
+            int count = 0;
+
+            while (count++ < MAILBOX_BATCH && (task = tasks.poll()) != null) {
+                try {
+                    task.run();
+                } catch (RuntimeException e) {
+                    final Thread thread = Thread.currentThread();
+                    final Thread.UncaughtExceptionHandler handler =
+                            thread.getUncaughtExceptionHandler();
+
+                    if (handler != null) {
+                        handler.uncaughtException(thread, e);
+                    }
+                }
+            }
+
+            scheduled.set(false);
+
+            // Yield the worker between batches; a task posted after the last
+            // poll may have seen the mailbox as still scheduled.
+            if (!tasks.isEmpty() && scheduled.compareAndSet(false, true)) {
+                workers.execute(this);
+            }
+        }
+
+        @Override
+        public void runComputeIntensiveTask(String taskName, Runnable taskExec) {
+            if (GAME_EVENT_TASK.equals(taskName)) {
+                post(taskExec);
+            } else {
+                computeProvider.runComputeIntensiveTask(taskName, taskExec);
+            }
+        }
+
+        @Override
+        public void runComputeIntensiveTaskAfter(int ms, final String taskName,
+                                                 final Runnable taskExec) {
+            if (GAME_EVENT_TASK.equals(taskName)) {
+                scheduler.schedule(new Runnable() {
+                    @Override
+                    public void run() {
+                        post(taskExec);
+                    }
+                }, ms, TimeUnit.MILLISECONDS);
+            } else {
+                computeProvider.runComputeIntensiveTaskAfter(ms, taskName, taskExec);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,481 @@
+package com.silcos.board;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * {@code GameJournal} persists games as the events that happened in
+ * them, instead of as object graphs. Each move placed, move taken back,
+ * finish and elimination of an attached game is appended as a 16-byte
+ * record to a memory-mapped segment file:
+ *
+ * <ul>
+ *     <li>bytes 0-7: payload - the {@link MoveLog} entry of a move, the
+ *     winner of a finish, or the player eliminated</li>
+ *     <li>bytes 8-11: id of the game, so one journal can serve many
+ *     games</li>
+ *     <li>bytes 12-13: record type</li>
+ *     <li>bytes 14-15: check of the other fields; a record that doesn't
+ *     check (torn by a crash) ends the segment</li>
+ * </ul>
+ *
+ * Appending is a few stores into the mapped segment. A background thread
+ * forces the segment to disk every commit interval, so all records
+ * appended in between share one write (group commit); {@code sync}
+ * forces them right away. A segment that is full is forced and closed,
+ * and the journal rolls over to a new one.
+ *
+ * {@code replay} rebuilds a game from its records, by placing its moves
+ * again on a freshly set-up game.
+ */
+public class GameJournal implements Closeable {
+
+    public static final int RECORD_SIZE = 16;
+
+    public static final short MOVE_RECORD = 1;
+    public static final short UNDO_RECORD = 2;
+    public static final short FINISH_RECORD = 3;
+    public static final short ELIMINATION_RECORD = 4;
+
+    private static final String SEGMENT_PREFIX = "journal-";
+    private static final String SEGMENT_SUFFIX = ".seg";
+
+    private final File directory;
+    private final int segmentSize;
+    private final int commitIntervalMillis;
+
+    private MappedByteBuffer segment;
+    private int segmentIndex;
+    private int position;
+    private long recordCount;
+    private volatile boolean dirty;
+
+    private final Map<BoardGame, BoardEventListener> listeners = new IdentityHashMap<>();
+
+    private final Thread committer;
+    private volatile boolean closed;
+
+    /**
+     * Opens the journal in the directory with 64MB segments, committed
+     * every 10ms.
+     *
+     * @param directory directory holding the segment files
+     * @throws IOException if the journal can't be opened
+     */
+    public GameJournal(File directory) throws IOException {
+        this(directory, 64 << 20, 10);
+    }
+
+    /**
+     * Opens the journal in the directory, appending after the last valid
+     * record found in it.
+     *
+     * @param directory directory holding the segment files
+     * @param segmentSize size of each segment, in bytes
+     * @param commitIntervalMillis time between two commits; 0 commits
+     *                             only on {@code sync}
+     * @throws IOException if the journal can't be opened
+     */
+    public GameJournal(File directory, int segmentSize, int commitIntervalMillis)
+            throws IOException {
+        if (segmentSize < RECORD_SIZE || segmentSize % RECORD_SIZE != 0) {
+            throw new IllegalArgumentException("Segment size must be a multiple of "
+                    + RECORD_SIZE + " bytes.");
+        }
+
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Cannot create journal directory " + directory);
+        }
+
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.commitIntervalMillis = commitIntervalMillis;
+
+        final File[] existing = listSegments(directory);
+
+        if (existing.length == 0) {
+            openSegment(0);
+        } else {
+            final File last = existing[existing.length - 1];
+            openSegment(segmentIndexOf(last));
+            position = validLength(segment);
+        }
+
+        if (commitIntervalMillis > 0) {
+            committer = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    commitLoop();
+                }
+            }, "GameJournal");
+            committer.setDaemon(true);
+            committer.start();
+        } else {
+            committer = null;
+        }
+    }
+
+    /**
+     * Starts journaling the game's moves, undos, finish and eliminations
+     * under the given id.
+     *
+     * @param game game to journal
+     * @param gameId id the game's records are stored under
+     */
+    public void attach(final BoardGame game, final int gameId) {
+        final BoardEventListener listener = new BoardEventListener() {
+            @Override
+            public void handleEvent(Event e) {
+                switch (e.typeId()) {
+                    case BoardGame.PIECE_MOVE_EVENT:
+                        final MoveLog log = game.getMoveLog();
+                        appendIfOpen(gameId, MOVE_RECORD, log.get(log.size() - 1));
+                        break;
+                    case BoardGame.MOVE_UNDO_EVENT:
+                        appendIfOpen(gameId, UNDO_RECORD, 0);
+                        break;
+                    case BoardGame.GAME_FINISH_EVENT:
+                        appendIfOpen(gameId, FINISH_RECORD, ((FinishEvent) e).winnerId);
+                        break;
+                    case BoardGame.ELIMINATION_EVENT:
+                        appendIfOpen(gameId, ELIMINATION_RECORD,
+                                ((EliminationEvent) e).playerId);
+                        break;
+                    default:
+                        break;
+                }
+            }
+        };
+
+        synchronized (listeners) {
+            if (listeners.containsKey(game))
+                return;
+
+            listeners.put(game, listener);
+        }
+
+        game.addBoardEventListener(BoardGame.PIECE_MOVE_EVENT, listener);
+        game.addBoardEventListener(BoardGame.MOVE_UNDO_EVENT, listener);
+        game.addBoardEventListener(BoardGame.GAME_FINISH_EVENT, listener);
+        game.addBoardEventListener(BoardGame.ELIMINATION_EVENT, listener);
+    }
+
+    public void detach(BoardGame game) {
+        final BoardEventListener listener;
+
+        synchronized (listeners) {
+            listener = listeners.remove(game);
+        }
+
+        if (listener != null) {
+            game.removeBoardEventListener(listener);
+        }
+    }
+
+    /**
+     * Appends a record. This can be called from several threads at once.
+     *
+     * @param gameId id of the game
+     * @param type record type
+     * @param payload payload of the record
+     * @throws IllegalStateException if the journal is closed, or a new
+     *                               segment can't be created
+     */
+    public synchronized void append(int gameId, short type, long payload) {
+        if (!appendIfOpen(gameId, type, payload)) {
+            throw new IllegalStateException("Journal is closed.");
+        }
+    }
+
+    /**
+     * Appends a record unless the journal is closed. Attached games append
+     * through this, so that moves racing with {@code close} are just not
+     * journaled, instead of failing in {@code placeMove}.
+     *
+     * @return whether the record was appended
+     */
+    private synchronized boolean appendIfOpen(int gameId, short type, long payload) {
+        if (closed)
+            return false;
+
+        if (position + RECORD_SIZE > segmentSize) {
+            try {
+                roll();
+            } catch (IOException e) {
+                throw new IllegalStateException("Cannot roll journal segment.", e);
+            }
+        }
+
+        final MappedByteBuffer segment = this.segment;
+        final int position = this.position;
+
+        segment.putLong(position, payload);
+        segment.putInt(position + 8, gameId);
+        segment.putShort(position + 12, type);
+        segment.putShort(position + 14, check(payload, gameId, type));
+
+        this.position = position + RECORD_SIZE;
+        ++recordCount;
+        dirty = true;
+        return true;
+    }
+
+    /**
+     * Forces the current segment, and starts a new one.
+     *
+     * @throws IOException if the new segment can't be created
+     */
+    public synchronized void roll() throws IOException {
+        segment.force();
+        openSegment(segmentIndex + 1);
+    }
+
+    /**
+     * Forces all records appended so far to disk.
+     */
+    public void sync() {
+        final MappedByteBuffer current;
+
+        synchronized (this) {
+            current = segment;
+            dirty = false;
+        }
+
+        current.force();
+    }
+
+    /**
+     * Returns the no. of records appended since the journal was opened.
+     *
+     * @return no. of records
+     */
+    public synchronized long getRecordCount() {
+        return recordCount;
+    }
+
+    public synchronized int getSegmentIndex() {
+        return segmentIndex;
+    }
+
+    /**
+     * Detaches all games, and forces the records appended to disk. Games
+     * can go on being played; their moves are no longer journaled.
+     */
+    @Override
+    public void close() {
+        if (closed)
+            return;
+
+        closed = true;
+
+        final Map<BoardGame, BoardEventListener> attached;
+
+        synchronized (listeners) {
+            attached = new IdentityHashMap<>(listeners);
+            listeners.clear();
+        }
+
+        for (Map.Entry<BoardGame, BoardEventListener> entry : attached.entrySet()) {
+            entry.getKey().removeBoardEventListener(entry.getValue());
+        }
+
+        if (committer != null) {
+            committer.interrupt();
+        }
+
+        sync();
+    }
+
+    private void commitLoop() {
+        while (!closed) {
+            try {
+                Thread.sleep(commitIntervalMillis);
+            } catch (InterruptedException e) {
+                // close() interrupts the thread; the loop condition decides
+            }
+
+            if (dirty && !closed) {
+                sync();
+            }
+        }
+    }
+
+    private void openSegment(int index) throws IOException {
+        final File file = new File(directory, segmentName(index));
+        final RandomAccessFile raf = new RandomAccessFile(file, "rw");
+
+        try {
+            if (raf.length() < segmentSize) {
+                raf.setLength(segmentSize);
+            }
+
+            segment = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        } finally {
+            // The mapping stays valid after the file is closed
+            raf.close();
+        }
+
+        segmentIndex = index;
+        position = 0;
+    }
+
+    /**
+     * Replays the records of one game onto a game set up in its initial
+     * position, with no timer attached yet.
+     *
+     * Finishes & eliminations journaled before the game's last move were
+     * raised while placing its moves, e.g. by a listener that ends the game
+     * on a winning move, so placing the moves again raises them again;
+     * they are kept for auditing only. Those after the last move are raised
+     * again, unless the game is already over.
+     *
+     * @param directory directory holding the segment files
+     * @param gameId id of the game to replay
+     * @param game game to place the moves on
+     * @return no. of records of the game read
+     * @throws IOException if a segment can't be read
+     * @throws IllegalStateException if the game rejects a journaled move,
+     *                               or has no move to take back
+     */
+    public static int replay(File directory, int gameId, BoardGame game) throws IOException {
+        final BoardGame.GameInputController controller = game.mController;
+        long payloads[] = new long[64];
+        short types[] = new short[64];
+        int count = 0;
+        int lastMove = -1;
+
+        for (File file : listSegments(directory)) {
+            final RandomAccessFile raf = new RandomAccessFile(file, "r");
+            final MappedByteBuffer segment;
+
+            try {
+                segment = raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, raf.length());
+            } finally {
+                raf.close();
+            }
+
+            final int length = validLength(segment);
+
+            for (int position = 0; position < length; position += RECORD_SIZE) {
+                if (segment.getInt(position + 8) != gameId)
+                    continue;
+
+                if (count == payloads.length) {
+                    payloads = Arrays.copyOf(payloads, count * 2);
+                    types = Arrays.copyOf(types, count * 2);
+                }
+
+                payloads[count] = segment.getLong(position);
+                types[count] = segment.getShort(position + 12);
+
+                if (types[count] == MOVE_RECORD || types[count] == UNDO_RECORD) {
+                    lastMove = count;
+                }
+
+                ++count;
+            }
+        }
+
+        for (int i = 0; i < count; i++) {
+            final long payload = payloads[i];
+
+            switch (types[i]) {
+                case MOVE_RECORD:
+                    final Move move = new Move(MoveLog.isVisible(payload),
+                            MoveLog.srcRow(payload), MoveLog.srcCol(payload),
+                            MoveLog.dstRow(payload), MoveLog.dstCol(payload));
+                    move.killedPieceId = MoveLog.killedPieceId(payload);
+
+                    if (!controller.placeMove(move)) {
+                        throw new IllegalStateException("Record " + i + " of game " + gameId
+                                + " is a move the game rejected.");
+                    }
+                    break;
+                case UNDO_RECORD:
+                    if (!controller.undoMove()) {
+                        throw new IllegalStateException("Record " + i + " of game " + gameId
+                                + " takes back a move the game doesn't have.");
+                    }
+                    break;
+                case FINISH_RECORD:
+                    if (i > lastMove && !game.isDead()) {
+                        game.dispatchEvent(new FinishEvent(game, (int) payload));
+                    }
+                    break;
+                case ELIMINATION_RECORD:
+                    if (i > lastMove) {
+                        game.dispatchEvent(new EliminationEvent((int) payload, 0, game));
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        return count;
+    }
+
+    /**
+     * Returns the length of the valid records at the start of the
+     * segment.
+     */
+    private static int validLength(MappedByteBuffer segment) {
+        final int limit = segment.limit() - segment.limit() % RECORD_SIZE;
+        int position = 0;
+
+        while (position < limit) {
+            final long payload = segment.getLong(position);
+            final int gameId = segment.getInt(position + 8);
+            final short type = segment.getShort(position + 12);
+
+            if (type == 0 || segment.getShort(position + 14) != check(payload, gameId, type))
+                break;
+
+            position += RECORD_SIZE;
+        }
+
+        return position;
+    }
+
+    private static short check(long payload, int gameId, short type) {
+        long h = payload * 0x9E3779B97F4A7C15L
+                ^ (((long) gameId << 16) | (type & 0xFFFF)) * 0xC2B2AE3D27D4EB4FL;
+        h ^= h >>> 29;
+        return (short) (h ^ (h >>> 16) ^ (h >>> 32) ^ (h >>> 48));
+    }
+
+    private static String segmentName(int index) {
+        return SEGMENT_PREFIX + String.format("%08d", index) + SEGMENT_SUFFIX;
+    }
+
+    private static int segmentIndexOf(File file) {
+        final String name = file.getName();
+        return Integer.parseInt(name.substring(SEGMENT_PREFIX.length(),
+                name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    private static File[] listSegments(File directory) {
+        final File[] files = directory.listFiles(new FilenameFilter() {
+            @Override
+            public boolean accept(File dir, String name) {
+                return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+            }
+        });
+
+        if (files == null)
+            return new File[0];
+
+        // Names are zero-padded, so they sort by index
+        Arrays.sort(files);
+        return files;
+    }
+
+}
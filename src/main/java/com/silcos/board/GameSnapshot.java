@@ -0,0 +1,389 @@
+package com.silcos.board;
+
+import java.nio.ByteBuffer;
+
+/**
+ * {@code GameSnapshot} writes the whole state of a live game into a
+ * {@link ByteBuffer}, and reads it back into another instance of the
+ * same game, e.g. in another process. A snapshot holds:
+ *
+ * <ul>
+ *     <li>the piece in each cell, as its player & id</li>
+ *     <li>the status of each piece that isn't {@code DEFAULT_STATUS}</li>
+ *     <li>each player's live piece count and the ids of its pieces
+ *     killed, in order</li>
+ *     <li>the current player, and whether the game is over</li>
+ *     <li>the time left for each player, if a timer is attached</li>
+ *     <li>the moves placed, and those taken back for redo, compressed
+ *     by {@link MoveLog}</li>
+ * </ul>
+ *
+ * Every field is written explicitly, so a snapshot of a game on an 8x8
+ * board with a few dozen moves takes a few hundred bytes. The format
+ * starts with a version; snapshots of other versions are refused.
+ *
+ * The game restored into must be set up like the game snapshotted: same
+ * board size, same players, same pieces. Its rotator must extend
+ * {@link AbstractPlayerRotator}. Both calls must be made on the game's
+ * thread.
+ */
+public final class GameSnapshot {
+
+    public static final int VERSION = 1;
+
+    private static final int MAGIC = 0x47534E50;
+
+    private static final int FLAG_DEAD = 1;
+    private static final int FLAG_TIMER = 2;
+    private static final int FLAG_TIMER_STARTED = 4;
+
+    private GameSnapshot() {
+    }
+
+    /**
+     * Returns the most bytes {@code write} can take for the game in its
+     * current state.
+     *
+     * @param game game to snapshot
+     * @return upper bound of the snapshot's size, in bytes
+     */
+    public static int maxSize(BoardGame game) {
+        final Board board = game.mBoard;
+        int size = 12 + board.getHeight() * board.getWidth() * 3;
+
+        for (int p = 0; p < game.mPlayers.length; p++) {
+            final int pieceCount = game.mPlayers[p].myPieces.length;
+            size += 4 + pieceCount * 6 + 5 + pieceCount * 2 + 8;
+        }
+
+        // Compressed logs: a header, and at most 10 bytes per entry
+        size += 2 * (4 + 16) + (game.mController.history.size()
+                + game.mController.undone.size()) * 10;
+        return size;
+    }
+
+    /**
+     * Writes a snapshot of the game at the buffer's position.
+     *
+     * @param game game to snapshot
+     * @param out buffer to write to, with at least {@code maxSize(game)}
+     *            bytes remaining
+     * @return no. of bytes written
+     */
+    public static int write(BoardGame game, ByteBuffer out) {
+        final int start = out.position();
+        final Board board = game.mBoard;
+        final Player[] players = game.mPlayers;
+        final Timer timer = game.timer;
+        final BoardGame.GameInputController controller = game.mController;
+
+        int flags = 0;
+
+        if (game.isDead())
+            flags |= FLAG_DEAD;
+        if (timer != null)
+            flags |= FLAG_TIMER;
+        if (timer != null && timer.getCurrentPlayerId() >= 0)
+            flags |= FLAG_TIMER_STARTED;
+
+        out.putInt(MAGIC);
+        out.put((byte) VERSION);
+        out.put((byte) flags);
+        out.putShort((short) board.getHeight());
+        out.putShort((short) board.getWidth());
+        out.put((byte) players.length);
+        out.put((byte) controller.playerRotator.getCurrentId());
+
+        for (int row = 0; row < board.getHeight(); row++) {
+            for (int col = 0; col < board.getWidth(); col++) {
+                final Piece piece = board.pieceAt(row, col);
+
+                if (piece == null) {
+                    out.put((byte) 0);
+                } else {
+                    out.put((byte) (piece.playerId() + 1));
+                    out.putShort((short) piece.id());
+                }
+            }
+        }
+
+        for (int p = 0; p < players.length; p++) {
+            final Piece[] pieces = players[p].myPieces;
+            int changed = 0;
+
+            for (Piece piece : pieces) {
+                if (piece.getStatus() != Piece.DEFAULT_STATUS)
+                    ++changed;
+            }
+
+            out.putShort((short) pieces.length);
+            out.putShort((short) changed);
+
+            for (Piece piece : pieces) {
+                if (piece.getStatus() != Piece.DEFAULT_STATUS) {
+                    out.putShort((short) piece.id());
+                    out.putInt(piece.getStatus());
+                }
+            }
+
+            final BoardGame.PlayerStats stats = game.mPlayerStats[p];
+
+            if (stats == null) {
+                out.put((byte) 0);
+            } else {
+                out.put((byte) 1);
+                out.putShort((short) stats.mLivePieces);
+                out.putShort((short) stats.mKilledPieces.size());
+
+                for (int k = 0; k < stats.mKilledPieces.size(); k++) {
+                    out.putShort((short) stats.mKilledPieces.get(k).id());
+                }
+            }
+        }
+
+        if (timer != null) {
+            for (int p = 0; p < players.length; p++) {
+                out.putLong(timer.getRemainingNanos(p));
+            }
+        }
+
+        writeLog(controller.history, out);
+        writeLog(controller.undone, out);
+
+        return out.position() - start;
+    }
+
+    /**
+     * Returns a snapshot of the game, in a new array.
+     *
+     * @param game game to snapshot
+     * @return snapshot
+     */
+    public static byte[] toByteArray(BoardGame game) {
+        final ByteBuffer buffer = ByteBuffer.allocate(maxSize(game));
+        final byte[] data = new byte[write(game, buffer)];
+
+        buffer.flip();
+        buffer.get(data);
+        return data;
+    }
+
+    /**
+     * Reads a snapshot at the buffer's position into the game, replacing
+     * its state. If a timer is attached to the game, it takes the times
+     * in the snapshot and is started again for the current player,
+     * unless the game is over. The snapshot is read completely before
+     * the game is changed, so a bad snapshot leaves the game as it was.
+     *
+     * @param in buffer holding the snapshot
+     * @param game game to restore into
+     * @throws IllegalArgumentException if the snapshot is of another
+     *                                  version, or doesn't fit the game
+     * @throws IllegalStateException if the game's rotator can't be
+     *                               rewound
+     */
+    public static void read(ByteBuffer in, BoardGame game) {
+        final Board board = game.mBoard;
+        final Player[] players = game.mPlayers;
+        final BoardGame.GameInputController controller = game.mController;
+
+        if (!(controller.playerRotator instanceof AbstractPlayerRotator)) {
+            throw new IllegalStateException("Snapshots can't be restored: the player " +
+                    "rotator doesn't extend AbstractPlayerRotator.");
+        }
+
+        if (in.getInt() != MAGIC) {
+            throw new IllegalArgumentException("Not a game snapshot.");
+        }
+
+        final int version = in.get();
+
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Unsupported snapshot version " + version);
+        }
+
+        final int flags = in.get();
+        final int rows = in.getShort();
+        final int cols = in.getShort();
+        final int playerCount = in.get();
+        final int currentId = in.get();
+
+        if (rows != board.getHeight() || cols != board.getWidth()
+                || playerCount != players.length || currentId < 0 || currentId >= playerCount) {
+            throw new IllegalArgumentException("Snapshot of a " + rows + "x" + cols + " board with "
+                    + playerCount + " players doesn't fit the game.");
+        }
+
+        final Piece[] cells = new Piece[rows * cols];
+
+        for (int offset = 0; offset < cells.length; offset++) {
+            final int owner = in.get();
+
+            if (owner != 0) {
+                cells[offset] = pieceOf(controller, owner - 1, in.getShort());
+            }
+        }
+
+        final int[][] statuses = new int[playerCount][];
+        final int[] livePieces = new int[playerCount];
+        final Piece[][] killed = new Piece[playerCount][];
+
+        for (int p = 0; p < playerCount; p++) {
+            final Piece[] pieces = players[p].myPieces;
+
+            if (in.getShort() != pieces.length) {
+                throw new IllegalArgumentException("Player " + p
+                        + " has a different no. of pieces.");
+            }
+
+            statuses[p] = new int[pieces.length];
+
+            for (int changed = in.getShort(); changed > 0; changed--) {
+                final Piece piece = pieceOf(controller, p, in.getShort());
+                statuses[p][indexOf(pieces, piece)] = in.getInt();
+            }
+
+            if (in.get() != 0) {
+                livePieces[p] = in.getShort();
+                killed[p] = new Piece[in.getShort()];
+
+                for (int k = 0; k < killed[p].length; k++) {
+                    killed[p][k] = pieceOf(controller, p, in.getShort());
+                }
+            }
+        }
+
+        long[] remainingNanos = null;
+
+        if ((flags & FLAG_TIMER) != 0) {
+            remainingNanos = new long[playerCount];
+
+            for (int p = 0; p < playerCount; p++) {
+                remainingNanos[p] = in.getLong();
+            }
+        }
+
+        final MoveLog history = readLog(in);
+        final MoveLog undone = readLog(in);
+
+        // Everything is read; change the game
+        final Timer timer = game.timer;
+
+        if (timer != null) {
+            timer.pause();
+        }
+
+        restoreCells(board, cells);
+
+        for (int p = 0; p < playerCount; p++) {
+            final Piece[] pieces = players[p].myPieces;
+
+            for (int i = 0; i < pieces.length; i++) {
+                pieces[i].setStatus(statuses[p][i]);
+            }
+
+            final BoardGame.PlayerStats stats = game.mPlayerStats[p];
+
+            if (stats != null && killed[p] != null) {
+                stats.mLivePieces = livePieces[p];
+                stats.mKilledPieces.clear();
+
+                for (Piece piece : killed[p]) {
+                    stats.mKilledPieces.add(piece);
+                }
+            }
+        }
+
+        controller.history = history;
+        controller.undone = undone;
+
+        players[controller.playerRotator.getCurrentId()].revokeTurn();
+        ((AbstractPlayerRotator) controller.playerRotator).rewindTo(currentId).onTurn();
+
+        game.isDead = (flags & FLAG_DEAD) != 0;
+
+        if (timer != null && remainingNanos != null) {
+            for (int p = 0; p < playerCount; p++) {
+                timer.setRemainingNanos(p, remainingNanos[p]);
+            }
+
+            if (!game.isDead && (flags & FLAG_TIMER_STARTED) != 0) {
+                timer.switchTo(currentId);
+            }
+        }
+    }
+
+    /**
+     * Reads a snapshot made by {@code toByteArray} into the game.
+     *
+     * @param data snapshot
+     * @param game game to restore into
+     */
+    public static void read(byte[] data, BoardGame game) {
+        read(ByteBuffer.wrap(data), game);
+    }
+
+    private static void restoreCells(Board board, Piece[] cells) {
+        final CellStateMirror mirror = board.getStateMirror();
+        final int cols = board.getWidth();
+
+        if (mirror != null)
+            mirror.beginWrite();
+
+        try {
+            for (int offset = 0; offset < cells.length; offset++) {
+                final int row = offset / cols;
+                final int col = offset % cols;
+                final Piece previous = board.pieceAt(row, col);
+
+                if (previous == cells[offset])
+                    continue;
+
+                if (board instanceof FlatBoard) {
+                    ((FlatBoard) board).setPieceAt(cells[offset], row, col);
+                } else {
+                    board.getCell(row, col).setHolder(cells[offset]);
+                    board.cellChanged(board.offsetOf(row, col), previous, cells[offset]);
+                }
+            }
+        } finally {
+            if (mirror != null)
+                mirror.endWrite();
+        }
+    }
+
+    private static Piece pieceOf(BoardGame.GameInputController controller,
+                                 int playerId, int pieceId) {
+        final Piece piece = (playerId >= 0 && playerId < controller.playerRotator
+                .getPlayers().length) ? controller.findPiece(playerId, pieceId) : null;
+
+        if (piece == null) {
+            throw new IllegalArgumentException("Player " + playerId + " has no piece "
+                    + pieceId);
+        }
+
+        return piece;
+    }
+
+    private static int indexOf(Piece[] pieces, Piece piece) {
+        for (int i = 0; i < pieces.length; i++) {
+            if (pieces[i] == piece)
+                return i;
+        }
+
+        return -1;
+    }
+
+    private static void writeLog(MoveLog log, ByteBuffer out) {
+        final byte[] data = log.compress();
+        out.putInt(data.length);
+        out.put(data);
+    }
+
+    private static MoveLog readLog(ByteBuffer in) {
+        final byte[] data = new byte[in.getInt()];
+        in.get(data);
+        return MoveLog.decompress(data);
+    }
+
+}
@@ -0,0 +1,41 @@
+package com.silcos.board;
+
+/**
+ * {@code GameState} is a compact, mutable copy of a position that moves
+ * can be made on & unmade from in place. It is what game-tree searches
+ * walk, instead of the live {@link Board}.
+ *
+ * Moves are given as {@link PackedMove} values.
+ */
+public interface GameState {
+
+    /**
+     * Returns a 64-bit hash of the position; equal positions must have
+     * equal keys.
+     *
+     * @return hash of the position
+     */
+    public long zobristKey();
+
+    /**
+     * Makes the move on this state. It can be reverted by
+     * {@code unmakeMove}.
+     *
+     * @param packedMove move encoded by {@link PackedMove}
+     */
+    public void makeMove(long packedMove);
+
+    /**
+     * Reverts the last move made that hasn't been unmade yet.
+     */
+    public void unmakeMove();
+
+    /**
+     * Returns an independent copy of this position, e.g. for another
+     * search thread. The copy has no moves to unmake.
+     *
+     * @return copy of this state
+     */
+    public GameState copyState();
+
+}
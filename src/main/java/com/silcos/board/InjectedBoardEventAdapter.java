@@ -42,6 +42,16 @@ public class InjectedBoardEventAdapter extends AbstractBoardEventAdapter {
         injectedAdapter.onElimination(e);
     }
 
+    /**
+     * {@link BoardEventAdapter} has no method for undo events, so that
+     * existing adapters still compile; they receive them in
+     * {@code onOther}.
+     */
+    @Override
+    public void onUndo(Event e) {
+        injectedAdapter.onOther(e);
+    }
+
     @Override
     public void onOther(Event e) {
         injectedAdapter.onOther(e);
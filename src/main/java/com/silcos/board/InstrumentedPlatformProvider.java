@@ -0,0 +1,276 @@
+package com.silcos.board;
+
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@code InstrumentedPlatformProvider} is the base of the providers that
+ * ship with the library. It bounds the no. of tasks waiting to run,
+ * applies a {@link RejectionPolicy} to tasks beyond the bound, and keeps
+ * {@link TaskStats} for compute tasks and game-event tasks separately, so
+ * pools can be sized from measurements.
+ *
+ * Subclasses only decide where tasks run, in {@code execute} and
+ * {@code schedule}.
+ */
+public abstract class InstrumentedPlatformProvider extends BoardPlatformProvider {
+
+    /**
+     * What happens to a task submitted while the queue is full.
+     */
+    public enum RejectionPolicy {
+        /**
+         * Throw a {@link RejectedExecutionException}.
+         */
+        ABORT,
+
+        /**
+         * Run the task on the submitting thread. Delayed tasks can't be
+         * run early, and game-event tasks must run one at a time in the
+         * order they were submitted, so both are accepted over the bound
+         * instead.
+         */
+        CALLER_RUNS,
+
+        /**
+         * Drop the task; it is counted as rejected.
+         */
+        DISCARD
+    }
+
+    /**
+     * Counters for one kind of task. All times are in nanoseconds; queue
+     * latency is the time from when a task could have run (submission,
+     * or the end of its delay) to when it started.
+     */
+    public static final class TaskStats {
+
+        private final AtomicInteger queued = new AtomicInteger();
+        private final AtomicLong submitted = new AtomicLong();
+        private final AtomicLong completed = new AtomicLong();
+        private final AtomicLong rejected = new AtomicLong();
+        private final AtomicLong totalQueueNanos = new AtomicLong();
+        private final AtomicLong maxQueueNanos = new AtomicLong();
+        private final AtomicLong totalRunNanos = new AtomicLong();
+
+        /**
+         * Returns the no. of tasks accepted but not started yet, including
+         * delayed tasks still waiting for their delay.
+         *
+         * @return queue depth
+         */
+        public int getQueueDepth() {
+            return queued.get();
+        }
+
+        public long getSubmittedTasks() {
+            return submitted.get();
+        }
+
+        public long getCompletedTasks() {
+            return completed.get();
+        }
+
+        public long getRejectedTasks() {
+            return rejected.get();
+        }
+
+        public long getMeanQueueLatencyNanos() {
+            final long count = completed.get();
+            return (count == 0) ? 0 : totalQueueNanos.get() / count;
+        }
+
+        public long getMaxQueueLatencyNanos() {
+            return maxQueueNanos.get();
+        }
+
+        public long getMeanRunNanos() {
+            final long count = completed.get();
+            return (count == 0) ? 0 : totalRunNanos.get() / count;
+        }
+
+        void recordRun(long queueNanos, long runNanos) {
+            totalQueueNanos.addAndGet(queueNanos);
+            totalRunNanos.addAndGet(runNanos);
+            completed.incrementAndGet();
+
+            long max;
+
+            while (queueNanos > (max = maxQueueNanos.get())
+                    && !maxQueueNanos.compareAndSet(max, queueNanos)) {
+                // retry with the new maximum
+            }
+        }
+    }
+
+    private final TaskStats computerStats = new TaskStats();
+    private final TaskStats eventStats = new TaskStats();
+
+    private final int maxQueuedTasks;
+    private final RejectionPolicy rejectionPolicy;
+
+    /**
+     * @param maxQueuedTasks max. no. of tasks of each kind waiting to run
+     * @param rejectionPolicy what to do with tasks beyond the bound
+     */
+    protected InstrumentedPlatformProvider(int maxQueuedTasks, RejectionPolicy rejectionPolicy) {
+        if (maxQueuedTasks < 1) {
+            throw new IllegalArgumentException("Queue bound must be positive.");
+        }
+
+        this.maxQueuedTasks = maxQueuedTasks;
+        this.rejectionPolicy = rejectionPolicy;
+    }
+
+    public int getMaxQueuedTasks() {
+        return maxQueuedTasks;
+    }
+
+    public RejectionPolicy getRejectionPolicy() {
+        return rejectionPolicy;
+    }
+
+    /**
+     * Returns the stats for tasks of the given name; every name other
+     * than {@code GAME_EVENT_TASK} counts as a compute task.
+     *
+     * @param taskName name tasks are submitted with
+     * @return stats for that kind of task
+     */
+    public TaskStats getStats(String taskName) {
+        return isEventTask(taskName) ? eventStats : computerStats;
+    }
+
+    @Override
+    public final void runComputeIntensiveTask(String taskName, Runnable taskExec) {
+        final TrackedTask task = admit(taskName, taskExec, 0);
+
+        if (task != null) {
+            try {
+                execute(isEventTask(taskName), task);
+            } catch (RejectedExecutionException e) {
+                task.reject();
+                throw e;
+            }
+        }
+    }
+
+    @Override
+    public final void runComputeIntensiveTaskAfter(int ms, String taskName, Runnable taskExec) {
+        final TrackedTask task = admit(taskName, taskExec, ms);
+
+        if (task != null) {
+            try {
+                schedule(ms, isEventTask(taskName), task);
+            } catch (RejectedExecutionException e) {
+                task.reject();
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Runs the task as soon as possible.
+     *
+     * @param eventTask whether it is a game-event task
+     * @param task task to run
+     */
+    protected abstract void execute(boolean eventTask, Runnable task);
+
+    /**
+     * Runs the task after the delay.
+     *
+     * @param ms delay, in milliseconds
+     * @param eventTask whether it is a game-event task
+     * @param task task to run
+     */
+    protected abstract void schedule(int ms, boolean eventTask, Runnable task);
+
+    /**
+     * Counts a task that the subclass queues by other means than
+     * {@code execute} and {@code schedule}, e.g. in a queue of its own,
+     * applying the same bound and rejection policy.
+     *
+     * @param taskName name the task was submitted with
+     * @param taskExec task
+     * @param delayMillis delay before the task may run, or 0
+     * @return task to queue in place of {@code taskExec}, or null if the
+     *         rejection policy already ran or dropped it
+     */
+    protected final Runnable track(String taskName, Runnable taskExec, int delayMillis) {
+        return admit(taskName, taskExec, delayMillis);
+    }
+
+    private static boolean isEventTask(String taskName) {
+        return GAME_EVENT_TASK.equals(taskName);
+    }
+
+    /**
+     * Counts the task into the queue, or applies the rejection policy;
+     * returns null if the task was already handled.
+     */
+    private TrackedTask admit(String taskName, Runnable taskExec, int delayMillis) {
+        final TaskStats stats = getStats(taskName);
+
+        stats.submitted.incrementAndGet();
+
+        if (stats.queued.incrementAndGet() > maxQueuedTasks) {
+            switch (rejectionPolicy) {
+                case CALLER_RUNS:
+                    if (delayMillis > 0 || isEventTask(taskName))
+                        break;
+
+                    stats.queued.decrementAndGet();
+                    new TrackedTask(stats, taskExec, System.nanoTime()).runCounted();
+                    return null;
+                case DISCARD:
+                    stats.queued.decrementAndGet();
+                    stats.rejected.incrementAndGet();
+                    return null;
+                default:
+                    stats.queued.decrementAndGet();
+                    stats.rejected.incrementAndGet();
+                    throw new RejectedExecutionException(taskName + " queue is full ("
+                            + maxQueuedTasks + " tasks).");
+            }
+        }
+
+        return new TrackedTask(stats, taskExec, System.nanoTime() + delayMillis * 1000000L);
+    }
+
+    private static final class TrackedTask implements Runnable {
+
+        private final TaskStats stats;
+        private final Runnable task;
+        private final long readyNanos;
+
+        TrackedTask(TaskStats stats, Runnable task, long readyNanos) {
+            this.stats = stats;
+            this.task = task;
+            this.readyNanos = readyNanos;
+        }
+
+        @Override
+        public void run() {
+            stats.queued.decrementAndGet();
+            runCounted();
+        }
+
+        void runCounted() {
+            final long start = System.nanoTime();
+
+            try {
+                task.run();
+            } finally {
+                stats.recordRun(Math.max(0, start - readyNanos), System.nanoTime() - start);
+            }
+        }
+
+        void reject() {
+            stats.queued.decrementAndGet();
+            stats.rejected.incrementAndGet();
+        }
+    }
+
+}
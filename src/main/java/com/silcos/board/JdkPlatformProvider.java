@@ -0,0 +1,117 @@
+package com.silcos.board;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * {@code JdkPlatformProvider} runs board tasks on plain JDK executors:
+ * {@code COMPUTER_TASK}s on a work-stealing {@link ForkJoinPool}, and
+ * {@code GAME_EVENT_TASK}s on a {@link ScheduledThreadPoolExecutor}, which
+ * also keeps the delays of all delayed tasks. With the default single
+ * event thread, game events run in the order they were submitted.
+ *
+ * All threads are daemon threads, so an idle provider doesn't keep the
+ * JVM alive. This is the provider games use if the application doesn't
+ * install its own with {@code BoardGame.setDefaultProvider}.
+ */
+public class JdkPlatformProvider extends InstrumentedPlatformProvider {
+
+    private final ForkJoinPool computePool;
+    private final ScheduledThreadPoolExecutor eventExecutor;
+
+    /**
+     * Creates a provider with one compute thread per processor, one event
+     * thread, and up to 4096 waiting tasks of each kind, beyond which
+     * tasks run on the submitting thread.
+     */
+    public JdkPlatformProvider() {
+        this(Runtime.getRuntime().availableProcessors(), 1, 4096, RejectionPolicy.CALLER_RUNS);
+    }
+
+    /**
+     * @param computeThreads parallelism of the compute pool
+     * @param eventThreads no. of event threads
+     * @param maxQueuedTasks max. no. of tasks of each kind waiting to run
+     * @param rejectionPolicy what to do with tasks beyond the bound
+     */
+    public JdkPlatformProvider(int computeThreads, int eventThreads, int maxQueuedTasks,
+                               RejectionPolicy rejectionPolicy) {
+        super(maxQueuedTasks, rejectionPolicy);
+
+        this.computePool = new ForkJoinPool(computeThreads,
+                ForkJoinPool.defaultForkJoinWorkerThreadFactory, null, true);
+        this.eventExecutor = new ScheduledThreadPoolExecutor(eventThreads,
+                new DaemonThreadFactory("BoardEvents"));
+        this.eventExecutor.setRemoveOnCancelPolicy(true);
+    }
+
+    public ForkJoinPool getComputePool() {
+        return computePool;
+    }
+
+    public ScheduledThreadPoolExecutor getEventExecutor() {
+        return eventExecutor;
+    }
+
+    @Override
+    protected void execute(boolean eventTask, Runnable task) {
+        if (eventTask) {
+            eventExecutor.execute(task);
+        } else {
+            computePool.execute(task);
+        }
+    }
+
+    @Override
+    protected void schedule(int ms, boolean eventTask, final Runnable task) {
+        if (eventTask) {
+            eventExecutor.schedule(task, ms, TimeUnit.MILLISECONDS);
+        } else {
+            eventExecutor.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    computePool.execute(task);
+                }
+            }, ms, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Stops accepting tasks; tasks already submitted still run, except
+     * delayed tasks whose delay hasn't passed.
+     */
+    public void shutdown() {
+        eventExecutor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+        eventExecutor.shutdown();
+        computePool.shutdown();
+    }
+
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        final long deadline = System.nanoTime() + unit.toNanos(timeout);
+
+        return eventExecutor.awaitTermination(timeout, unit)
+                && computePool.awaitTermination(deadline - System.nanoTime(),
+                        TimeUnit.NANOSECONDS);
+    }
+
+    static final class DaemonThreadFactory implements ThreadFactory {
+
+        private final String prefix;
+        private final AtomicInteger count = new AtomicInteger();
+
+        DaemonThreadFactory(String prefix) {
+            this.prefix = prefix;
+        }
+
+        @Override
+        public Thread newThread(Runnable r) {
+            final Thread thread = new Thread(r, prefix + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+
+}
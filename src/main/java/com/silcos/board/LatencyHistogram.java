@@ -0,0 +1,200 @@
+package com.silcos.board;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * {@code LatencyHistogram} counts durations, in nanoseconds, in
+ * log-linear buckets, like an HDR histogram: durations below
+ * {@code 2^precisionBits} get a bucket each, and every power of 2 above
+ * that is split into {@code 2^(precisionBits - 1)} buckets. Percentiles
+ * read from it are therefore within {@code 2^(1 - precisionBits)} of the
+ * true value, whatever the range of the durations.
+ *
+ * Recording is a few atomic increments into a fixed array, so it never
+ * allocates and can be called from any thread. {@code snapshot} copies
+ * the counts for reading.
+ */
+public class LatencyHistogram {
+
+    private final int precisionBits;
+    private final int subBucketCount;
+    private final int halfSubBucketCount;
+
+    private final AtomicLongArray counts;
+    private final AtomicLong totalCount = new AtomicLong();
+    private final AtomicLong totalNanos = new AtomicLong();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    /**
+     * Immutable copy of a histogram's counts.
+     */
+    public static final class Snapshot {
+
+        private final LatencyHistogram histogram;
+        private final long counts[];
+        private final long count;
+        private final long total;
+        private final long max;
+
+        Snapshot(LatencyHistogram histogram, long[] counts, long count, long total, long max) {
+            this.histogram = histogram;
+            this.counts = counts;
+            this.count = count;
+            this.total = total;
+            this.max = max;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getMeanNanos() {
+            return (count == 0) ? 0 : total / count;
+        }
+
+        public long getMaxNanos() {
+            return max;
+        }
+
+        /**
+         * Returns the duration that the given percentage of the recorded
+         * durations were at or below, rounded up to its bucket.
+         *
+         * @param percentile percentage, from 0 to 100
+         * @return duration, in nanoseconds; 0 if nothing was recorded
+         */
+        public long getValueAtPercentile(double percentile) {
+            long total = 0;
+
+            for (long bucketCount : counts) {
+                total += bucketCount;
+            }
+
+            if (total == 0)
+                return 0;
+
+            final long rank = Math.max(1, (long) Math.ceil(total * percentile / 100));
+            long seen = 0;
+
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+
+                if (seen >= rank)
+                    return Math.min(histogram.highestValueIn(i), max);
+            }
+
+            return max;
+        }
+
+        @Override
+        public String toString() {
+            return "count=" + count + " mean=" + getMeanNanos()
+                    + " p50=" + getValueAtPercentile(50)
+                    + " p99=" + getValueAtPercentile(99)
+                    + " p99.9=" + getValueAtPercentile(99.9)
+                    + " max=" + max;
+        }
+    }
+
+    /**
+     * Creates a histogram with 6 bits of precision, i.e. percentiles
+     * within about 3% of the true values.
+     */
+    public LatencyHistogram() {
+        this(6);
+    }
+
+    /**
+     * @param precisionBits no. of significant bits kept of each duration,
+     *                      from 2 to 16
+     */
+    public LatencyHistogram(int precisionBits) {
+        if (precisionBits < 2 || precisionBits > 16) {
+            throw new IllegalArgumentException("Precision must be 2 to 16 bits.");
+        }
+
+        this.precisionBits = precisionBits;
+        this.subBucketCount = 1 << precisionBits;
+        this.halfSubBucketCount = subBucketCount / 2;
+        this.counts = new AtomicLongArray(subBucketCount
+                + (64 - precisionBits) * halfSubBucketCount);
+    }
+
+    /**
+     * Records a duration; negative durations are counted as 0.
+     *
+     * @param nanos duration, in nanoseconds
+     */
+    public void record(long nanos) {
+        final long value = Math.max(0, nanos);
+
+        counts.incrementAndGet(bucketOf(value));
+        totalCount.incrementAndGet();
+        totalNanos.addAndGet(value);
+
+        long max;
+
+        while (value > (max = maxNanos.get()) && !maxNanos.compareAndSet(max, value)) {
+            // retry with the new maximum
+        }
+    }
+
+    public long getCount() {
+        return totalCount.get();
+    }
+
+    /**
+     * Copies the counts. Durations recorded while this runs may be missing
+     * from some of the totals.
+     *
+     * @return snapshot of the histogram
+     */
+    public Snapshot snapshot() {
+        final long copy[] = new long[counts.length()];
+
+        for (int i = 0; i < copy.length; i++) {
+            copy[i] = counts.get(i);
+        }
+
+        return new Snapshot(this, copy, totalCount.get(), totalNanos.get(), maxNanos.get());
+    }
+
+    /**
+     * Clears all counts, e.g. after a snapshot is exported, so that the
+     * next snapshot only covers the time since.
+     */
+    public void reset() {
+        for (int i = 0; i < counts.length(); i++) {
+            counts.set(i, 0);
+        }
+
+        totalCount.set(0);
+        totalNanos.set(0);
+        maxNanos.set(0);
+    }
+
+    private int bucketOf(long value) {
+        if (value < subBucketCount)
+            return (int) value;
+
+        final int shift = 64 - Long.numberOfLeadingZeros(value) - precisionBits;
+        return subBucketCount + (shift - 1) * halfSubBucketCount
+                + (int) (value >>> shift) - halfSubBucketCount;
+    }
+
+    /**
+     * Returns the highest duration counted in the bucket.
+     */
+    long highestValueIn(int bucket) {
+        if (bucket < subBucketCount)
+            return bucket;
+
+        final int shift = (bucket - subBucketCount) / halfSubBucketCount + 1;
+        final long mantissa = (bucket - subBucketCount) % halfSubBucketCount
+                + halfSubBucketCount;
+
+        return ((mantissa + 1) << shift) - 1;
+    }
+
+}
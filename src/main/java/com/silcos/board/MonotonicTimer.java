@@ -0,0 +1,243 @@
+package com.silcos.board;
+
+/**
+ * {@code MonotonicTimer} is a {@link Timer} that measures time with
+ * {@code System.nanoTime()} instead of counting its own alerts. It
+ * records when the current player's clock started running, and works
+ * out the time left whenever it is asked for, so scheduling delays and
+ * GC pauses can't make the clocks drift.
+ *
+ * It only schedules one wake-up at a time, for the earliest of: the
+ * current player's flag falling, the action set by {@code invokeAt}, and
+ * the next display tick. Display ticks ({@link TimerTickEvent}s) are
+ * optional and sent at their own interval, so a clock that nobody shows
+ * doesn't need any alerts until it runs out.
+ *
+ * Times are still given in units of the frequency, like {@link Timer}:
+ * {@code getPlayerTime} rounds the time left up to whole units.
+ */
+public class MonotonicTimer extends Timer {
+
+    protected final long remainingNanos[];
+
+    private final long unitNanos;
+
+    /**
+     * When the current player's clock last started running, or was last
+     * settled.
+     */
+    private long turnStartNanos;
+    private boolean running;
+
+    /**
+     * Time left on the current player's clock at which the controller
+     * task is run.
+     */
+    private long invokeAtNanos;
+
+    private int displayInterval;
+    private long nextDisplayNanos;
+
+    /**
+     * Creates a timer without display ticks.
+     *
+     * @param playerCount no. of players
+     * @param frequency length of a time unit, in milliseconds
+     * @param game game the timer is for
+     */
+    public MonotonicTimer(int playerCount, int frequency, BoardGame game) {
+        super(playerCount, frequency, game);
+        this.remainingNanos = new long[playerCount];
+        this.unitNanos = frequency * 1000000L;
+    }
+
+    public MonotonicTimer(int playerCount, int frequency, BoardGame game, TimerWheel wheel) {
+        this(playerCount, frequency, game);
+        setTimerWheel(wheel);
+    }
+
+    /**
+     * Sets how often {@link TimerTickEvent}s are sent while a clock runs;
+     * 0 disables them.
+     *
+     * @param millis interval between display ticks, in milliseconds
+     * @return this timer
+     */
+    public MonotonicTimer setDisplayInterval(int millis) {
+        if (millis < 0) {
+            throw new IllegalArgumentException("Display interval cannot be negative.");
+        }
+
+        displayInterval = millis;
+        return this;
+    }
+
+    public int getDisplayInterval() {
+        return displayInterval;
+    }
+
+    /**
+     * Returns the current time, in nanoseconds. Can be overridden to
+     * drive the timer from another clock, e.g. in tests.
+     *
+     * @return monotonic time
+     */
+    protected long nanoTime() {
+        return System.nanoTime();
+    }
+
+    @Override
+    public MonotonicTimer resetAll(int newValue) {
+        super.resetAll(newValue);
+
+        for (int i = 0; i < remainingNanos.length; i++) {
+            remainingNanos[i] = newValue * unitNanos;
+        }
+
+        turnStartNanos = nanoTime();
+        return this;
+    }
+
+    /**
+     * Returns the time left for the player, in nanoseconds.
+     *
+     * @param playerId player whose time is wanted
+     * @return time left, never negative
+     */
+    @Override
+    public long getRemainingNanos(int playerId) {
+        long remaining = remainingNanos[playerId];
+
+        if (running && playerId == currentPlayerId) {
+            remaining -= nanoTime() - turnStartNanos;
+        }
+
+        return Math.max(0, remaining);
+    }
+
+    @Override
+    public int getPlayerTime(int playerId) {
+        return (int) ((getRemainingNanos(playerId) + unitNanos - 1) / unitNanos);
+    }
+
+    @Override
+    protected void setRemainingNanos(int playerId, long nanos) {
+        remainingNanos[playerId] = Math.max(0, nanos);
+
+        if (running && playerId == currentPlayerId) {
+            turnStartNanos = nanoTime();
+        }
+
+        playerTimes[playerId] = getPlayerTime(playerId);
+    }
+
+    @Override
+    public void switchTo(int playerId) {
+        settle();
+
+        if (playerId != currentPlayerId) {
+            controllerTask = null;
+        }
+
+        ++dispatchId;
+        currentPlayerId = playerId;
+        running = true;
+        turnStartNanos = nanoTime();
+        nextDisplayNanos = turnStartNanos + displayInterval * 1000000L;
+
+        scheduleWakeUp();
+    }
+
+    @Override
+    public void invokeAt(int delay, Runnable action) {
+        invokeAtNanos = getRemainingNanos(currentPlayerId) - delay * unitNanos;
+        controllerTask = action;
+
+        if (running) {
+            ++dispatchId;
+            scheduleWakeUp();
+        }
+    }
+
+    @Override
+    public void pause() {
+        settle();
+        running = false;
+        super.pause();
+    }
+
+    @Override
+    public void restart() {
+        switchTo(currentPlayerId);
+    }
+
+    /**
+     * Charges the time elapsed since the clock last started to the
+     * current player.
+     */
+    private void settle() {
+        if (!running)
+            return;
+
+        final long now = nanoTime();
+        remainingNanos[currentPlayerId] = Math.max(0,
+                remainingNanos[currentPlayerId] - (now - turnStartNanos));
+        turnStartNanos = now;
+        playerTimes[currentPlayerId] = getPlayerTime(currentPlayerId);
+    }
+
+    private void scheduleWakeUp() {
+        final long now = nanoTime();
+        final long remaining = getRemainingNanos(currentPlayerId);
+        long delay = remaining;
+
+        if (controllerTask != null) {
+            delay = Math.min(delay, remaining - invokeAtNanos);
+        }
+
+        if (displayInterval > 0) {
+            delay = Math.min(delay, nextDisplayNanos - now);
+        }
+
+        scheduleDispatch(dispatchId, (int) Math.max(1, (delay + 999999) / 1000000L));
+    }
+
+    @Override
+    protected void dispatchTick(int id) {
+        if (id != dispatchId || !running) {
+            return;
+        }
+
+        settle();
+
+        final long now = turnStartNanos;
+        final int playerId = currentPlayerId;
+        final long remaining = remainingNanos[playerId];
+
+        if (displayInterval > 0 && (remaining == 0 || now - nextDisplayNanos >= 0)) {
+            nextDisplayNanos = now + displayInterval * 1000000L;
+            game.dispatchEvent(new TimerTickEvent(dispatchId, playerId,
+                    playerTimes[playerId], game));
+        }
+
+        if (remaining == 0) {
+            running = false;
+            controllerTask = null;
+            ++dispatchId;
+            game.dispatchEvent(new EliminationEvent(playerId, dispatchId, game));
+            return;
+        }
+
+        if (controllerTask != null && remaining <= invokeAtNanos) {
+            final Runnable task = controllerTask;
+            controllerTask = null;
+            task.run();
+        }
+
+        // The task, or a listener, may have switched or paused the timer
+        if (id == dispatchId && running) {
+            scheduleWakeUp();
+        }
+    }
+
+}
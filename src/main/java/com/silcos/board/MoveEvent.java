@@ -1,8 +1,10 @@
 package com.silcos.board;
 
+import java.util.concurrent.atomic.AtomicInteger;
+
 public class MoveEvent extends Event {
 
-    private static int sPastMoveEvents = 0;
+    private static final AtomicInteger sPastMoveEvents = new AtomicInteger();
 
     public final int sourceRow;
     public final int sourceColumn;
@@ -15,7 +17,7 @@ public class MoveEvent extends Event {
     public MoveEvent(BoardGame origin, int srcRow, int srcCol, int dstRow, int dstCol,
                      Object targetHolder,
                      Object killedHolder) {
-        super(BoardGame.PIECE_MOVE_EVENT + sPastMoveEvents++, origin);
+        super(BoardGame.PIECE_MOVE_EVENT + sPastMoveEvents.getAndIncrement(), origin);
         this.sourceRow = srcRow;
         this.sourceColumn = srcCol;
         this.destRow = dstRow;
@@ -6,14 +6,30 @@ public final class MoveFactory {
                                int dstRow, int dstColumn) {
         boolean isVisible = true;
 
-        if(target.getCell(srcRow, srcColumn).getHolder() == null &&
-                target.getCell(dstRow, dstColumn).getHolder() == null) {
+        if(target.pieceAt(srcRow, srcColumn) == null &&
+                target.pieceAt(dstRow, dstColumn) == null) {
             isVisible = false;
         }
 
         return new Move(isVisible, srcRow, srcColumn, dstRow, dstColumn);
     }
 
+    /**
+     * Materializes a move generated by a {@link MoveGenerator}, so that
+     * it can be played. Only the coordinates are carried over; the
+     * packed move's payload is dropped.
+     *
+     * @param target board the move is to be played on
+     * @param packedMove move encoded by {@link PackedMove}
+     * @return move object
+     */
+    public static Move newMove(Board target, long packedMove) {
+        return newMove(target, PackedMove.decodeSrcRow(packedMove),
+                PackedMove.decodeSrcCol(packedMove),
+                PackedMove.decodeDstRow(packedMove),
+                PackedMove.decodeDstCol(packedMove));
+    }
+
     private MoveFactory() {
     }
 
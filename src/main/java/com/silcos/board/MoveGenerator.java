@@ -0,0 +1,29 @@
+package com.silcos.board;
+
+/**
+ * {@code MoveGenerator} enumerates the legal moves of a player in a
+ * position. Moves are written as {@link PackedMove} values into a buffer
+ * owned by the caller, so generating moves allocates nothing; a
+ * {@link Move} object is only needed once a move is actually played (see
+ * {@link MoveFactory#newMove(Board, long)}).
+ *
+ * The position can be the live {@link Board} or any compact state of it,
+ * like {@link BoardMonoStateCache}.
+ *
+ * @param <S> type of position moves are generated for
+ */
+public interface MoveGenerator<S> {
+
+    /**
+     * Writes the legal moves of the player into the buffer, starting at
+     * the offset, and returns how many were written.
+     *
+     * @param position position to generate moves for
+     * @param playerId player to move
+     * @param moves buffer to write moves into
+     * @param offset index at which the first move is written
+     * @return no. of moves written; 0 if the player cannot move
+     */
+    public int generateMoves(S position, int playerId, long[] moves, int offset);
+
+}
@@ -0,0 +1,350 @@
+package com.silcos.board;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+
+/**
+ * {@code MoveLog} records the moves placed in a game, packing each one
+ * into a single long in a growable {@code long[]}, instead of keeping a
+ * {@link Move} object per ply. {@link Move} objects are only created when
+ * an entry is read back with {@code toMove}.
+ *
+ * Each entry holds:
+ * <ul>
+ *     <li>bits 0-31: source row & column, destination row & column, 8
+ *     bits each (so boards can have up to 256 rows & columns)</li>
+ *     <li>bits 32-47: id of the piece killed by the move, as a signed
+ *     16-bit value</li>
+ *     <li>bits 48-55: playerId + 1 of the piece captured at the
+ *     destination, or 0 if there was none</li>
+ *     <li>bits 56-62: playerId of the player who made the move</li>
+ *     <li>bit 63: whether the move was visible</li>
+ * </ul>
+ *
+ * Finished games can be archived with {@code compress}, which stores
+ * each entry as a varint using only as many bits per field as the
+ * largest value in the log needs.
+ */
+public class MoveLog {
+
+    private static final int COMPRESSED_FORMAT = 1;
+
+    private long mEntries[];
+    private int mSize;
+
+    public MoveLog() {
+        this(32);
+    }
+
+    public MoveLog(int initialCapacity) {
+        mEntries = new long[Math.max(initialCapacity, 1)];
+    }
+
+    /**
+     * Packs the move into a log entry.
+     *
+     * @param move move that was placed
+     * @param moverId player who placed the move
+     * @param captured piece held at the destination before the move,
+     *                 or null
+     * @return log entry
+     * @throws IllegalArgumentException if a field doesn't fit its bits:
+     *                                  the killed piece's id must fit a
+     *                                  signed 16-bit value (so -1 can mark
+     *                                  "no kill"), and player ids must be
+     *                                  below 128
+     */
+    public static long encode(Move move, int moverId, Piece captured) {
+        if (((move.getSrcRow() | move.getSrcCol() | move.getDstRow() | move.getDstCol())
+                & ~0xFF) != 0) {
+            throw new IllegalArgumentException("Move log only supports boards of up to " +
+                    "256 rows & columns.");
+        }
+
+        final int killedPieceId = (captured != null) ? captured.id() : move.killedPieceId;
+        final int capturedPlayer = (captured != null) ? captured.playerId() + 1 : 0;
+
+        if (killedPieceId != (short) killedPieceId) {
+            throw new IllegalArgumentException("Killed piece id " + killedPieceId
+                    + " doesn't fit in 16 bits.");
+        }
+
+        if ((moverId & ~0x7F) != 0 || (captured != null && (captured.playerId() & ~0x7F) != 0)) {
+            throw new IllegalArgumentException("Move log only supports player ids " +
+                    "from 0 to 127.");
+        }
+
+        return (move.getSrcRow() & 0xFFL)
+                | ((move.getSrcCol() & 0xFFL) << 8)
+                | ((move.getDstRow() & 0xFFL) << 16)
+                | ((move.getDstCol() & 0xFFL) << 24)
+                | ((killedPieceId & 0xFFFFL) << 32)
+                | ((capturedPlayer & 0xFFL) << 48)
+                | ((moverId & 0x7FL) << 56)
+                | (move.isVisible() ? (1L << 63) : 0);
+    }
+
+    public static int srcRow(long entry) {
+        return (int) (entry & 0xFF);
+    }
+
+    public static int srcCol(long entry) {
+        return (int) ((entry >>> 8) & 0xFF);
+    }
+
+    public static int dstRow(long entry) {
+        return (int) ((entry >>> 16) & 0xFF);
+    }
+
+    public static int dstCol(long entry) {
+        return (int) ((entry >>> 24) & 0xFF);
+    }
+
+    public static int killedPieceId(long entry) {
+        return (short) (entry >>> 32);
+    }
+
+    /**
+     * Returns the playerId of the piece that was captured at the
+     * destination, or -1 if there was none.
+     *
+     * @param entry log entry
+     * @return owner of the captured piece, or -1
+     */
+    public static int capturedPlayerId(long entry) {
+        return (int) ((entry >>> 48) & 0xFF) - 1;
+    }
+
+    public static int moverId(long entry) {
+        return (int) ((entry >>> 56) & 0x7F);
+    }
+
+    public static boolean isVisible(long entry) {
+        return entry < 0;
+    }
+
+    /**
+     * Returns the entry as a {@link PackedMove}.
+     *
+     * @param entry log entry
+     * @return packed move
+     */
+    public static long toPackedMove(long entry) {
+        return PackedMove.encode(srcRow(entry), srcCol(entry), dstRow(entry), dstCol(entry));
+    }
+
+    public void append(Move move, int moverId, Piece captured) {
+        append(encode(move, moverId, captured));
+    }
+
+    public void append(long entry) {
+        if (mSize == mEntries.length) {
+            mEntries = Arrays.copyOf(mEntries, mEntries.length * 2);
+        }
+
+        mEntries[mSize++] = entry;
+    }
+
+    public long get(int index) {
+        if (index < 0 || index >= mSize) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + mSize);
+        }
+
+        return mEntries[index];
+    }
+
+    /**
+     * Creates a {@link Move} for the entry at the index.
+     *
+     * @param index index of the move in the log
+     * @return new move object
+     */
+    public Move toMove(int index) {
+        final long entry = get(index);
+        final Move move = new Move(isVisible(entry), srcRow(entry), srcCol(entry),
+                dstRow(entry), dstCol(entry));
+        move.killedPieceId = killedPieceId(entry);
+        return move;
+    }
+
+    public int size() {
+        return mSize;
+    }
+
+    /**
+     * Returns a log holding the entries of this one, which later changes
+     * to either log don't affect.
+     *
+     * @return copy of the log
+     */
+    public MoveLog copy() {
+        final MoveLog copy = new MoveLog(mSize);
+
+        System.arraycopy(mEntries, 0, copy.mEntries, 0, mSize);
+        copy.mSize = mSize;
+        return copy;
+    }
+
+    /**
+     * Drops all entries from the given index onwards.
+     *
+     * @param newSize no. of entries to keep
+     */
+    public void truncate(int newSize) {
+        if (newSize < 0 || newSize > mSize) {
+            throw new IndexOutOfBoundsException("Size: " + newSize + ", Current: " + mSize);
+        }
+
+        mSize = newSize;
+    }
+
+    public void clear() {
+        mSize = 0;
+    }
+
+    /**
+     * Releases unused capacity, e.g. once a game is finished.
+     */
+    public void trimToSize() {
+        if (mEntries.length > mSize) {
+            mEntries = Arrays.copyOf(mEntries, Math.max(mSize, 1));
+        }
+    }
+
+    /**
+     * Encodes the log into a compact byte array for archiving. The field
+     * widths are chosen from the largest values in the log, and each
+     * entry is then written as a varint of its re-packed fields, 7 bits
+     * per byte. On an 8x8 board with two players of up to 16 pieces, an
+     * entry takes 20 bits, i.e. 3 bytes; a single negative killed piece
+     * id (like -1 for "no kill") widens that field to 16 bits in every
+     * entry, and entries to 5 bytes.
+     *
+     * @return compressed log
+     */
+    public byte[] compress() {
+        int coordinateBits = 1;
+        int killedBits = 1;
+        int capturedBits = 1;
+        int moverBits = 1;
+
+        for (int i = 0; i < mSize; i++) {
+            final long entry = mEntries[i];
+
+            coordinateBits = Math.max(coordinateBits, bitsFor(srcRow(entry) | srcCol(entry)
+                    | dstRow(entry) | dstCol(entry)));
+            killedBits = Math.max(killedBits, bitsFor((int) ((entry >>> 32) & 0xFFFF)));
+            capturedBits = Math.max(capturedBits, bitsFor((int) ((entry >>> 48) & 0xFF)));
+            moverBits = Math.max(moverBits, bitsFor(moverId(entry)));
+        }
+
+        final ByteArrayOutputStream out = new ByteArrayOutputStream(8 + mSize * 3);
+        out.write(COMPRESSED_FORMAT);
+        out.write(coordinateBits);
+        out.write(killedBits);
+        out.write(capturedBits);
+        out.write(moverBits);
+        writeVarint(out, mSize);
+
+        for (int i = 0; i < mSize; i++) {
+            final long entry = mEntries[i];
+            long value = isVisible(entry) ? 1 : 0;
+            int shift = 1;
+
+            value |= (long) moverId(entry) << shift;
+            shift += moverBits;
+            value |= (long) srcRow(entry) << shift;
+            shift += coordinateBits;
+            value |= (long) srcCol(entry) << shift;
+            shift += coordinateBits;
+            value |= (long) dstRow(entry) << shift;
+            shift += coordinateBits;
+            value |= (long) dstCol(entry) << shift;
+            shift += coordinateBits;
+            value |= ((entry >>> 48) & 0xFF) << shift;
+            shift += capturedBits;
+            value |= ((entry >>> 32) & 0xFFFF) << shift;
+
+            writeVarint(out, value);
+        }
+
+        return out.toByteArray();
+    }
+
+    /**
+     * Decodes a log encoded by {@code compress}.
+     *
+     * @param data compressed log
+     * @return move log holding the same entries
+     */
+    public static MoveLog decompress(byte[] data) {
+        if (data.length < 6 || data[0] != COMPRESSED_FORMAT) {
+            throw new IllegalArgumentException("Not a compressed move log.");
+        }
+
+        final int coordinateBits = data[1];
+        final int killedBits = data[2];
+        final int capturedBits = data[3];
+        final int moverBits = data[4];
+        final int[] position = {5};
+        final int size = (int) readVarint(data, position);
+        final MoveLog log = new MoveLog(size);
+
+        for (int i = 0; i < size; i++) {
+            long value = readVarint(data, position);
+            long entry = ((value & 1) != 0) ? (1L << 63) : 0;
+            value >>>= 1;
+
+            entry |= (value & mask(moverBits)) << 56;
+            value >>>= moverBits;
+            entry |= (value & mask(coordinateBits));
+            value >>>= coordinateBits;
+            entry |= (value & mask(coordinateBits)) << 8;
+            value >>>= coordinateBits;
+            entry |= (value & mask(coordinateBits)) << 16;
+            value >>>= coordinateBits;
+            entry |= (value & mask(coordinateBits)) << 24;
+            value >>>= coordinateBits;
+            entry |= (value & mask(capturedBits)) << 48;
+            value >>>= capturedBits;
+            entry |= (value & mask(killedBits)) << 32;
+
+            log.mEntries[i] = entry;
+        }
+
+        log.mSize = size;
+        return log;
+    }
+
+    private static int bitsFor(int value) {
+        return 32 - Integer.numberOfLeadingZeros(value);
+    }
+
+    private static long mask(int bits) {
+        return (1L << bits) - 1;
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+
+        out.write((int) value);
+    }
+
+    private static long readVarint(byte[] data, int[] position) {
+        long value = 0;
+        int shift = 0;
+        byte b;
+
+        do {
+            b = data[position[0]++];
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+
+        return value;
+    }
+
+}
@@ -0,0 +1,41 @@
+package com.silcos.board;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Dispatched when a move is taken back with
+ * {@code GameInputController.undoMove}. The fields describe the move
+ * that was undone, as in its {@link MoveEvent}: {@code targetHolder} is
+ * back at the source, and {@code killedHolder}, if any, is back at the
+ * destination.
+ */
+public class MoveUndoEvent extends Event {
+
+    private static final AtomicInteger sPastUndoEvents = new AtomicInteger();
+
+    public final int sourceRow;
+    public final int sourceColumn;
+    public final int destRow;
+    public final int destColumn;
+    public final boolean pebbleRevived;
+    public final Object targetHolder;
+    public final Object killedHolder;
+
+    public MoveUndoEvent(BoardGame origin, int srcRow, int srcCol, int dstRow, int dstCol,
+                         Object targetHolder,
+                         Object killedHolder) {
+        super(BoardGame.MOVE_UNDO_EVENT + sPastUndoEvents.getAndIncrement(), origin);
+        this.sourceRow = srcRow;
+        this.sourceColumn = srcCol;
+        this.destRow = dstRow;
+        this.destColumn = dstCol;
+        this.pebbleRevived = killedHolder != null;
+        this.targetHolder = targetHolder;
+        this.killedHolder = killedHolder;
+    }
+
+    @Override
+    public int typeId() {
+        return BoardGame.MOVE_UNDO_EVENT;
+    }
+}
@@ -0,0 +1,110 @@
+package com.silcos.board;
+
+/**
+ * {@code PackedMove} encodes the source and destination of a move into
+ * one long, in the same spirit as {@link CompactLoc2D#encode}, so that
+ * moves can be generated and stored without allocating a {@link Move}
+ * for each.
+ *
+ * Each coordinate takes 12 bits - the source row & column in bits 0-23
+ * and the destination row & column in bits 24-47. The upper 16 bits
+ * are a payload that search states can use for anything else the move
+ * needs, like the no. of pieces {@link BoardMultiStateCache} moves.
+ *
+ * The payload stays with the packed move: {@code MoveFactory.newMove}
+ * and {@code placeMove(long)} only carry the coordinates over to the
+ * {@link Move}, as the game's {@link MoveLog} has no room for it.
+ */
+public final class PackedMove {
+
+    /**
+     * Value that never denotes a move, e.g. returned when there is no
+     * legal move.
+     */
+    public static final long NONE = -1L;
+
+    /**
+     * Max. value of a row or column that can be encoded.
+     */
+    public static final int MAX_COORDINATE = 0xFFF;
+
+    /**
+     * Max. payload that can be encoded.
+     */
+    public static final int MAX_PAYLOAD = 0xFFFF;
+
+    private static final int COORDINATE_BITS = 12;
+    private static final long COORDINATE_MASK = 0xFFF;
+    private static final int PAYLOAD_SHIFT = 48;
+
+    /**
+     * Packs the move's coordinates.
+     *
+     * @throws IllegalArgumentException if a coordinate is negative or above
+     *                                  {@code MAX_COORDINATE}
+     */
+    public static long encode(int srcRow, int srcCol, int dstRow, int dstCol) {
+        if (((srcRow | srcCol | dstRow | dstCol) & ~MAX_COORDINATE) != 0) {
+            throw new IllegalArgumentException("Packed moves only support coordinates " +
+                    "from 0 to " + MAX_COORDINATE + ".");
+        }
+
+        return ((long) srcRow & COORDINATE_MASK)
+                | (((long) srcCol & COORDINATE_MASK) << COORDINATE_BITS)
+                | (((long) dstRow & COORDINATE_MASK) << (2 * COORDINATE_BITS))
+                | (((long) dstCol & COORDINATE_MASK) << (3 * COORDINATE_BITS));
+    }
+
+    /**
+     * Packs the move's coordinates and payload.
+     *
+     * @throws IllegalArgumentException if a coordinate is negative or above
+     *                                  {@code MAX_COORDINATE}, or the payload
+     *                                  is negative or above
+     *                                  {@code MAX_PAYLOAD}
+     */
+    public static long encode(int srcRow, int srcCol, int dstRow, int dstCol, int payload) {
+        if ((payload & ~MAX_PAYLOAD) != 0) {
+            throw new IllegalArgumentException("Payload " + payload + " doesn't fit in 16 bits.");
+        }
+
+        return encode(srcRow, srcCol, dstRow, dstCol) | ((long) payload << PAYLOAD_SHIFT);
+    }
+
+    public static long encode(Move move) {
+        return encode(move.getSrcRow(), move.getSrcCol(), move.getDstRow(), move.getDstCol());
+    }
+
+    public static int decodeSrcRow(long packedMove) {
+        return (int) (packedMove & COORDINATE_MASK);
+    }
+
+    public static int decodeSrcCol(long packedMove) {
+        return (int) ((packedMove >>> COORDINATE_BITS) & COORDINATE_MASK);
+    }
+
+    public static int decodeDstRow(long packedMove) {
+        return (int) ((packedMove >>> (2 * COORDINATE_BITS)) & COORDINATE_MASK);
+    }
+
+    public static int decodeDstCol(long packedMove) {
+        return (int) ((packedMove >>> (3 * COORDINATE_BITS)) & COORDINATE_MASK);
+    }
+
+    public static int decodePayload(long packedMove) {
+        return (int) (packedMove >>> PAYLOAD_SHIFT);
+    }
+
+    public static String toString(long packedMove) {
+        if (packedMove == NONE) {
+            return "none";
+        }
+
+        return "(" + decodeSrcRow(packedMove) + ", " + decodeSrcCol(packedMove) + ") -> (" +
+                decodeDstRow(packedMove) + ", " + decodeDstCol(packedMove) + ")";
+    }
+
+    private PackedMove() {
+    }
+
+}
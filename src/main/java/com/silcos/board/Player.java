@@ -73,6 +73,16 @@ public abstract class Player {
         ++isTurn;
     }
 
+    /**
+     * Called when a move is taken back, and the turn given to this player
+     * for the next move goes away. Call super method.
+     */
+    public void revokeTurn() {
+        if (isTurn > 0) {
+            --isTurn;
+        }
+    }
+
     public abstract void initAfterGame();
 
 }
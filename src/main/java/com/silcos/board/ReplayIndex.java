@@ -0,0 +1,249 @@
+package com.silcos.board;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static com.silcos.board.BoardPlatformProvider.COMPUTER_TASK;
+
+/**
+ * {@code ReplayIndex} lets a viewer jump to any position of a recorded
+ * game without replaying it from the start. It keeps a checkpoint - a
+ * {@link BoardMonoStateCache} - every {@code interval} moves of the
+ * {@link MoveLog}; the position after n moves is built by copying the
+ * nearest checkpoint at or before n and making at most
+ * {@code interval - 1} moves on the copy, in place.
+ *
+ * A smaller interval makes seeking faster, at the cost of one copy of
+ * the board per checkpoint; {@code getCheckpointBytes} tells how much.
+ *
+ * For sequential playback, {@code enablePrefetch} builds the positions
+ * ahead of the last one asked for on the platform's compute threads, so
+ * that stepping forward usually finds its position ready.
+ *
+ * Positions returned are shared with the index's own caches, and must
+ * not be changed; call {@code copyState} on them first. The index keeps
+ * its own copy of the log, taken when it is built: moves placed or taken
+ * back afterwards don't change it, and prefetching never reads a log the
+ * game is writing to.
+ */
+public class ReplayIndex {
+
+    private final MoveLog log;
+    private final int interval;
+
+    /**
+     * {@code checkpoints[i]} is the position after {@code i * interval}
+     * moves.
+     */
+    private final BoardMonoStateCache checkpoints[];
+
+    private BoardPlatformProvider prefetchProvider;
+    private int prefetchSize;
+
+    /**
+     * Positions built ahead by the last prefetch, or null.
+     */
+    private volatile PrefetchWindow window;
+    private final AtomicBoolean prefetching = new AtomicBoolean();
+
+    /**
+     * Positions for the moves from {@code first} onwards, built by one
+     * walk over the log.
+     */
+    private static final class PrefetchWindow {
+
+        final int first;
+        final BoardMonoStateCache states[];
+
+        PrefetchWindow(int first, BoardMonoStateCache[] states) {
+            this.first = first;
+            this.states = states;
+        }
+
+        BoardMonoStateCache get(int moveCount) {
+            final int index = moveCount - first;
+            return (index >= 0 && index < states.length) ? states[index] : null;
+        }
+    }
+
+    /**
+     * Builds the index by walking the whole log once.
+     *
+     * @param initial position before the first move
+     * @param log moves of the game, which are copied
+     * @param interval no. of moves between two checkpoints
+     */
+    public ReplayIndex(BoardMonoStateCache initial, MoveLog log, int interval) {
+        if (interval < 1) {
+            throw new IllegalArgumentException("Checkpoint interval must be positive.");
+        }
+
+        this.log = log.copy();
+        this.interval = interval;
+        this.checkpoints = new BoardMonoStateCache[log.size() / interval + 1];
+
+        BoardMonoStateCache state = initial.copyState();
+
+        for (int move = 0; move <= log.size(); move++) {
+            if (move % interval == 0) {
+                // Continue from a fresh copy, so the undo stack doesn't grow
+                checkpoints[move / interval] = state.copyState();
+                state = checkpoints[move / interval].copyState();
+            }
+
+            if (move < log.size()) {
+                applyEntry(state, log.get(move));
+            }
+        }
+    }
+
+    /**
+     * Builds an index for the moves placed in the game so far; moves
+     * placed later aren't in it.
+     *
+     * @param game game whose moves are replayed
+     * @param initial position before the first move
+     * @param interval no. of moves between two checkpoints
+     * @return index of the game
+     */
+    public static ReplayIndex forGame(BoardGame game, BoardMonoStateCache initial,
+                                      int interval) {
+        return new ReplayIndex(initial, game.getMoveLog(), interval);
+    }
+
+    public int getInterval() {
+        return interval;
+    }
+
+    /**
+     * Returns the no. of moves in the game; positions exist for 0 to
+     * this many moves.
+     *
+     * @return no. of moves
+     */
+    public int size() {
+        return log.size();
+    }
+
+    public int getCheckpointCount() {
+        return checkpoints.length;
+    }
+
+    /**
+     * Returns the memory held by the checkpoints' cells.
+     *
+     * @return approximate size of the checkpoints, in bytes
+     */
+    public long getCheckpointBytes() {
+        final BoardMonoStateCache first = checkpoints[0];
+        return (long) checkpoints.length * first.getRows() * first.getColumns() * 8;
+    }
+
+    /**
+     * Returns the position after the given no. of moves.
+     *
+     * @param moveCount no. of moves, from 0 to {@code size()}
+     * @return position, which must not be changed
+     */
+    public BoardMonoStateCache positionAt(int moveCount) {
+        if (moveCount < 0 || moveCount > log.size()) {
+            throw new IndexOutOfBoundsException("Move: " + moveCount + ", Size: " + log.size());
+        }
+
+        final PrefetchWindow current = window;
+        final BoardMonoStateCache prefetched = (current != null) ? current.get(moveCount) : null;
+
+        prefetchFrom(moveCount + 1);
+
+        if (prefetched != null)
+            return prefetched;
+
+        if (moveCount % interval == 0)
+            return checkpoints[moveCount / interval];
+
+        final BoardMonoStateCache state = checkpoints[moveCount / interval].copyState();
+
+        for (int move = moveCount - moveCount % interval; move < moveCount; move++) {
+            applyEntry(state, log.get(move));
+        }
+
+        return state;
+    }
+
+    /**
+     * Starts building positions ahead of the ones asked for, in windows
+     * of the given size, on the provider's compute threads.
+     *
+     * @param provider platform to build positions on
+     * @param windowSize no. of positions built ahead at a time
+     */
+    public void enablePrefetch(BoardPlatformProvider provider, int windowSize) {
+        if (windowSize < 2) {
+            throw new IllegalArgumentException("Prefetch window must hold at least 2 positions.");
+        }
+
+        prefetchProvider = provider;
+        prefetchSize = windowSize;
+    }
+
+    public void disablePrefetch() {
+        prefetchProvider = null;
+        window = null;
+    }
+
+    public boolean isPrefetchEnabled() {
+        return prefetchProvider != null;
+    }
+
+    /**
+     * Builds a new window from the given move, unless the current one
+     * still covers at least half a window ahead of it.
+     */
+    private void prefetchFrom(final int first) {
+        final BoardPlatformProvider provider = prefetchProvider;
+        final PrefetchWindow current = window;
+        final int size = prefetchSize;
+        final int ahead = Math.min(first + size / 2, log.size());
+
+        if (provider == null || first > log.size()
+                || (current != null && current.get(ahead) != null)
+                || !prefetching.compareAndSet(false, true))
+            return;
+
+        provider.runComputeIntensiveTask(COMPUTER_TASK, new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    window = buildWindow(first, Math.min(size, log.size() - first + 1));
+                } finally {
+                    prefetching.set(false);
+                }
+            }
+        });
+    }
+
+    private PrefetchWindow buildWindow(int first, int count) {
+        final BoardMonoStateCache states[] = new BoardMonoStateCache[count];
+        final int checkpoint = first / interval;
+        BoardMonoStateCache state = checkpoints[checkpoint].copyState();
+
+        for (int move = checkpoint * interval; move < first; move++) {
+            applyEntry(state, log.get(move));
+        }
+
+        for (int i = 0; i < count; i++) {
+            states[i] = state.copyState();
+
+            if (first + i < log.size()) {
+                applyEntry(state, log.get(first + i));
+            }
+        }
+
+        return new PrefetchWindow(first, states);
+    }
+
+    private static void applyEntry(BoardMonoStateCache state, long entry) {
+        state.makeMove(MoveLog.srcRow(entry), MoveLog.srcCol(entry),
+                MoveLog.dstRow(entry), MoveLog.dstCol(entry));
+    }
+
+}
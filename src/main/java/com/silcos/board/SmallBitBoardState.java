@@ -0,0 +1,222 @@
+package com.silcos.board;
+
+/**
+ * {@code SmallBitBoardState} is the {@link BitBoardState} of boards with
+ * up to 64 cells, like 8x8: each mask is one {@code long}, and neighbors
+ * & rays of whole sets of cells are found with shifts.
+ *
+ * Shifts follow {@link BoardGeometry}'s directions: north is towards row
+ * 0, east towards the last column. Bits shifted off the board, or across
+ * its left & right edges, are dropped.
+ */
+public class SmallBitBoardState extends BitBoardState {
+
+    private final long playerMasks[];
+    private final long kindMasks[];
+
+    private final long boardMask;
+
+    /**
+     * Cells that have a cell east of them, and west of them.
+     */
+    private final long notLastColumn;
+    private final long notFirstColumn;
+
+    public SmallBitBoardState(BoardGame game, int rows, int cols, int playerCount,
+                              int kindCount) {
+        super(game, rows, cols, playerCount, kindCount);
+
+        if (rows * cols > 64) {
+            throw new IllegalArgumentException("Board has more than 64 cells.");
+        }
+
+        playerMasks = new long[playerCount];
+        kindMasks = new long[kindCount];
+        boardMask = (rows * cols == 64) ? -1L : (1L << (rows * cols)) - 1;
+
+        long firstColumn = 0;
+
+        for (int r = 0; r < rows; r++) {
+            firstColumn |= 1L << (r * cols);
+        }
+
+        notFirstColumn = boardMask & ~firstColumn;
+        notLastColumn = boardMask & ~(firstColumn << (cols - 1));
+    }
+
+    protected SmallBitBoardState(SmallBitBoardState source) {
+        super(source);
+        playerMasks = source.playerMasks.clone();
+        kindMasks = source.kindMasks.clone();
+        boardMask = source.boardMask;
+        notLastColumn = source.notLastColumn;
+        notFirstColumn = source.notFirstColumn;
+    }
+
+    /**
+     * Returns the cells holding any piece.
+     *
+     * @return occupancy mask
+     */
+    public long occupancy() {
+        long occupied = 0;
+
+        for (long mask : playerMasks) {
+            occupied |= mask;
+        }
+
+        return occupied;
+    }
+
+    public long occupancy(int playerId) {
+        return playerMasks[playerId];
+    }
+
+    public long kindMask(int kind) {
+        return kindMasks[kind];
+    }
+
+    /**
+     * Returns the cells holding the player's pieces of the kind.
+     */
+    public long pieces(int playerId, int kind) {
+        return playerMasks[playerId] & kindMasks[kind];
+    }
+
+    public long boardMask() {
+        return boardMask;
+    }
+
+    @Override
+    public boolean isOccupied(int offset) {
+        return (occupancy() & (1L << offset)) != 0;
+    }
+
+    @Override
+    public boolean isOccupiedBy(int playerId, int offset) {
+        return playerId >= 0 && (playerMasks[playerId] & (1L << offset)) != 0;
+    }
+
+    @Override
+    public int countPieces(int playerId) {
+        return Long.bitCount(playerMasks[playerId]);
+    }
+
+    @Override
+    public int countPieces(int playerId, int kind) {
+        return Long.bitCount(pieces(playerId, kind));
+    }
+
+    /**
+     * Moves every cell in the set one step in the direction.
+     *
+     * @param set cells to move
+     * @param direction one of {@code BoardGeometry.NORTH} to
+     *                  {@code BoardGeometry.NORTH_WEST}
+     * @return cells reached
+     */
+    public long shift(long set, int direction) {
+        final int cols = mColumns;
+
+        switch (direction) {
+            case BoardGeometry.NORTH:
+                return shiftRight(set, cols);
+            case BoardGeometry.NORTH_EAST:
+                return (set & notLastColumn) >>> (cols - 1);
+            case BoardGeometry.EAST:
+                return (set & notLastColumn) << 1;
+            case BoardGeometry.SOUTH_EAST:
+                return shiftLeft(set & notLastColumn, cols + 1) & boardMask;
+            case BoardGeometry.SOUTH:
+                return shiftLeft(set, cols) & boardMask;
+            case BoardGeometry.SOUTH_WEST:
+                return ((set & notFirstColumn) << (cols - 1)) & boardMask;
+            case BoardGeometry.WEST:
+                return (set & notFirstColumn) >>> 1;
+            case BoardGeometry.NORTH_WEST:
+                return shiftRight(set & notFirstColumn, cols + 1);
+            default:
+                throw new IllegalArgumentException("Unknown direction " + direction);
+        }
+    }
+
+    /*
+     * Java only uses the low 6 bits of a long's shift distance, so shifting
+     * by a whole row on a 1x64 board (or a row & a column on 1x63) would
+     * leave the set as it is instead of moving it off the board.
+     */
+
+    private static long shiftLeft(long set, int distance) {
+        return (distance < 64) ? set << distance : 0;
+    }
+
+    private static long shiftRight(long set, int distance) {
+        return (distance < 64) ? set >>> distance : 0;
+    }
+
+    /**
+     * Returns the cells sharing a side with any cell of the set.
+     */
+    public long neighbors4(long set) {
+        return shift(set, BoardGeometry.NORTH) | shift(set, BoardGeometry.EAST)
+                | shift(set, BoardGeometry.SOUTH) | shift(set, BoardGeometry.WEST);
+    }
+
+    /**
+     * Returns the cells sharing a side or corner with any cell of the set.
+     */
+    public long neighbors8(long set) {
+        long around = 0;
+
+        for (int d = 0; d < BoardGeometry.DIRECTION_COUNT; d++) {
+            around |= shift(set, d);
+        }
+
+        return around;
+    }
+
+    /**
+     * Returns the cells a sliding piece in the cell reaches in the
+     * direction: all empty cells up to the first occupied one, which is
+     * included (it may hold a piece to capture).
+     *
+     * @param offset offset of the cell
+     * @param direction one of {@code BoardGeometry.NORTH} to
+     *                  {@code BoardGeometry.NORTH_WEST}
+     * @return cells reached
+     */
+    public long ray(int offset, int direction) {
+        final long occupied = occupancy();
+        long reached = 0;
+        long at = shift(1L << offset, direction);
+
+        while (at != 0) {
+            reached |= at;
+
+            if ((at & occupied) != 0)
+                break;
+
+            at = shift(at, direction);
+        }
+
+        return reached;
+    }
+
+    @Override
+    protected void setBit(int playerId, int kind, int offset) {
+        playerMasks[playerId] |= 1L << offset;
+        kindMasks[kind] |= 1L << offset;
+    }
+
+    @Override
+    protected void clearBit(int playerId, int kind, int offset) {
+        playerMasks[playerId] &= ~(1L << offset);
+        kindMasks[kind] &= ~(1L << offset);
+    }
+
+    @Override
+    public SmallBitBoardState copyState() {
+        return new SmallBitBoardState(this);
+    }
+
+}
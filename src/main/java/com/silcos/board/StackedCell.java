@@ -0,0 +1,39 @@
+package com.silcos.board;
+
+/**
+ * A {@code StackedCell} is a {@link Cell} that can hold many pieces at
+ * once, stacked one above the other, like a block of pawns in Ludo or a
+ * stack in Tak. Pieces are indexed from the bottom of the stack.
+ *
+ * {@code getHolder} returns the piece on top, or null if the cell is
+ * empty, so code that only looks at the top of each cell keeps working;
+ * {@code setHolder} replaces the whole stack with the piece given.
+ */
+public interface StackedCell extends Cell {
+
+    /**
+     * Returns the no. of pieces in the cell.
+     */
+    public int getHolderCount();
+
+    /**
+     * Returns the piece at the given height of the stack.
+     *
+     * @param index height of the piece; 0 is the bottom
+     * @return piece at that height
+     */
+    public Piece getHolder(int index);
+
+    /**
+     * Puts the piece on top of the stack.
+     */
+    public void pushHolder(Piece o);
+
+    /**
+     * Removes the piece on top of the stack.
+     *
+     * @return piece removed, or null if the cell was empty
+     */
+    public Piece popHolder();
+
+}
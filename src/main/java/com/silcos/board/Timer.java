@@ -1,28 +1,85 @@
 package com.silcos.board;
 
 import java.util.Locale;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import static com.silcos.board.BoardPlatformProvider.GAME_EVENT_TASK;
 
 /**
  * Maintains the amt. of time available for each player to decide on
  * all future turns. Uses the platform-provider to send itself timer
- * alerts.
+ * alerts, or a {@link TimerWheel} if one is set - the wheel keeps the
+ * delays of any no. of timers on one thread, and hands each tick to the
+ * provider as a GAME_EVENT_TASK, so listeners run where the provider
+ * decides, as they do without a wheel.
+ *
+ * Every switch or pause increments the dispatch id; an alert only acts
+ * if it was scheduled for the current dispatch id, so that is how
+ * pending alerts are cancelled.
  */
 public class Timer {
 
-    private int dispatchId = 0;
+    protected int dispatchId = 0;
     protected int currentPlayerId;
     protected int frequency;
     protected int playerTimes[];
     protected BoardGame game;
-    protected BoardPlatformProvider platformProvider;
+    protected volatile BoardPlatformProvider platformProvider;
+
+    /**
+     * Wheel to schedule ticks on, or null to use the platform provider.
+     */
+    protected TimerWheel timerWheel;
+
+    /**
+     * Reusable wheel entry for this timer's next tick. Ticks are never run
+     * on the wheel's thread, which is shared by all timers; they are handed
+     * to the provider, like ticks scheduled without a wheel.
+     */
+    private final TimerWheel.Timeout wheelTimeout = new TimerWheel.Timeout() {
+        @Override
+        protected void expire(long payload) {
+            wheelTickId = (int) payload;
+
+            // A run still waiting in the provider picks up the new id
+            if (wheelTickPending.compareAndSet(false, true)) {
+                platformProvider.runComputeIntensiveTask(GAME_EVENT_TASK, wheelDispatch);
+            }
+        }
+    };
+
+    /**
+     * Reusable task that runs the last tick expired on the wheel, so that
+     * wheel ticks allocate nothing.
+     */
+    private final Runnable wheelDispatch = new Runnable() {
+        @Override
+        public void run() {
+            wheelTickPending.set(false);
+
+            final int id = wheelTickId;
+
+            recordLateness(id, wheelDueNanos);
+            dispatchTick(id);
+        }
+    };
+
+    private volatile int wheelTickId;
+    private final AtomicBoolean wheelTickPending = new AtomicBoolean();
+
+    /**
+     * When the tick scheduled on the wheel is due, if metrics are being
+     * recorded; see {@link BoardMetrics}.
+     */
+    private volatile long wheelDueNanos = NOT_TIMED;
+
+    private static final long NOT_TIMED = Long.MIN_VALUE;
 
     /**
      * Any object can invoke its runnable at a set time, for any given
      * dispatch id.
      */
-    private Runnable controllerTask;
+    protected Runnable controllerTask;
     private int timerSet;
 
     public Timer(int playerCount, int frequency, BoardGame game) {
@@ -33,6 +90,27 @@ public class Timer {
         this.platformProvider = game.getPlatformProvider();
     }
 
+    public Timer(int playerCount, int frequency, BoardGame game, TimerWheel wheel) {
+        this(playerCount, frequency, game);
+        this.timerWheel = wheel;
+    }
+
+    public TimerWheel getTimerWheel() {
+        return timerWheel;
+    }
+
+    /**
+     * Sets the wheel that ticks are scheduled on from the next switch
+     * onwards; null reverts to the platform provider.
+     *
+     * @param wheel timer wheel, or null
+     * @return this timer
+     */
+    public Timer setTimerWheel(TimerWheel wheel) {
+        timerWheel = wheel;
+        return this;
+    }
+
     public Timer resetAll(int newValue) {
         for (int i = 0; i < playerTimes.length; i++) {
             playerTimes[i] = newValue;
@@ -52,6 +130,29 @@ public class Timer {
         return playerTimes[playerId];
     }
 
+    /**
+     * Returns the time left for the player, in nanoseconds. This timer
+     * counts whole units, so this is a multiple of the frequency.
+     *
+     * @param playerId player whose time is wanted
+     * @return time left
+     */
+    public long getRemainingNanos(int playerId) {
+        return playerTimes[playerId] * (frequency * 1000000L);
+    }
+
+    /**
+     * Sets the time left for the player, e.g. when a game is restored by
+     * {@link GameSnapshot}. Partial units are rounded up.
+     *
+     * @param playerId player whose time is set
+     * @param nanos time left, in nanoseconds
+     */
+    protected void setRemainingNanos(int playerId, long nanos) {
+        final long unitNanos = Math.max(1, frequency * 1000000L);
+        playerTimes[playerId] = (int) ((nanos + unitNanos - 1) / unitNanos);
+    }
+
     public void switchTo(int playerId) {
         if (playerId != currentPlayerId) {
             ++dispatchId;
@@ -59,8 +160,49 @@ public class Timer {
         }
         currentPlayerId = playerId;
 
-        platformProvider.runComputeIntensiveTaskAfter(getFrequency(), GAME_EVENT_TASK,
-                new TimerDispatch(dispatchId));
+        scheduleTick(dispatchId);
+    }
+
+    /**
+     * Schedules the next tick for the given dispatch id.
+     *
+     * @param id dispatch id the tick is valid for
+     */
+    protected void scheduleTick(int id) {
+        scheduleDispatch(id, getFrequency());
+    }
+
+    /**
+     * Schedules {@code dispatchTick(id)} to run after the delay, on the
+     * timer wheel if one is set, or else through the platform provider.
+     *
+     * @param id dispatch id the call is valid for
+     * @param delayMillis delay, in milliseconds
+     */
+    protected final void scheduleDispatch(int id, int delayMillis) {
+        final TimerWheel wheel = timerWheel;
+        final long dueNanos = (game.getMetrics() != null)
+                ? System.nanoTime() + delayMillis * 1000000L : NOT_TIMED;
+
+        if (wheel != null) {
+            wheelDueNanos = dueNanos;
+            wheel.schedule(wheelTimeout, delayMillis, id);
+        } else {
+            platformProvider.runComputeIntensiveTaskAfter(delayMillis, GAME_EVENT_TASK,
+                    new TimerDispatch(id, dueNanos));
+        }
+    }
+
+    /**
+     * Records how late a tick due at the given time runs, if the game
+     * records metrics and the tick hasn't been cancelled.
+     */
+    private void recordLateness(int id, long dueNanos) {
+        final BoardMetrics metrics = game.getMetrics();
+
+        if (metrics != null && dueNanos != NOT_TIMED && id == dispatchId) {
+            metrics.recordTimerLateness(System.nanoTime() - dueNanos);
+        }
     }
 
     public void invokeAt(int delay, Runnable action) {
@@ -70,6 +212,12 @@ public class Timer {
 
     public void pause() {
         ++dispatchId;// all dispatches are cancelled now!
+
+        final TimerWheel wheel = timerWheel;
+
+        if (wheel != null) {
+            wheel.cancel(wheelTimeout);
+        }
     }
 
     public void restart() {
@@ -93,9 +241,15 @@ public class Timer {
     protected class TimerDispatch implements Runnable {
 
         private final int id;
+        private final long dueNanos;
 
         public TimerDispatch(final int id) {
+            this(id, NOT_TIMED);
+        }
+
+        TimerDispatch(final int id, final long dueNanos) {
             this.id = id;
+            this.dueNanos = dueNanos;
         }
 
         public int id() {
@@ -104,26 +258,37 @@ public class Timer {
 
         @Override
         public void run() {
-            if (dispatchId != this.id) {
-                return;
-            }
+            recordLateness(id, dueNanos);
+            dispatchTick(id);
+        }
+    }
 
-            --playerTimes[currentPlayerId];
+    /**
+     * Counts down the current player's time by one tick, if the id is
+     * still current.
+     *
+     * @param id dispatch id the tick was scheduled for
+     */
+    protected void dispatchTick(int id) {
+        if (dispatchId != id) {
+            return;
+        }
 
-            game.dispatchEvent(new TimerTickEvent(dispatchId, currentPlayerId,
-                    playerTimes[currentPlayerId], game));
+        --playerTimes[currentPlayerId];
 
-            if (controllerTask != null && timerSet >= playerTimes[currentPlayerId]) {
-                controllerTask.run();
-                controllerTask = null;
-            }
+        game.dispatchEvent(new TimerTickEvent(dispatchId, currentPlayerId,
+                playerTimes[currentPlayerId], game));
 
-            if (playerTimes[currentPlayerId] != 0) {
-                switchTo(currentPlayerId);
-            } else {
-                controllerTask = null;
-                game.dispatchEvent(new EliminationEvent(currentPlayerId, dispatchId, game));
-            }
+        if (controllerTask != null && timerSet >= playerTimes[currentPlayerId]) {
+            controllerTask.run();
+            controllerTask = null;
+        }
+
+        if (playerTimes[currentPlayerId] != 0) {
+            switchTo(currentPlayerId);
+        } else {
+            controllerTask = null;
+            game.dispatchEvent(new EliminationEvent(currentPlayerId, dispatchId, game));
         }
     }
 
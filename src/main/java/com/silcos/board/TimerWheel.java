@@ -0,0 +1,281 @@
+package com.silcos.board;
+
+import java.util.Arrays;
+
+/**
+ * {@code TimerWheel} runs the timeouts of many {@link Timer}s (or any
+ * other {@link Timeout}) from a single thread. It is a hashed timing
+ * wheel: time is cut into ticks, and each timeout is linked into the
+ * slot of the tick it expires on, so scheduling and cancelling are both
+ * O(1), and each tick only looks at the timeouts in one slot. Timeouts
+ * further away than one turn of the wheel stay in their slot until the
+ * wheel has gone round enough times.
+ *
+ * Timeouts are intrusive - they are the list nodes themselves - and can
+ * be rescheduled any number of times, so a clock needs no allocation per
+ * tick.
+ *
+ * Timeouts expire on the wheel's thread, and must hand off any long work
+ * to other threads.
+ */
+public class TimerWheel implements Runnable {
+
+    /**
+     * Something that can be scheduled on a {@link TimerWheel}. A timeout
+     * can only be scheduled once at a time; scheduling it again moves it.
+     */
+    public abstract static class Timeout {
+
+        Timeout prev;
+        Timeout next;
+        TimerWheel wheel;
+        long deadlineTick;
+        long payload;
+
+        /**
+         * Called on the wheel's thread when the timeout expires.
+         *
+         * @param payload value the timeout was scheduled with
+         */
+        protected abstract void expire(long payload);
+
+        public boolean isScheduled() {
+            return wheel != null;
+        }
+    }
+
+    private static TimerWheel sShared;
+
+    private final long tickNanos;
+    private final Timeout[] slots;
+    private final int mask;
+
+    private long currentTick;
+    private int pendingTimeouts;
+
+    /**
+     * Timeouts that expired on the current tick, with the payloads they
+     * had when they were taken off the wheel; reused across ticks.
+     */
+    private Timeout[] expired = new Timeout[64];
+    private long[] expiredPayloads = new long[64];
+
+    private volatile boolean running;
+    private Thread thread;
+    private long startNanos;
+
+    /**
+     * Creates a wheel.
+     *
+     * @param tickMillis length of a tick, which is also the resolution of
+     *                   timeouts
+     * @param wheelSize no. of slots; rounded up to a power of 2
+     */
+    public TimerWheel(int tickMillis, int wheelSize) {
+        if (tickMillis < 1 || wheelSize < 1) {
+            throw new IllegalArgumentException("Tick and wheel size must be positive.");
+        }
+
+        final int size = (wheelSize == 1) ? 1 : Integer.highestOneBit(wheelSize - 1) << 1;
+
+        this.tickNanos = tickMillis * 1000000L;
+        this.slots = new Timeout[size];
+        this.mask = size - 1;
+    }
+
+    /**
+     * Returns a wheel shared by the whole process, with 10ms ticks,
+     * started on first use.
+     *
+     * @return shared wheel
+     */
+    public static synchronized TimerWheel shared() {
+        if (sShared == null) {
+            sShared = new TimerWheel(10, 512);
+            sShared.start();
+        }
+
+        return sShared;
+    }
+
+    public long getTickMillis() {
+        return tickNanos / 1000000L;
+    }
+
+    /**
+     * Schedules the timeout to expire after the delay, moving it if it
+     * was already scheduled.
+     *
+     * @param timeout timeout to schedule
+     * @param delayMillis delay, in milliseconds
+     * @param payload value passed to {@code expire}
+     */
+    public synchronized void schedule(Timeout timeout, long delayMillis, long payload) {
+        if (timeout.wheel != null) {
+            timeout.wheel.cancel(timeout);
+        }
+
+        final long ticks = Math.max(1, (delayMillis * 1000000L + tickNanos - 1) / tickNanos);
+        final long deadlineTick = currentTick + ticks;
+        final int slot = (int) deadlineTick & mask;
+        final Timeout head = slots[slot];
+
+        timeout.wheel = this;
+        timeout.deadlineTick = deadlineTick;
+        timeout.payload = payload;
+        timeout.prev = null;
+        timeout.next = head;
+
+        if (head != null) {
+            head.prev = timeout;
+        }
+
+        slots[slot] = timeout;
+        ++pendingTimeouts;
+    }
+
+    /**
+     * Cancels the timeout, if it is scheduled on this wheel.
+     *
+     * @param timeout timeout to cancel
+     */
+    public synchronized void cancel(Timeout timeout) {
+        if (timeout.wheel != this)
+            return;
+
+        unlink(timeout, (int) timeout.deadlineTick & mask);
+    }
+
+    public synchronized int pendingTimeouts() {
+        return pendingTimeouts;
+    }
+
+    /**
+     * Starts the wheel's thread.
+     */
+    public synchronized void start() {
+        if (running)
+            return;
+
+        running = true;
+        startNanos = System.nanoTime() - currentTick * tickNanos;
+        thread = new Thread(this, "TimerWheel");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stops the wheel's thread; scheduled timeouts stay on the wheel.
+     */
+    public void stop() {
+        final Thread t;
+
+        synchronized (this) {
+            running = false;
+            t = thread;
+            thread = null;
+        }
+
+        if (t != null) {
+            t.interrupt();
+        }
+    }
+
+    @Override
+    public void run() {
+        while (running) {
+            final long now = System.nanoTime();
+            final long due = startNanos + (currentTick() + 1) * tickNanos;
+
+            if (now - due < 0) {
+                final long sleepNanos = due - now;
+
+                try {
+                    Thread.sleep(sleepNanos / 1000000L, (int) (sleepNanos % 1000000L));
+                } catch (InterruptedException e) {
+                    // stop() interrupts the thread; the loop condition decides
+                }
+
+                continue;
+            }
+
+            advance();
+        }
+    }
+
+    private synchronized long currentTick() {
+        return currentTick;
+    }
+
+    /**
+     * Moves the wheel forward by one tick, and expires the timeouts due
+     * on it. This is called by the wheel's own thread, but can also be
+     * called directly to drive a wheel that hasn't been started.
+     */
+    public void advance() {
+        final int count;
+
+        synchronized (this) {
+            final long tick = ++currentTick;
+            final int slot = (int) tick & mask;
+            Timeout timeout = slots[slot];
+            int found = 0;
+
+            while (timeout != null) {
+                final Timeout next = timeout.next;
+
+                if (timeout.deadlineTick <= tick) {
+                    if (found == expired.length) {
+                        expired = Arrays.copyOf(expired, found * 2);
+                        expiredPayloads = Arrays.copyOf(expiredPayloads, found * 2);
+                    }
+
+                    expired[found] = timeout;
+                    expiredPayloads[found] = timeout.payload;
+                    ++found;
+                    unlink(timeout, slot);
+                }
+
+                timeout = next;
+            }
+
+            count = found;
+        }
+
+        // Only the wheel's thread (or the one driving it) touches the
+        // expired arrays, so they can be used outside the lock.
+        for (int i = 0; i < count; i++) {
+            final Timeout timeout = expired[i];
+            expired[i] = null;
+
+            try {
+                timeout.expire(expiredPayloads[i]);
+            } catch (RuntimeException e) {
+                Thread.UncaughtExceptionHandler handler =
+                        Thread.currentThread().getUncaughtExceptionHandler();
+
+                if (handler != null) {
+                    handler.uncaughtException(Thread.currentThread(), e);
+                }
+            }
+        }
+    }
+
+    private void unlink(Timeout timeout, int slot) {
+        if (timeout.prev != null) {
+            timeout.prev.next = timeout.next;
+        } else {
+            slots[slot] = timeout.next;
+        }
+
+        if (timeout.next != null) {
+            timeout.next.prev = timeout.prev;
+        }
+
+        timeout.prev = null;
+        timeout.next = null;
+        timeout.wheel = null;
+        --pendingTimeouts;
+    }
+
+}
@@ -0,0 +1,264 @@
+package com.silcos.board;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * {@code VirtualThreadPlatformProvider} runs board tasks on virtual
+ * threads, so a server hosting many games doesn't need to size a pool at
+ * all; blocking in a listener (e.g. on a socket) only parks a virtual
+ * thread. Each {@code COMPUTER_TASK} gets its own virtual thread.
+ *
+ * {@code GAME_EVENT_TASK}s run in lanes: a lane runs its tasks one at a
+ * time, in the order they were submitted, on a virtual thread. Games
+ * hosted with {@code host} get a lane each, as {@link GameHost} gives
+ * them mailboxes, so the events of different games run in parallel.
+ * Event tasks submitted to the provider itself share one lane, like the
+ * single event thread of {@link JdkPlatformProvider}. Delays are kept by
+ * a single daemon scheduler thread, which hands due tasks on.
+ *
+ * Virtual threads need a JDK that has them; check {@code isSupported}
+ * before creating this provider. The library itself is built for older
+ * JDKs, so the executor is looked up reflectively.
+ */
+public class VirtualThreadPlatformProvider extends InstrumentedPlatformProvider {
+
+    private static final Method NEW_VIRTUAL_EXECUTOR = findVirtualExecutorFactory();
+
+    private final ExecutorService executor;
+    private final ScheduledThreadPoolExecutor scheduler;
+    private final EventLane eventLane = new EventLane();
+
+    private final ConcurrentHashMap<BoardGame, GameLane> gameLanes =
+            new ConcurrentHashMap<>();
+
+    /**
+     * Creates a provider with up to 65536 waiting tasks of each kind,
+     * beyond which compute tasks run on the submitting thread.
+     */
+    public VirtualThreadPlatformProvider() {
+        this(65536, RejectionPolicy.CALLER_RUNS);
+    }
+
+    /**
+     * @param maxQueuedTasks max. no. of tasks of each kind waiting to run
+     * @param rejectionPolicy what to do with tasks beyond the bound
+     * @throws UnsupportedOperationException if the JDK has no virtual
+     *                                       threads
+     */
+    public VirtualThreadPlatformProvider(int maxQueuedTasks, RejectionPolicy rejectionPolicy) {
+        this(maxQueuedTasks, rejectionPolicy, newVirtualExecutor());
+    }
+
+    /**
+     * Creates a provider whose threads come from the given executor,
+     * e.g. so that tests can run on JDKs without virtual threads.
+     */
+    VirtualThreadPlatformProvider(int maxQueuedTasks, RejectionPolicy rejectionPolicy,
+                                  ExecutorService executor) {
+        super(maxQueuedTasks, rejectionPolicy);
+
+        this.executor = executor;
+        this.scheduler = new ScheduledThreadPoolExecutor(1,
+                new JdkPlatformProvider.DaemonThreadFactory("BoardVirtualScheduler"));
+        this.scheduler.setRemoveOnCancelPolicy(true);
+    }
+
+    /**
+     * Returns whether this JDK can run tasks on virtual threads.
+     *
+     * @return true if the provider can be created
+     */
+    public static boolean isSupported() {
+        return NEW_VIRTUAL_EXECUTOR != null;
+    }
+
+    /**
+     * Gives the game a lane of its own for its event tasks, by making
+     * this provider's lane for the game its platform provider. Hosting a
+     * game twice has no effect.
+     *
+     * @param game game to host
+     */
+    public void host(BoardGame game) {
+        final GameLane lane = new GameLane(game.getPlatformProvider());
+
+        if (gameLanes.putIfAbsent(game, lane) == null) {
+            game.setPlatformProvider(lane);
+        }
+    }
+
+    /**
+     * Stops hosting the game, and gives it back the provider it had.
+     * Tasks already in its lane still run.
+     *
+     * @param game hosted game
+     */
+    public void unhost(BoardGame game) {
+        final GameLane lane = gameLanes.remove(game);
+
+        if (lane != null && game.getPlatformProvider() == lane) {
+            game.setPlatformProvider(lane.previousProvider);
+        }
+    }
+
+    public boolean isHosting(BoardGame game) {
+        return gameLanes.containsKey(game);
+    }
+
+    @Override
+    protected void execute(boolean eventTask, Runnable task) {
+        if (eventTask) {
+            eventLane.post(task);
+        } else {
+            executor.execute(task);
+        }
+    }
+
+    @Override
+    protected void schedule(int ms, final boolean eventTask, final Runnable task) {
+        scheduler.schedule(new Runnable() {
+            @Override
+            public void run() {
+                execute(eventTask, task);
+            }
+        }, ms, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops accepting tasks; delayed tasks whose delay hasn't passed are
+     * dropped.
+     */
+    public void shutdown() {
+        scheduler.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+        scheduler.shutdown();
+        executor.shutdown();
+    }
+
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        final long deadline = System.nanoTime() + unit.toNanos(timeout);
+
+        return scheduler.awaitTermination(timeout, unit)
+                && executor.awaitTermination(deadline - System.nanoTime(),
+                        TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Queue of event tasks. At most one virtual thread drains it at any
+     * time, so event tasks never run concurrently.
+     */
+    private final class EventLane implements Runnable {
+
+        final ConcurrentLinkedQueue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+        final AtomicBoolean scheduled = new AtomicBoolean();
+
+        void post(Runnable task) {
+            tasks.offer(task);
+
+            if (!scheduled.get() && scheduled.compareAndSet(false, true)) {
+                executor.execute(this);
+            }
+        }
+
+        @Override
+        public void run() {
+            do {
+                Runnable task;
+
+                while ((task = tasks.poll()) != null) {
+                    try {
+                        task.run();
+                    } catch (RuntimeException e) {
+                        final Thread thread = Thread.currentThread();
+                        final Thread.UncaughtExceptionHandler handler =
+                                thread.getUncaughtExceptionHandler();
+
+                        if (handler != null) {
+                            handler.uncaughtException(thread, e);
+                        }
+                    }
+                }
+
+                scheduled.set(false);
+
+                // A task posted after the last poll may have seen the lane
+                // as still scheduled
+            } while (!tasks.isEmpty() && scheduled.compareAndSet(false, true));
+        }
+    }
+
+    /**
+     * The provider of a hosted game: its event tasks are counted by this
+     * provider and run in the game's own lane; all other tasks are
+     * handed to this provider.
+     */
+    private final class GameLane extends BoardPlatformProvider {
+
+        final BoardPlatformProvider previousProvider;
+        final EventLane events = new EventLane();
+
+        GameLane(BoardPlatformProvider previousProvider) {
+            this.previousProvider = previousProvider;
+        }
+
+        @Override
+        public void runComputeIntensiveTask(String taskName, Runnable taskExec) {
+            if (GAME_EVENT_TASK.equals(taskName)) {
+                final Runnable task = track(taskName, taskExec, 0);
+
+                if (task != null) {
+                    events.post(task);
+                }
+            } else {
+                VirtualThreadPlatformProvider.this.runComputeIntensiveTask(taskName, taskExec);
+            }
+        }
+
+        @Override
+        public void runComputeIntensiveTaskAfter(int ms, String taskName, Runnable taskExec) {
+            if (GAME_EVENT_TASK.equals(taskName)) {
+                final Runnable task = track(taskName, taskExec, ms);
+
+                if (task != null) {
+                    scheduler.schedule(new Runnable() {
+                        @Override
+                        public void run() {
+                            events.post(task);
+                        }
+                    }, ms, TimeUnit.MILLISECONDS);
+                }
+            } else {
+                VirtualThreadPlatformProvider.this.runComputeIntensiveTaskAfter(ms, taskName,
+                        taskExec);
+            }
+        }
+    }
+
+    private static ExecutorService newVirtualExecutor() {
+        if (NEW_VIRTUAL_EXECUTOR == null) {
+            throw new UnsupportedOperationException("Virtual threads are not supported by "
+                    + "this JDK (" + System.getProperty("java.version") + ").");
+        }
+
+        try {
+            return (ExecutorService) NEW_VIRTUAL_EXECUTOR.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            throw new UnsupportedOperationException("Virtual threads could not be created.", e);
+        }
+    }
+
+    private static Method findVirtualExecutorFactory() {
+        try {
+            return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+}
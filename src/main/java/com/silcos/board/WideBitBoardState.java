@@ -0,0 +1,317 @@
+package com.silcos.board;
+
+import java.util.Arrays;
+
+/**
+ * {@code WideBitBoardState} is the {@link BitBoardState} of boards with
+ * more than 64 cells, like 19x19: each mask is {@code words()} longs,
+ * with cell n at bit {@code n % 64} of word {@code n / 64}.
+ *
+ * Set-wise operations write into arrays given by the caller, which must
+ * have {@code words()} elements; they don't allocate. Like the rest of
+ * the state, they must only be used by one thread at a time.
+ */
+public class WideBitBoardState extends BitBoardState {
+
+    private final int words;
+
+    /**
+     * {@code playerMasks[playerId * words + word]}
+     */
+    private final long playerMasks[];
+
+    /**
+     * {@code kindMasks[kind * words + word]}
+     */
+    private final long kindMasks[];
+
+    private final long boardMask[];
+    private final long notFirstColumn[];
+    private final long notLastColumn[];
+
+    private final BoardGeometry geometry;
+
+    /**
+     * Reused by the set-wise operations, so that they don't allocate.
+     */
+    private final long scratch[];
+
+    public WideBitBoardState(BoardGame game, int rows, int cols, int playerCount,
+                             int kindCount) {
+        super(game, rows, cols, playerCount, kindCount);
+
+        final int cellCount = rows * cols;
+
+        words = (cellCount + 63) >>> 6;
+        playerMasks = new long[playerCount * words];
+        kindMasks = new long[kindCount * words];
+        boardMask = new long[words];
+        notFirstColumn = new long[words];
+        notLastColumn = new long[words];
+        geometry = BoardGeometry.of(rows, cols);
+        scratch = new long[words];
+
+        for (int offset = 0; offset < cellCount; offset++) {
+            final int col = offset % cols;
+
+            boardMask[offset >>> 6] |= 1L << offset;
+
+            if (col != 0) {
+                notFirstColumn[offset >>> 6] |= 1L << offset;
+            }
+
+            if (col != cols - 1) {
+                notLastColumn[offset >>> 6] |= 1L << offset;
+            }
+        }
+    }
+
+    protected WideBitBoardState(WideBitBoardState source) {
+        super(source);
+        words = source.words;
+        playerMasks = source.playerMasks.clone();
+        kindMasks = source.kindMasks.clone();
+        boardMask = source.boardMask;
+        notFirstColumn = source.notFirstColumn;
+        notLastColumn = source.notLastColumn;
+        geometry = source.geometry;
+        scratch = new long[words];
+    }
+
+    /**
+     * Returns the no. of longs in each mask.
+     */
+    public int words() {
+        return words;
+    }
+
+    /**
+     * Writes the cells holding any piece into the array.
+     */
+    public void occupancy(long[] out) {
+        Arrays.fill(out, 0, words, 0);
+
+        for (int p = 0; p < mPlayerCount; p++) {
+            final int base = p * words;
+
+            for (int w = 0; w < words; w++) {
+                out[w] |= playerMasks[base + w];
+            }
+        }
+    }
+
+    public void occupancy(int playerId, long[] out) {
+        System.arraycopy(playerMasks, playerId * words, out, 0, words);
+    }
+
+    /**
+     * Writes the cells holding the player's pieces of the kind into the
+     * array.
+     */
+    public void pieces(int playerId, int kind, long[] out) {
+        for (int w = 0; w < words; w++) {
+            out[w] = playerMasks[playerId * words + w] & kindMasks[kind * words + w];
+        }
+    }
+
+    @Override
+    public boolean isOccupied(int offset) {
+        final long bit = 1L << offset;
+
+        for (int p = 0; p < mPlayerCount; p++) {
+            if ((playerMasks[p * words + (offset >>> 6)] & bit) != 0)
+                return true;
+        }
+
+        return false;
+    }
+
+    @Override
+    public boolean isOccupiedBy(int playerId, int offset) {
+        return playerId >= 0
+                && (playerMasks[playerId * words + (offset >>> 6)] & (1L << offset)) != 0;
+    }
+
+    @Override
+    public int countPieces(int playerId) {
+        int count = 0;
+
+        for (int w = 0; w < words; w++) {
+            count += Long.bitCount(playerMasks[playerId * words + w]);
+        }
+
+        return count;
+    }
+
+    @Override
+    public int countPieces(int playerId, int kind) {
+        int count = 0;
+
+        for (int w = 0; w < words; w++) {
+            count += Long.bitCount(playerMasks[playerId * words + w]
+                    & kindMasks[kind * words + w]);
+        }
+
+        return count;
+    }
+
+    /**
+     * Moves every cell in the set one step in the direction.
+     *
+     * @param set cells to move
+     * @param direction one of {@code BoardGeometry.NORTH} to
+     *                  {@code BoardGeometry.NORTH_WEST}
+     * @param out array the cells reached are written to
+     */
+    public void shift(long[] set, int direction, long[] out) {
+        final long[] edgeMask;
+
+        switch (direction) {
+            case BoardGeometry.NORTH_EAST:
+            case BoardGeometry.EAST:
+            case BoardGeometry.SOUTH_EAST:
+                edgeMask = notLastColumn;
+                break;
+            case BoardGeometry.SOUTH_WEST:
+            case BoardGeometry.WEST:
+            case BoardGeometry.NORTH_WEST:
+                edgeMask = notFirstColumn;
+                break;
+            default:
+                edgeMask = boardMask;
+                break;
+        }
+
+        for (int w = 0; w < words; w++) {
+            out[w] = set[w] & edgeMask[w];
+        }
+
+        final int step = geometry.step(direction);
+
+        if (step > 0) {
+            shiftUp(out, step);
+        } else {
+            shiftDown(out, -step);
+        }
+
+        for (int w = 0; w < words; w++) {
+            out[w] &= boardMask[w];
+        }
+    }
+
+    /**
+     * Writes the cells sharing a side with any cell of the set into the
+     * array, which must not be the set.
+     */
+    public void neighbors4(long[] set, long[] out) {
+        Arrays.fill(out, 0, words, 0);
+        orShifted(set, BoardGeometry.NORTH, out);
+        orShifted(set, BoardGeometry.EAST, out);
+        orShifted(set, BoardGeometry.SOUTH, out);
+        orShifted(set, BoardGeometry.WEST, out);
+    }
+
+    /**
+     * Writes the cells sharing a side or corner with any cell of the set
+     * into the array, which must not be the set.
+     */
+    public void neighbors8(long[] set, long[] out) {
+        Arrays.fill(out, 0, words, 0);
+
+        for (int d = 0; d < BoardGeometry.DIRECTION_COUNT; d++) {
+            orShifted(set, d, out);
+        }
+    }
+
+    /**
+     * Writes the cells a sliding piece in the cell reaches in the
+     * direction into the array: all empty cells up to the first occupied
+     * one, which is included.
+     *
+     * @param offset offset of the cell
+     * @param direction one of {@code BoardGeometry.NORTH} to
+     *                  {@code BoardGeometry.NORTH_WEST}
+     * @param out array the cells reached are written to
+     */
+    public void ray(int offset, int direction, long[] out) {
+        final int step = geometry.step(direction);
+
+        Arrays.fill(out, 0, words, 0);
+
+        for (int n = geometry.rayLength(offset, direction), at = offset + step;
+                n > 0; n--, at += step) {
+            out[at >>> 6] |= 1L << at;
+
+            if (isOccupied(at))
+                break;
+        }
+    }
+
+    @Override
+    protected void setBit(int playerId, int kind, int offset) {
+        playerMasks[playerId * words + (offset >>> 6)] |= 1L << offset;
+        kindMasks[kind * words + (offset >>> 6)] |= 1L << offset;
+    }
+
+    @Override
+    protected void clearBit(int playerId, int kind, int offset) {
+        playerMasks[playerId * words + (offset >>> 6)] &= ~(1L << offset);
+        kindMasks[kind * words + (offset >>> 6)] &= ~(1L << offset);
+    }
+
+    @Override
+    public WideBitBoardState copyState() {
+        return new WideBitBoardState(this);
+    }
+
+    /**
+     * ORs the set, shifted in the direction, into the array.
+     */
+    private void orShifted(long[] set, int direction, long[] out) {
+        final long[] shifted = scratch;
+        shift(set, direction, shifted);
+
+        for (int w = 0; w < words; w++) {
+            out[w] |= shifted[w];
+        }
+    }
+
+    /**
+     * Shifts the mask towards higher offsets by the no. of bits, in place.
+     */
+    private void shiftUp(long[] mask, int bits) {
+        final int wordShift = bits >>> 6;
+        final int bitShift = bits & 63;
+
+        for (int w = words - 1; w >= 0; w--) {
+            final int from = w - wordShift;
+            long value = (from >= 0) ? mask[from] << bitShift : 0;
+
+            if (bitShift != 0 && from - 1 >= 0) {
+                value |= mask[from - 1] >>> (64 - bitShift);
+            }
+
+            mask[w] = value;
+        }
+    }
+
+    /**
+     * Shifts the mask towards lower offsets by the no. of bits, in place.
+     */
+    private void shiftDown(long[] mask, int bits) {
+        final int wordShift = bits >>> 6;
+        final int bitShift = bits & 63;
+
+        for (int w = 0; w < words; w++) {
+            final int from = w + wordShift;
+            long value = (from < words) ? mask[from] >>> bitShift : 0;
+
+            if (bitShift != 0 && from + 1 < words) {
+                value |= mask[from + 1] << (64 - bitShift);
+            }
+
+            mask[w] = value;
+        }
+    }
+
+}
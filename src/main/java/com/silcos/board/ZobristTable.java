@@ -0,0 +1,186 @@
+package com.silcos.board;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * {@code ZobristTable} holds the random keys used to hash positions of
+ * a board. There is one 64-bit key for each (cell, playerId, piece id)
+ * triple, and the hash of a position is the XOR of the keys of all the
+ * pieces on the board; an empty cell contributes nothing.
+ *
+ * Because XOR is its own inverse, the hash can be updated in constant
+ * time whenever a cell changes, instead of walking the whole board.
+ *
+ * Keys are generated from a fixed seed, so the same dimensions always
+ * give the same keys, in any process. Tables are shared between all
+ * boards of the same dimensions; use {@code forDimensions} to get one.
+ */
+public final class ZobristTable {
+
+    private static final long SEED = 0x5DEECE66DL;
+
+    private static final ConcurrentHashMap<Long, ZobristTable> sTables =
+            new ConcurrentHashMap<>();
+
+    private final int rows;
+    private final int columns;
+    private final int playerCount;
+    private final int pieceCount;
+
+    /**
+     * Keys, indexed by ((offset * playerCount) + playerId) * pieceCount
+     * + pieceIndex, where offset is the row-major offset of the cell.
+     */
+    private final long keys[];
+
+    private ZobristTable(int rows, int columns, int playerCount, int pieceCount) {
+        this.rows = rows;
+        this.columns = columns;
+        this.playerCount = playerCount;
+        this.pieceCount = pieceCount;
+        this.keys = new long[rows * columns * playerCount * pieceCount];
+
+        long state = SEED;
+
+        for (int i = 0; i < keys.length; i++) {
+            state += 0x9E3779B97F4A7C15L;
+            keys[i] = mix(state);
+        }
+    }
+
+    /**
+     * Returns the (shared) table for boards of the given dimensions.
+     *
+     * @param rows no. of rows on the board
+     * @param columns no. of columns on the board
+     * @param playerCount no. of players in the game
+     * @param pieceCount max. no. of pieces any player owns
+     * @return key table
+     */
+    public static ZobristTable forDimensions(int rows, int columns,
+                                             int playerCount, int pieceCount) {
+        if (rows <= 0 || columns <= 0 || playerCount <= 0 || pieceCount <= 0
+                || rows > 0xFFFF || columns > 0xFFFF
+                || playerCount > 0xFFFF || pieceCount > 0xFFFF) {
+            throw new IllegalArgumentException("Invalid dimensions for zobrist table: " +
+                    rows + "x" + columns + ", " + playerCount + " players, " +
+                    pieceCount + " pieces");
+        }
+
+        final Long id = ((long) rows << 48) | ((long) columns << 32)
+                | ((long) playerCount << 16) | (long) pieceCount;
+        ZobristTable table = sTables.get(id);
+
+        if (table == null) {
+            final ZobristTable newTable = new ZobristTable(rows, columns,
+                    playerCount, pieceCount);
+            table = sTables.putIfAbsent(id, newTable);
+
+            if (table == null) {
+                table = newTable;
+            }
+        }
+
+        return table;
+    }
+
+    /**
+     * Returns the table for the board and players of the given game. All
+     * players must have been set and have their pieces allocated.
+     *
+     * @param game game whose positions are to be hashed
+     * @return key table
+     */
+    public static ZobristTable forGame(BoardGame game) {
+        final Board board = game.board();
+        final Player[] players = game.mPlayers;
+        int pieceCount = 0;
+
+        for (Player player : players) {
+            if (player == null || player.myPieces == null) {
+                throw new IllegalStateException("All players must have their pieces " +
+                        "allocated before positions can be hashed.");
+            }
+
+            pieceCount = Math.max(pieceCount, player.myPieces.length);
+        }
+
+        return forDimensions(board.getHeight(), board.getWidth(),
+                players.length, Math.max(pieceCount, 1));
+    }
+
+    public int getRows() {
+        return rows;
+    }
+
+    public int getColumns() {
+        return columns;
+    }
+
+    /**
+     * Returns the key for the given piece placed on the cell at the
+     * row-major offset.
+     *
+     * @param inMemoryOffset offset of the cell
+     * @param playerId owner of the piece
+     * @param pieceIndex id of the piece
+     * @return zobrist key
+     */
+    public long key(int inMemoryOffset, int playerId, int pieceIndex) {
+        return keys[(inMemoryOffset * playerCount + playerId) * pieceCount + pieceIndex];
+    }
+
+    /**
+     * Returns the key for the piece on the cell at the row-major offset,
+     * or 0 if there is no piece.
+     *
+     * @param inMemoryOffset offset of the cell
+     * @param piece piece held, or null
+     * @return zobrist key
+     */
+    public long key(int inMemoryOffset, Piece piece) {
+        return (piece != null) ? key(inMemoryOffset, piece.playerId(), piece.id()) : 0;
+    }
+
+    /**
+     * Returns the key for a cell-state value of a
+     * {@link BoardMonoStateCache}, or 0 if it denotes an empty cell.
+     *
+     * @param inMemoryOffset offset of the cell
+     * @param cellState playerId in the upper 32-bits & piece id in the
+     *                  lower 32-bits, or -1
+     * @return zobrist key
+     */
+    public long key(int inMemoryOffset, long cellState) {
+        return (cellState != -1)
+                ? key(inMemoryOffset, (int) (cellState >> 32), (int) cellState)
+                : 0;
+    }
+
+    /**
+     * Calculates the hash of the whole board from scratch.
+     *
+     * @param board board to hash
+     * @return zobrist hash of the position
+     */
+    public long hash(Board board) {
+        final int cellCount = board.getHeight() * board.getWidth();
+        long hash = 0;
+
+        for (int offset = 0; offset < cellCount; offset++) {
+            hash ^= key(offset, board.pieceAt(offset));
+        }
+
+        return hash;
+    }
+
+    /**
+     * SplitMix64 finalizer.
+     */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+}
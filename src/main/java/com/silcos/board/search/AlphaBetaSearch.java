@@ -0,0 +1,588 @@
+package com.silcos.board.search;
+
+import com.silcos.board.BoardPlatformProvider;
+import com.silcos.board.GameState;
+import com.silcos.board.PackedMove;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.silcos.board.BoardPlatformProvider.COMPUTER_TASK;
+
+/**
+ * {@code AlphaBetaSearch} finds the best move for a player by iterative
+ * deepening negamax search with alpha-beta pruning. The game plugs in
+ * through {@link SearchRules}; the engine walks positions by making and
+ * unmaking moves on a {@link GameState}, so no board is copied and no
+ * objects are allocated per node.
+ *
+ * The search deepens one ply at a time until the max. depth is reached
+ * or the time limit runs out, in which case the result of the deepest
+ * completed iteration is returned. Root moves are re-ordered by the
+ * scores of the previous iteration, so that good moves are searched
+ * first and more of the tree is pruned.
+ *
+ * {@code search(S, int)} runs on the calling thread. The overload that
+ * takes a {@link BoardPlatformProvider} splits the root moves between
+ * {@code getParallelism()} workers, dispatched as
+ * {@code BoardPlatformProvider.COMPUTER_TASK}s; each worker searches its
+ * own copy of the state.
+ *
+ * With a {@link TranspositionTable} set, positions reached by several
+ * move orders are only searched once, and the best move remembered for a
+ * position is searched first. Workers of one search share the table.
+ *
+ * The engine is meant for two-player, zero-sum games. An engine object
+ * can be reused for many searches, but must not run two at a time.
+ *
+ * @param <S> type of state the game's positions are kept in
+ */
+public class AlphaBetaSearch<S extends GameState> {
+
+    /**
+     * Bound on all scores; evaluations must lie strictly inside
+     * (-INFINITY, INFINITY).
+     */
+    public static final int INFINITY = 1000000000;
+
+    public static final int MAX_DEPTH = 64;
+
+    /**
+     * No. of nodes visited between two checks of the clock.
+     */
+    private static final int TIME_CHECK_INTERVAL = 1024;
+
+    protected final SearchRules<S> rules;
+
+    private int maxDepth = MAX_DEPTH;
+    private long timeLimitMillis = 1000;
+    private int parallelism = 1;
+    private int maxMovesPerPosition = 256;
+
+    private TranspositionTable transpositionTable;
+
+    private volatile SearchTask currentTask;
+
+    public AlphaBetaSearch(SearchRules<S> rules) {
+        this.rules = rules;
+    }
+
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    /**
+     * Sets the depth, in plies, at which iterative deepening stops.
+     *
+     * @param maxDepth max. depth, between 1 and {@code MAX_DEPTH}
+     * @return this engine
+     */
+    public AlphaBetaSearch<S> setMaxDepth(int maxDepth) {
+        if (maxDepth < 1 || maxDepth > MAX_DEPTH) {
+            throw new IllegalArgumentException("Depth must be between 1 and " + MAX_DEPTH);
+        }
+
+        this.maxDepth = maxDepth;
+        return this;
+    }
+
+    public long getTimeLimit() {
+        return timeLimitMillis;
+    }
+
+    /**
+     * Sets the time after which a search is stopped. A limit of 0 means
+     * the search only stops at the max. depth.
+     *
+     * @param millis time limit, in milliseconds
+     * @return this engine
+     */
+    public AlphaBetaSearch<S> setTimeLimit(long millis) {
+        if (millis < 0) {
+            throw new IllegalArgumentException("Time limit cannot be negative.");
+        }
+
+        timeLimitMillis = millis;
+        return this;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * Sets the no. of workers that searches dispatched to a platform
+     * provider are split between.
+     *
+     * @param parallelism no. of workers, at least 1
+     * @return this engine
+     */
+    public AlphaBetaSearch<S> setParallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least 1.");
+        }
+
+        this.parallelism = parallelism;
+        return this;
+    }
+
+    public int getMaxMovesPerPosition() {
+        return maxMovesPerPosition;
+    }
+
+    /**
+     * Sets the max. no. of moves {@link SearchRules#generateMoves} can
+     * write for one position; the move buffers are sized from it.
+     *
+     * @param maxMoves max. no. of moves in any position
+     * @return this engine
+     */
+    public AlphaBetaSearch<S> setMaxMovesPerPosition(int maxMoves) {
+        if (maxMoves < 1) {
+            throw new IllegalArgumentException("Positions must allow at least one move.");
+        }
+
+        maxMovesPerPosition = maxMoves;
+        return this;
+    }
+
+    public TranspositionTable getTranspositionTable() {
+        return transpositionTable;
+    }
+
+    /**
+     * Sets the table in which searched positions are remembered; null
+     * disables it. A table can be kept across searches, and shared by
+     * several engines.
+     *
+     * @param table transposition table, or null
+     * @return this engine
+     */
+    public AlphaBetaSearch<S> setTranspositionTable(TranspositionTable table) {
+        transpositionTable = table;
+        return this;
+    }
+
+    /**
+     * Searches for the best move of the player in the given state, on
+     * the calling thread. The state is searched in place, and is back
+     * in its original position when this returns.
+     *
+     * @param root position to search
+     * @param playerId player to move
+     * @return best move found
+     */
+    public SearchResult search(S root, int playerId) {
+        final SearchTask task = new SearchTask(root, playerId, 1, false, null, null);
+
+        currentTask = task;
+        task.runInline();
+        currentTask = null;
+
+        return task.result;
+    }
+
+    /**
+     * Searches for the best move of the player in the given state, on
+     * the compute threads of the platform provider. The state is copied
+     * for each worker before this returns, so the caller may continue to
+     * use it.
+     *
+     * @param root position to search
+     * @param playerId player to move
+     * @param provider platform to run the workers on
+     * @param callback receives the result when the search finishes
+     */
+    public void search(S root, int playerId, BoardPlatformProvider provider,
+                       SearchCallback callback) {
+        final SearchTask task = new SearchTask(root, playerId, parallelism, true,
+                provider, callback);
+
+        currentTask = task;
+        task.dispatch();
+    }
+
+    /**
+     * Stops the running search, which then finishes with the result of
+     * its deepest completed iteration.
+     */
+    public void stop() {
+        final SearchTask task = currentTask;
+
+        if (task != null) {
+            task.aborted = true;
+        }
+    }
+
+    /**
+     * Hook for subclasses to order the moves of an interior node before
+     * they are searched, e.g. to try a remembered best move first. The
+     * default leaves the order of generation unchanged.
+     *
+     * @param state position the moves were generated for
+     * @param playerId player to move
+     * @param moves move buffer
+     * @param offset index of the first move
+     * @param count no. of moves
+     */
+    protected void orderMoves(S state, int playerId, long[] moves, int offset, int count) {
+    }
+
+    /**
+     * State shared by the workers of one search.
+     */
+    private final class SearchTask {
+
+        final int playerId;
+        final ArrayList<Worker> workers;
+        final BoardPlatformProvider provider;
+        final SearchCallback callback;
+
+        final long startNanos;
+        final long deadline;
+        final boolean hasDeadline;
+
+        final long[] rootMoves;
+        final int[] rootScores;
+        final int rootMoveCount;
+
+        final AtomicInteger nextRootMove = new AtomicInteger();
+        final AtomicInteger pendingWorkers = new AtomicInteger();
+        final AtomicInteger sharedAlpha = new AtomicInteger();
+
+        volatile boolean aborted;
+
+        int depth;
+        SearchResult result;
+
+        @SuppressWarnings("unchecked")
+        SearchTask(S root, int playerId, int workerCount, boolean copyRoot,
+                   BoardPlatformProvider provider, SearchCallback callback) {
+            this.playerId = playerId;
+            this.provider = provider;
+            this.callback = callback;
+            this.startNanos = System.nanoTime();
+            this.hasDeadline = timeLimitMillis > 0;
+            this.deadline = startNanos + timeLimitMillis * 1000000L;
+
+            if (transpositionTable != null) {
+                transpositionTable.newSearch();
+            }
+
+            final long[] buffer = new long[maxMovesPerPosition];
+            rootMoveCount = rules.generateMoves(root, playerId, buffer, 0);
+            rootMoves = Arrays.copyOf(buffer, rootMoveCount);
+            rootScores = new int[rootMoveCount];
+
+            final int count = Math.max(1, Math.min(workerCount, rootMoveCount));
+            workers = new ArrayList<>(count);
+
+            for (int i = 0; i < count; i++) {
+                workers.add(new Worker(this, copyRoot ? (S) root.copyState() : root));
+            }
+
+            if (rootMoveCount == 0) {
+                result = new SearchResult(PackedMove.NONE, rules.evaluate(root, playerId),
+                        0, 1, System.nanoTime() - startNanos);
+            }
+        }
+
+        void runInline() {
+            if (rootMoveCount == 0)
+                return;
+
+            do {
+                startIteration();
+                workers.get(0).searchRootMoves();
+            } while (finishIteration());
+        }
+
+        void dispatch() {
+            if (rootMoveCount == 0) {
+                finishSearch();
+                return;
+            }
+
+            startIteration();
+
+            for (Worker worker : workers) {
+                provider.runComputeIntensiveTask(COMPUTER_TASK, worker);
+            }
+        }
+
+        void startIteration() {
+            ++depth;
+            nextRootMove.set(0);
+            sharedAlpha.set(-INFINITY);
+            pendingWorkers.set(workers.size());
+            Arrays.fill(rootScores, -INFINITY);
+        }
+
+        /**
+         * Called by each worker when it runs out of root moves; the last
+         * one to finish completes the iteration.
+         */
+        void workerFinished() {
+            if (pendingWorkers.decrementAndGet() != 0)
+                return;
+
+            if (finishIteration()) {
+                dispatch();
+            } else {
+                finishSearch();
+            }
+        }
+
+        /**
+         * Records the result of the iteration just completed, and returns
+         * whether another one should be run.
+         */
+        boolean finishIteration() {
+            long nodes = 0;
+
+            for (Worker worker : workers) {
+                nodes += worker.nodes;
+            }
+
+            if (aborted && result != null) {
+                // Keep the deepest completed iteration, but count the work
+                result = new SearchResult(result.bestMove, result.score, result.depth,
+                        nodes, System.nanoTime() - startNanos);
+                return false;
+            }
+
+            // Stable sort of root moves by score, best first
+            for (int i = 1; i < rootMoveCount; i++) {
+                final long move = rootMoves[i];
+                final int score = rootScores[i];
+                int j = i - 1;
+
+                while (j >= 0 && rootScores[j] < score) {
+                    rootMoves[j + 1] = rootMoves[j];
+                    rootScores[j + 1] = rootScores[j];
+                    --j;
+                }
+
+                rootMoves[j + 1] = move;
+                rootScores[j + 1] = score;
+            }
+
+            result = new SearchResult(rootMoves[0], rootScores[0],
+                    aborted ? depth - 1 : depth, nodes, System.nanoTime() - startNanos);
+
+            return !aborted && depth < maxDepth && rootMoveCount > 1
+                    && !(hasDeadline && System.nanoTime() - deadline >= 0);
+        }
+
+        void finishSearch() {
+            if (currentTask == this) {
+                currentTask = null;
+            }
+
+            if (callback != null) {
+                callback.onSearchFinished(result);
+            }
+        }
+
+        /**
+         * Raises the shared root alpha to the score, if it is higher.
+         */
+        void raiseAlpha(int score) {
+            int alpha;
+
+            while (score > (alpha = sharedAlpha.get())) {
+                if (sharedAlpha.compareAndSet(alpha, score))
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Searches root moves on its own copy of the state, with its own
+     * move buffer.
+     */
+    private final class Worker implements Runnable {
+
+        final SearchTask task;
+        final S state;
+
+        long[] moves = new long[maxMovesPerPosition * 8];
+        long nodes;
+
+        /**
+         * Move & data of the last transposition table hit.
+         */
+        final long[] probe = new long[2];
+
+        Worker(SearchTask task, S state) {
+            this.task = task;
+            this.state = state;
+        }
+
+        @Override
+        public void run() {
+            try {
+                searchRootMoves();
+            } finally {
+                task.workerFinished();
+            }
+        }
+
+        void searchRootMoves() {
+            final SearchTask task = this.task;
+            final int playerId = task.playerId;
+            final int depth = task.depth;
+
+            while (!task.aborted) {
+                final int index = task.nextRootMove.getAndIncrement();
+
+                if (index >= task.rootMoveCount)
+                    break;
+
+                final int alpha = task.sharedAlpha.get();
+                final int nextPlayerId = rules.nextPlayer(playerId);
+                final int score;
+
+                // One below alpha, so that a move failing low scores less
+                // than the best one instead of tying with it
+                final int bound = (alpha > -INFINITY) ? alpha - 1 : -INFINITY;
+
+                state.makeMove(task.rootMoves[index]);
+
+                if (nextPlayerId != playerId) {
+                    score = -negamax(nextPlayerId, depth - 1, -INFINITY, -bound, 0);
+                } else {
+                    score = negamax(playerId, depth - 1, bound, INFINITY, 0);
+                }
+
+                state.unmakeMove();
+
+                if (task.aborted)
+                    break;
+
+                task.rootScores[index] = score;
+                task.raiseAlpha(score);
+            }
+        }
+
+        int negamax(int playerId, int depth, int alpha, int beta, int offset) {
+            if ((++nodes & (TIME_CHECK_INTERVAL - 1)) == 0 && task.hasDeadline
+                    && System.nanoTime() - task.deadline >= 0) {
+                task.aborted = true;
+            }
+
+            if (task.aborted)
+                return 0;
+            if (depth <= 0)
+                return rules.evaluate(state, playerId);
+
+            final TranspositionTable table = transpositionTable;
+            final int originalAlpha = alpha;
+            long key = 0;
+            long hashMove = PackedMove.NONE;
+
+            if (table != null) {
+                key = positionKey(playerId);
+
+                if (table.probe(key, probe)) {
+                    final long data = probe[1];
+                    final int score = TranspositionTable.score(data);
+                    hashMove = probe[0];
+
+                    if (TranspositionTable.depth(data) >= depth) {
+                        switch (TranspositionTable.bound(data)) {
+                            case TranspositionTable.EXACT:
+                                return score;
+                            case TranspositionTable.LOWER_BOUND:
+                                alpha = Math.max(alpha, score);
+                                break;
+                            default:
+                                beta = Math.min(beta, score);
+                                break;
+                        }
+
+                        if (alpha >= beta)
+                            return score;
+                    }
+                }
+            }
+
+            if (offset + maxMovesPerPosition > moves.length) {
+                moves = Arrays.copyOf(moves, Math.max(moves.length * 2,
+                        offset + maxMovesPerPosition));
+            }
+
+            final int count = rules.generateMoves(state, playerId, moves, offset);
+
+            if (count == 0)
+                return rules.evaluate(state, playerId);
+
+            orderMoves(state, playerId, moves, offset, count);
+
+            if (hashMove != PackedMove.NONE) {
+                moveToFront(hashMove, offset, count);
+            }
+
+            final int nextPlayerId = rules.nextPlayer(playerId);
+            final int childOffset = offset + count;
+            int best = -INFINITY;
+            long bestMove = PackedMove.NONE;
+
+            for (int i = offset; i < childOffset; i++) {
+                final int score;
+
+                state.makeMove(moves[i]);
+
+                if (nextPlayerId != playerId) {
+                    score = -negamax(nextPlayerId, depth - 1, -beta, -alpha, childOffset);
+                } else {
+                    score = negamax(playerId, depth - 1, alpha, beta, childOffset);
+                }
+
+                state.unmakeMove();
+
+                if (score > best) {
+                    best = score;
+                    bestMove = moves[i];
+
+                    if (score > alpha) {
+                        alpha = score;
+
+                        if (alpha >= beta)
+                            break;
+                    }
+                }
+            }
+
+            if (table != null && !task.aborted) {
+                final int bound = (best <= originalAlpha) ? TranspositionTable.UPPER_BOUND
+                        : (best >= beta) ? TranspositionTable.LOWER_BOUND
+                        : TranspositionTable.EXACT;
+
+                table.store(key, bestMove, best, depth, bound);
+            }
+
+            return best;
+        }
+
+        /**
+         * Returns the table key of the state with the player to move;
+         * scores are relative to the player, so it is part of the key.
+         */
+        long positionKey(int playerId) {
+            return state.zobristKey() ^ ((playerId + 1) * 0x9E3779B97F4A7C15L);
+        }
+
+        void moveToFront(long move, int offset, int count) {
+            for (int i = offset; i < offset + count; i++) {
+                if (moves[i] == move) {
+                    System.arraycopy(moves, offset, moves, offset + 1, i - offset);
+                    moves[offset] = move;
+                    return;
+                }
+            }
+        }
+    }
+
+}
@@ -0,0 +1,43 @@
+package com.silcos.board.search;
+
+import com.silcos.board.PackedMove;
+
+/**
+ * Result of a {@link MonteCarloTreeSearch}. The score is the win-rate of
+ * the best move in per-mille, and {@code nodes} counts playouts.
+ */
+public class MonteCarloResult extends SearchResult {
+
+    /**
+     * No. of nodes in the tree when the search finished.
+     */
+    public final int treeSize;
+
+    /**
+     * No. of workers the playouts were spread over.
+     */
+    public final int workers;
+
+    public MonteCarloResult(long bestMove, int score, int depth, long playouts,
+                            long elapsedNanos, int treeSize, int workers) {
+        super(bestMove, score, depth, playouts, elapsedNanos);
+        this.treeSize = treeSize;
+        this.workers = workers;
+    }
+
+    public long playouts() {
+        return nodes;
+    }
+
+    public long playoutsPerSecond() {
+        return nodesPerSecond();
+    }
+
+    @Override
+    public String toString() {
+        return "MonteCarloResult{move=" + PackedMove.toString(bestMove) +
+                ", winRate=" + score + "/1000, depth=" + depth + ", playouts=" + nodes +
+                ", playouts/s=" + playoutsPerSecond() + ", tree=" + treeSize +
+                ", workers=" + workers + "}";
+    }
+}
@@ -0,0 +1,517 @@
+package com.silcos.board.search;
+
+import com.silcos.board.BoardPlatformProvider;
+import com.silcos.board.GameState;
+import com.silcos.board.PackedMove;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+import static com.silcos.board.BoardPlatformProvider.COMPUTER_TASK;
+
+/**
+ * {@code MonteCarloTreeSearch} picks a move by growing a game tree with
+ * random playouts (UCT). It suits games with a large branching factor,
+ * where {@link AlphaBetaSearch} can't look deep enough.
+ *
+ * Many workers grow one shared tree without locking it. Each node keeps
+ * atomic visit & reward counters, and a node's children are published
+ * with a single compare-and-set when it is expanded. A worker counts its
+ * visit to a node while descending, before the playout's reward is known;
+ * this "virtual loss" makes the node look worse to the other workers
+ * until the reward arrives, so they spread out over the tree instead of
+ * all following the same path.
+ *
+ * Playouts are played on each worker's own copy of the root state with
+ * {@code makeMove}, and unmade afterwards, so the only allocations are
+ * the tree's nodes.
+ *
+ * The engine is meant for two-player, zero-sum games; a playout's result
+ * is the sign of {@link SearchRules#evaluate} where it ends.
+ *
+ * @param <S> type of state the game's positions are kept in
+ */
+public class MonteCarloTreeSearch<S extends GameState> {
+
+    /**
+     * Rewards are counted in half-points, so that draws stay integral.
+     */
+    private static final int WIN = 2;
+    private static final int DRAW = 1;
+
+    private static final Node[] NO_CHILDREN = new Node[0];
+
+    /**
+     * No. of playouts a worker runs between checks of the limits.
+     */
+    private static final int PLAYOUT_BATCH = 32;
+
+    protected final SearchRules<S> rules;
+
+    private long timeLimitMillis = 1000;
+    private long maxPlayouts = 0;
+    private int parallelism = 1;
+    private int maxPlayoutLength = 512;
+    private int maxMovesPerPosition = 256;
+    private int maxTreeSize = 1 << 22;
+    private double exploration = Math.sqrt(2);
+
+    private volatile SearchTask currentTask;
+
+    public MonteCarloTreeSearch(SearchRules<S> rules) {
+        this.rules = rules;
+    }
+
+    /**
+     * Sets the time after which a search is stopped. A limit of 0 means
+     * the search only stops after {@code maxPlayouts}.
+     *
+     * @param millis time limit, in milliseconds
+     * @return this engine
+     */
+    public MonteCarloTreeSearch<S> setTimeLimit(long millis) {
+        if (millis < 0) {
+            throw new IllegalArgumentException("Time limit cannot be negative.");
+        }
+
+        timeLimitMillis = millis;
+        return this;
+    }
+
+    /**
+     * Sets the no. of playouts, over all workers, after which a search is
+     * stopped. A limit of 0 means the search only stops on time.
+     *
+     * @param playouts max. no. of playouts
+     * @return this engine
+     */
+    public MonteCarloTreeSearch<S> setMaxPlayouts(long playouts) {
+        if (playouts < 0) {
+            throw new IllegalArgumentException("Playout limit cannot be negative.");
+        }
+
+        maxPlayouts = playouts;
+        return this;
+    }
+
+    public MonteCarloTreeSearch<S> setParallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least 1.");
+        }
+
+        this.parallelism = parallelism;
+        return this;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * Sets the no. of random moves after which a playout is cut off and
+     * the position is evaluated as it stands.
+     *
+     * @param plies max. length of a playout
+     * @return this engine
+     */
+    public MonteCarloTreeSearch<S> setMaxPlayoutLength(int plies) {
+        maxPlayoutLength = plies;
+        return this;
+    }
+
+    public MonteCarloTreeSearch<S> setMaxMovesPerPosition(int maxMoves) {
+        maxMovesPerPosition = maxMoves;
+        return this;
+    }
+
+    /**
+     * Sets the no. of nodes after which the tree stops growing; playouts
+     * continue from its leaves. This bounds the memory a search uses.
+     *
+     * @param nodes max. no. of nodes
+     * @return this engine
+     */
+    public MonteCarloTreeSearch<S> setMaxTreeSize(int nodes) {
+        maxTreeSize = nodes;
+        return this;
+    }
+
+    /**
+     * Sets the UCT exploration constant; higher values try less visited
+     * moves more often.
+     *
+     * @param c exploration constant
+     * @return this engine
+     */
+    public MonteCarloTreeSearch<S> setExploration(double c) {
+        exploration = c;
+        return this;
+    }
+
+    /**
+     * Searches for the best move of the player in the given state, on
+     * the calling thread. The state is back in its original position when
+     * this returns.
+     *
+     * @param root position to search
+     * @param playerId player to move
+     * @return best move found
+     */
+    public MonteCarloResult search(S root, int playerId) {
+        final SearchTask task = new SearchTask(root, playerId, 1, false, null);
+
+        currentTask = task;
+        task.workers.get(0).run();
+
+        return task.result;
+    }
+
+    /**
+     * Searches for the best move of the player in the given state, with
+     * {@code getParallelism()} workers run as COMPUTER_TASKs of the
+     * platform provider.
+     *
+     * @param root position to search; copied before this returns
+     * @param playerId player to move
+     * @param provider platform to run the workers on
+     * @param callback receives a {@link MonteCarloResult} when the
+     *                 search finishes
+     */
+    public void search(S root, int playerId, BoardPlatformProvider provider,
+                       SearchCallback callback) {
+        final SearchTask task = new SearchTask(root, playerId, parallelism, true, callback);
+
+        currentTask = task;
+
+        for (Worker worker : task.workers) {
+            provider.runComputeIntensiveTask(COMPUTER_TASK, worker);
+        }
+    }
+
+    /**
+     * Stops the running search, which then finishes with the playouts
+     * completed so far.
+     */
+    public void stop() {
+        final SearchTask task = currentTask;
+
+        if (task != null) {
+            task.stopped = true;
+        }
+    }
+
+    /**
+     * Node of the shared tree. Counters are updated through field
+     * updaters so that nodes don't need separate atomic objects.
+     */
+    static final class Node {
+
+        static final AtomicIntegerFieldUpdater<Node> VISITS =
+                AtomicIntegerFieldUpdater.newUpdater(Node.class, "visits");
+        static final AtomicLongFieldUpdater<Node> REWARD =
+                AtomicLongFieldUpdater.newUpdater(Node.class, "reward");
+        static final AtomicReferenceFieldUpdater<Node, Node[]> CHILDREN =
+                AtomicReferenceFieldUpdater.newUpdater(Node.class, Node[].class, "children");
+
+        /**
+         * Move that leads to this node from its parent.
+         */
+        final long move;
+
+        /**
+         * Player that made {@code move}; rewards are counted for it.
+         */
+        final int moverId;
+
+        /**
+         * Player to move in this node.
+         */
+        final int playerId;
+
+        /**
+         * No. of playouts through this node, including ones still running.
+         */
+        volatile int visits;
+
+        /**
+         * Sum of rewards, in half-points, for the mover.
+         */
+        volatile long reward;
+
+        /**
+         * Null until expanded; empty if the game is over here.
+         */
+        volatile Node[] children;
+
+        Node(long move, int moverId, int playerId) {
+            this.move = move;
+            this.moverId = moverId;
+            this.playerId = playerId;
+        }
+    }
+
+    private final class SearchTask {
+
+        final Node root;
+        final int rootPlayerId;
+        final ArrayList<Worker> workers;
+        final SearchCallback callback;
+
+        final long startNanos;
+        final long deadline;
+        final boolean hasDeadline;
+
+        final AtomicInteger treeSize = new AtomicInteger(1);
+        final AtomicLong playouts = new AtomicLong();
+        final AtomicInteger pendingWorkers;
+
+        volatile boolean stopped;
+
+        MonteCarloResult result;
+
+        @SuppressWarnings("unchecked")
+        SearchTask(S rootState, int playerId, int workerCount, boolean copyRoot,
+                   SearchCallback callback) {
+            this.root = new Node(PackedMove.NONE, -1, playerId);
+            this.rootPlayerId = playerId;
+            this.callback = callback;
+            this.startNanos = System.nanoTime();
+            this.hasDeadline = timeLimitMillis > 0;
+            this.deadline = startNanos + timeLimitMillis * 1000000L;
+            this.workers = new ArrayList<>(workerCount);
+            this.pendingWorkers = new AtomicInteger(workerCount);
+
+            if (!hasDeadline && maxPlayouts == 0) {
+                throw new IllegalStateException("Either a time limit or a playout limit " +
+                        "must be set.");
+            }
+
+            for (int i = 0; i < workerCount; i++) {
+                workers.add(new Worker(this, copyRoot ? (S) rootState.copyState() : rootState,
+                        startNanos + 0x9E3779B97F4A7C15L * (i + 1)));
+            }
+        }
+
+        boolean shouldStop(long playouts) {
+            return stopped
+                    || (maxPlayouts > 0 && playouts >= maxPlayouts)
+                    || (hasDeadline && System.nanoTime() - deadline >= 0);
+        }
+
+        void workerFinished() {
+            if (pendingWorkers.decrementAndGet() != 0)
+                return;
+
+            final Node[] children = root.children;
+            Node best = null;
+
+            if (children != null) {
+                for (Node child : children) {
+                    if (best == null || child.visits > best.visits) {
+                        best = child;
+                    }
+                }
+            }
+
+            int depth = 0;
+
+            for (Worker worker : workers) {
+                depth = Math.max(depth, worker.maxDepth);
+            }
+
+            result = new MonteCarloResult(
+                    (best != null) ? best.move : PackedMove.NONE,
+                    (best != null && best.visits > 0)
+                            ? (int) (best.reward * 1000 / (WIN * (long) best.visits)) : 0,
+                    depth, playouts.get(), System.nanoTime() - startNanos,
+                    treeSize.get(), workers.size());
+
+            if (currentTask == this) {
+                currentTask = null;
+            }
+
+            if (callback != null) {
+                callback.onSearchFinished(result);
+            }
+        }
+    }
+
+    private final class Worker implements Runnable {
+
+        final SearchTask task;
+        final S state;
+
+        final Node[] path = new Node[AlphaBetaSearch.MAX_DEPTH * 4];
+        long[] moves = new long[maxMovesPerPosition];
+
+        long random;
+        int maxDepth;
+
+        Worker(SearchTask task, S state, long seed) {
+            this.task = task;
+            this.state = state;
+            this.random = (seed != 0) ? seed : 1;
+        }
+
+        @Override
+        public void run() {
+            try {
+                // Playouts are counted in batches, to keep workers from
+                // contending on the shared counter.
+                long knownPlayouts = 0;
+
+                while (!task.shouldStop(knownPlayouts)) {
+                    for (int i = 0; i < PLAYOUT_BATCH; i++) {
+                        playout();
+                    }
+
+                    knownPlayouts = task.playouts.addAndGet(PLAYOUT_BATCH);
+                }
+            } finally {
+                task.workerFinished();
+            }
+        }
+
+        /**
+         * Runs one select-expand-playout-backpropagate iteration.
+         */
+        void playout() {
+            Node node = task.root;
+            int depth = 0;
+
+            Node.VISITS.incrementAndGet(node);
+            path[depth++] = node;
+
+            // Selection
+            Node[] children;
+
+            while ((children = node.children) != null && children.length > 0
+                    && depth < path.length) {
+                node = select(node, children);
+                Node.VISITS.incrementAndGet(node);
+                state.makeMove(node.move);
+                path[depth++] = node;
+            }
+
+            // Expansion
+            if (children == null && depth < path.length
+                    && task.treeSize.get() < maxTreeSize) {
+                children = expand(node);
+
+                if (children.length > 0) {
+                    node = children[nextInt(children.length)];
+                    Node.VISITS.incrementAndGet(node);
+                    state.makeMove(node.move);
+                    path[depth++] = node;
+                }
+            }
+
+            if (depth > maxDepth) {
+                maxDepth = depth;
+            }
+
+            // Playout
+            int playerId = node.playerId;
+            int plies = 0;
+
+            while (plies < maxPlayoutLength) {
+                final int count = rules.generateMoves(state, playerId, moves, 0);
+
+                if (count == 0)
+                    break;
+
+                state.makeMove(moves[nextInt(count)]);
+                playerId = rules.nextPlayer(playerId);
+                ++plies;
+            }
+
+            final int evaluation = rules.evaluate(state, task.rootPlayerId);
+            final int rootReward = (evaluation > 0) ? WIN : (evaluation == 0) ? DRAW : 0;
+
+            while (plies-- > 0) {
+                state.unmakeMove();
+            }
+
+            // Backpropagation; visits were already counted on the way down
+            for (int i = depth - 1; i >= 1; i--) {
+                final Node n = path[i];
+                Node.REWARD.addAndGet(n, (n.moverId == task.rootPlayerId)
+                        ? rootReward : WIN - rootReward);
+                state.unmakeMove();
+                path[i] = null;
+            }
+
+            path[0] = null;
+        }
+
+        Node select(Node parent, Node[] children) {
+            final double logVisits = Math.log(Math.max(1, parent.visits));
+            Node best = children[0];
+            double bestValue = Double.NEGATIVE_INFINITY;
+
+            for (Node child : children) {
+                final int visits = child.visits;
+
+                if (visits == 0)
+                    return child;
+
+                final double value = child.reward / (double) (WIN * visits)
+                        + exploration * Math.sqrt(logVisits / visits);
+
+                if (value > bestValue) {
+                    bestValue = value;
+                    best = child;
+                }
+            }
+
+            return best;
+        }
+
+        Node[] expand(Node node) {
+            if (moves.length < maxMovesPerPosition) {
+                moves = Arrays.copyOf(moves, maxMovesPerPosition);
+            }
+
+            final int count = rules.generateMoves(state, node.playerId, moves, 0);
+            final Node[] children;
+
+            if (count == 0) {
+                children = NO_CHILDREN;
+            } else {
+                final int nextPlayerId = rules.nextPlayer(node.playerId);
+                children = new Node[count];
+
+                for (int i = 0; i < count; i++) {
+                    children[i] = new Node(moves[i], node.playerId, nextPlayerId);
+                }
+            }
+
+            if (Node.CHILDREN.compareAndSet(node, null, children)) {
+                task.treeSize.addAndGet(children.length);
+                return children;
+            }
+
+            // Another worker expanded the node first
+            return node.children;
+        }
+
+        /**
+         * Returns a random int in [0, bound), from a xorshift generator
+         * owned by this worker.
+         */
+        int nextInt(int bound) {
+            long x = random;
+            x ^= x << 13;
+            x ^= x >>> 7;
+            x ^= x << 17;
+            random = x;
+            return (int) (((x >>> 33) * bound) >>> 31);
+        }
+    }
+
+}
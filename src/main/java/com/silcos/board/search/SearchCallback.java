@@ -0,0 +1,17 @@
+package com.silcos.board.search;
+
+/**
+ * Receives the result of a search that was run on the platform's
+ * compute threads.
+ */
+public interface SearchCallback {
+
+    /**
+     * Called once the search has finished, on one of the threads that
+     * ran it.
+     *
+     * @param result best move found
+     */
+    public void onSearchFinished(SearchResult result);
+
+}
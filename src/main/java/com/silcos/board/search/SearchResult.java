@@ -0,0 +1,51 @@
+package com.silcos.board.search;
+
+import com.silcos.board.PackedMove;
+
+/**
+ * Outcome of a search: the best move found, its score and how much work
+ * was done to find it.
+ */
+public class SearchResult {
+
+    /**
+     * Best move found, encoded by {@link PackedMove}, or
+     * {@code PackedMove.NONE} if the player had no moves.
+     */
+    public final long bestMove;
+
+    /**
+     * Score of the best move, from the searching player's point of view.
+     */
+    public final int score;
+
+    /**
+     * Depth of the deepest iteration that was completed.
+     */
+    public final int depth;
+
+    /**
+     * No. of positions visited.
+     */
+    public final long nodes;
+
+    public final long elapsedNanos;
+
+    public SearchResult(long bestMove, int score, int depth, long nodes, long elapsedNanos) {
+        this.bestMove = bestMove;
+        this.score = score;
+        this.depth = depth;
+        this.nodes = nodes;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public long nodesPerSecond() {
+        return (elapsedNanos > 0) ? (nodes * 1000000000L) / elapsedNanos : 0;
+    }
+
+    @Override
+    public String toString() {
+        return "SearchResult{move=" + PackedMove.toString(bestMove) + ", score=" + score +
+                ", depth=" + depth + ", nodes=" + nodes + ", nps=" + nodesPerSecond() + "}";
+    }
+}
@@ -0,0 +1,43 @@
+package com.silcos.board.search;
+
+import com.silcos.board.GameState;
+import com.silcos.board.MoveGenerator;
+
+/**
+ * {@code SearchRules} is what a game supplies to the search engines: it
+ * generates the moves available in a position and scores positions.
+ * {@code generateMoves} may write at most
+ * {@code getMaxMovesPerPosition()} moves of the engine it is used with.
+ *
+ * Implementations must not allocate on these paths; they are called
+ * for every node of the search, from several threads at once when the
+ * search is parallel (each thread with its own state).
+ *
+ * @param <S> type of state the game's positions are kept in
+ */
+public interface SearchRules<S extends GameState> extends MoveGenerator<S> {
+
+    /**
+     * Scores the state from the point of view of the given player -
+     * higher is better for that player, and the score for the opponent
+     * is the negation. This is also called for states in which the
+     * player has no moves, so it should score finished games too.
+     *
+     * @param state position to score
+     * @param playerId player from whose point of view to score
+     * @return score, strictly between -{@code AlphaBetaSearch.INFINITY}
+     *         and {@code AlphaBetaSearch.INFINITY}
+     */
+    public int evaluate(S state, int playerId);
+
+    /**
+     * Returns the player that moves after the given one. Returning the
+     * same player lets a player move several times in a row, e.g. for
+     * multi-jumps.
+     *
+     * @param playerId player that just moved
+     * @return player to move next
+     */
+    public int nextPlayer(int playerId);
+
+}
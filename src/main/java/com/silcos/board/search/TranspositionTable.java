@@ -0,0 +1,275 @@
+package com.silcos.board.search;
+
+import com.silcos.board.GameState;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * {@code TranspositionTable} remembers the results of searching
+ * positions, keyed by their {@link GameState#zobristKey}, so that a
+ * position reached again by another move order isn't searched twice.
+ *
+ * The table is preallocated and never grows. It is a {@code long[]} of
+ * buckets, each holding two entries of three longs: a check word, the
+ * best move, and the data word, which packs the score, depth, bound type
+ * and the generation it was stored in. The first entry of a bucket keeps
+ * the deepest result (depth-preferred), the second is always replaced.
+ *
+ * Many search threads can use one table without locks. The check word is
+ * the key XOR-ed with the other two words, so an entry torn by racing
+ * writers doesn't validate, and reads as a miss.
+ */
+public final class TranspositionTable {
+
+    /**
+     * Bound types: the score is exact, or only a lower or upper bound
+     * because the search of the position was cut off.
+     */
+    public static final int EXACT = 0;
+    public static final int LOWER_BOUND = 1;
+    public static final int UPPER_BOUND = 2;
+
+    /**
+     * Max. depth that can be stored; deeper results are stored as this.
+     */
+    public static final int MAX_STORED_DEPTH = 0xFF;
+
+    private static final int ENTRY_LONGS = 3;
+    private static final int BUCKET_LONGS = 2 * ENTRY_LONGS;
+    private static final int BUCKET_BYTES = BUCKET_LONGS * 8;
+
+    private static final long VALID = 1L << 63;
+    private static final int DEPTH_SHIFT = 32;
+    private static final int BOUND_SHIFT = 40;
+    private static final int GENERATION_SHIFT = 42;
+
+    private static final int COUNTER_STRIPES = 16;
+
+    /**
+     * Longs between two stripes of a counter, so that each stripe has
+     * its own cache line.
+     */
+    private static final int STRIPE_PADDING = 8;
+
+    private static final int HITS = 0;
+    private static final int MISSES = 1;
+    private static final int COLLISIONS = 2;
+    private static final int STORES = 3;
+    private static final int COUNTERS = 4;
+
+    private final long[] entries;
+    private final int bucketMask;
+
+    private final AtomicLongArray counters =
+            new AtomicLongArray(COUNTER_STRIPES * STRIPE_PADDING * COUNTERS);
+
+    private volatile int generation;
+
+    /**
+     * Creates a table with the given no. of buckets.
+     *
+     * @param bucketCount no. of buckets; rounded down to a power of 2
+     */
+    public TranspositionTable(int bucketCount) {
+        if (bucketCount < 1) {
+            throw new IllegalArgumentException("Table needs at least one bucket.");
+        }
+
+        final int buckets = Integer.highestOneBit(
+                Math.min(bucketCount, Integer.MAX_VALUE / BUCKET_LONGS));
+
+        this.entries = new long[buckets * BUCKET_LONGS];
+        this.bucketMask = buckets - 1;
+    }
+
+    /**
+     * Creates the largest table that fits in the given memory.
+     *
+     * @param megabytes memory to use
+     * @return new table
+     */
+    public static TranspositionTable ofMegabytes(int megabytes) {
+        return new TranspositionTable((int) Math.min(Integer.MAX_VALUE,
+                Math.max(1, megabytes * 1024L * 1024L / BUCKET_BYTES)));
+    }
+
+    public int getBucketCount() {
+        return bucketMask + 1;
+    }
+
+    public long getSizeInBytes() {
+        return (long) entries.length * 8;
+    }
+
+    /**
+     * Starts a new search; entries from earlier searches are replaced
+     * before those of the current one.
+     */
+    public void newSearch() {
+        generation = (generation + 1) & 0xFF;
+    }
+
+    /**
+     * Removes all entries, and resets the counters.
+     */
+    public void clear() {
+        Arrays.fill(entries, 0);
+
+        for (int i = 0; i < counters.length(); i++) {
+            counters.set(i, 0);
+        }
+    }
+
+    /**
+     * Looks up the position. On a hit, the best move and the data word
+     * are written to {@code out[0]} and {@code out[1]}; the data word is
+     * read with {@code score}, {@code depth} and {@code bound}.
+     *
+     * @param key hash of the position
+     * @param out array of at least 2 longs
+     * @return whether the position was found
+     */
+    public boolean probe(long key, long[] out) {
+        final int base = (int) (key & bucketMask) * BUCKET_LONGS;
+        boolean occupied = false;
+
+        for (int e = base; e < base + BUCKET_LONGS; e += ENTRY_LONGS) {
+            final long check = entries[e];
+            final long move = entries[e + 1];
+            final long data = entries[e + 2];
+
+            if ((data & VALID) == 0)
+                continue;
+
+            if ((check ^ move ^ data) == key) {
+                out[0] = move;
+                out[1] = data;
+                count(HITS);
+                return true;
+            }
+
+            occupied = true;
+        }
+
+        count(occupied ? COLLISIONS : MISSES);
+        return false;
+    }
+
+    /**
+     * Stores the result of searching the position.
+     *
+     * @param key hash of the position
+     * @param bestMove best move found, or {@code PackedMove.NONE}
+     * @param score score of the position
+     * @param depth depth the position was searched to
+     * @param bound {@code EXACT}, {@code LOWER_BOUND} or {@code UPPER_BOUND}
+     */
+    public void store(long key, long bestMove, int score, int depth, int bound) {
+        final int base = (int) (key & bucketMask) * BUCKET_LONGS;
+        final int generation = this.generation;
+        final int storedDepth = Math.max(0, Math.min(depth, MAX_STORED_DEPTH));
+        final long data = VALID
+                | (score & 0xFFFFFFFFL)
+                | ((long) storedDepth << DEPTH_SHIFT)
+                | ((long) (bound & 3) << BOUND_SHIFT)
+                | ((long) generation << GENERATION_SHIFT);
+
+        final long check = entries[base];
+        final long move = entries[base + 1];
+        final long old = entries[base + 2];
+
+        // The depth-preferred entry is replaced by the same position, by
+        // a result at least as deep, or if it is left from an old search.
+        final int e = ((old & VALID) == 0
+                || (check ^ move ^ old) == key
+                || storedDepth >= depth(old)
+                || generation(old) != generation) ? base : base + ENTRY_LONGS;
+
+        entries[e] = key ^ bestMove ^ data;
+        entries[e + 1] = bestMove;
+        entries[e + 2] = data;
+        count(STORES);
+    }
+
+    public static int score(long data) {
+        return (int) data;
+    }
+
+    public static int depth(long data) {
+        return (int) ((data >>> DEPTH_SHIFT) & 0xFF);
+    }
+
+    public static int bound(long data) {
+        return (int) ((data >>> BOUND_SHIFT) & 3);
+    }
+
+    private static int generation(long data) {
+        return (int) ((data >>> GENERATION_SHIFT) & 0xFF);
+    }
+
+    public long getHits() {
+        return sum(HITS);
+    }
+
+    /**
+     * Returns the no. of probes that found the bucket empty.
+     *
+     * @return no. of misses
+     */
+    public long getMisses() {
+        return sum(MISSES);
+    }
+
+    /**
+     * Returns the no. of probes that found the bucket holding other
+     * positions; many collisions mean the table is too small.
+     *
+     * @return no. of collisions
+     */
+    public long getCollisions() {
+        return sum(COLLISIONS);
+    }
+
+    public long getStores() {
+        return sum(STORES);
+    }
+
+    /**
+     * Returns the share of the first 1000 buckets' entries that were
+     * stored in the current search, in permille.
+     *
+     * @return usage of the table, from 0 to 1000
+     */
+    public int hashFull() {
+        final int buckets = Math.min(1000, bucketMask + 1);
+        final int generation = this.generation;
+        int used = 0;
+
+        for (int e = 0; e < buckets * BUCKET_LONGS; e += ENTRY_LONGS) {
+            final long data = entries[e + 2];
+
+            if ((data & VALID) != 0 && generation(data) == generation) {
+                ++used;
+            }
+        }
+
+        return used * 1000 / (buckets * 2);
+    }
+
+    private void count(int counter) {
+        final int stripe = (int) Thread.currentThread().getId() & (COUNTER_STRIPES - 1);
+        counters.incrementAndGet((stripe * COUNTERS + counter) * STRIPE_PADDING);
+    }
+
+    private long sum(int counter) {
+        long sum = 0;
+
+        for (int stripe = 0; stripe < COUNTER_STRIPES; stripe++) {
+            sum += counters.get((stripe * COUNTERS + counter) * STRIPE_PADDING);
+        }
+
+        return sum;
+    }
+
+}
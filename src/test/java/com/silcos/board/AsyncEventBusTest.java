@@ -0,0 +1,150 @@
+package com.silcos.board;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class AsyncEventBusTest {
+
+    static class BatchRecorder implements BoardEventBatchListener {
+
+        final List<Event> events = new ArrayList<>();
+        int batches;
+
+        @Override
+        public void handleEvents(Event[] events, int count) {
+            ++batches;
+
+            for (int i = 0; i < count; i++) {
+                this.events.add(events[i]);
+            }
+        }
+
+        @Override
+        public void handleEvent(Event e) {
+            events.add(e);
+        }
+    }
+
+    @Test
+    public void events_areDeliveredLaterInOneBatch() {
+        final ManualProvider provider = new ManualProvider();
+        final AsyncEventBus bus = new AsyncEventBus(provider, 16);
+        final BatchRecorder recorder = new BatchRecorder();
+        final TestGame game = new TestGame(4);
+
+        bus.subscribe(recorder);
+        game.addBoardEventListener(bus);
+
+        game.dispatchEvent(new FinishEvent(game, 0));
+        game.dispatchEvent(new FinishEvent(game, 1));
+
+        // Consumers stay off the event lane
+        assertEquals(1, provider.taskNames.size());
+        assertEquals(BoardPlatformProvider.COMPUTER_TASK, provider.taskNames.get(0));
+
+        assertEquals(0, recorder.events.size());
+        assertEquals(1, provider.tasks.size());
+        assertEquals(2, bus.getBacklog(recorder));
+
+        provider.runAll();
+
+        assertEquals(2, recorder.events.size());
+        assertEquals(1, recorder.batches);
+        assertEquals(1, ((FinishEvent) recorder.events.get(1)).winnerId);
+    }
+
+    @Test
+    public void supersededTicks_areCoalesced() {
+        final ManualProvider provider = new ManualProvider();
+        final AsyncEventBus bus = new AsyncEventBus(provider, 16);
+        final BatchRecorder recorder = new BatchRecorder();
+        final TestGame game = new TestGame(4);
+
+        bus.subscribe(recorder);
+
+        bus.handleEvent(new TimerTickEvent(1, 0, 30, game));
+        bus.handleEvent(new TimerTickEvent(1, 1, 20, game));
+        bus.handleEvent(new TimerTickEvent(1, 0, 29, game));
+        bus.handleEvent(new FinishEvent(game, 0));
+        bus.handleEvent(new TimerTickEvent(1, 0, 28, game));
+        provider.runAll();
+
+        assertEquals(3, recorder.events.size());
+        assertEquals(20, ((TimerTickEvent) recorder.events.get(0)).newValue);
+        assertTrue(recorder.events.get(1) instanceof FinishEvent);
+        assertEquals(28, ((TimerTickEvent) recorder.events.get(2)).newValue);
+        assertEquals(2, bus.getCoalescedTicks(recorder));
+    }
+
+    @Test
+    public void laggingConsumer_skipsOverwrittenEvents() {
+        final ManualProvider provider = new ManualProvider();
+        final AsyncEventBus bus = new AsyncEventBus(provider, 4);
+        final BatchRecorder recorder = new BatchRecorder();
+        final TestGame game = new TestGame(4);
+
+        bus.subscribe(recorder);
+
+        for (int i = 0; i < 10; i++) {
+            bus.handleEvent(new FinishEvent(game, i));
+        }
+
+        provider.runAll();
+
+        assertEquals(4, recorder.events.size());
+        assertEquals(6, ((FinishEvent) recorder.events.get(0)).winnerId);
+        assertEquals(6, bus.getDroppedEvents(recorder));
+    }
+
+    @Test
+    public void lappedConsumer_neverSeesEventsOutOfOrder() throws InterruptedException {
+        final BoardPlatformProvider provider = new BoardPlatformProvider() {
+            @Override
+            public void runComputeIntensiveTask(String taskName, Runnable taskExec) {
+                new Thread(taskExec).start();
+            }
+
+            @Override
+            public void runComputeIntensiveTaskAfter(int ms, String taskName, Runnable taskExec) {
+                throw new UnsupportedOperationException();
+            }
+        };
+        final AsyncEventBus bus = new AsyncEventBus(provider, 4, 2);
+        final TestGame game = new TestGame(4);
+        final AtomicInteger last = new AtomicInteger(-1);
+        final AtomicBoolean outOfOrder = new AtomicBoolean();
+        final int total = 200000;
+
+        bus.subscribe(new BoardEventListener() {
+            @Override
+            public void handleEvent(Event e) {
+                final int winnerId = ((FinishEvent) e).winnerId;
+
+                if (winnerId <= last.get()) {
+                    outOfOrder.set(true);
+                }
+
+                last.set(winnerId);
+            }
+        });
+
+        for (int i = 0; i < total; i++) {
+            bus.handleEvent(new FinishEvent(game, i));
+        }
+
+        final long deadline = System.currentTimeMillis() + 10000;
+
+        while (last.get() < total - 1 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+
+        assertEquals(total - 1, last.get());
+        assertFalse(outOfOrder.get());
+    }
+}
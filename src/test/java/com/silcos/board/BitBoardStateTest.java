@@ -0,0 +1,147 @@
+package com.silcos.board;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class BitBoardStateTest {
+
+    @Test
+    public void of_roundTripsThroughStateCache() {
+        final TestGame game = new TestGame(4);
+        game.controller().placeMove(new Move(true, 0, 1, 2, 1));
+        game.pieceAt(2, 1).setStatus(1);
+
+        final BitBoardState state = BitBoardState.of(game, 2);
+        final BoardMonoStateCache cache = BoardMonoStateCache.buildCache(game);
+
+        assertTrue(state instanceof SmallBitBoardState);
+        assertEquals(cache.zobristKey(), state.zobristKey());
+        assertEquals(cache, state.toStateCache());
+        assertEquals(0, state.ownerAt(state.offsetOf(2, 1)));
+        assertEquals(1, state.kindAt(state.offsetOf(2, 1)));
+        assertEquals(-1, state.ownerAt(state.offsetOf(0, 1)));
+        assertEquals(1, state.countPieces(0, 1));
+        assertEquals(3, state.countPieces(0, 0));
+    }
+
+    @Test
+    public void makeMove_isUndoneByUnmakeMove() {
+        final BitBoardState state = BitBoardState.of(new TestGame(4), 1);
+        final long key = state.zobristKey();
+        final long capture = PackedMove.encode(0, 0, 3, 0);
+
+        assertTrue(state.isCapture(capture));
+        assertFalse(state.isCapture(PackedMove.encode(0, 0, 1, 0)));
+
+        state.makeMove(capture);
+        assertEquals(3, state.countPieces(1));
+        assertTrue(state.isOccupiedBy(0, state.offsetOf(3, 0)));
+        assertFalse(state.isOccupied(state.offsetOf(0, 0)));
+        assertNotEquals(key, state.zobristKey());
+
+        final BitBoardState copy = state.copyState();
+
+        state.unmakeMove();
+        assertEquals(key, state.zobristKey());
+        assertEquals(4, state.countPieces(1));
+        assertTrue(state.isOccupiedBy(1, state.offsetOf(3, 0)));
+        assertEquals(0, state.madeMoveCount());
+
+        // Copies don't share masks with their source
+        assertEquals(3, copy.countPieces(1));
+    }
+
+    @Test
+    public void smallState_setOperationsMatchGeometry() {
+        final SmallBitBoardState state = (SmallBitBoardState) BitBoardState.of(new TestGame(5), 1);
+        final BoardGeometry geometry = BoardGeometry.of(5, 5);
+
+        for (int cell = 0; cell < geometry.cellCount(); cell++) {
+            long expected = 0;
+
+            for (int i = geometry.neighbors8Start(cell); i < geometry.neighbors8Start(cell + 1); i++) {
+                expected |= 1L << geometry.neighbors8()[i];
+            }
+
+            assertEquals(expected, state.neighbors8(1L << cell));
+
+            for (int d = 0; d < BoardGeometry.DIRECTION_COUNT; d++) {
+                final long shifted = state.shift(1L << cell, d);
+
+                if (geometry.rayLength(cell, d) == 0) {
+                    assertEquals(0, shifted);
+                } else {
+                    assertEquals(1L << (cell + geometry.step(d)), shifted);
+                }
+            }
+        }
+
+        // Stops at, and includes, the opponent's piece in row 4
+        final long ray = state.ray(state.offsetOf(1, 2), BoardGeometry.SOUTH);
+        assertEquals((1L << state.offsetOf(2, 2)) | (1L << state.offsetOf(3, 2))
+                | (1L << state.offsetOf(4, 2)), ray);
+    }
+
+    @Test
+    public void smallState_shiftsOffSingleRowBoards() {
+        for (int cols = 62; cols <= 64; cols++) {
+            final SmallBitBoardState state = new SmallBitBoardState(new TestGame(4), 1, cols, 2, 1);
+            final BoardGeometry geometry = BoardGeometry.of(1, cols);
+
+            for (int cell = 0; cell < cols; cell++) {
+                for (int d = 0; d < BoardGeometry.DIRECTION_COUNT; d++) {
+                    final long shifted = state.shift(1L << cell, d);
+
+                    if (geometry.rayLength(cell, d) == 0) {
+                        assertEquals(0, shifted);
+                    } else {
+                        assertEquals(1L << (cell + geometry.step(d)), shifted);
+                    }
+                }
+            }
+
+            // Rays off the only row end at once on the empty board
+            assertEquals(0, state.ray(0, BoardGeometry.NORTH));
+            assertEquals(0, state.ray(cols - 1, BoardGeometry.SOUTH_EAST));
+            assertEquals(Long.bitCount(state.boardMask()) - 1,
+                    Long.bitCount(state.ray(0, BoardGeometry.EAST)));
+        }
+    }
+
+    @Test
+    public void wideState_setOperationsMatchGeometry() {
+        final WideBitBoardState state = (WideBitBoardState) BitBoardState.of(new TestGame(9), 1);
+        final BoardGeometry geometry = BoardGeometry.of(9, 9);
+        final long[] set = new long[state.words()];
+        final long[] out = new long[state.words()];
+
+        assertEquals(2, state.words());
+        assertEquals(9, state.countPieces(1));
+        assertTrue(state.isOccupiedBy(1, state.offsetOf(8, 8)));
+
+        for (int cell = 0; cell < geometry.cellCount(); cell++) {
+            set[0] = 0;
+            set[1] = 0;
+            set[cell >>> 6] = 1L << cell;
+            state.neighbors8(set, out);
+
+            int count = 0;
+
+            for (int i = geometry.neighbors8Start(cell); i < geometry.neighbors8Start(cell + 1); i++) {
+                final int neighbor = geometry.neighbors8()[i];
+                assertTrue((out[neighbor >>> 6] & (1L << neighbor)) != 0);
+            }
+
+            for (long word : out) {
+                count += Long.bitCount(word);
+            }
+
+            assertEquals(geometry.neighbors8Start(cell + 1) - geometry.neighbors8Start(cell), count);
+        }
+
+        state.ray(state.offsetOf(0, 4), BoardGeometry.SOUTH, out);
+        assertEquals(8, Long.bitCount(out[0]) + Long.bitCount(out[1]));
+        assertTrue((out[1] & (1L << state.offsetOf(8, 4))) != 0);
+    }
+}
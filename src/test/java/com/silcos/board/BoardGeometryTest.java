@@ -0,0 +1,95 @@
+package com.silcos.board;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class BoardGeometryTest {
+
+    private static final int HEIGHT = 5;
+    private static final int WIDTH = 7;
+
+    @Test
+    public void of_sharesGeometryPerSize() {
+        assertSame(BoardGeometry.of(HEIGHT, WIDTH), BoardGeometry.of(HEIGHT, WIDTH));
+        assertNotSame(BoardGeometry.of(HEIGHT, WIDTH), BoardGeometry.of(WIDTH, HEIGHT));
+        assertSame(BoardGeometry.of(4, 4), new TestGame(4).board().getGeometry());
+    }
+
+    @Test
+    public void tables_matchStaticUtilities() {
+        final BoardGeometry geometry = BoardGeometry.of(HEIGHT, WIDTH);
+
+        for (int a = 0; a < geometry.cellCount(); a++) {
+            final int r1 = a / WIDTH;
+            final int c1 = a % WIDTH;
+
+            assertEquals(Board.isEdgeCell(r1, c1, WIDTH, HEIGHT), geometry.isEdge(a));
+            assertEquals(Board.isCornerCell(r1, c1, WIDTH, HEIGHT), geometry.isCorner(a));
+            assertEquals(Board.isNotCornerButEdgeCell(r1, c1, WIDTH, HEIGHT),
+                    geometry.isEdgeButNotCorner(a));
+
+            int adjacent = 0;
+            int sideAdjacent = 0;
+
+            for (int b = 0; b < geometry.cellCount(); b++) {
+                final int r2 = b / WIDTH;
+                final int c2 = b % WIDTH;
+
+                assertEquals(Board.netDistance(r1, c1, r2, c2), geometry.netDistance(a, b));
+                assertEquals(Board.areAdjacent(r1, c1, r2, c2), geometry.areAdjacent(a, b));
+
+                if (Board.areAdjacent(r1, c1, r2, c2)) {
+                    ++adjacent;
+                    assertTrue(contains(geometry.neighbors8(), geometry.neighbors8Start(a),
+                            geometry.neighbors8Start(a + 1), b));
+                }
+
+                if (Board.netDistance(r1, c1, r2, c2) == 1) {
+                    ++sideAdjacent;
+                    assertTrue(contains(geometry.neighbors4(), geometry.neighbors4Start(a),
+                            geometry.neighbors4Start(a + 1), b));
+                }
+            }
+
+            assertEquals(adjacent, geometry.neighbors8Start(a + 1) - geometry.neighbors8Start(a));
+            assertEquals(sideAdjacent,
+                    geometry.neighbors4Start(a + 1) - geometry.neighbors4Start(a));
+        }
+    }
+
+    @Test
+    public void rays_runToTheEdge() {
+        final BoardGeometry geometry = BoardGeometry.of(HEIGHT, WIDTH);
+        final int cell = 1 * WIDTH + 2;
+
+        assertEquals(1, geometry.rayLength(cell, BoardGeometry.NORTH));
+        assertEquals(1, geometry.rayLength(cell, BoardGeometry.NORTH_EAST));
+        assertEquals(4, geometry.rayLength(cell, BoardGeometry.EAST));
+        assertEquals(3, geometry.rayLength(cell, BoardGeometry.SOUTH_EAST));
+        assertEquals(3, geometry.rayLength(cell, BoardGeometry.SOUTH));
+        assertEquals(2, geometry.rayLength(cell, BoardGeometry.SOUTH_WEST));
+        assertEquals(2, geometry.rayLength(cell, BoardGeometry.WEST));
+        assertEquals(1, geometry.rayLength(cell, BoardGeometry.NORTH_WEST));
+
+        final int step = geometry.step(BoardGeometry.SOUTH_EAST);
+        int last = cell;
+
+        for (int n = geometry.rayLength(cell, BoardGeometry.SOUTH_EAST), at = cell + step;
+                n > 0; n--, at += step) {
+            assertTrue(geometry.areAdjacent(last, at));
+            last = at;
+        }
+
+        assertEquals(4 * WIDTH + 5, last);
+    }
+
+    private static boolean contains(int[] values, int from, int to, int value) {
+        for (int i = from; i < to; i++) {
+            if (values[i] == value)
+                return true;
+        }
+
+        return false;
+    }
+}
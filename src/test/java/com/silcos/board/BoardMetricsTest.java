@@ -0,0 +1,136 @@
+package com.silcos.board;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class BoardMetricsTest {
+
+    @Test
+    public void histogram_percentilesWithinPrecision() {
+        final LatencyHistogram histogram = new LatencyHistogram(6);
+
+        for (long v = 1; v <= 100000; v++) {
+            histogram.record(v * 1000);
+        }
+
+        final LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+
+        assertEquals(100000, snapshot.getCount());
+        assertEquals(100000000, snapshot.getMaxNanos());
+        assertEquals(50000500, snapshot.getMeanNanos());
+        assertEquals(50000000, snapshot.getValueAtPercentile(50), 50000000 / 32.0);
+        assertEquals(99000000, snapshot.getValueAtPercentile(99), 99000000 / 32.0);
+        assertEquals(100000000, snapshot.getValueAtPercentile(100));
+
+        histogram.reset();
+        assertEquals(0, histogram.snapshot().getValueAtPercentile(99));
+    }
+
+    @Test
+    public void game_recordsMovesDispatchAndLateness() {
+        final TestGame game = new TestGame(4);
+        final ManualProvider provider = new ManualProvider();
+        final BoardMetrics metrics = new BoardMetrics();
+        final BoardEventListener listener = new BoardEventListener() {
+            @Override
+            public void handleEvent(Event e) {
+            }
+        };
+
+        game.setPlatformProvider(provider);
+        game.addBoardEventListener(BoardGame.PIECE_MOVE_EVENT, listener);
+        game.attachTimer(new Timer(2, 1, game)).resetAll(100);
+        game.setMetrics(metrics);
+
+        game.getTimer().start(0);
+        assertTrue(game.controller().placeMove(new Move(true, 0, 0, 1, 0)));
+        assertFalse(game.controller().placeMove(new Move(true, 3, 0, 3, 1)));
+
+        // The tick scheduled for each player; the first was cancelled
+        assertEquals(2, provider.tasks.size());
+        provider.tasks.remove(0).run();
+        provider.tasks.remove(0).run();
+
+        final BoardMetrics.Snapshot snapshot = metrics.snapshot();
+
+        assertEquals(1, snapshot.acceptedMoves);
+        assertEquals(1, snapshot.rejectedMoves);
+        assertEquals(2, snapshot.moveValidation.getCount());
+        assertEquals(1, snapshot.listenerDispatch.get(listener).getCount());
+
+        assertEquals(1, snapshot.timerLateness.getCount());
+        assertEquals(99, game.getTimer().getPlayerTime(1));
+    }
+
+    @Test
+    public void listeners_areForgottenOnRemovalAndCapped() {
+        final TestGame game = new TestGame(4);
+        final BoardMetrics metrics = new BoardMetrics();
+        final BoardEventListener removed = new BoardEventListener() {
+            @Override
+            public void handleEvent(Event e) {
+            }
+        };
+
+        game.setMetrics(metrics);
+        game.addBoardEventListener(BoardGame.PIECE_MOVE_EVENT, removed);
+        assertTrue(game.controller().placeMove(new Move(true, 0, 0, 1, 0)));
+        assertTrue(metrics.snapshot().listenerDispatch.containsKey(removed));
+
+        game.removeBoardEventListener(removed);
+        assertFalse(metrics.snapshot().listenerDispatch.containsKey(removed));
+
+        // Past the cap, new listeners go into the shared histogram
+        metrics.reset();
+
+        for (int i = 0; i <= BoardMetrics.MAX_TRACKED_LISTENERS; i++) {
+            metrics.recordDispatch(new BoardEventListener() {
+                @Override
+                public void handleEvent(Event e) {
+                }
+            }, 1000);
+        }
+
+        final BoardMetrics.Snapshot snapshot = metrics.snapshot();
+
+        assertEquals(BoardMetrics.MAX_TRACKED_LISTENERS, snapshot.listenerDispatch.size());
+        assertEquals(1, snapshot.otherListenerDispatch.getCount());
+    }
+
+    @Test
+    public void finishedGames_freeTheirListenersSlots() {
+        final BoardMetrics metrics = new BoardMetrics();
+        final TestGame finished = new TestGame(4);
+
+        finished.setMetrics(metrics);
+
+        for (int i = 0; i < BoardMetrics.MAX_TRACKED_LISTENERS; i++) {
+            finished.addBoardEventListener(new BoardEventListener() {
+                @Override
+                public void handleEvent(Event e) {
+                }
+            });
+        }
+
+        assertTrue(finished.controller().placeMove(new Move(true, 0, 0, 1, 0)));
+        assertEquals(BoardMetrics.MAX_TRACKED_LISTENERS,
+                metrics.snapshot().listenerDispatch.size());
+
+        finished.dispatchEvent(new FinishEvent(finished, 0));
+        assertTrue(metrics.snapshot().listenerDispatch.isEmpty());
+
+        // The next game's listeners are tracked one by one again
+        final TestGame next = new TestGame(4);
+        final BoardEventListener listener = new BoardEventListener() {
+            @Override
+            public void handleEvent(Event e) {
+            }
+        };
+
+        next.setMetrics(metrics);
+        next.addBoardEventListener(BoardGame.PIECE_MOVE_EVENT, listener);
+        assertTrue(next.controller().placeMove(new Move(true, 0, 0, 1, 0)));
+        assertEquals(1, metrics.snapshot().listenerDispatch.get(listener).getCount());
+    }
+}
@@ -0,0 +1,83 @@
+package com.silcos.board;
+
+import org.junit.Test;
+
+import java.util.HashSet;
+
+import static org.junit.Assert.*;
+
+public class BoardMonoStateCacheTest {
+
+    @Test
+    public void makeMove_matchesDoMove() {
+        final TestGame game = new TestGame(6);
+        final BoardMonoStateCache state = BoardMonoStateCache.buildCache(game);
+        final BoardMonoStateCache expected = state
+                .doMove(new Move(true, 0, 1, 3, 1), 6, 6)
+                .doMove(new Move(true, 5, 4, 3, 1), 6, 6);
+
+        state.makeMove(0, 1, 3, 1);
+        state.makeMove(5, 4, 3, 1);
+
+        assertEquals(2, state.madeMoveCount());
+        assertEquals(expected, state);
+        assertEquals(expected.zobristKey(), state.zobristKey());
+        assertSame(game.getPlayer(1).myPieces[4], state.pieceAt(3, 1));
+    }
+
+    @Test
+    public void unmakeMove_restoresCapturedPieces() {
+        final TestGame game = new TestGame(6);
+        final BoardMonoStateCache state = BoardMonoStateCache.buildCache(game);
+        final BoardMonoStateCache initial = BoardMonoStateCache.copyCache(state, 6, 6);
+        final long initialKey = state.zobristKey();
+
+        for (int c = 0; c < 6; c++) {
+            state.makeMove(0, c, 5, 5 - c);
+        }
+
+        assertNull(state.pieceAt(0, 3));
+
+        for (int c = 0; c < 6; c++) {
+            state.unmakeMove();
+        }
+
+        assertEquals(0, state.madeMoveCount());
+        assertEquals(initialKey, state.zobristKey());
+        assertEquals(initial, state);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void unmakeMove_withoutMoveFails() {
+        BoardMonoStateCache.buildCache(new TestGame(4)).unmakeMove();
+    }
+
+    @Test
+    public void croppedStates_canBeComparedAndHashed() {
+        final BoardMonoStateCache state = BoardMonoStateCache.buildCache(new TestGame(4));
+        final BoardMonoStateCache cropped = BoardMonoStateCache.copyCache(state, 3, 3);
+        final HashSet<BoardMonoStateCache> states = new HashSet<>();
+
+        states.add(cropped);
+
+        assertTrue(states.contains(BoardMonoStateCache.copyCache(state, 3, 3)));
+        assertNotEquals(state, cropped);
+        assertNotEquals(cropped, state.doMove(new Move(true, 0, 0, 1, 0), 3, 3));
+    }
+
+    @Test
+    public void paddedCopy_hasEmptyPadding() {
+        final BoardMonoStateCache state = BoardMonoStateCache.buildCache(new TestGame(4));
+        final BoardMonoStateCache padded = BoardMonoStateCache.copyCache(state, 5, 6);
+
+        for (int r = 0; r < 5; r++) {
+            for (int c = 0; c < 6; c++) {
+                if (r < 4 && c < 4) {
+                    assertSame(state.pieceAt(r, c), padded.pieceAt(r, c));
+                } else {
+                    assertNull(padded.pieceAt(r, c));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,198 @@
+package com.silcos.board;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+
+import static org.junit.Assert.*;
+
+public class BoardMultiStateCacheTest {
+
+    static class Stack implements StackedCell {
+
+        private final ArrayList<Piece> holders = new ArrayList<>();
+
+        @Override
+        public int getHolderCount() {
+            return holders.size();
+        }
+
+        @Override
+        public Piece getHolder(int index) {
+            return holders.get(index);
+        }
+
+        @Override
+        public void pushHolder(Piece o) {
+            holders.add(o);
+        }
+
+        @Override
+        public Piece popHolder() {
+            return holders.isEmpty() ? null : holders.remove(holders.size() - 1);
+        }
+
+        @Override
+        public Piece getHolder() {
+            return holders.isEmpty() ? null : holders.get(holders.size() - 1);
+        }
+
+        @Override
+        public void setHolder(Piece o) {
+            holders.clear();
+
+            if (o != null) {
+                holders.add(o);
+            }
+        }
+    }
+
+    static class StackedBoard extends Board {
+
+        StackedBoard(int size) {
+            super(size, size);
+            allocateCellData();
+
+            for (int r = 0; r < size; r++) {
+                for (int c = 0; c < size; c++) {
+                    cellData[r][c] = new Stack();
+                }
+            }
+        }
+
+        @Override
+        public boolean handle(Move directMove) {
+            return false;
+        }
+    }
+
+    /**
+     * A game on a stacked board, with player 0's first three pieces
+     * stacked on (0, 0) and player 1's first piece on (3, 3).
+     */
+    private static TestGame newStackedGame() {
+        final TestGame game = new TestGame(4);
+        final StackedBoard board = new StackedBoard(4);
+        final StackedCell home = (StackedCell) board.getCell(0, 0);
+
+        for (int i = 0; i < 3; i++) {
+            home.pushHolder(game.getPlayer(0).myPieces[i]);
+        }
+
+        board.getCell(3, 3).setHolder(game.getPlayer(1).myPieces[0]);
+        game.mBoard = board;
+        return game;
+    }
+
+    @Test
+    public void buildCache_keepsWholeStacks() {
+        final TestGame game = newStackedGame();
+        final BoardMultiStateCache cache = BoardMultiStateCache.buildCache(game);
+
+        assertEquals(3, cache.heightAt(0, 0));
+        assertSame(game.getPlayer(0).myPieces[0], cache.pieceAt(0, 0, 0));
+        assertSame(game.getPlayer(0).myPieces[2], cache.pieceAt(0, 0));
+        assertSame(game.getPlayer(1).myPieces[0], cache.pieceAt(3, 3));
+        assertNull(cache.pieceAt(1, 1));
+    }
+
+    @Test
+    public void singlePieces_hashLikeMonoStateCache() {
+        final TestGame game = new TestGame(4);
+
+        assertEquals(BoardMonoStateCache.buildCache(game).zobristKey(),
+                BoardMultiStateCache.buildCache(game).zobristKey());
+    }
+
+    @Test
+    public void makeMove_isUndoneByUnmakeMove() {
+        final TestGame game = newStackedGame();
+        final BoardMultiStateCache cache = BoardMultiStateCache.buildCache(game);
+        final BoardMultiStateCache start = cache.copyState();
+        final long key = cache.zobristKey();
+
+        cache.makeMove(PackedMove.encode(0, 0, 3, 3, 2));
+        assertEquals(1, cache.heightAt(0, 0));
+        assertEquals(3, cache.heightAt(3, 3));
+        assertSame(game.getPlayer(0).myPieces[1], cache.pieceAt(3, 3, 1));
+        assertSame(game.getPlayer(0).myPieces[2], cache.pieceAt(3, 3));
+        assertNotEquals(key, cache.zobristKey());
+
+        cache.makeMove(new Move(true, 3, 3, 2, 2));
+        assertSame(game.getPlayer(0).myPieces[2], cache.pieceAt(2, 2));
+
+        cache.unmakeMove();
+        cache.unmakeMove();
+        assertEquals(key, cache.zobristKey());
+        assertEquals(start, cache);
+        assertSame(game.getPlayer(0).myPieces[2], cache.pieceAt(0, 0));
+        assertEquals(0, cache.madeMoveCount());
+    }
+
+    @Test
+    public void stackOrder_isPartOfTheHash() {
+        final TestGame game = newStackedGame();
+        final BoardMultiStateCache cache = BoardMultiStateCache.buildCache(game);
+        final BoardMultiStateCache reordered = BoardMultiStateCache.buildCache(game);
+
+        reordered.popPiece(0, 0);
+        reordered.popPiece(0, 0);
+        reordered.pushPiece(game.getPlayer(0).myPieces[2], 0, 0);
+        reordered.pushPiece(game.getPlayer(0).myPieces[1], 0, 0);
+
+        assertNotEquals(cache.zobristKey(), reordered.zobristKey());
+        assertNotEquals(cache, reordered);
+    }
+
+    @Test
+    public void deepStacks_surviveRelocationAndCopies() {
+        final TestGame game = newStackedGame();
+        final BoardMultiStateCache cache = BoardMultiStateCache.buildCache(game);
+        final long key = cache.zobristKey();
+
+        // Shuffle pieces around so that runs outgrow the pool several times
+        for (int i = 0; i < 200; i++) {
+            cache.makeMove(0, 0, 1 + i % 3, i % 4, 1);
+            cache.makeMove(1 + i % 3, i % 4, 0, 0, 1);
+            cache.pushPiece(game.getPlayer(1).myPieces[1], 2, 2);
+        }
+
+        final BoardMultiStateCache copy = cache.copyState();
+
+        assertEquals(200, copy.heightAt(2, 2));
+        assertEquals(cache, copy);
+        assertEquals(cache.zobristKey(), copy.zobristKey());
+
+        for (int i = 0; i < 200; i++) {
+            assertSame(game.getPlayer(1).myPieces[1], cache.popPiece(2, 2));
+        }
+
+        while (cache.madeMoveCount() > 0) {
+            cache.unmakeMove();
+        }
+
+        assertEquals(key, cache.zobristKey());
+        assertEquals(BoardMultiStateCache.buildCache(game), cache);
+        assertEquals(200, copy.heightAt(2, 2));
+    }
+
+    @Test
+    public void croppedStates_canBeComparedAndHashed() {
+        final BoardMultiStateCache cache = BoardMultiStateCache.buildCache(newStackedGame());
+        final BoardMultiStateCache cropped = BoardMultiStateCache.copyCache(cache, 3, 3);
+        final HashSet<BoardMultiStateCache> states = new HashSet<>();
+
+        states.add(cropped);
+
+        assertTrue(states.contains(BoardMultiStateCache.copyCache(cache, 3, 3)));
+        assertEquals(3, cropped.heightAt(0, 0));
+        assertNotEquals(cache, cropped);
+        assertNotEquals(cropped, cache.doMove(new Move(true, 0, 0, 1, 1), 3, 3));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void makeMove_rejectsMovingMoreThanTheStack() {
+        BoardMultiStateCache.buildCache(newStackedGame()).makeMove(3, 3, 2, 2, 2);
+    }
+}
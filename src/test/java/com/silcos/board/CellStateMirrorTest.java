@@ -0,0 +1,93 @@
+package com.silcos.board;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class CellStateMirrorTest {
+
+    @Test
+    public void snapshot_matchesBoardAfterMoves() {
+        final TestGame game = new TestGame(4);
+
+        game.enableSnapshots();
+        assertEquals(BoardMonoStateCache.buildCache(game), game.snapshot());
+
+        game.controller().placeMove(new Move(true, 0, 1, 2, 1));
+        game.controller().placeMove(new Move(true, 3, 2, 2, 1));
+
+        final BoardMonoStateCache snapshot = game.snapshot();
+        assertEquals(BoardMonoStateCache.buildCache(game), snapshot);
+        assertEquals(1, snapshot.pieceAt(2, 1).playerId());
+        assertNull(snapshot.pieceAt(0, 1));
+    }
+
+    @Test
+    public void rejectedMoves_leaveTheVersionAsItWas() {
+        final TestGame game = new TestGame(4);
+        final CellStateMirror mirror = game.enableSnapshots();
+        final long before = mirror.version();
+
+        // (1, 0) is empty
+        assertFalse(game.controller().placeMove(new Move(true, 1, 0, 2, 0)));
+        assertEquals(before, mirror.version());
+
+        assertTrue(game.controller().placeMove(new Move(true, 0, 0, 1, 0)));
+        assertEquals(before + 1, mirror.version());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void snapshot_requiresEnabling() {
+        new TestGame(4).snapshot();
+    }
+
+    @Test
+    public void readers_neverSeeHalfAMove() throws InterruptedException {
+        final TestGame game = new TestGame(4);
+        final CellStateMirror mirror = game.enableSnapshots();
+        final AtomicBoolean done = new AtomicBoolean();
+        final AtomicInteger torn = new AtomicInteger();
+
+        final Thread reader = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                final long[] cells = new long[16];
+
+                while (!done.get()) {
+                    mirror.read(cells);
+                    int pieces = 0;
+
+                    for (long cell : cells) {
+                        if (cell != -1) {
+                            ++pieces;
+                        }
+                    }
+
+                    if (pieces != 8) {
+                        torn.incrementAndGet();
+                    }
+                }
+            }
+        });
+        reader.start();
+
+        final long before = mirror.version();
+
+        for (int i = 0; i < 20000; i++) {
+            if (i % 2 == 0) {
+                game.controller().placeMove(new Move(true, 0, 0, 1, 0));
+            } else {
+                game.controller().placeMove(new Move(true, 1, 0, 0, 0));
+            }
+        }
+
+        done.set(true);
+        reader.join();
+
+        assertEquals(0, torn.get());
+        assertEquals(20000, mirror.version() - before);
+    }
+}
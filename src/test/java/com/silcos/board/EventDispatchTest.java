@@ -0,0 +1,77 @@
+package com.silcos.board;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class EventDispatchTest {
+
+    static class RecordingListener implements BoardEventListener {
+
+        final List<Integer> types = new ArrayList<>();
+
+        @Override
+        public void handleEvent(Event e) {
+            types.add(e.typeId());
+        }
+    }
+
+    @Test
+    public void typedListeners_onlyReceiveTheirType() {
+        final TestGame game = new TestGame(4);
+        final RecordingListener all = new RecordingListener();
+        final RecordingListener ticks = new RecordingListener();
+
+        game.addBoardEventListener(all);
+        game.addBoardEventListener(BoardGame.TIMER_TICK_EVENT, ticks);
+
+        game.dispatchEvent(new TimerTickEvent(1, 0, 10, game));
+        game.dispatchEvent(new FinishEvent(game, 0));
+
+        assertEquals(2, all.types.size());
+        assertEquals(1, ticks.types.size());
+        assertEquals(BoardGame.TIMER_TICK_EVENT, (int) ticks.types.get(0));
+    }
+
+    @Test
+    public void listenersSubscribedTwice_receiveEachEventOnce() {
+        final TestGame game = new TestGame(4);
+        final RecordingListener twice = new RecordingListener();
+
+        game.addBoardEventListener(BoardGame.TIMER_TICK_EVENT, twice);
+        game.addBoardEventListener(twice);
+        game.addBoardEventListener(twice);
+
+        game.dispatchEvent(new TimerTickEvent(1, 0, 10, game));
+        game.dispatchEvent(new FinishEvent(game, 0));
+        assertEquals(2, twice.types.size());
+
+        // Still subscribed to all types
+        game.removeBoardEventListener(BoardGame.TIMER_TICK_EVENT, twice);
+        game.dispatchEvent(new TimerTickEvent(1, 0, 9, game));
+        assertEquals(3, twice.types.size());
+    }
+
+    @Test
+    public void listeners_canBeRemovedDuringDispatch() {
+        final TestGame game = new TestGame(4);
+        final RecordingListener later = new RecordingListener();
+
+        game.addBoardEventListener(BoardGame.GAME_FINISH_EVENT, new BoardEventListener() {
+            @Override
+            public void handleEvent(Event e) {
+                game.removeBoardEventListener(this);
+                game.removeBoardEventListener(later);
+            }
+        });
+        game.addBoardEventListener(later);
+
+        game.dispatchEvent(new FinishEvent(game, 0));
+        game.dispatchEvent(new FinishEvent(game, 0));
+
+        assertEquals(1, later.types.size());
+    }
+}
@@ -0,0 +1,107 @@
+package com.silcos.board;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class GameHostTest {
+
+    @Test
+    public void tasksOfOneGame_neverOverlap() throws InterruptedException {
+        final GameHost host = new GameHost(4);
+        final TestGame[] games = {new TestGame(4), new TestGame(4), new TestGame(4)};
+        final int[] counters = new int[games.length];
+        final AtomicInteger[] running = new AtomicInteger[games.length];
+        final AtomicBoolean overlapped = new AtomicBoolean();
+        final int perThread = 2000;
+        final Thread[] producers = new Thread[4];
+
+        for (int g = 0; g < games.length; g++) {
+            host.host(games[g]);
+            running[g] = new AtomicInteger();
+        }
+
+        for (int t = 0; t < producers.length; t++) {
+            producers[t] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < perThread; i++) {
+                        final int g = i % games.length;
+
+                        host.execute(games[g], new Runnable() {
+                            @Override
+                            public void run() {
+                                if (running[g].incrementAndGet() != 1) {
+                                    overlapped.set(true);
+                                }
+
+                                ++counters[g];
+                                running[g].decrementAndGet();
+                            }
+                        });
+                    }
+                }
+            });
+            producers[t].start();
+        }
+
+        for (Thread producer : producers) {
+            producer.join();
+        }
+
+        final CountDownLatch drained = new CountDownLatch(games.length);
+
+        for (TestGame game : games) {
+            host.execute(game, new Runnable() {
+                @Override
+                public void run() {
+                    drained.countDown();
+                }
+            });
+        }
+
+        assertTrue(drained.await(10, TimeUnit.SECONDS));
+        assertFalse(overlapped.get());
+
+        int total = 0;
+
+        for (int count : counters) {
+            total += count;
+        }
+
+        assertEquals(perThread * producers.length, total);
+        host.shutdown();
+    }
+
+    @Test
+    public void hostedGame_runsMovesAndEventsInMailbox() throws InterruptedException {
+        final GameHost host = new GameHost(2);
+        final TestGame game = new TestGame(4);
+        final BoardPlatformProvider original = game.getPlatformProvider();
+        final CountDownLatch moved = new CountDownLatch(1);
+
+        host.host(game);
+        assertNotSame(original, game.getPlatformProvider());
+
+        game.addBoardEventListener(BoardGame.PIECE_MOVE_EVENT, new BoardEventListener() {
+            @Override
+            public void handleEvent(Event e) {
+                moved.countDown();
+            }
+        });
+
+        host.placeMove(game, new Move(true, 0, 0, 1, 0));
+        assertTrue(moved.await(5, TimeUnit.SECONDS));
+        assertNotNull(game.pieceAt(1, 0));
+
+        host.unhost(game);
+        assertSame(original, game.getPlatformProvider());
+        assertEquals(0, host.getGameCount());
+        host.shutdown();
+    }
+}
@@ -0,0 +1,171 @@
+package com.silcos.board;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import static org.junit.Assert.*;
+
+public class GameJournalTest {
+
+    private static File newDirectory() throws IOException {
+        final File dir = File.createTempFile("journal", "");
+
+        if (!dir.delete() || !dir.mkdir()) {
+            throw new IOException("Cannot create " + dir);
+        }
+
+        dir.deleteOnExit();
+        return dir;
+    }
+
+    @Test
+    public void replay_rebuildsGame() throws IOException {
+        final File dir = newDirectory();
+        final GameJournal journal = new GameJournal(dir, 64, 0);
+        final TestGame game = new TestGame(4);
+        final TestGame other = new TestGame(4);
+
+        journal.attach(game, 7);
+        journal.attach(other, 8);
+
+        game.controller().placeMove(new Move(true, 0, 0, 1, 0));
+        other.controller().placeMove(new Move(true, 0, 3, 1, 3));
+        game.controller().placeMove(new Move(true, 3, 1, 1, 0));
+        game.controller().placeMove(new Move(true, 0, 2, 1, 2));
+        game.controller().undoMove();
+        game.controller().placeMove(new Move(true, 0, 1, 1, 1));
+
+        assertEquals(6, journal.getRecordCount());
+        assertTrue(journal.getSegmentIndex() > 0);
+        journal.close();
+
+        final TestGame recovered = new TestGame(4);
+
+        assertEquals(5, GameJournal.replay(dir, 7, recovered));
+        assertEquals(game.zobristKey(), recovered.zobristKey());
+        assertEquals(game.getMoveCount(), recovered.getMoveCount());
+
+        for (int i = 0; i < game.getMoveCount(); i++) {
+            assertEquals(game.getMoveLog().get(i), recovered.getMoveLog().get(i));
+        }
+
+        assertEquals(3, recovered.getPlayerStat(0).livePieces());
+    }
+
+    /**
+     * Returns a game that player 0 wins by moving a piece onto row 3;
+     * the win is raised by a move listener, ahead of the journal's.
+     */
+    private static TestGame newRaceGame() {
+        final TestGame game = new TestGame(4);
+
+        game.addBoardEventListener(BoardGame.PIECE_MOVE_EVENT, new BoardEventListener() {
+            @Override
+            public void handleEvent(Event e) {
+                if (((MoveEvent) e).destRow == 3 && ((Piece) ((MoveEvent) e).targetHolder)
+                        .playerId() == 0) {
+                    game.controller().acceptResignation(0);
+                }
+            }
+        });
+
+        return game;
+    }
+
+    @Test
+    public void replay_gameWonByAMove() throws IOException {
+        final File dir = newDirectory();
+        final GameJournal journal = new GameJournal(dir, 1024, 0);
+        final TestGame game = newRaceGame();
+
+        journal.attach(game, 3);
+        game.controller().placeMove(new Move(true, 0, 0, 1, 0));
+        game.controller().placeMove(new Move(true, 3, 3, 2, 3));
+        game.controller().placeMove(new Move(true, 1, 0, 3, 0));
+        assertTrue(game.isDead());
+        journal.close();
+
+        final TestGame recovered = newRaceGame();
+
+        assertEquals(4, GameJournal.replay(dir, 3, recovered));
+        assertTrue(recovered.isDead());
+        assertEquals(3, recovered.getMoveCount());
+        assertEquals(game.zobristKey(), recovered.zobristKey());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void replay_rejectedMoveThrows() throws IOException {
+        final File dir = newDirectory();
+        final GameJournal journal = new GameJournal(dir, 1024, 0);
+        final TestGame game = new TestGame(4);
+
+        journal.attach(game, 4);
+        game.controller().placeMove(new Move(true, 0, 0, 1, 0));
+        journal.close();
+
+        final TestGame recovered = new TestGame(4);
+        recovered.controller().acceptResignation(1);
+        GameJournal.replay(dir, 4, recovered);
+    }
+
+    @Test
+    public void close_detachesGames() throws IOException {
+        final GameJournal journal = new GameJournal(newDirectory(), 1024, 0);
+        final TestGame game = new TestGame(4);
+
+        journal.attach(game, 5);
+        journal.close();
+
+        assertTrue(game.controller().placeMove(new Move(true, 0, 0, 1, 0)));
+        assertEquals(1, game.controller().playerRotator.getCurrentId());
+        assertEquals(0, journal.getRecordCount());
+    }
+
+    @Test
+    public void movesRacingWithClose_arentJournaled() throws IOException {
+        final GameJournal journal = new GameJournal(newDirectory(), 1024, 0);
+        final TestGame game = new TestGame(4);
+
+        // Closes the journal while the move is being dispatched, after the
+        // journal's listener was picked for it
+        game.addBoardEventListener(BoardGame.PIECE_MOVE_EVENT, new BoardEventListener() {
+            @Override
+            public void handleEvent(Event e) {
+                journal.close();
+            }
+        });
+        journal.attach(game, 5);
+
+        assertTrue(game.controller().placeMove(new Move(true, 0, 0, 1, 0)));
+        assertEquals(0, journal.getRecordCount());
+    }
+
+    @Test
+    public void reopen_appendsAfterLastValidRecord() throws IOException {
+        final File dir = newDirectory();
+        GameJournal journal = new GameJournal(dir, 1024, 0);
+
+        journal.append(1, GameJournal.FINISH_RECORD, 0);
+        journal.append(1, GameJournal.ELIMINATION_RECORD, 1);
+        journal.close();
+
+        // A torn record after the valid ones is ignored, and overwritten
+        final RandomAccessFile raf = new RandomAccessFile(new File(dir, "journal-00000000.seg"),
+                "rw");
+        raf.seek(2 * GameJournal.RECORD_SIZE + 12);
+        raf.writeShort(GameJournal.MOVE_RECORD);
+        raf.close();
+
+        journal = new GameJournal(dir, 1024, 0);
+        journal.append(2, GameJournal.FINISH_RECORD, 1);
+        journal.close();
+
+        final TestGame game = new TestGame(4);
+        assertEquals(1, GameJournal.replay(dir, 2, game));
+        assertTrue(game.isDead());
+        assertEquals(2, GameJournal.replay(dir, 1, new TestGame(4)));
+    }
+}
@@ -0,0 +1,69 @@
+package com.silcos.board;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class GameSnapshotTest {
+
+    private static TestGame newTimedGame() {
+        final TestGame game = new TestGame(4);
+        game.setPlatformProvider(new ManualProvider());
+        game.attachTimer(new Timer(2, 1000, game)).resetAll(300);
+        return game;
+    }
+
+    @Test
+    public void read_restoresLiveGame() {
+        final TestGame game = newTimedGame();
+
+        game.getTimer().start(0);
+        game.controller().placeMove(new Move(true, 0, 0, 1, 0));
+        game.controller().placeMove(new Move(true, 3, 1, 1, 0));
+        game.controller().placeMove(new Move(true, 0, 2, 1, 2));
+        game.controller().placeMove(new Move(true, 3, 3, 2, 3));
+        game.controller().undoMove();
+        game.getTimer().dispatchTick(game.getTimer().dispatchId);
+        game.pieceAt(1, 2).setStatus(5);
+
+        final byte[] data = GameSnapshot.toByteArray(game);
+        assertTrue(data.length < 200);
+
+        final TestGame restored = newTimedGame();
+        GameSnapshot.read(data, restored);
+
+        assertEquals(game.zobristKey(), restored.zobristKey());
+        assertEquals(game.getMoveCount(), restored.getMoveCount());
+
+        for (int i = 0; i < game.getMoveCount(); i++) {
+            assertEquals(game.getMoveLog().get(i), restored.getMoveLog().get(i));
+        }
+
+        assertEquals(1, restored.controller().playerRotator.getCurrentId());
+        assertEquals(3, restored.getPlayerStat(0).livePieces());
+        assertEquals(5, restored.pieceAt(1, 2).getStatus());
+        assertEquals(299, restored.getTimer().getPlayerTime(1));
+        assertEquals(1, restored.getTimer().getCurrentPlayerId());
+
+        // The piece killed is found again when its capture is taken back
+        assertTrue(restored.controller().redoMove());
+        assertTrue(restored.controller().undoMove());
+        assertTrue(restored.controller().undoMove());
+        assertTrue(restored.controller().undoMove());
+        assertEquals(4, restored.getPlayerStat(0).livePieces());
+        assertSame(restored.getPlayer(0).myPieces[0], restored.pieceAt(1, 0));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void read_needsARewindableRotator() {
+        final TestGame game = new TestGame(4);
+
+        game.useForwardOnlyRotator();
+        GameSnapshot.read(GameSnapshot.toByteArray(new TestGame(4)), game);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void read_rejectsOtherBoardSize() {
+        GameSnapshot.read(GameSnapshot.toByteArray(new TestGame(4)), new TestGame(5));
+    }
+}
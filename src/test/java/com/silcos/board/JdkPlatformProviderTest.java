@@ -0,0 +1,230 @@
+package com.silcos.board;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.silcos.board.BoardPlatformProvider.COMPUTER_TASK;
+import static com.silcos.board.BoardPlatformProvider.GAME_EVENT_TASK;
+import static org.junit.Assert.*;
+
+public class JdkPlatformProviderTest {
+
+    @Test
+    public void tasks_runAndAreCounted() throws InterruptedException {
+        final JdkPlatformProvider provider = new JdkPlatformProvider();
+        final CountDownLatch done = new CountDownLatch(3);
+        final Runnable countDown = new Runnable() {
+            @Override
+            public void run() {
+                done.countDown();
+            }
+        };
+
+        provider.runComputeIntensiveTask(COMPUTER_TASK, countDown);
+        provider.runComputeIntensiveTask(GAME_EVENT_TASK, countDown);
+        provider.runComputeIntensiveTaskAfter(20, GAME_EVENT_TASK, countDown);
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        provider.shutdown();
+        assertTrue(provider.awaitTermination(5, TimeUnit.SECONDS));
+
+        assertEquals(1, provider.getStats(COMPUTER_TASK).getCompletedTasks());
+        assertEquals(2, provider.getStats(GAME_EVENT_TASK).getCompletedTasks());
+        assertEquals(0, provider.getStats(GAME_EVENT_TASK).getQueueDepth());
+    }
+
+    @Test
+    public void fullQueue_appliesRejectionPolicy() throws InterruptedException {
+        final JdkPlatformProvider provider = new JdkPlatformProvider(1, 1, 1,
+                InstrumentedPlatformProvider.RejectionPolicy.DISCARD);
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch started = new CountDownLatch(1);
+        final AtomicInteger runs = new AtomicInteger();
+
+        provider.runComputeIntensiveTask(GAME_EVENT_TASK, new Runnable() {
+            @Override
+            public void run() {
+                started.countDown();
+
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        final Runnable count = new Runnable() {
+            @Override
+            public void run() {
+                runs.incrementAndGet();
+            }
+        };
+
+        provider.runComputeIntensiveTask(GAME_EVENT_TASK, count);
+        provider.runComputeIntensiveTask(GAME_EVENT_TASK, count);
+
+        final InstrumentedPlatformProvider.TaskStats stats = provider.getStats(GAME_EVENT_TASK);
+        assertEquals(1, stats.getQueueDepth());
+        assertEquals(1, stats.getRejectedTasks());
+
+        release.countDown();
+        provider.shutdown();
+        assertTrue(provider.awaitTermination(5, TimeUnit.SECONDS));
+        assertEquals(1, runs.get());
+    }
+
+    @Test
+    public void callerRuns_neverRunsEventTasksOnTheCaller() throws InterruptedException {
+        final JdkPlatformProvider provider = new JdkPlatformProvider(1, 1, 1,
+                InstrumentedPlatformProvider.RejectionPolicy.CALLER_RUNS);
+        final CountDownLatch release = new CountDownLatch(1);
+        final Thread caller = Thread.currentThread();
+        final List<Integer> order = Collections.synchronizedList(new ArrayList<Integer>());
+        final AtomicInteger onCaller = new AtomicInteger();
+
+        provider.runComputeIntensiveTask(GAME_EVENT_TASK, new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+
+        for (int i = 0; i < 5; i++) {
+            final int index = i;
+
+            provider.runComputeIntensiveTask(GAME_EVENT_TASK, new Runnable() {
+                @Override
+                public void run() {
+                    if (Thread.currentThread() == caller)
+                        onCaller.incrementAndGet();
+
+                    order.add(index);
+                }
+            });
+        }
+
+        assertTrue(order.isEmpty());
+
+        release.countDown();
+        provider.shutdown();
+        assertTrue(provider.awaitTermination(5, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList(0, 1, 2, 3, 4), order);
+        assertEquals(0, onCaller.get());
+        assertEquals(0, provider.getStats(GAME_EVENT_TASK).getRejectedTasks());
+    }
+
+    @Test(expected = RejectedExecutionException.class)
+    public void abortPolicy_throws() {
+        final JdkPlatformProvider provider = new JdkPlatformProvider(1, 1, 1,
+                InstrumentedPlatformProvider.RejectionPolicy.ABORT);
+        final Runnable idle = new Runnable() {
+            @Override
+            public void run() {
+            }
+        };
+
+        provider.runComputeIntensiveTaskAfter(10000, COMPUTER_TASK, idle);
+        provider.runComputeIntensiveTaskAfter(10000, COMPUTER_TASK, idle);
+    }
+
+    @Test
+    public void hostedGames_runTheirEventsInLanesOfTheirOwn() throws InterruptedException {
+        final VirtualThreadPlatformProvider provider = new VirtualThreadPlatformProvider(16,
+                InstrumentedPlatformProvider.RejectionPolicy.CALLER_RUNS,
+                Executors.newCachedThreadPool());
+        final TestGame blocked = new TestGame(4);
+        final TestGame other = new TestGame(4);
+        final BoardPlatformProvider previous = other.getPlatformProvider();
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch otherDone = new CountDownLatch(1);
+        final List<Integer> order = Collections.synchronizedList(new ArrayList<Integer>());
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger overlaps = new AtomicInteger();
+
+        provider.host(blocked);
+        provider.host(other);
+        assertTrue(provider.isHosting(other));
+
+        blocked.getPlatformProvider().runComputeIntensiveTask(GAME_EVENT_TASK, new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+
+        for (int i = 0; i < 20; i++) {
+            final int index = i;
+
+            other.getPlatformProvider().runComputeIntensiveTask(GAME_EVENT_TASK,
+                    new Runnable() {
+                        @Override
+                        public void run() {
+                            if (running.incrementAndGet() > 1)
+                                overlaps.incrementAndGet();
+
+                            order.add(index);
+                            running.decrementAndGet();
+
+                            if (index == 19)
+                                otherDone.countDown();
+                        }
+                    });
+        }
+
+        // One game's slow event doesn't hold up the other game
+        assertTrue(otherDone.await(5, TimeUnit.SECONDS));
+        assertEquals(0, overlaps.get());
+
+        for (int i = 0; i < 20; i++) {
+            assertEquals(i, (int) order.get(i));
+        }
+
+        release.countDown();
+        provider.unhost(other);
+        assertSame(previous, other.getPlatformProvider());
+
+        provider.shutdown();
+        assertTrue(provider.awaitTermination(5, TimeUnit.SECONDS));
+        assertEquals(21, provider.getStats(GAME_EVENT_TASK).getCompletedTasks());
+    }
+
+    @Test
+    public void virtualThreads_runTasksWhereSupported() throws InterruptedException {
+        if (!VirtualThreadPlatformProvider.isSupported())
+            return;
+
+        final VirtualThreadPlatformProvider provider = new VirtualThreadPlatformProvider();
+        final CountDownLatch done = new CountDownLatch(2);
+        final Runnable countDown = new Runnable() {
+            @Override
+            public void run() {
+                done.countDown();
+            }
+        };
+
+        provider.runComputeIntensiveTask(COMPUTER_TASK, countDown);
+        provider.runComputeIntensiveTaskAfter(10, GAME_EVENT_TASK, countDown);
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        provider.shutdown();
+    }
+}
@@ -0,0 +1,36 @@
+package com.silcos.board;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Platform provider used by the unit tests. Tasks, delayed or not, are
+ * queued until the test runs them, so tests decide when timer ticks,
+ * prefetching or bus consumers happen.
+ */
+class ManualProvider extends BoardPlatformProvider {
+
+    final List<Runnable> tasks = new ArrayList<>();
+    final List<String> taskNames = new ArrayList<>();
+
+    @Override
+    public void runComputeIntensiveTask(String taskName, Runnable taskExec) {
+        tasks.add(taskExec);
+        taskNames.add(taskName);
+    }
+
+    @Override
+    public void runComputeIntensiveTaskAfter(int ms, String taskName, Runnable taskExec) {
+        tasks.add(taskExec);
+        taskNames.add(taskName);
+    }
+
+    /**
+     * Runs the queued tasks, and any they queue, in order.
+     */
+    void runAll() {
+        while (!tasks.isEmpty()) {
+            tasks.remove(0).run();
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.silcos.board;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class MonotonicTimerTest {
+
+    static class ManualClockTimer extends MonotonicTimer {
+
+        long now;
+
+        ManualClockTimer(BoardGame game, TimerWheel wheel) {
+            super(2, 1000, game, wheel);
+        }
+
+        @Override
+        protected long nanoTime() {
+            return now;
+        }
+
+        void elapse(long millis) {
+            now += millis * 1000000L;
+        }
+    }
+
+    @Test
+    public void remainingTime_isComputedFromClock() {
+        final TestGame game = new TestGame(4);
+        final TimerWheel wheel = new TimerWheel(100, 16);
+        final ManualClockTimer timer = new ManualClockTimer(game, wheel);
+
+        timer.resetAll(10);
+        timer.start(0);
+        timer.elapse(2500);
+
+        assertEquals(7500000000L, timer.getRemainingNanos(0));
+        assertEquals(8, timer.getPlayerTime(0));
+
+        timer.switchTo(1);
+        timer.elapse(1000);
+        assertEquals(8, timer.getPlayerTime(0));
+        assertEquals(9, timer.getPlayerTime(1));
+
+        timer.pause();
+        timer.elapse(5000);
+        assertEquals(9, timer.getPlayerTime(1));
+        assertEquals(0, wheel.pendingTimeouts());
+    }
+
+    @Test
+    public void singleWakeUp_eliminatesOnFlagFall() {
+        final TestGame game = new TestGame(4);
+        final ManualProvider provider = new ManualProvider();
+        game.setPlatformProvider(provider);
+
+        final TimerWheel wheel = new TimerWheel(100, 16);
+        final ManualClockTimer timer = new ManualClockTimer(game, wheel);
+        final List<Event> events = new ArrayList<>();
+
+        game.addBoardEventListener(new BoardEventListener() {
+            @Override
+            public void handleEvent(Event e) {
+                if (e instanceof TimerTickEvent || e instanceof EliminationEvent) {
+                    events.add(e);
+                }
+            }
+        });
+
+        timer.resetAll(2);
+        timer.start(0);
+        assertEquals(1, wheel.pendingTimeouts());
+
+        for (int i = 0; i < 20; i++) {
+            timer.elapse(100);
+            wheel.advance();
+            provider.runAll();
+        }
+
+        assertEquals(1, events.size());
+        assertTrue(events.get(0) instanceof EliminationEvent);
+        assertEquals(0, timer.getPlayerTime(0));
+        assertEquals(0, wheel.pendingTimeouts());
+    }
+
+    @Test
+    public void displayTicks_andInvokeAt() {
+        final TestGame game = new TestGame(4);
+        final ManualProvider provider = new ManualProvider();
+        game.setPlatformProvider(provider);
+
+        final TimerWheel wheel = new TimerWheel(100, 16);
+        final ManualClockTimer timer = new ManualClockTimer(game, wheel);
+        final List<Integer> ticks = new ArrayList<>();
+        final int[] invoked = new int[1];
+
+        game.addBoardEventListener(BoardGame.TIMER_TICK_EVENT, new BoardEventListener() {
+            @Override
+            public void handleEvent(Event e) {
+                ticks.add(((TimerTickEvent) e).newValue);
+            }
+        });
+
+        timer.setDisplayInterval(1000).resetAll(10);
+        timer.start(0);
+        timer.invokeAt(3, new Runnable() {
+            @Override
+            public void run() {
+                ++invoked[0];
+            }
+        });
+
+        for (int i = 0; i < 35; i++) {
+            timer.elapse(100);
+            wheel.advance();
+            provider.runAll();
+        }
+
+        assertEquals(3, ticks.size());
+        assertEquals(Integer.valueOf(7), ticks.get(2));
+        assertEquals(1, invoked[0]);
+        assertEquals(1, wheel.pendingTimeouts());
+    }
+}
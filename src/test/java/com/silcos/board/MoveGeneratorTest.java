@@ -0,0 +1,98 @@
+package com.silcos.board;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class MoveGeneratorTest {
+
+    /**
+     * Pieces step one row towards the opponent, onto empty cells only.
+     */
+    static final MoveGenerator<Board> STEP_FORWARD = new MoveGenerator<Board>() {
+        @Override
+        public int generateMoves(Board position, int playerId, long[] moves, int offset) {
+            final int forward = (playerId == 0) ? 1 : -1;
+            int count = offset;
+
+            for (int r = 0; r < position.getHeight(); r++) {
+                final int dstRow = r + forward;
+
+                if (dstRow < 0 || dstRow >= position.getHeight())
+                    continue;
+
+                for (int c = 0; c < position.getWidth(); c++) {
+                    final Piece piece = position.pieceAt(r, c);
+
+                    if (piece != null && piece.playerId() == playerId
+                            && position.pieceAt(dstRow, c) == null) {
+                        moves[count++] = PackedMove.encode(r, c, dstRow, c);
+                    }
+                }
+            }
+
+            return count - offset;
+        }
+    };
+
+    @Test(expected = IllegalStateException.class)
+    public void generateMoves_needsAGenerator() {
+        new TestGame(4).generateMoves(0, new long[16], 0);
+    }
+
+    @Test
+    public void packedMoves_holdTheirLargestValues() {
+        final long packed = PackedMove.encode(PackedMove.MAX_COORDINATE, 0, 1,
+                PackedMove.MAX_COORDINATE, PackedMove.MAX_PAYLOAD);
+
+        assertEquals(PackedMove.MAX_COORDINATE, PackedMove.decodeSrcRow(packed));
+        assertEquals(PackedMove.MAX_COORDINATE, PackedMove.decodeDstCol(packed));
+        assertEquals(PackedMove.MAX_PAYLOAD, PackedMove.decodePayload(packed));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void packedMoves_rejectCoordinatesBeyond12Bits() {
+        PackedMove.encode(0, PackedMove.MAX_COORDINATE + 1, 1, 1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void packedMoves_rejectNegativeCoordinates() {
+        PackedMove.encode(0, 0, -1, 1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void packedMoves_rejectPayloadsBeyond16Bits() {
+        PackedMove.encode(0, 0, 1, 1, PackedMove.MAX_PAYLOAD + 1);
+    }
+
+    @Test
+    public void generatedMoves_canBePlaced() {
+        final TestGame game = new TestGame(4);
+        final long[] moves = new long[16];
+
+        game.setMoveGenerator(STEP_FORWARD);
+        assertSame(STEP_FORWARD, game.getMoveGenerator());
+
+        moves[0] = PackedMove.NONE;
+        assertEquals(4, game.generateMoves(0, moves, 1));
+        assertEquals(PackedMove.NONE, moves[0]);
+        assertEquals(PackedMove.encode(0, 0, 1, 0), moves[1]);
+
+        final Move move = MoveFactory.newMove(game.mBoard, moves[3]);
+        assertTrue(move.isVisible());
+        assertEquals(0, move.getSrcRow());
+        assertEquals(2, move.getSrcCol());
+        assertEquals(1, move.getDstRow());
+        assertEquals(2, move.getDstCol());
+
+        final Piece moved = game.pieceAt(0, 2);
+        assertTrue(game.controller().placeMove(moves[3]));
+        assertSame(moved, game.pieceAt(1, 2));
+        assertNull(game.pieceAt(0, 2));
+
+        // The live board is read on each call; blocking (1, 2) leaves three
+        assertEquals(4, game.generateMoves(1, moves, 0));
+        assertTrue(game.controller().placeMove(moves[2]));
+        assertEquals(3, game.generateMoves(0, moves, 0));
+    }
+}
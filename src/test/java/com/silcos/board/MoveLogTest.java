@@ -0,0 +1,101 @@
+package com.silcos.board;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class MoveLogTest {
+
+    @Test
+    public void entries_roundTripMoveFields() {
+        final MoveLog log = new MoveLog(1);
+        final Move move = new Move(true, 7, 6, 0, 255);
+        move.killedPieceId = -1;
+
+        log.append(move, 3, null);
+        log.append(new Move(false, 1, 2, 3, 4), 1, new Piece(11, 0));
+
+        assertEquals(2, log.size());
+
+        final Move first = log.toMove(0);
+        assertTrue(first.isVisible());
+        assertEquals(7, first.getSrcRow());
+        assertEquals(6, first.getSrcCol());
+        assertEquals(0, first.getDstRow());
+        assertEquals(255, first.getDstCol());
+        assertEquals(-1, first.killedPieceId);
+        assertEquals(3, MoveLog.moverId(log.get(0)));
+        assertEquals(-1, MoveLog.capturedPlayerId(log.get(0)));
+
+        final long second = log.get(1);
+        assertFalse(MoveLog.isVisible(second));
+        assertEquals(11, MoveLog.killedPieceId(second));
+        assertEquals(0, MoveLog.capturedPlayerId(second));
+        assertEquals(PackedMove.encode(1, 2, 3, 4), MoveLog.toPackedMove(second));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void encode_rejectsKilledPieceIdsBeyond16Bits() {
+        final Move move = new Move(true, 0, 0, 1, 1);
+        move.killedPieceId = 1 << 16;
+
+        MoveLog.encode(move, 0, null);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void encode_rejectsMoverIdsBeyond7Bits() {
+        MoveLog.encode(new Move(true, 0, 0, 1, 1), 128, null);
+    }
+
+    @Test
+    public void placeMove_rejectsMovesTheLogCantHoldBeforeApplyingThem() {
+        final TestGame game = new TestGame(300);
+        final Piece piece = game.pieceAt(0, 299);
+
+        try {
+            game.controller().placeMove(new Move(true, 0, 299, 1, 299));
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+
+        assertSame(piece, game.pieceAt(0, 299));
+        assertNull(game.pieceAt(1, 299));
+        assertEquals(0, game.getMoveCount());
+        assertEquals(0, game.controller().playerRotator.getCurrentId());
+    }
+
+    @Test
+    public void compress_roundTripsAndShrinks() {
+        final MoveLog log = new MoveLog();
+
+        for (int i = 0; i < 200; i++) {
+            final Piece captured = (i % 7 == 0) ? new Piece(i % 12, (i + 1) % 2) : null;
+            log.append(new Move(true, i % 8, (i * 3) % 8, (i * 5) % 8, (i * 7) % 8),
+                    i % 2, captured);
+        }
+
+        final byte[] archived = log.compress();
+        final MoveLog restored = MoveLog.decompress(archived);
+
+        assertTrue(archived.length < log.size() * 4);
+        assertEquals(log.size(), restored.size());
+
+        for (int i = 0; i < log.size(); i++) {
+            assertEquals(log.get(i), restored.get(i));
+        }
+    }
+
+    @Test
+    public void gameHistory_isRecordedInLog() {
+        final TestGame game = new TestGame(6);
+
+        assertTrue(game.controller().placeMove(new Move(true, 0, 0, 5, 0)));
+        assertTrue(game.controller().placeMove(PackedMove.encode(5, 1, 4, 1)));
+
+        assertEquals(2, game.getMoveCount());
+        assertEquals(0, MoveLog.moverId(game.getMoveLog().get(0)));
+        assertEquals(1, MoveLog.capturedPlayerId(game.getMoveLog().get(0)));
+        assertEquals(1, MoveLog.moverId(game.getMoveLog().get(1)));
+        assertEquals(4, game.getMove(1).getDstRow());
+    }
+}
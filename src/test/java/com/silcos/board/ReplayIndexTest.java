@@ -0,0 +1,112 @@
+package com.silcos.board;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ReplayIndexTest {
+
+    /**
+     * Plays 20 moves, shuffling the pieces on rows 0 and 3 between rows
+     * 1 and 2, and returns the position after each.
+     */
+    private static List<BoardMonoStateCache> play(TestGame game) {
+        final List<BoardMonoStateCache> positions = new ArrayList<>();
+        positions.add(BoardMonoStateCache.buildCache(game));
+
+        for (int i = 0; i < 20; i++) {
+            final int col = (i / 2) % 4;
+            final boolean forward = (i / 8) % 2 == 0;
+
+            if (i % 2 == 0) {
+                game.controller().placeMove(forward ? new Move(true, 0, col, 1, col)
+                        : new Move(true, 1, col, 0, col));
+            } else {
+                game.controller().placeMove(forward ? new Move(true, 3, col, 2, col)
+                        : new Move(true, 2, col, 3, col));
+            }
+
+            positions.add(BoardMonoStateCache.buildCache(game));
+        }
+
+        return positions;
+    }
+
+    @Test
+    public void positionAt_matchesPlayedPositions() {
+        final TestGame game = new TestGame(4);
+        final BoardMonoStateCache initial = BoardMonoStateCache.buildCache(game);
+        final List<BoardMonoStateCache> positions = play(game);
+        final ReplayIndex index = ReplayIndex.forGame(game, initial, 6);
+
+        assertEquals(20, index.size());
+        assertEquals(4, index.getCheckpointCount());
+
+        for (int n = 20; n >= 0; n--) {
+            assertEquals(positions.get(n), index.positionAt(n));
+        }
+    }
+
+    @Test
+    public void index_isntChangedByLaterMoves() {
+        final TestGame game = new TestGame(4);
+        final BoardMonoStateCache initial = BoardMonoStateCache.buildCache(game);
+        final List<BoardMonoStateCache> positions = play(game);
+        final ReplayIndex index = ReplayIndex.forGame(game, initial, 6);
+
+        // Take back a few moves, then play past the next checkpoint
+        for (int i = 0; i < 3; i++) {
+            assertTrue(game.controller().undoMove());
+        }
+
+        for (int i = 0; i < 10; i++) {
+            final int playerId = game.controller().playerRotator.getCurrentId();
+            final Piece piece = game.getPlayer(playerId).myPieces[i % 4];
+
+            outer:
+            for (int r = 0; r < 4; r++) {
+                for (int c = 0; c < 4; c++) {
+                    if (game.pieceAt(r, c) == piece) {
+                        assertTrue(game.controller().placeMove(new Move(true, r, c,
+                                (r == 1) ? 2 : 1, c)));
+                        break outer;
+                    }
+                }
+            }
+        }
+
+        assertEquals(27, game.getMoveCount());
+        assertEquals(20, index.size());
+
+        for (int n = 20; n >= 0; n--) {
+            assertEquals(positions.get(n), index.positionAt(n));
+        }
+    }
+
+    @Test
+    public void prefetch_servesSequentialPlayback() {
+        final TestGame game = new TestGame(4);
+        final BoardMonoStateCache initial = BoardMonoStateCache.buildCache(game);
+        final List<BoardMonoStateCache> positions = play(game);
+        final ReplayIndex index = ReplayIndex.forGame(game, initial, 8);
+        final ManualProvider provider = new ManualProvider();
+
+        index.enablePrefetch(provider, 6);
+        index.positionAt(0);
+        assertEquals(1, provider.tasks.size());
+        provider.runAll();
+
+        BoardMonoStateCache previous = null;
+
+        for (int n = 1; n <= 20; n++) {
+            final BoardMonoStateCache position = index.positionAt(n);
+            assertEquals(positions.get(n), position);
+            assertNotSame(previous, position);
+            previous = position;
+            provider.runAll();
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.silcos.board;
+
+/**
+ * Minimal two-player game used by the unit tests. Each player owns a
+ * row of pieces at their own end of the board, and any piece may move
+ * to any cell that doesn't hold a piece of the same player.
+ */
+class TestGame extends BoardGame {
+
+    static class TestBoard extends FlatBoard {
+
+        TestBoard(int height, int width) {
+            super(height, width);
+        }
+
+        @Override
+        public boolean handle(Move directMove) {
+            final Piece moved = pieceAt(directMove.getSrcRow(), directMove.getSrcCol());
+            final Piece target = pieceAt(directMove.getDstRow(), directMove.getDstCol());
+
+            if (moved == null || (target != null && target.playerId() == moved.playerId()))
+                return false;
+
+            movePiece(offsetOf(directMove.getSrcRow(), directMove.getSrcCol()),
+                    offsetOf(directMove.getDstRow(), directMove.getDstCol()));
+            return true;
+        }
+    }
+
+    static class TestPlayer extends Player {
+
+        TestPlayer(BoardGame work, int id, int pieceCount) {
+            super(work, work.mController);
+            allocatePieces(pieceCount, id);
+        }
+
+        @Override
+        public void initAfterGame() {
+        }
+    }
+
+    TestGame(int size) {
+        super(new CircularPlayerRotator.Factory(), 2);
+        mBoard = new TestBoard(size, size);
+
+        for (int id = 0; id < 2; id++) {
+            setPlayer(new TestPlayer(this, id, size), id);
+        }
+
+        renewInputController();
+        setCountsCaptures(true);
+
+        final FlatBoard board = (FlatBoard) mBoard;
+
+        for (int c = 0; c < size; c++) {
+            board.setPieceAt(mPlayers[0].myPieces[c], 0, c);
+            board.setPieceAt(mPlayers[1].myPieces[c], size - 1, c);
+        }
+
+        addBoardEventListener(new AbstractBoardEventAdapter());
+    }
+
+    GameInputController controller() {
+        return mController;
+    }
+
+    /**
+     * Wraps the rotator in one that doesn't extend
+     * {@link AbstractPlayerRotator}, so it can't be rewound.
+     */
+    void useForwardOnlyRotator() {
+        final PlayerRotator rotator = mController.playerRotator;
+
+        mController.playerRotator = new PlayerRotator() {
+            @Override
+            public Player[] getPlayers() {
+                return rotator.getPlayers();
+            }
+
+            @Override
+            public void setPlayers(Player[] players) {
+                rotator.setPlayers(players);
+            }
+
+            @Override
+            public int getCurrentId() {
+                return rotator.getCurrentId();
+            }
+
+            @Override
+            public Player nextPlayer() {
+                return rotator.nextPlayer();
+            }
+
+            @Override
+            public Player previousPlayer() {
+                return rotator.previousPlayer();
+            }
+        };
+    }
+}
@@ -0,0 +1,35 @@
+package com.silcos.board;
+
+/**
+ * Fixtures for tests outside of this package.
+ */
+public final class TestGames {
+
+    /**
+     * Returns the state of a square test board that holds only the given
+     * pieces.
+     *
+     * @param size no. of rows & columns
+     * @param pieces {playerId, row, col} of each piece to place
+     * @return state cache of the board
+     */
+    public static BoardMonoStateCache stateWithPieces(int size, int[][] pieces) {
+        final TestGame game = new TestGame(size);
+        final FlatBoard board = (FlatBoard) game.board();
+        final int[] used = new int[2];
+
+        for (int offset = 0; offset < board.cellCount(); offset++) {
+            board.setPieceAt(null, offset);
+        }
+
+        for (int[] piece : pieces) {
+            board.setPieceAt(game.getPlayer(piece[0]).myPieces[used[piece[0]]++],
+                    piece[1], piece[2]);
+        }
+
+        return BoardMonoStateCache.buildCache(game);
+    }
+
+    private TestGames() {
+    }
+}
@@ -0,0 +1,116 @@
+package com.silcos.board;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class TimerWheelTest {
+
+    static class RecordingTimeout extends TimerWheel.Timeout {
+
+        final List<Long> payloads = new ArrayList<>();
+
+        @Override
+        protected void expire(long payload) {
+            payloads.add(payload);
+        }
+    }
+
+    @Test
+    public void timeouts_expireOnTheirTick() {
+        final TimerWheel wheel = new TimerWheel(10, 4);
+        final RecordingTimeout near = new RecordingTimeout();
+        final RecordingTimeout far = new RecordingTimeout();
+
+        wheel.schedule(near, 20, 1);
+        wheel.schedule(far, 100, 2);
+        assertEquals(2, wheel.pendingTimeouts());
+
+        wheel.advance();
+        assertTrue(near.payloads.isEmpty());
+        wheel.advance();
+        assertEquals(1, near.payloads.size());
+
+        for (int i = 0; i < 7; i++) {
+            wheel.advance();
+        }
+
+        assertTrue(far.payloads.isEmpty());
+        wheel.advance();
+        assertEquals(Long.valueOf(2), far.payloads.get(0));
+        assertEquals(0, wheel.pendingTimeouts());
+    }
+
+    @Test
+    public void rescheduleAndCancel_areImmediate() {
+        final TimerWheel wheel = new TimerWheel(10, 8);
+        final RecordingTimeout timeout = new RecordingTimeout();
+
+        wheel.schedule(timeout, 10, 1);
+        wheel.schedule(timeout, 30, 2);
+        assertEquals(1, wheel.pendingTimeouts());
+
+        wheel.advance();
+        wheel.advance();
+        wheel.advance();
+        assertEquals(1, timeout.payloads.size());
+        assertEquals(Long.valueOf(2), timeout.payloads.get(0));
+
+        wheel.schedule(timeout, 10, 3);
+        wheel.cancel(timeout);
+        wheel.advance();
+        assertFalse(timeout.isScheduled());
+        assertEquals(1, timeout.payloads.size());
+    }
+
+    @Test
+    public void timer_ticksOnWheel() {
+        final TestGame game = new TestGame(4);
+        final ManualProvider provider = new ManualProvider();
+        game.setPlatformProvider(provider);
+
+        final TimerWheel wheel = new TimerWheel(100, 16);
+        final Timer timer = new Timer(2, 1000, game, wheel).resetAll(3);
+        final List<Integer> ticks = new ArrayList<>();
+
+        game.addBoardEventListener(BoardGame.TIMER_TICK_EVENT, new BoardEventListener() {
+            @Override
+            public void handleEvent(Event e) {
+                ticks.add(((TimerTickEvent) e).newValue);
+            }
+        });
+
+        timer.start(0);
+
+        for (int i = 0; i < 10; i++) {
+            wheel.advance();
+        }
+
+        // Ticks are handed to the provider, not run on the wheel's thread
+        assertTrue(ticks.isEmpty());
+        assertEquals(1, provider.tasks.size());
+
+        final Runnable dispatch = provider.tasks.get(0);
+        provider.runAll();
+
+        for (int i = 0; i < 10; i++) {
+            wheel.advance();
+
+            // Each tick reuses the timer's one dispatch task
+            for (Runnable task : provider.tasks) {
+                assertSame(dispatch, task);
+            }
+
+            provider.runAll();
+        }
+
+        assertEquals(2, ticks.size());
+        assertEquals(1, timer.getPlayerTime(0));
+
+        timer.pause();
+        assertEquals(0, wheel.pendingTimeouts());
+    }
+}
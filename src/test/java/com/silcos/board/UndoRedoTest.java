@@ -0,0 +1,139 @@
+package com.silcos.board;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class UndoRedoTest {
+
+    @Test
+    public void undo_restoresCaptureStatsAndTurn() {
+        final TestGame game = new TestGame(4);
+        final BoardMonoStateCache start = BoardMonoStateCache.buildCache(game);
+        final long startKey = game.zobristKey();
+        final Piece attacker = game.pieceAt(0, 0);
+        final Piece victim = game.pieceAt(3, 0);
+        final List<MoveUndoEvent> undos = new ArrayList<>();
+
+        game.addBoardEventListener(BoardGame.MOVE_UNDO_EVENT, new BoardEventListener() {
+            @Override
+            public void handleEvent(Event e) {
+                undos.add((MoveUndoEvent) e);
+            }
+        });
+
+        game.controller().placeMove(new Move(true, 0, 0, 3, 0));
+        assertEquals(3, game.getPlayerStat(1).livePieces());
+        assertEquals(1, game.controller().playerRotator.getCurrentId());
+
+        assertTrue(game.controller().undoMove());
+
+        assertSame(attacker, game.pieceAt(0, 0));
+        assertSame(victim, game.pieceAt(3, 0));
+        assertEquals(4, game.getPlayerStat(1).livePieces());
+        assertEquals(0, game.controller().playerRotator.getCurrentId());
+        assertEquals(0, game.getMoveCount());
+        assertEquals(startKey, game.zobristKey());
+        assertEquals(start, BoardMonoStateCache.buildCache(game));
+
+        assertEquals(1, undos.size());
+        assertSame(victim, undos.get(0).killedHolder);
+        assertFalse(game.controller().undoMove());
+    }
+
+    @Test
+    public void gamesCountingTheirOwnCaptures_countEachOnce() {
+        final TestGame game = new TestGame(4);
+
+        game.setCountsCaptures(false);
+        game.addBoardEventListener(BoardGame.PIECE_MOVE_EVENT, new BoardEventListener() {
+            @Override
+            public void handleEvent(Event e) {
+                final MoveEvent move = (MoveEvent) e;
+
+                if (move.killedHolder != null) {
+                    game.getPlayerStat(1).onKilled((Piece) move.killedHolder);
+                }
+            }
+        });
+
+        game.controller().placeMove(new Move(true, 0, 0, 3, 0));
+        assertEquals(3, game.getPlayerStat(1).livePieces());
+
+        assertTrue(game.controller().undoMove());
+        assertEquals(4, game.getPlayerStat(1).livePieces());
+    }
+
+    @Test
+    public void injectedAdapters_receiveUndosInOnOther() {
+        final TestGame game = new TestGame(4);
+        final List<Event> others = new ArrayList<>();
+
+        game.addBoardEventListener(new InjectedBoardEventAdapter(new BoardEventAdapter() {
+            @Override
+            public void onPlayerWire(Event e) {
+            }
+
+            @Override
+            public void onMove(Event e) {
+            }
+
+            @Override
+            public void onFinish(Event e) {
+            }
+
+            @Override
+            public void onTimerTick(Event e) {
+            }
+
+            @Override
+            public void onElimination(Event e) {
+            }
+
+            @Override
+            public void onOther(Event e) {
+                others.add(e);
+            }
+        }));
+
+        game.controller().placeMove(new Move(true, 0, 0, 1, 0));
+        assertTrue(game.controller().undoMove());
+
+        assertEquals(1, others.size());
+        assertTrue(others.get(0) instanceof MoveUndoEvent);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void undo_needsARewindableRotator() {
+        final TestGame game = new TestGame(4);
+
+        game.useForwardOnlyRotator();
+        game.controller().undoMove();
+    }
+
+    @Test
+    public void redo_replaysUndoneMovesUntilANewMove() {
+        final TestGame game = new TestGame(4);
+
+        game.controller().placeMove(new Move(true, 0, 1, 1, 1));
+        game.controller().placeMove(new Move(true, 3, 2, 2, 2));
+        final BoardMonoStateCache after = BoardMonoStateCache.buildCache(game);
+
+        assertTrue(game.controller().undoMove());
+        assertTrue(game.controller().undoMove());
+        assertTrue(game.controller().canRedo());
+
+        assertTrue(game.controller().redoMove());
+        assertTrue(game.controller().redoMove());
+        assertFalse(game.controller().redoMove());
+        assertEquals(after, BoardMonoStateCache.buildCache(game));
+        assertEquals(2, game.getMoveCount());
+
+        game.controller().undoMove();
+        game.controller().placeMove(new Move(true, 3, 3, 2, 3));
+        assertFalse(game.controller().canRedo());
+    }
+}
@@ -0,0 +1,50 @@
+package com.silcos.board;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ZobristTableTest {
+
+    @Test
+    public void tables_areSharedAndDeterministic() {
+        final ZobristTable a = ZobristTable.forDimensions(8, 8, 2, 12);
+        final ZobristTable b = ZobristTable.forDimensions(8, 8, 2, 12);
+
+        assertSame(a, b);
+        assertNotEquals(a.key(0, 0, 0), a.key(0, 0, 1));
+        assertEquals(0, a.key(5, null));
+        assertEquals(0, a.key(5, -1L));
+    }
+
+    @Test
+    public void liveKey_matchesFullHashAfterMoves() {
+        final TestGame game = new TestGame(6);
+        final long initialKey = game.zobristKey();
+
+        assertTrue(game.controller().placeMove(new Move(true, 0, 0, 3, 3)));
+        assertTrue(game.controller().placeMove(new Move(true, 5, 1, 3, 3)));
+
+        final long key = game.zobristKey();
+        assertNotEquals(initialKey, key);
+        assertEquals(game.board().getZobristTable().hash(game.board()), key);
+    }
+
+    @Test
+    public void stateCache_keyFollowsDoMove() {
+        final TestGame game = new TestGame(6);
+        final BoardMonoStateCache before = BoardMonoStateCache.buildCache(game);
+        final long beforeKey = before.zobristKey();
+        final Move move = new Move(true, 0, 2, 4, 2);
+
+        final BoardMonoStateCache after = before.doMove(move, 6, 6);
+        assertTrue(game.controller().placeMove(move));
+
+        final BoardMonoStateCache rebuilt = BoardMonoStateCache.buildCache(game);
+        assertEquals(beforeKey, before.zobristKey());
+        assertEquals(rebuilt.zobristKey(), after.zobristKey());
+        assertEquals(game.zobristKey(), after.zobristKey());
+        assertEquals(rebuilt, after);
+        assertNotEquals(before, after);
+    }
+}
@@ -0,0 +1,132 @@
+package com.silcos.board.search;
+
+import com.silcos.board.BoardMonoStateCache;
+import com.silcos.board.BoardPlatformProvider;
+import com.silcos.board.PackedMove;
+import com.silcos.board.Piece;
+import com.silcos.board.TestGames;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class AlphaBetaSearchTest {
+
+    /**
+     * Pieces step one cell in any direction, capturing enemy pieces;
+     * material is the evaluation.
+     */
+    static class KingStepRules implements SearchRules<BoardMonoStateCache> {
+
+        @Override
+        public int generateMoves(BoardMonoStateCache state, int playerId, long[] moves, int offset) {
+            final int rows = state.getRows();
+            final int cols = state.getColumns();
+            int count = 0;
+
+            for (int r = 0; r < rows; r++) {
+                for (int c = 0; c < cols; c++) {
+                    final Piece piece = state.pieceAt(r, c);
+
+                    if (piece == null || piece.playerId() != playerId)
+                        continue;
+
+                    for (int dr = -1; dr <= 1; dr++) {
+                        for (int dc = -1; dc <= 1; dc++) {
+                            final int tr = r + dr;
+                            final int tc = c + dc;
+
+                            if ((dr | dc) == 0 || tr < 0 || tc < 0 || tr >= rows || tc >= cols)
+                                continue;
+
+                            final Piece target = state.pieceAt(tr, tc);
+
+                            if (target == null || target.playerId() != playerId) {
+                                moves[offset + count++] = PackedMove.encode(r, c, tr, tc);
+                            }
+                        }
+                    }
+                }
+            }
+
+            return count;
+        }
+
+        @Override
+        public int evaluate(BoardMonoStateCache state, int playerId) {
+            int score = 0;
+
+            for (int r = 0; r < state.getRows(); r++) {
+                for (int c = 0; c < state.getColumns(); c++) {
+                    final Piece piece = state.pieceAt(r, c);
+
+                    if (piece != null) {
+                        score += (piece.playerId() == playerId) ? 1 : -1;
+                    }
+                }
+            }
+
+            return score;
+        }
+
+        @Override
+        public int nextPlayer(int playerId) {
+            return 1 - playerId;
+        }
+    }
+
+    @Test
+    public void search_findsFreeCapture() {
+        final BoardMonoStateCache state = TestGames.stateWithPieces(5,
+                new int[][] {{0, 0, 0}, {1, 1, 1}, {1, 4, 4}});
+        final long key = state.zobristKey();
+
+        final SearchResult result = new AlphaBetaSearch<>(new KingStepRules())
+                .setMaxDepth(3)
+                .setTimeLimit(0)
+                .search(state, 0);
+
+        assertEquals(PackedMove.encode(0, 0, 1, 1), result.bestMove);
+        assertEquals(3, result.depth);
+        assertEquals(key, state.zobristKey());
+        assertEquals(0, state.madeMoveCount());
+    }
+
+    @Test
+    public void parallelSearch_agreesWithSerialSearch() throws Exception {
+        final BoardMonoStateCache state = TestGames.stateWithPieces(5,
+                new int[][] {{0, 0, 0}, {0, 2, 1}, {1, 1, 1}, {1, 4, 4}, {1, 3, 2}});
+        final AlphaBetaSearch<BoardMonoStateCache> engine =
+                new AlphaBetaSearch<>(new KingStepRules()).setMaxDepth(4).setTimeLimit(0);
+        final SearchResult serial = engine.search(state, 0);
+
+        final CountDownLatch done = new CountDownLatch(1);
+        final AtomicReference<SearchResult> parallel = new AtomicReference<>();
+
+        engine.setParallelism(4).search(state, 0, new BoardPlatformProvider() {
+            @Override
+            public void runComputeIntensiveTask(String taskName, Runnable taskExec) {
+                new Thread(taskExec).start();
+            }
+
+            @Override
+            public void runComputeIntensiveTaskAfter(int ms, String taskName, Runnable taskExec) {
+                throw new UnsupportedOperationException();
+            }
+        }, new SearchCallback() {
+            @Override
+            public void onSearchFinished(SearchResult result) {
+                parallel.set(result);
+                done.countDown();
+            }
+        });
+
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertEquals(serial.score, parallel.get().score);
+        assertEquals(4, parallel.get().depth);
+    }
+}
@@ -0,0 +1,76 @@
+package com.silcos.board.search;
+
+import com.silcos.board.BoardMonoStateCache;
+import com.silcos.board.BoardPlatformProvider;
+import com.silcos.board.PackedMove;
+import com.silcos.board.TestGames;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class MonteCarloTreeSearchTest {
+
+    @Test
+    public void search_prefersFreeCapture() {
+        final BoardMonoStateCache state = TestGames.stateWithPieces(5,
+                new int[][] {{0, 0, 0}, {0, 0, 4}, {1, 1, 1}, {1, 4, 4}});
+        final long key = state.zobristKey();
+
+        final MonteCarloResult result = new MonteCarloTreeSearch<>(
+                new AlphaBetaSearchTest.KingStepRules())
+                .setTimeLimit(0)
+                .setMaxPlayouts(20000)
+                .setMaxPlayoutLength(2)
+                .search(state, 0);
+
+        assertEquals(PackedMove.encode(0, 0, 1, 1), result.bestMove);
+        assertTrue(result.playouts() >= 20000);
+        assertTrue(result.treeSize > 1);
+        assertEquals(key, state.zobristKey());
+        assertEquals(0, state.madeMoveCount());
+    }
+
+    @Test
+    public void parallelSearch_sharesOneTree() throws Exception {
+        final BoardMonoStateCache state = TestGames.stateWithPieces(5,
+                new int[][] {{0, 0, 0}, {0, 0, 4}, {1, 1, 1}, {1, 4, 4}});
+        final CountDownLatch done = new CountDownLatch(1);
+        final AtomicReference<SearchResult> result = new AtomicReference<>();
+
+        new MonteCarloTreeSearch<>(new AlphaBetaSearchTest.KingStepRules())
+                .setParallelism(4)
+                .setTimeLimit(0)
+                .setMaxPlayouts(40000)
+                .setMaxPlayoutLength(2)
+                .search(state, 0, new BoardPlatformProvider() {
+                    @Override
+                    public void runComputeIntensiveTask(String taskName, Runnable taskExec) {
+                        new Thread(taskExec).start();
+                    }
+
+                    @Override
+                    public void runComputeIntensiveTaskAfter(int ms, String taskName,
+                                                             Runnable taskExec) {
+                        throw new UnsupportedOperationException();
+                    }
+                }, new SearchCallback() {
+                    @Override
+                    public void onSearchFinished(SearchResult r) {
+                        result.set(r);
+                        done.countDown();
+                    }
+                });
+
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+
+        final MonteCarloResult mcts = (MonteCarloResult) result.get();
+        assertEquals(PackedMove.encode(0, 0, 1, 1), mcts.bestMove);
+        assertEquals(4, mcts.workers);
+        assertTrue(mcts.playouts() >= 40000);
+    }
+}
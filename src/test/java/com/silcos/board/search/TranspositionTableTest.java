@@ -0,0 +1,75 @@
+package com.silcos.board.search;
+
+import com.silcos.board.BoardMonoStateCache;
+import com.silcos.board.PackedMove;
+import com.silcos.board.TestGames;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class TranspositionTableTest {
+
+    @Test
+    public void storedEntries_areFoundWithTheirData() {
+        final TranspositionTable table = new TranspositionTable(1024);
+        final long[] out = new long[2];
+        final long move = PackedMove.encode(1, 2, 3, 4);
+
+        assertFalse(table.probe(42, out));
+        table.store(42, move, -150, 6, TranspositionTable.LOWER_BOUND);
+        assertTrue(table.probe(42, out));
+
+        assertEquals(move, out[0]);
+        assertEquals(-150, TranspositionTable.score(out[1]));
+        assertEquals(6, TranspositionTable.depth(out[1]));
+        assertEquals(TranspositionTable.LOWER_BOUND, TranspositionTable.bound(out[1]));
+
+        assertEquals(1, table.getHits());
+        assertEquals(1, table.getMisses());
+        assertEquals(1, table.getStores());
+    }
+
+    @Test
+    public void bucket_keepsDeepestAndLatestEntry() {
+        final TranspositionTable table = new TranspositionTable(1);
+        final long[] out = new long[2];
+
+        table.store(1, PackedMove.NONE, 10, 8, TranspositionTable.EXACT);
+        table.store(2, PackedMove.NONE, 20, 2, TranspositionTable.EXACT);
+        table.store(3, PackedMove.NONE, 30, 3, TranspositionTable.EXACT);
+
+        assertTrue(table.probe(1, out));
+        assertEquals(8, TranspositionTable.depth(out[1]));
+        assertFalse(table.probe(2, out));
+        assertTrue(table.probe(3, out));
+        assertEquals(1, table.getCollisions());
+
+        // Entries from an earlier search give way to the current one
+        table.newSearch();
+        table.store(4, PackedMove.NONE, 40, 1, TranspositionTable.EXACT);
+        assertFalse(table.probe(1, out));
+        assertTrue(table.probe(4, out));
+    }
+
+    @Test
+    public void search_withTableAgreesWithoutTable() {
+        final BoardMonoStateCache state = TestGames.stateWithPieces(5,
+                new int[][] {{0, 0, 0}, {0, 2, 1}, {1, 1, 1}, {1, 4, 4}, {1, 3, 2}});
+        final AlphaBetaSearch<BoardMonoStateCache> plain =
+                new AlphaBetaSearch<>(new AlphaBetaSearchTest.KingStepRules())
+                        .setMaxDepth(4).setTimeLimit(0);
+        final TranspositionTable table = new TranspositionTable(1 << 12);
+        final AlphaBetaSearch<BoardMonoStateCache> hashed =
+                new AlphaBetaSearch<>(new AlphaBetaSearchTest.KingStepRules())
+                        .setMaxDepth(4).setTimeLimit(0).setTranspositionTable(table);
+
+        final SearchResult expected = plain.search(state, 0);
+        final SearchResult result = hashed.search(state, 0);
+
+        assertEquals(expected.score, result.score);
+        assertTrue(result.nodes < expected.nodes);
+        assertTrue(table.getHits() > 0);
+        assertEquals(0, state.madeMoveCount());
+    }
+}